@@ -7,8 +7,13 @@ import java.util.Set;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import user.*;
 import food.*;
@@ -42,6 +47,14 @@ public class CLI {
      * @param args command line arguments (not used)
      */
     public static void main(String[] args) {
+        // The IDs given by the CLI are persisted, so they are not given again after a restart
+        try {
+            IdAllocator.setDefault(IdAllocator.fromSystemProperties());
+        } catch (IOException e) {
+            System.out.println("The high-water mark of the IDs cannot be read: " + e.getMessage());
+            return;
+        }
+
         // Initialize the MyFoodora system instance
         system = MyFoodora.getInstance();
         initialization();
@@ -281,6 +294,9 @@ public class CLI {
             case "OFFDUTY":
                 offDuty(args);
                 break;
+            case "COMPLETEDELIVERY":
+                completeDelivery();
+                break;
             case "SETDELIVERYPOLICY":
                 setDeliveryPolicy(args);
                 break;
@@ -296,6 +312,9 @@ public class CLI {
             case "SHOWORDERS":
                 showOrders(args);
                 break;
+            case "SHOWORDER":
+                showOrder(args);
+                break;
             case "SHOWRESTAURANTS":
                 showRestaurants();
                 break;
@@ -315,7 +334,7 @@ public class CLI {
                 consentNotifications(args);
                 break;
             case "SHOWCOURIERDELIVERIES":
-                showCourierDeliveries();
+                showCourierDeliveries(args);
                 break;
             case "SHOWRESTAURANTTOP":
                 showRestaurantTop();
@@ -329,6 +348,36 @@ public class CLI {
             case "SHOWTOTALPROFIT":
                 showTotalProfit(args);
                 break;
+            case "ADDSHADOWPOLICY":
+                addShadowPolicy(args);
+                break;
+            case "CLEARSHADOWPOLICIES":
+                clearShadowPolicies();
+                break;
+            case "SHOWSHADOWMETRICS":
+                showShadowMetrics();
+                break;
+            case "SHOWFORECAST":
+                showForecast(args);
+                break;
+            case "SHOWORDERSTATUS":
+                showOrderStatus(args);
+                break;
+            case "ARCHIVEORDERS":
+                archiveOrders(args);
+                break;
+            case "SHOWRESTAURANTPROFIT":
+                showRestaurantProfit(args);
+                break;
+            case "SHOWHOURLYPROFILE":
+                showHourlyProfile(args);
+                break;
+            case "SHOWHOURLYORDERS":
+                showHourlyOrders(args);
+                break;
+            case "BACKTESTPROFIT":
+                backtestProfit(args);
+                break;
             case "SETUP":
             	setup(args);
             	break;
@@ -390,6 +439,8 @@ public class CLI {
         System.out.println("    - OFFDUTY - Mark yourself as off duty to stop accepting new orders.");
         System.out.println("    - ACCEPTORDER - Accepts order and the refuses the others.");
         System.out.println("    - REFUSEORDER - Refuses chosen order.");
+        System.out.println("    - COMPLETEDELIVERY - Marks the order you are delivering as delivered and puts you back on duty after your last order.");
+        System.out.println("    - SHOWORDER <orderId> - Show details of an order you were offered or are delivering.");
     }
 
     /**
@@ -419,12 +470,13 @@ public class CLI {
     public static void printCustomerHelp(){
         System.out.println("Customer Commands Available :");
         System.out.println("    - CREATEORDER <restaurantName> - Create a new order with the specified restaurant.");
-        System.out.println("    - ADDITEM2ORDER <itemType> <itemName> - Add an item to an existing order.");
+        System.out.println("    - ADDITEM2ORDER <itemType> <itemName> [<quantity>] - Add an item to an existing order, one unit by default.");
         System.out.println("    - ENDORDER - End the current order, finalizing it and processing it.");
         System.out.println("    - ASSOCIATECARD <cardNumber> - Associate a fidelity card with your account.");
         System.out.println("    - SHOWMENUITEMS <restaurantName> - Show details of a specific restaurant's menu.");
         System.out.println("    - SHOWRESTAURANTS - Show a list of all available restaurants.");
         System.out.println("    - SHOWORDERS [<restaurantName>] - Show a list of your past orders, can be to a specific restaurant.");
+        System.out.println("    - SHOWORDER <orderId> - Show details and status of one of your orders.");
         System.out.println("    - SHOWPOPULARRESTAURANTS - Show a list of the most popular restaurants.");
         System.out.println("    - SHOWMONEYSPENT [<restaurantName>] - Show the total amount of money spent on orders, can be to a specific restaurant.");
         System.out.println("    - CHANGEADDRESS <x> <y>  - Change your delivery address.");
@@ -442,12 +494,23 @@ public class CLI {
         System.out.println("    - SHOWMENUITEMS <restaurantName> - Show details of a specific restaurant's menu.");
         System.out.println("    - ASSOCIATECARD <cardNumber> <customerUsername> - Associate a fidelity card with a customer account.");
         System.out.println("    - REGISTER <userType> - Register a new user account. User types can be: MANAGER, CUSTOMER, RESTAURANT, COURIER.");
-        System.out.println("    - SHOWCOURIERDELIVERIES - Display the list of couriers sorted in decreasing order w.r.t. the number of completed deliveries.");
+        System.out.println("    - SHOWCOURIERDELIVERIES [<startDate YYYY-MM-DD> <endDate YYYY-MM-DD>] - Display the list of couriers sorted in decreasing order w.r.t. the number of completed deliveries, over all the orders by default.");
         System.out.println("    - SHOWRESTAURANTTOP - Display list of restaurants sorted in decreasing order w.r.t. the number of delivered orders.");
         System.out.println("    - SHOWCUSTOMERS - Display the list of customers.");
+        System.out.println("    - SHOWORDER <orderId> - Show details and status of any order of the system.");
         System.out.println("    - SHOWTOTALPROFIT <startDate YYYY-MM-DD> <endDate YYYY-MM-DD> - Show the total profit of the system. Time interval is optional.");
-        System.out.println("    - SETDELIVERPOLICY <delPolicy> - set the delivery policy of the system : FairOccupationDelivery, FastestDelivery.");
+        System.out.println("    - SETDELIVERPOLICY <delPolicy> [<args>] - set the delivery policy of the system : FairOccupationDelivery, FastestDelivery, ZoneShardedDelivery [<cellSize>], CompositeScoreDelivery [<distanceWeight> <deliveryWeight> <loadWeight> <refusalWeight> <K>].");
         System.out.println("    - SETPROFITPOLICY <profitPolicy> - set the profit policy of the system : DeliveryCostOriented, MarkupPercentageOriented, ServiceFeeOriented.");
+        System.out.println("    - ADDSHADOWPOLICY <delPolicy> [<args>] - evaluate a delivery policy in shadow mode on the next orders, without using its selection.");
+        System.out.println("    - CLEARSHADOWPOLICIES - stop evaluating the shadow delivery policies.");
+        System.out.println("    - SHOWSHADOWMETRICS - compare the live delivery policy with the shadow delivery policies.");
+        System.out.println("    - SHOWFORECAST [<deliveriesPerCourierPerHour>] - Show the orders forecast for the next hour per restaurant and zone, and the couriers needed.");
+        System.out.println("    - SHOWORDERSTATUS [<status>] - Show the number of orders in each status, or the orders in one status : CREATED, OFFERED, ACCEPTED, DELIVERED, CANCELLED.");
+        System.out.println("    - ARCHIVEORDERS <ageInDays> [<directory>] - Move the delivered and cancelled orders older than the given age to the order archive (default directory: archive).");
+        System.out.println("    - SHOWRESTAURANTPROFIT [<startDate YYYY-MM-DD> <endDate YYYY-MM-DD>] - Show the orders, gross, markup, service fees, delivery cost and profit of each restaurant, over all the orders by default.");
+        System.out.println("    - SHOWHOURLYPROFILE [<hours>] - Show the orders, revenue and profit of the most profitable hours of the week (all hours with orders by default).");
+        System.out.println("    - SHOWHOURLYORDERS [<startDate YYYY-MM-DD> <endDate YYYY-MM-DD>] - Show the number of orders made at each hour of the day, over all the orders by default.");
+        System.out.println("    - BACKTESTPROFIT <monthlyTargetProfit> - Replay the profit policies month by month over the past orders, from the current profit data.");
     }
 
     /**
@@ -1100,10 +1163,10 @@ public class CLI {
         }
         if (args.length == 2) {
             String dishName = args[0];
-            double newPrice;
+            Money newPrice;
 
             try {
-                newPrice = Double.parseDouble(args[1]);
+                newPrice = Money.parse(args[1]);
             } catch (NumberFormatException e) {
                 print("Error: Price must be a valid number.");
                 return;
@@ -1125,7 +1188,7 @@ public class CLI {
     /**
      * Adds an item to an existing order.
      *
-     * @param args the arguments for adding an item to an order, such as order ID and item ID
+     * @param args the arguments for adding an item to an order: item type, item name and optional quantity
      */
     public static void addItem2Order(String... args) {
     	if (system.getCurrentUser() == null) {
@@ -1137,9 +1200,22 @@ public class CLI {
             return;
         }
         
-        if (args.length == 2) {
+        if (args.length == 2 || args.length == 3) {
             String itemType = args[0];
             String itemName = args[1];
+            int quantity = 1;
+            if (args.length == 3) {
+            	try {
+            		quantity = Integer.parseInt(args[2]);
+            	} catch (NumberFormatException e) {
+            		print("Error: the quantity must be a number.");
+            		return;
+            	}
+            	if (quantity <= 0) {
+            		print("Error: the quantity must be positive.");
+            		return;
+            	}
+            }
 
             Customer customer = (Customer) system.getCurrentUser();
             Order currentOrder = customer.getCurrentOrder();
@@ -1149,7 +1225,7 @@ public class CLI {
                 return;
             }
             
-            if (customer.getCurrentOrder().getCurrentStatus().equals("COMPLETED AND WAITING FOR ACCEPTANCE OF A COURIER")) {
+            if (currentOrder.getStatus() != OrderStatus.CREATED) {
             	print("You order is already completed, the system is searching for a courier.");
             	return;
             }
@@ -1163,14 +1239,14 @@ public class CLI {
                         print("Meal not found: " + itemName);
                         return;
                     }
-                    currentOrder.addMeal(meal);
+                    currentOrder.addMeal(meal, quantity);
                 } else if (itemType.equalsIgnoreCase("dish")) {
                     Dish dish = restaurant.getDishByName(itemName);
                     if (dish == null) {
                         print("Dish not found: " + itemName);
                         return;
                     }
-                    currentOrder.addDish(dish);
+                    currentOrder.addDish(dish, quantity);
                 } else {
                     print("Invalid item type. Use 'meal' or 'dish'.");
                     return;
@@ -1181,7 +1257,7 @@ public class CLI {
             }
 
         } else {
-            print("Usage: addItem2Order <itemType> <itemName>");
+            print("Usage: addItem2Order <itemType> <itemName> [<quantity>]");
         }
     }
     
@@ -1209,8 +1285,8 @@ public class CLI {
         // Printing dishes
         boolean emptyDishesCurrentOrder = true;
         print("---------- Dishes in your order ----------");
-        for (Dish dish : currentOrder.getDishes()) {
-        	print(dish.toString());
+        for (Map.Entry<Dish, Integer> item : currentOrder.getDishQuantities().entrySet()) {
+        	print(item.getValue() + " x " + item.getKey().toString());
         	emptyDishesCurrentOrder = false;
         }
         if (emptyDishesCurrentOrder) {
@@ -1221,8 +1297,8 @@ public class CLI {
         boolean emptyMealsCurrentOrder = true;
         print("---------- Meals in your order -----------");
         
-        for (Meal meal : currentOrder.getMeals()) {
-        	print(meal.toString());
+        for (Map.Entry<Meal, Integer> item : currentOrder.getMealQuantities().entrySet()) {
+        	print(item.getValue() + " x " + item.getKey().toString());
         	emptyMealsCurrentOrder = false;
         }
         if (emptyMealsCurrentOrder) {
@@ -1262,7 +1338,7 @@ public class CLI {
         	system.makeOrder(order, dishes, meals);
             print("Order ended successfully. Order ID: " + order.getId());
             print("We will find a courier for you order.");
-            customer.getCurrentOrder().setCurrentStatus("COMPLETED AND WAITING FOR ACCEPTANCE OF A COURIER");
+            printEta(order);
             CLI.pendingOrder = customer.getCurrentOrder();
         } catch (AvailableCourierNotFoundException e) {
             print("Failed to end order: " + e.getMessage());
@@ -1303,7 +1379,7 @@ public class CLI {
     		
     	case "REFUSEORDER":
     		try {
-    			boolean orderFound = ((Courier) system.getCurrentUser()).refuseOrder(Integer.parseInt(args[1]));
+    			boolean orderFound = ((Courier) system.getCurrentUser()).refuseOrder(Long.parseLong(args[1]));
     			if (orderFound) {
     				print("Order ID " + args[1] + " refused.");
     			}
@@ -1314,7 +1390,7 @@ public class CLI {
     		
     	case "ACCEPTORDER":
     		try {
-    			boolean orderFound = ((Courier) system.getCurrentUser()).acceptOrder(Integer.parseInt(args[1]));
+    			boolean orderFound = ((Courier) system.getCurrentUser()).acceptOrder(Long.parseLong(args[1]));
     			if (orderFound) {
     				print("Order ID " + args[1] + " accepted.");
     				CLI.pendingOrder.getCustomer().setCurrentOrder(null);
@@ -1338,7 +1414,7 @@ public class CLI {
     	if (CLI.pendingOrder != null) {
     		if (CLI.pendingOrder.getPossibleCouriers().size() == 0) {
     			CLI.pendingOrder.getCustomer().setCurrentOrder(null);
-    			CLI.pendingOrder.setCurrentStatus("INCOMPLETE, NO COURIER FOUND");
+    			CLI.pendingOrder.transitionTo(OrderStatus.CANCELLED);
     			CLI.pendingOrder = null;
     		}
     	}
@@ -1431,6 +1507,77 @@ public class CLI {
         }
     }
 
+    /**
+     * Displays the details of an order found by its ID.
+     * Managers can see any order, customers only their own orders and couriers
+     * only the orders they were offered or are delivering.
+     *
+     * @param args the arguments for showing an order, such as order ID
+     */
+    public static void showOrder(String... args) {
+    	if (system.getCurrentUser() == null) {
+    		print("You must be logged in to see an order.");
+    		return;
+    	}
+    	if (system.getCurrentUser().getClass() != Customer.class && system.getCurrentUser().getClass() != Courier.class
+    			&& system.getCurrentUser().getClass() != Manager.class) {
+    		print("Your user account does not permit you to see an order.");
+    		return;
+    	}
+    	if (args.length != 1) {
+    		print("Usage: showOrder <orderId>");
+    		return;
+    	}
+    	
+    	Order order;
+    	try {
+    		order = system.getOrder(Long.parseLong(args[0]));
+    	} catch (NumberFormatException e) {
+    		print("Error: You must use a number as the ID of the Order.");
+    		return;
+    	}
+    	
+    	// Customers and couriers can only see the orders they are involved in
+    	User user = system.getCurrentUser();
+    	boolean allowed = order != null;
+    	if (allowed && user instanceof Customer) {
+    		allowed = order.getCustomer().equals(user);
+    	} else if (allowed && user instanceof Courier) {
+    		allowed = user.equals(order.getCourier()) || ((Courier) user).getPendingOrders().contains(order);
+    	}
+    	if (!allowed) {
+    		print("Order not found: " + args[0]);
+    		return;
+    	}
+    	
+    	print(order.toString());
+    	print("    - Status: " + order.getCurrentStatus());
+    	print("    - Price: " + order.getPrice() + "€");
+    	print("    - Date: " + order.getDate() + " " + order.getTime());
+    	if (order.getCourier() != null) {
+    		print("    - Courier: " + order.getCourier().getUsername());
+    	}
+    	printEta(order);
+    }
+
+    /**
+     * Displays the estimated pickup and delivery times of an order waiting for a courier or being delivered.
+     *
+     * @param order the order
+     */
+    private static void printEta(Order order) {
+    	LocalDateTime now = LocalDateTime.now();
+    	EtaService.Eta eta = system.getEtaService().estimate(order, now);
+    	if (eta == null) {
+    		return;
+    	}
+    	if (eta.getPickupDelay() > 0) {
+    		print(String.format("    - Estimated pickup: %tR", eta.getPickupTime(now)));
+    	}
+    	print(String.format("    - Estimated delivery: %tR (in about %d min)", eta.getDropoffTime(now),
+    			Math.round(eta.getDropoffDelay() / 60)));
+    }
+
     /**
      * Displays a list of popular restaurants based on customer ratings or order frequency.
      */
@@ -1478,7 +1625,7 @@ public class CLI {
         }
 
         Customer customer = (Customer) system.getCurrentUser();
-        double totalSpent = 0.0;
+        Money totalSpent = Money.ZERO;
         Set<Order> orders = customer.getHistory(system);
 
         if (args.length == 1) {
@@ -1490,13 +1637,13 @@ public class CLI {
             }
             for (Order order : orders) {
                 if (order.getRestaurant().equals(restaurant)) {
-                    totalSpent += order.getPrice();
+                    totalSpent = totalSpent.plus(order.getPrice());
                 }
             }
             print("Total money spent at " + restaurantName + ": " + totalSpent + "€");
         } else if (args.length == 0) {
             for (Order order : orders) {
-                totalSpent += order.getPrice();
+                totalSpent = totalSpent.plus(order.getPrice());
             }
             print("Total money spent: " + totalSpent+ "€");
         } else {
@@ -1559,6 +1706,40 @@ public class CLI {
         }
     }
 
+    /**
+     * Marks the order being delivered by the courier as delivered.
+     * The courier is moved to the customer address and goes back on duty.
+     *
+     */
+    public static void completeDelivery() {
+    	if (system.getCurrentUser() == null) {
+    		print("You must be logged in as a Courier to complete a delivery.");
+    		return;
+    	}
+        if (system.getCurrentUser().getClass() != Courier.class) {
+            print("You must be logged in as a Courier to complete a delivery.");
+            return;
+        }
+
+        Courier courier = (Courier) system.getCurrentUser();
+        if (courier.getCurrentDeliveringOrder() == null) {
+            print("You are not delivering any order.");
+            return;
+        }
+        try {
+            Order order = system.completeDelivery(courier.getCurrentDeliveringOrder().getId());
+            Order nextOrder = courier.getCurrentDeliveringOrder();
+            if (nextOrder == null) {
+                print("Order ID " + order.getId() + " delivered. You are back on duty " + courier.getPosition() + ".");
+            } else {
+                print("Order ID " + order.getId() + " delivered. Next stop: order ID " + nextOrder.getId()
+                        + " for " + nextOrder.getCustomer().getUsername() + " " + nextOrder.getCustomer().getAdress() + ".");
+            }
+        } catch (BadOrderHandlingException e) {
+            print("Failed to complete delivery: " + e.getMessage());
+        }
+    }
+
     /**
      * Changes the address of the current user (Customer).
      *
@@ -1665,22 +1846,417 @@ public class CLI {
             return;
         }
     	
+    	DeliveryStrategy deliveryStrategy = createDeliveryPolicy(args);
+    	if (deliveryStrategy == null) {
+    		return;
+    	}
+    	system.setDeliveryStrategy(deliveryStrategy);
+    	
+    	print("Delivery policy " + args[0] + " setted.");
+    }
+
+    /**
+     * Creates the delivery policy described by the arguments.
+     * Prints an error message if the policy or its parameters are not recognized.
+     *
+     * @param args the name of the delivery policy followed by its parameters
+     * @return the delivery policy, or null if the arguments are not valid
+     */
+    private static DeliveryStrategy createDeliveryPolicy(String... args) {
     	switch (args[0].toUpperCase()) {
     	
     	case "FAIROCCUPATIONDELIVERY":
-    		system.setDeliveryStrategy(new FairOccupationDelivery());
-    		break;
+    		return new FairOccupationDelivery();
     		
     	case "FASTESTDELIVERY":
-    		system.setDeliveryStrategy(new FastestDelivery());
-    		break;
+    		return new FastestDelivery();
+    		
+    	case "ZONESHARDEDDELIVERY":
+    		double cellSize = 10;
+    		if (args.length > 1) {
+    			try {
+    				cellSize = Double.parseDouble(args[1]);
+    			} catch (NumberFormatException e) {
+    				print("Error: the cell size must be a number.");
+    				return null;
+    			}
+    		}
+    		if (cellSize <= 0) {
+    			print("Error: the cell size must be positive.");
+    			return null;
+    		}
+    		return new ZoneShardedDelivery(cellSize);
+    		
+    	case "COMPOSITESCOREDELIVERY":
+    		if (args.length == 1) {
+    			return new CompositeScoreDelivery();
+    		}
+    		if (args.length != 6) {
+    			print("Usage: SETDELIVERYPOLICY CompositeScoreDelivery [<distanceWeight> <deliveryWeight> <loadWeight> <refusalWeight> <K>]");
+    			return null;
+    		}
+    		try {
+    			int maxCandidates = Integer.parseInt(args[5]);
+    			if (maxCandidates <= 0) {
+    				print("Error: K must be positive.");
+    				return null;
+    			}
+    			return new CompositeScoreDelivery(Double.parseDouble(args[1]), Double.parseDouble(args[2]),
+    					Double.parseDouble(args[3]), Double.parseDouble(args[4]), maxCandidates);
+    		} catch (NumberFormatException e) {
+    			print("Error: the weights and K must be numbers.");
+    			return null;
+    		}
     		
     	default:
     		print("Error: Unrecognized delivery policy.");
+    		return null;
+    	}
+    }
+
+    /**
+     * Adds a delivery policy evaluated in shadow mode (Manager only).
+     *
+     * @param args the name of the delivery policy followed by its parameters
+     */
+    public static void addShadowPolicy(String... args) {
+    	if (system.getCurrentUser() == null) {
+    		print("Your user account does not permit you to add a shadow delivery policy: you are not logged in.");
+    		return;
+    	}
+    	if (system.getCurrentUser().getClass() != Manager.class) {
+            print("Your user account does not permit you to add a shadow delivery policy.");
+            return;
+        }
+    	if (args.length < 1) {
+    		print("Usage: ADDSHADOWPOLICY <delPolicy> [<args>]");
     		return;
     	}
     	
-    	print("Delivery policy " + args[0] + " setted.");
+    	DeliveryStrategy deliveryStrategy = createDeliveryPolicy(args);
+    	if (deliveryStrategy == null) {
+    		return;
+    	}
+    	system.addShadowStrategy(deliveryStrategy);
+    	print("Delivery policy " + args[0] + " evaluated in shadow mode.");
+    }
+
+    /**
+     * Stops evaluating the shadow delivery policies (Manager only).
+     */
+    public static void clearShadowPolicies() {
+    	if (system.getCurrentUser() == null || system.getCurrentUser().getClass() != Manager.class) {
+            print("Your user account does not permit you to clear the shadow delivery policies.");
+            return;
+        }
+    	system.clearShadowStrategies();
+    	print("Shadow delivery policies cleared.");
+    }
+
+    /**
+     * Displays the metrics of the live delivery policy and of the shadow delivery policies (Manager only).
+     */
+    public static void showShadowMetrics() {
+    	if (system.getCurrentUser() == null || system.getCurrentUser().getClass() != Manager.class) {
+            print("Your user account does not permit you to see the shadow delivery metrics.");
+            return;
+        }
+    	
+    	ShadowDispatcher shadowDispatcher = system.getShadowDispatcher();
+    	if (!shadowDispatcher.hasStrategies()) {
+    		print("No delivery policy is evaluated in shadow mode.");
+    		return;
+    	}
+    	
+    	print("Live policy: " + system.getDeliveryStrategy().getClass().getSimpleName());
+    	for (ShadowMetrics metrics : shadowDispatcher.getAllMetrics()) {
+    		System.out.println("    - " + metrics);
+    	}
+    	if (shadowDispatcher.getDroppedOrders() > 0) {
+    		System.out.println("    Orders not evaluated: " + shadowDispatcher.getDroppedOrders() + " dropped.");
+    	}
+    }
+
+    /**
+     * Displays the orders forecast for the next hour, per restaurant and per zone,
+     * with the number of couriers to ask to go on duty (Manager only).
+     *
+     * @param args optionally, the number of orders a courier delivers in one hour (2 by default)
+     */
+    public static void showForecast(String... args) {
+    	if (system.getCurrentUser() == null || system.getCurrentUser().getClass() != Manager.class) {
+            print("Your user account does not allow you to see the demand forecast.");
+            return;
+        }
+    	
+    	double deliveriesPerCourier = 2;
+    	if (args.length > 0) {
+    		try {
+    			deliveriesPerCourier = Double.parseDouble(args[0]);
+    		} catch (NumberFormatException e) {
+    			print("Error: the number of deliveries per courier must be a number.");
+    			return;
+    		}
+    		if (deliveriesPerCourier <= 0) {
+    			print("Error: the number of deliveries per courier must be positive.");
+    			return;
+    		}
+    	}
+    	
+    	DemandForecaster forecaster = system.getDemandForecaster();
+    	LocalDateTime now = LocalDateTime.now();
+    	double totalForecast = forecaster.forecastNextHour(now);
+    	print("Forecast for " + HourOfWeek.label(HourOfWeek.of(now.plusHours(1))) + ": "
+    			+ String.format("%.1f", totalForecast) + " orders, "
+    			+ DemandForecaster.suggestedCouriers(totalForecast, deliveriesPerCourier) + " couriers needed on duty.");
+    	
+    	ArrayList<Map.Entry<Restaurant, Double>> restaurantForecasts = new ArrayList<Map.Entry<Restaurant, Double>>(forecaster.forecastRestaurants(now).entrySet());
+    	restaurantForecasts.sort((first, second) -> Double.compare(second.getValue(), first.getValue()));
+    	System.out.println("  Restaurants:");
+    	for (Map.Entry<Restaurant, Double> forecast : restaurantForecasts) {
+    		System.out.println("    - " + forecast.getKey().getName() + " : " + String.format("%.1f", forecast.getValue()) + " orders");
+    	}
+    	
+    	System.out.println("  Zones (couriers should wait at the center):");
+    	for (DemandForecaster.ZoneForecast forecast : forecaster.forecastZones(now)) {
+    		System.out.println("    - " + forecast.getCenter() + " : " + String.format("%.1f", forecast.getOrders()) + " orders, "
+    				+ DemandForecaster.suggestedCouriers(forecast.getOrders(), deliveriesPerCourier) + " couriers");
+    	}
+    }
+
+    /**
+     * Displays the number of orders in each status of their lifecycle,
+     * or the orders in the given status.
+     *
+     * @param args optional status of the orders to list
+     */
+    public static void showOrderStatus(String... args) {
+    	if (system.getCurrentUser() == null || system.getCurrentUser().getClass() != Manager.class) {
+            print("Your user account does not allow you to see the orders by status.");
+            return;
+        }
+    	
+    	OrderStatusIndex orderStatusIndex = system.getOrderStatusIndex();
+    	if (args.length == 0) {
+    		print("Orders by status:");
+    		for (Map.Entry<OrderStatus, Integer> count : orderStatusIndex.getCounts().entrySet()) {
+    			System.out.println("    - " + count.getKey() + " : " + count.getValue());
+    		}
+    		return;
+    	}
+    	
+    	OrderStatus status;
+    	try {
+    		status = OrderStatus.valueOf(args[0].toUpperCase());
+    	} catch (IllegalArgumentException e) {
+    		print("Unknown order status: " + args[0]);
+    		return;
+    	}
+    	ArrayList<Order> orders = orderStatusIndex.getOrders(status);
+    	print(orders.size() + " orders " + status + ":");
+    	for (Order order : orders) {
+    		System.out.println("    - " + order);
+    	}
+    }
+
+    /**
+     * Moves the old delivered and cancelled orders out of the order history, into the order archive.
+     * The archive is opened in the given directory the first time.
+     *
+     * @param args the age in days from which the orders are archived, and optionally the directory of the archive
+     */
+    public static void archiveOrders(String... args) {
+    	if (system.getCurrentUser() == null || system.getCurrentUser().getClass() != Manager.class) {
+            print("Your user account does not allow you to archive the orders.");
+            return;
+        }
+    	if (args.length < 1 || args.length > 2) {
+    		print("Usage: ARCHIVEORDERS <ageInDays> [<directory>]");
+    		return;
+    	}
+    	
+    	try {
+    		int age = Integer.parseInt(args[0]);
+    		if (age < 0) {
+    			print("Error: the age cannot be a negative number of days.");
+    			print("Usage: ARCHIVEORDERS <ageInDays> [<directory>]");
+    			return;
+    		}
+    		system.setArchiveAge(age);
+    		if (system.getOrderArchive() == null) {
+    			system.setOrderArchive(new OrderArchive(Paths.get((args.length == 2) ? args[1] : "archive")));
+    		}
+    		int archived = system.archiveOrders(LocalDate.now());
+    		print(archived + " orders archived, " + system.getOrderArchive().size() + " orders in the archive.");
+    	} catch (NumberFormatException e) {
+    		print("The age must be a number of days.");
+    	} catch (IOException e) {
+    		print("The orders could not be archived: " + e.getMessage());
+    	}
+    }
+
+    /**
+     * Displays the profit and loss of each restaurant, by decreasing profit (Manager only).
+     *
+     * @param args optionally, the start and end dates of the period
+     */
+    public static void showRestaurantProfit(String... args) {
+    	if (system.getCurrentUser() == null || system.getCurrentUser().getClass() != Manager.class) {
+            print("Your user account does not allow you to see the profit of the restaurants.");
+            return;
+        }
+    	
+    	LocalDate[] range = parseDateRange("SHOWRESTAURANTPROFIT", args);
+    	if (range == null) {
+    		return;
+    	}
+    	
+    	ArrayList<Map.Entry<Restaurant, RestaurantProfitView.Statement>> statements = new ArrayList<Map.Entry<Restaurant, RestaurantProfitView.Statement>>(
+    			((Manager) system.getCurrentUser()).getRestaurantProfits(system, range[0], range[1]).entrySet());
+    	statements.sort((first, second) -> second.getValue().getProfit().compareTo(first.getValue().getProfit()));
+    	print("Profit of " + statements.size() + " restaurants:");
+    	for (Map.Entry<Restaurant, RestaurantProfitView.Statement> statement : statements) {
+    		System.out.println("    - " + statement.getKey().getName() + " : " + statement.getValue());
+    	}
+    }
+
+    /**
+     * Displays the number of orders made at each hour of the day, counted by a scan of the
+     * order columns and of the order archive (Manager only).
+     *
+     * @param args optionally, the start and end dates of the orders counted
+     */
+    public static void showHourlyOrders(String... args) {
+    	if (system.getCurrentUser() == null || system.getCurrentUser().getClass() != Manager.class) {
+            print("Your user account does not allow you to see the hourly orders.");
+            return;
+        }
+    	
+    	LocalDate[] range = parseDateRange("SHOWHOURLYORDERS", args);
+    	if (range == null) {
+    		return;
+    	}
+    	
+    	Manager manager = (Manager) system.getCurrentUser();
+    	long[] counts = system.getReport("SHOWHOURLYORDERS", () -> manager.getHourlyOrders(system, range[0], range[1]), range[0], range[1]);
+    	print("Orders per hour of the day:");
+    	for (int hour = 0; hour < counts.length; hour++) {
+    		System.out.println(String.format("    - %02d:00-%02d:59 : %d orders", hour, hour, counts[hour]));
+    	}
+    }
+
+    /**
+     * Parses the optional date range of a report: two dates in the YYYY-MM-DD or DD/MM/YYYY format,
+     * or no date for all the orders. Prints an error when the arguments are not valid.
+     *
+     * @param command the name of the command, shown in the usage message
+     * @param args the arguments of the command
+     * @return the start and end dates, or null if the arguments are not valid
+     */
+    private static LocalDate[] parseDateRange(String command, String... args) {
+    	if (args.length == 0) {
+    		return new LocalDate[] {LocalDate.MIN, LocalDate.MAX};
+    	}
+    	if (args.length != 2) {
+    		print("Usage: " + command + " [<startDate YYYY-MM-DD> <endDate YYYY-MM-DD>]");
+    		return null;
+    	}
+    	String date1 = args[0];
+    	String date2 = args[1];
+    	if (args[0].contains("/") && args[0].length() == 10 && args[1].length() == 10){
+    		// Then it is in the DD/MM/YYYY format
+    		date1 = args[0].substring(6, 10) + "-" + args[0].substring(3, 5) + "-" + args[0].substring(0, 2);
+    		date2 = args[1].substring(6, 10) + "-" + args[1].substring(3, 5) + "-" + args[1].substring(0, 2);
+    	}
+    	try {
+    		return new LocalDate[] {LocalDate.parse(date1), LocalDate.parse(date2)};
+    	} catch (DateTimeParseException e) {
+    		print("Error: the dates must be in the YYYY-MM-DD or DD/MM/YYYY format.");
+    		return null;
+    	}
+    }
+
+    /**
+     * Displays the orders, revenue and profit of the delivered orders per hour of the week,
+     * by decreasing profit (Manager only).
+     *
+     * @param args optionally, the number of hours to display
+     */
+    public static void showHourlyProfile(String... args) {
+    	if (system.getCurrentUser() == null || system.getCurrentUser().getClass() != Manager.class) {
+            print("Your user account does not allow you to see the hourly profile.");
+            return;
+        }
+    	
+    	int hours = HourOfWeek.HOURS_PER_WEEK;
+    	if (args.length == 1) {
+    		try {
+    			hours = Integer.parseInt(args[0]);
+    		} catch (NumberFormatException e) {
+    			print("Error: the number of hours must be a number.");
+    			return;
+    		}
+    		if (hours < 1) {
+    			print("Error: the number of hours must be at least 1.");
+    			print("Usage: SHOWHOURLYPROFILE [<hours>]");
+    			return;
+    		}
+    	} else if (args.length != 0) {
+    		print("Usage: SHOWHOURLYPROFILE [<hours>]");
+    		return;
+    	}
+    	
+    	HourlyProfile profile = ((Manager) system.getCurrentUser()).getHourlyProfile(system);
+    	List<Integer> topHours = profile.getTopHours(hours, system.getProfitData());
+    	print(profile.getTotalOrders() + " delivered orders, " + topHours.size() + " hours shown:");
+    	for (int hour : topHours) {
+    		System.out.println("    - " + HourOfWeek.label(hour) + " : " + profile.getOrders(hour) + " orders, revenue "
+    				+ profile.getRevenue(hour, system.getProfitData()) + ", profit " + profile.getProfit(hour, system.getProfitData()));
+    	}
+    }
+
+    /**
+     * Replays the three profit policies month by month over the past orders and displays
+     * the profit data and the profit of each month (Manager only).
+     *
+     * @param args the profit targeted each month
+     */
+    public static void backtestProfit(String... args) {
+    	if (system.getCurrentUser() == null || system.getCurrentUser().getClass() != Manager.class) {
+            print("Your user account does not allow you to backtest the profit policies.");
+            return;
+        }
+    	if (args.length != 1) {
+    		print("Usage: BACKTESTPROFIT <monthlyTargetProfit>");
+    		return;
+    	}
+    	
+    	Money targetProfit;
+    	try {
+    		targetProfit = Money.parse(args[0]);
+    	} catch (NumberFormatException e) {
+    		print("Error: the target profit must be a valid number.");
+    		return;
+    	}
+    	
+    	ProfitBacktest backtest = ProfitBacktest.of(system);
+    	if (backtest.getMonths().isEmpty()) {
+    		print("No order to replay.");
+    		return;
+    	}
+    	List<ProfitStrategy> strategies = List.of(new TargetProfitDeliveryCostOriented(),
+    			new TargetProfitMarkupPercentageOriented(), new TargetProfitServiceFeeOriented());
+    	Map<ProfitStrategy, List<ProfitBacktest.Step>> results = backtest.runAll(strategies, system.getProfitData(), targetProfit);
+    	for (Map.Entry<ProfitStrategy, List<ProfitBacktest.Step>> result : results.entrySet()) {
+    		Money totalProfit = Money.ZERO;
+    		for (ProfitBacktest.Step step : result.getValue()) {
+    			totalProfit = totalProfit.plus(step.getProfit());
+    		}
+    		print(result.getKey().getClass().getSimpleName() + " : total profit " + totalProfit + " euros.");
+    		for (ProfitBacktest.Step step : result.getValue()) {
+    			System.out.println("    - " + step);
+    		}
+    	}
     }
 
     /**
@@ -1782,9 +2358,12 @@ public class CLI {
     }
 
     /**
-     * Displays the the list of couriers sorted in decreasing order w.r.t. the number of completed deliveries.
+     * Displays the the list of couriers sorted in decreasing order w.r.t. the number of completed deliveries,
+     * counted by a scan of the order columns and of the order archive.
+     *
+     * @param args optionally, the start and end dates of the deliveries counted
      */
-    public static void showCourierDeliveries() {
+    public static void showCourierDeliveries(String... args) {
     	if (system.getCurrentUser() == null) {
     		print("Your user account does not allow you to see the top couriers: you are not logged in.");
     		return;
@@ -1794,10 +2373,18 @@ public class CLI {
             return;
         }
     	
-    	ArrayList<Courier> couriers = ((Manager) system.getCurrentUser()).sortCouriers(system);
-    	if (couriers.size() > 0) {
-    		for(Courier courier : couriers) {
-        		print(courier.toString());
+    	LocalDate[] range = parseDateRange("SHOWCOURIERDELIVERIES", args);
+    	if (range == null) {
+    		return;
+    	}
+    	
+    	Manager manager = (Manager) system.getCurrentUser();
+    	Map<Courier, Long> deliveries = system.getReport("SHOWCOURIERDELIVERIES",
+    			() -> manager.getCourierDeliveries(system, range[0], range[1]), range[0], range[1]);
+    	if (deliveries.size() > 0) {
+    		for (Map.Entry<Courier, Long> delivery : deliveries.entrySet()) {
+    			Courier courier = delivery.getKey();
+        		print(courier.getName() + " " + courier.getSurname() + " ( " + courier.getUsername() + " - Courrier with " + delivery.getValue() + " deliveries )");
         	}
     	} else {
     		print("Error: no courier found.");
@@ -1817,7 +2404,8 @@ public class CLI {
             return;
         }
     	
-    	ArrayList<Restaurant> restaurants = ((Manager) system.getCurrentUser()).sortRestaurants(system);
+    	Manager manager = (Manager) system.getCurrentUser();
+    	ArrayList<Restaurant> restaurants = system.getReport("SHOWRESTAURANTTOP", () -> manager.sortRestaurants(system));
     	if (restaurants.size() > 0) {
     		for(Restaurant restaurant : restaurants) {
         		print(restaurant.getName() + " with " + restaurant.getOrderCounter() + " orders.");
@@ -1840,7 +2428,7 @@ public class CLI {
             return;
         }
     	
-    	Set<Customer> customers = system.getCustomers();
+    	ArrayList<Customer> customers = system.getReport("SHOWCUSTOMERS", () -> new ArrayList<Customer>(system.getCustomers()));
     	if (customers.size() > 0) {
     		for(Customer customer : customers) {
         		print(customer.toString());
@@ -1897,7 +2485,9 @@ public class CLI {
         }
     	
     	
-    	double profit = 0;
+    	Manager manager = (Manager) system.getCurrentUser();
+    	LocalDate startDate = LocalDate.MIN;
+    	LocalDate endDate = LocalDate.MAX;
     	
     	if (args.length == 2) {
     		String date1 = args[0];
@@ -1907,11 +2497,16 @@ public class CLI {
     			date1 = args[0].substring(6, 10) + "-" + args[0].substring(3, 5) + "-" + args[0].substring(0, 2);
     			date2 = args[1].substring(6, 10) + "-" + args[1].substring(3, 5) + "-" + args[1].substring(0, 2);
     		}
-    		profit = ((Manager) system.getCurrentUser()).computeTotalProfit(system, LocalDate.parse(date1), LocalDate.parse(date2));
-    	} else {
-    		profit = ((Manager) system.getCurrentUser()).computeTotalProfit(system, LocalDate.MIN, LocalDate.MAX);
+    		startDate = LocalDate.parse(date1);
+    		endDate = LocalDate.parse(date2);
     	}
     	
+    	// The profit data is part of the key, as it can be changed without changing any order
+    	LocalDate start = startDate;
+    	LocalDate end = endDate;
+    	Money profit = system.getReport("SHOWTOTALPROFIT", () -> manager.computeTotalProfit(system, start, end),
+    			start, end, system.getProfitData());
+    	
     	print("Total profit: " + profit + " euros.");
     	
     }
@@ -1,6 +1,7 @@
 package fidelity;
 
 import order.Order;
+import system.Money;
 import user.Customer;
 
 /**
@@ -27,8 +28,8 @@ public class BasicCard extends FidelityCard {
      * @return 0, as no reduction is applied
      */
     @Override
-    public double orderReduction(Order order) {
-        return 0; // No reduction for basic card
+    public Money orderReduction(Order order) {
+        return Money.ZERO; // No reduction for basic card
     }
 
     /**
@@ -39,7 +40,7 @@ public class BasicCard extends FidelityCard {
      * @return the original price of the order
      */
     @Override
-    public double getFinalPrice(Order order) {
+    public Money getFinalPrice(Order order) {
         return order.getPrice(); // No reduction for basic card
     }
 
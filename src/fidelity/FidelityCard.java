@@ -1,5 +1,6 @@
 package fidelity;
 import order.Order;
+import system.Money;
 import user.Customer;
 /**
  * Abstract class representing a fidelity card for a customer.
@@ -53,6 +54,6 @@ public  abstract class FidelityCard {
         this.type = type;
     }
     
-    public abstract double orderReduction(Order order);
-    public abstract double getFinalPrice(Order order);
+    public abstract Money orderReduction(Order order);
+    public abstract Money getFinalPrice(Order order);
 }
@@ -1,6 +1,7 @@
 package fidelity;
 
 import order.Order;
+import system.Money;
 import user.Customer;
 
 
@@ -62,12 +63,12 @@ public class LotteryCard extends FidelityCard {
      * @return the reduction amount
      */
     @Override
-    public double orderReduction(Order order) {
+    public Money orderReduction(Order order) {
         // Simulate a lottery draw
         if (Math.random() < probability) {
             return order.getPrice(); // 10% discount if the lottery is won
         }
-        return 0; // No discount if the lottery is not won
+        return Money.ZERO; // No discount if the lottery is not won
     }
 
     /**
@@ -78,9 +79,9 @@ public class LotteryCard extends FidelityCard {
      * @return the final price after applying any reductions
      */
     @Override
-    public double getFinalPrice(Order order) {
-        double discount = orderReduction(order);
-        return order.getPrice() - discount; // Final price after applying the discount
+    public Money getFinalPrice(Order order) {
+        Money discount = orderReduction(order);
+        return order.getPrice().minus(discount); // Final price after applying the discount
     }
 
     /**
@@ -1,6 +1,7 @@
 package fidelity;
 
 import order.Order;
+import system.Money;
 import user.Customer;
 
 /**
@@ -13,7 +14,7 @@ import user.Customer;
 public class PointCard extends FidelityCard { 
 
     private int points; // Number of points accumulated
-    private double moneySpent; // Total money spent by the owner
+    private Money moneySpent; // Total money spent by the owner
     private boolean nextOrderDiscount; // Indicates if the next order is eligible for a discount
 
     /**
@@ -25,7 +26,7 @@ public class PointCard extends FidelityCard {
     public PointCard(Customer owner) {
         super(owner);
         this.points = 0;
-        this.moneySpent = 0;
+        this.moneySpent = Money.ZERO;
         this.nextOrderDiscount = false;
         type = FidelityCardType.PointCard;
     }
@@ -36,10 +37,10 @@ public class PointCard extends FidelityCard {
      *
      * @param amount the amount to add to money spent
      */
-    public void addMoneySpent(double amount) {
-        double relevantAmount = moneySpent%1000; 
-        this.moneySpent += amount; 
-        points = (int) ((relevantAmount+moneySpent) / 10); // Earn 1 point for every 10 spent
+    public void addMoneySpent(Money amount) {
+        long relevantCents = moneySpent.getCents() % 100000; 
+        this.moneySpent = moneySpent.plus(amount); 
+        points = (int) ((relevantCents + moneySpent.getCents()) / 1000); // Earn 1 point for every 10 spent
         if (points >= 100) {
             nextOrderDiscount = true; // Next order is eligible for discount
             points -= 100; // Reset points after using them
@@ -60,7 +61,7 @@ public class PointCard extends FidelityCard {
      *
      * @return the total money spent
      */
-    public double getMoneySpent() {
+    public Money getMoneySpent() {
         return moneySpent;
     }
 
@@ -88,12 +89,12 @@ public class PointCard extends FidelityCard {
      * @return the type of the card
      */
     @Override
-    public double orderReduction(Order order) {
+    public Money orderReduction(Order order) {
         if (nextOrderDiscount) {
             nextOrderDiscount = false; // Reset discount after use
-            return order.getPrice() * 0.1; // 10% discount on the next order
+            return order.getPrice().times(0.1); // 10% discount on the next order
         }
-        return 0; // No discount if not eligible
+        return Money.ZERO; // No discount if not eligible
     }
 
     /**
@@ -104,9 +105,9 @@ public class PointCard extends FidelityCard {
      * @return the final price after applying any reductions
      */
     @Override
-    public double getFinalPrice(Order order) {
-        double discount = orderReduction(order);
-        return order.getPrice() - discount; // Final price after applying the discount
+    public Money getFinalPrice(Order order) {
+        Money discount = orderReduction(order);
+        return order.getPrice().minus(discount); // Final price after applying the discount
     }
 
     /**
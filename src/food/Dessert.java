@@ -30,6 +30,6 @@ public class Dessert extends Dish {
 	@Override
 	public String toString() {
 		DecimalFormat df = new DecimalFormat("#0.00");
-		return "Dessert " + name + " - " + df.format(price) + "€" ;
+		return "Dessert " + name + " - " + df.format(price.toDouble()) + "€" ;
 	}
 }
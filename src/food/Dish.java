@@ -1,5 +1,7 @@
 package food;
 
+import system.Money;
+
 /**
  * Class representing a dish in the system.
  * 
@@ -8,7 +10,7 @@ package food;
 public abstract class Dish {
 
 	protected String name;
-	protected double price;
+	protected Money price;
 	protected boolean isVegetarian;
 	protected boolean isGlutenFree;
 	protected int frequencyDelivery;
@@ -17,13 +19,13 @@ public abstract class Dish {
      * Constructor for Dish.
      * Initializes the dessert with the provided details.
 	 * @param name the name of the dish
-	 * @param price the price of the dish
+	 * @param price the price of the dish, rounded to the cent
 	 * @param isVegetarian true if the dish is vegetarian, false otherwise
 	 * @param isGlutenFree true if the dish is gluten-free, false otherwise
 	 */
 	public Dish(String name, double price, boolean isVegetarian, boolean isGlutenFree) {
 		this.name = name;
-		this.price = price;
+		this.price = Money.of(price);
 		this.isVegetarian = isVegetarian;
 		this.isGlutenFree = isGlutenFree;
 		this.frequencyDelivery = 0;
@@ -52,7 +54,7 @@ public abstract class Dish {
 	 * 
 	 * @return the dish price
 	 */
-	public double getPrice() {
+	public Money getPrice() {
 		return price;
 	}
 
@@ -61,8 +63,8 @@ public abstract class Dish {
 	 * 
 	 * @param price the new price of the dish
 	 */
-	public void setPrice(double price) {
-		if (price < 0) {
+	public void setPrice(Money price) {
+		if (price.isNegative()) {
 			throw new IllegalArgumentException("Price cannot be negative");
 		}
 		this.price = price;
@@ -126,7 +128,16 @@ public abstract class Dish {
 	 * Increments the frequency of deliveries by 1.
 	 */
 	public void incrementFrequencyDelivery() {
-		this.frequencyDelivery++;
+		this.incrementFrequencyDelivery(1);
+	}
+
+	/**
+	 * Increments the frequency of deliveries by the quantity ordered.
+	 * 
+	 * @param quantity the number of units of this dish ordered
+	 */
+	public void incrementFrequencyDelivery(int quantity) {
+		this.frequencyDelivery += quantity;
 	}
 
 	/**
@@ -134,7 +145,16 @@ public abstract class Dish {
 	 * 
 	 */
 	public void decrementFrequencyDelivery() {
-		this.frequencyDelivery--;
+		this.decrementFrequencyDelivery(1);
+	}
+
+	/**
+	 * Decrements the frequency of deliveries by the quantity removed from an order.
+	 * 
+	 * @param quantity the number of units of this dish removed
+	 */
+	public void decrementFrequencyDelivery(int quantity) {
+		this.frequencyDelivery -= quantity;
 	}
 	
 	/**
@@ -91,7 +91,7 @@ public class FullMeal extends Meal{
 		String returnString = "";
 		DecimalFormat df = new DecimalFormat("#0.00");
 		
-		returnString += "Full Meal " + name + " - " + df.format(this.getPrice()) + "€ - ";
+		returnString += "Full Meal " + name + " - " + df.format(this.getPrice().toDouble()) + "€ - ";
 		returnString += "Composed of:";
 		for (Dish dish : this.dishes) {
 			returnString += " " + dish.getName() + ",";
@@ -2,6 +2,8 @@ package food;
 
 import java.util.Set;
 
+import system.Money;
+
 /**
  * A pricing strategy that applies a general discount to the total price of a meal.
  * The discount is applied as a percentage of the sum of the individual dish prices.
@@ -56,13 +58,13 @@ public class GeneralDiscountMeal implements PricingMealStrategy {
 	 * @return the total discounted price of the meal
 	 */
 	@Override
-	public double getTotal(Set<Dish> dishes) {
-		double total = 0;
+	public Money getTotal(Set<Dish> dishes) {
+		Money total = Money.ZERO;
 		
 		for (Dish dish : dishes) {
-			total += dish.price;
+			total = total.plus(dish.price);
 		}
 		
-		return total * (1-this.discount);
+		return total.times(1 - this.discount);
 	}
 }
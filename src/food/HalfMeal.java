@@ -112,7 +112,7 @@ public class HalfMeal extends Meal{
 		String returnString = "";
 		DecimalFormat df = new DecimalFormat("#0.00");
 		
-		returnString += "Half Meal " + name + " - " + df.format(this.getPrice()) + "€ - ";
+		returnString += "Half Meal " + name + " - " + df.format(this.getPrice().toDouble()) + "€ - ";
 		returnString += "Composed of:";
 		for (Dish dish : this.dishes) {
 			returnString += " " + dish.getName() + ",";
@@ -30,7 +30,7 @@ public class MainDish extends Dish {
 	@Override
 	public String toString() {
 		DecimalFormat df = new DecimalFormat("#0.00");
-		return "Main Dish " + name + " - " + df.format(price) + "€" ;
+		return "Main Dish " + name + " - " + df.format(price.toDouble()) + "€" ;
 	}
 
 }
@@ -3,6 +3,8 @@ package food;
 import java.util.List;
 import java.util.Set;
 
+import system.Money;
+
 /**
  * Abstract class representing a meal in the system.
  * A meal is composed of a set of dishes.
@@ -181,14 +183,32 @@ public abstract class Meal implements notification.Observable {
 	 * Increments the delivery frequency counter by one.
 	 */
 	public void incrementFrequencyDelivery() {
-		this.frequencyDelivery++;
+		this.incrementFrequencyDelivery(1);
+	}
+
+	/**
+	 * Increments the delivery frequency counter by the quantity ordered.
+	 * 
+	 * @param quantity the number of units of this meal ordered
+	 */
+	public void incrementFrequencyDelivery(int quantity) {
+		this.frequencyDelivery += quantity;
 	}
 
 	/**
 	 * Decrements the delivery frequency counter by one.
 	 */
 	public void decrementFrequencyDelivery() {
-		this.frequencyDelivery--;
+		this.decrementFrequencyDelivery(1);
+	}
+
+	/**
+	 * Decrements the delivery frequency counter by the quantity removed from an order.
+	 * 
+	 * @param quantity the number of units of this meal removed
+	 */
+	public void decrementFrequencyDelivery(int quantity) {
+		this.frequencyDelivery -= quantity;
 	}
 	
 	/**
@@ -197,7 +217,7 @@ public abstract class Meal implements notification.Observable {
 	 * 
 	 * @return the total price of the meal
 	 */
-	public double getPrice() {
+	public Money getPrice() {
 		return this.pricingMealStrategy.getTotal(dishes);
 	}
 
@@ -2,6 +2,8 @@ package food;
 
 import java.util.Set;
 
+import system.Money;
+
 /**
  * Pricing strategy implementing a discount for the "Meal of the Week".
  * Applies a fixed percentage discount on the total price of the dishes.
@@ -53,14 +55,14 @@ public class MealOfTheWeekDiscount implements PricingMealStrategy{
 	 * @return the total price after applying the discount
 	 */
 	@Override
-	public double getTotal(Set<Dish> dishes) {
-		double total = 0;
+	public Money getTotal(Set<Dish> dishes) {
+		Money total = Money.ZERO;
 		
 		for (Dish dish : dishes) {
-			total += dish.price;
+			total = total.plus(dish.price);
 		}
 		
-		return total * (1-this.discount);
+		return total.times(1 - this.discount);
 	}
 	
 }
@@ -2,6 +2,8 @@ package food;
 
 import java.util.Set;
 
+import system.Money;
+
 /**
  * Pricing strategy that applies no discount.
  * Calculates the total price by summing up the prices of all dishes in the meal.
@@ -17,11 +19,11 @@ public class NoDiscountMeal implements PricingMealStrategy {
 	 * @return the total price with no discount applied
 	 */
 	@Override
-	public double getTotal(Set<Dish> dishes) {
-		double total = 0;
+	public Money getTotal(Set<Dish> dishes) {
+		Money total = Money.ZERO;
 		
 		for (Dish dish : dishes) {
-			total += dish.price;
+			total = total.plus(dish.price);
 		}
 		
 		return total;
@@ -2,6 +2,8 @@ package food;
 
 import java.util.Set;
 
+import system.Money;
+
 /**
  * Interface for pricing strategies applied to meals.
  * 
@@ -15,6 +17,6 @@ public interface PricingMealStrategy {
 	 * @param dishes the set of dishes composing the meal
 	 * @return the total price calculated according to the strategy
 	 */
-	public double getTotal(Set<Dish> dishes);
+	public Money getTotal(Set<Dish> dishes);
 
 }
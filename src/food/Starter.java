@@ -30,7 +30,7 @@ public class Starter extends Dish {
     @Override
 	public String toString() {
     	DecimalFormat df = new DecimalFormat("#0.00");
-    	return "Starter " + name + " - " + df.format(price) + "€" ;
+    	return "Starter " + name + " - " + df.format(price.toDouble()) + "€" ;
 	}
 
 }
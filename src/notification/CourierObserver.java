@@ -0,0 +1,21 @@
+package notification;
+
+import user.Courier;
+
+/**
+ * Observer interface for the Observer design pattern.
+ * This interface will get implemented by the classes keeping a view of the couriers,
+ * so they are notified when the position, the duty status or the workload of a courier changes.
+ * 
+ * @author Aymane ADIB
+ */
+public interface CourierObserver {
+    
+    /**
+     * Update method to be called when a courier notifies its observers.
+     * 
+     * @param courier The courier whose position, duty status or workload changed.
+     */
+    public void update(Courier courier);
+
+}
@@ -0,0 +1,22 @@
+package notification;
+
+import order.Order;
+import order.OrderStatus;
+
+/**
+ * Observer interface for the Observer design pattern.
+ * This interface will get implemented by the classes keeping a view of the orders by status,
+ * so they are notified of each transition of the lifecycle of an order.
+ *
+ * @author Aymane ADIB
+ */
+public interface OrderObserver {
+
+    /**
+     * Update method to be called when the status of an order changes.
+     *
+     * @param order The order whose status changed.
+     * @param previousStatus The status of the order before the transition.
+     */
+    public void update(Order order, OrderStatus previousStatus);
+}
@@ -0,0 +1,225 @@
+package order;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+import java.util.function.ToIntFunction;
+
+import food.Dish;
+import food.Meal;
+import system.Money;
+import user.Courier;
+import user.Customer;
+import user.Restaurant;
+import user.User;
+
+/**
+ * Compact form of an order which reached a terminal state (delivered or cancelled),
+ * kept in the long-retention order history.
+ *
+ * Instead of references to the users, two item lists, a list of possible couriers and
+ * separate date and time objects, a compact order only holds the IDs of its users,
+ * an epoch-second timestamp, its line items packed in a single int array (item ID and
+ * quantity, one after the other) and its price in cents. The IDs of the items are given
+ * by a dictionary shared by all compact orders.
+ *
+ * @author Aymane Adib
+ */
+public final class CompactOrder {
+
+	private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+	private final long id;           // ID of the order
+	private final long customerId;   // ID of the customer
+	private final long restaurantId; // ID of the restaurant
+	private final long courierId;    // ID of the courier, -1 if the order had no courier
+	private final long epochSecond;  // Date and time of the order, in seconds since 1970-01-01 00:00
+	private final long priceCents;   // Price of the order, in cents
+	private final byte status;       // Ordinal of the status of the order
+	private final int[] items;       // Line items: item ID and quantity, one after the other
+
+	/**
+	 * Constructs a CompactOrder from an order.
+	 *
+	 * @param order the order, in a terminal state
+	 * @param itemIds the dictionary giving the ID of a dish or meal
+	 */
+	public CompactOrder(Order order, ToIntFunction<Object> itemIds) {
+		this.id = order.getId();
+		this.customerId = userId(order.getCustomer());
+		this.restaurantId = userId(order.getRestaurant());
+		this.courierId = userId(order.getCourier());
+		this.epochSecond = LocalDateTime.of(order.getDate(), order.getTime()).toEpochSecond(ZoneOffset.UTC);
+		this.priceCents = order.getPrice().getCents();
+		this.status = (byte) order.getStatus().ordinal();
+
+		Map<Dish, Integer> dishes = order.getDishQuantities();
+		Map<Meal, Integer> meals = order.getMealQuantities();
+		this.items = new int[2 * (dishes.size() + meals.size())];
+		int i = 0;
+		for (Map.Entry<Dish, Integer> item : dishes.entrySet()) {
+			items[i++] = itemIds.applyAsInt(item.getKey());
+			items[i++] = item.getValue();
+		}
+		for (Map.Entry<Meal, Integer> item : meals.entrySet()) {
+			items[i++] = itemIds.applyAsInt(item.getKey());
+			items[i++] = item.getValue();
+		}
+	}
+
+	/**
+	 * Constructs a CompactOrder from its fields, for example when reading it back from the order archive.
+	 *
+	 * @param id the ID of the order
+	 * @param customerId the ID of the customer
+	 * @param restaurantId the ID of the restaurant
+	 * @param courierId the ID of the courier, -1 if the order had no courier
+	 * @param epochSecond the date and time of the order, in seconds since 1970-01-01 00:00
+	 * @param priceCents the price of the order, in cents
+	 * @param status the terminal status of the order
+	 * @param items the line items: item ID and quantity, one after the other
+	 */
+	public CompactOrder(long id, long customerId, long restaurantId, long courierId, long epochSecond, long priceCents,
+			OrderStatus status, int[] items) {
+		this.id = id;
+		this.customerId = customerId;
+		this.restaurantId = restaurantId;
+		this.courierId = courierId;
+		this.epochSecond = epochSecond;
+		this.priceCents = priceCents;
+		this.status = (byte) status.ordinal();
+		this.items = items.clone();
+	}
+
+	/**
+	 * Rebuilds an Order object from this compact order.
+	 * The order has the same ID, so it is equal to the order this compact order was built from.
+	 *
+	 * @param users the dictionary giving the user of an ID
+	 * @param itemsById the dictionary giving the dish or meal of an ID
+	 * @return the expanded order
+	 */
+	public Order toOrder(LongFunction<User> users, IntFunction<Object> itemsById) {
+		LocalDateTime dateTime = LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+		Order order = new Order(id, (Customer) users.apply(customerId), (Restaurant) users.apply(restaurantId),
+				(courierId < 0) ? null : (Courier) users.apply(courierId), dateTime.toLocalTime(),
+				dateTime.toLocalDate(), getStatus(), getPrice());
+		for (int i = 0; i < items.length; i += 2) {
+			order.restoreItem(itemsById.apply(items[i]), items[i + 1]);
+		}
+		return order;
+	}
+
+	/**
+	 * Returns the ID of the order.
+	 *
+	 * @return the ID of the order
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the ID of the customer who placed the order.
+	 *
+	 * @return the customer ID
+	 */
+	public long getCustomerId() {
+		return customerId;
+	}
+
+	/**
+	 * Returns the ID of the restaurant from which the order was placed.
+	 *
+	 * @return the restaurant ID
+	 */
+	public long getRestaurantId() {
+		return restaurantId;
+	}
+
+	/**
+	 * Returns the ID of the courier who delivered the order.
+	 *
+	 * @return the courier ID, -1 if the order had no courier
+	 */
+	public long getCourierId() {
+		return courierId;
+	}
+
+	/**
+	 * Returns the date and time of the order.
+	 *
+	 * @return the number of seconds since 1970-01-01 00:00
+	 */
+	public long getEpochSecond() {
+		return epochSecond;
+	}
+
+	/**
+	 * Returns the price of the order, in cents.
+	 *
+	 * @return the price in cents
+	 */
+	public long getPriceCents() {
+		return priceCents;
+	}
+
+	/**
+	 * Returns the price of the order.
+	 *
+	 * @return the price of the order
+	 */
+	public Money getPrice() {
+		return Money.ofCents(priceCents);
+	}
+
+	/**
+	 * Returns the status of the order.
+	 *
+	 * @return the terminal status of the order
+	 */
+	public OrderStatus getStatus() {
+		return STATUSES[status];
+	}
+
+	/**
+	 * Returns the number of line items of the order.
+	 *
+	 * @return the number of different dishes and meals
+	 */
+	public int getLineItemCount() {
+		return items.length / 2;
+	}
+
+	/**
+	 * Returns the ID of the item of a line item.
+	 *
+	 * @param lineItem the index of the line item
+	 * @return the item ID
+	 */
+	public int getItemId(int lineItem) {
+		return items[2 * lineItem];
+	}
+
+	/**
+	 * Returns the quantity of a line item.
+	 *
+	 * @param lineItem the index of the line item
+	 * @return the number of units
+	 */
+	public int getQuantity(int lineItem) {
+		return items[2 * lineItem + 1];
+	}
+
+	/**
+	 * Returns the ID of a user, or -1 if there is no user.
+	 *
+	 * @param user the user
+	 * @return the ID of the user
+	 */
+	private static long userId(User user) {
+		return (user == null) ? -1 : user.getId();
+	}
+}
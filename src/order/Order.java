@@ -1,34 +1,43 @@
 package order;
 
 import food.*;
+import notification.OrderObserver;
 import system.AvailableCourierNotFoundException;
+import system.IdAllocator;
+import system.Money;
 import user.*;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * The Order class represents an order in the MyFoodora system.
  * It contains information about the customer, restaurant, courier, time, date, dishes, meals, and price.
+ * Its status follows the lifecycle described by OrderStatus: the invalid transitions are refused
+ * and the observers of the order are notified of each valid one.
  * 
  * @author Aymane Adib
  */
 public class Order{
 
-    private static int orderCounter = 0; // Counter for unique order IDs
-
-    private int id;
+    private long id;
     private Customer customer;
     private Restaurant restaurant;
     private Courier courier;
     private LocalTime time;
     private LocalDate date;
-    private ArrayList<Dish> dishes;
-    private ArrayList<Meal> meals;
-    private double price;
-    private String currentStatus;
+    private LinkedHashMap<Dish, Integer> dishes; // Line items <dish, quantity>
+    private LinkedHashMap<Meal, Integer> meals;  // Line items <meal, quantity>
+    private int itemCount;                       // Number of units of dishes and meals
+    private Money price;
+    private OrderStatus status;
     private ArrayList<Courier> possibleCouriers;
+    private CopyOnWriteArrayList<OrderObserver> observers;
 
 	/**
      * Constructor for the Order class.
@@ -45,12 +54,42 @@ public class Order{
         this.courier = courier;
         this.time = time;
         this.date = date;
-        this.dishes = new ArrayList<>();
-        this.meals = new ArrayList<>();
-        this.price = 0.0;
-        this.id = ++orderCounter;
-        this.currentStatus = "WAINTING FOR COMPLETION";
+        this.dishes = new LinkedHashMap<>();
+        this.meals = new LinkedHashMap<>();
+        this.price = Money.ZERO;
+        this.id = IdAllocator.getDefault().nextId();
+        this.status = OrderStatus.CREATED;
+        this.possibleCouriers = new ArrayList<Courier>();
+        this.observers = new CopyOnWriteArrayList<OrderObserver>();
+    }
+
+    /**
+     * Constructor restoring an order which already has an ID, used to expand a CompactOrder.
+     * The order has no observers and the delivery frequencies of its items are not incremented again.
+     *
+     * @param id         the ID of the order
+     * @param customer   the customer who placed the order
+     * @param restaurant the restaurant from which the order is placed
+     * @param courier    the courier who delivered the order
+     * @param time       the time of the order
+     * @param date       the date of the order
+     * @param status     the status of the order
+     * @param price      the price of the order
+     */
+    Order(long id, Customer customer, Restaurant restaurant, Courier courier, LocalTime time, LocalDate date,
+    		OrderStatus status, Money price) {
+        this.customer = customer;
+        this.restaurant = restaurant;
+        this.courier = courier;
+        this.time = time;
+        this.date = date;
+        this.dishes = new LinkedHashMap<>();
+        this.meals = new LinkedHashMap<>();
+        this.price = price;
+        this.id = id;
+        this.status = status;
         this.possibleCouriers = new ArrayList<Courier>();
+        this.observers = new CopyOnWriteArrayList<OrderObserver>();
     }
 
     /**
@@ -93,91 +132,238 @@ public class Order{
 	
 	/**
      * Notifies the next courier of the list.
+     * The order becomes OFFERED when it is offered to its first courier.
      *
      */
 	public void notifyNextCourier(){
 		if (this.possibleCouriers.size() != 0) {
+			if (this.status == OrderStatus.CREATED) {
+				this.transitionTo(OrderStatus.OFFERED);
+			}
 			this.possibleCouriers.get(0).addPendingOrder(this);
 		}
 	}
     
+    /**
+     * Returns the text describing the current status of the order.
+     *
+     * @return the label of the status of the order
+     */
+    public String getCurrentStatus() {
+    	return this.status.getLabel();
+    }
+    
     /**
      * Returns the current status of the order.
      *
      * @return the status of the order
      */
-    public String getCurrentStatus() {
-    	return this.currentStatus;
+    public OrderStatus getStatus() {
+    	return this.status;
+    }
+    
+    /**
+     * Moves the order to the given status, if the lifecycle allows it,
+     * and notifies the observers of the order.
+     *
+     * @param next the new status of the order
+     * @return true if the transition was allowed, false if the status is unchanged
+     */
+    public boolean transitionTo(OrderStatus next) {
+    	if (!this.status.canTransitionTo(next)) {
+    		return false;
+    	}
+    	OrderStatus previousStatus = this.status;
+    	this.status = next;
+    	this.notifyObservers(previousStatus);
+    	return true;
     }
     
     /**
-     * Sets the current status of the order.
+     * Adds an observer notified of the transitions of the order.
      *
-     * @param status the status of the order
+     * @param observer the observer to add
      */
-    public void setCurrentStatus(String status) {
-    	this.currentStatus = status;
+    public void addObserver(OrderObserver observer) {
+    	this.observers.addIfAbsent(observer);
+    }
+    
+    /**
+     * Removes an observer of the order.
+     *
+     * @param observer the observer to remove
+     */
+    public void removeObserver(OrderObserver observer) {
+    	this.observers.remove(observer);
+    }
+    
+    /**
+     * Notifies the observers of the order of a transition.
+     *
+     * @param previousStatus the status of the order before the transition
+     */
+    private void notifyObservers(OrderStatus previousStatus) {
+    	for (OrderObserver observer : this.observers) {
+    		observer.update(this, previousStatus);
+    	}
     }
 
-        /**
-     * Adds a dish to the order.
+    /**
+     * Adds one unit of a dish to the order.
      * 
      * @param dish
      */
     public void addDish(Dish dish){
-        dishes.add(dish);
-        price += dish.getPrice();
-        dish.incrementFrequencyDelivery();
+        addDish(dish, 1);
+    }
+
+    /**
+     * Adds several units of a dish to the order, in a single line item.
+     * 
+     * @param dish the dish
+     * @param quantity the number of units to add
+     */
+    public void addDish(Dish dish, int quantity){
+        addQuantity(dishes, dish, quantity);
+        price = price.plus(dish.getPrice().times(quantity));
+        dish.incrementFrequencyDelivery(quantity);
     }
 
     /**
-     * Removes a dish from the order.
+     * Removes one unit of a dish from the order.
      * 
      * @param dish
      * @throws BadOrderHandlingException if the dish is not found in the order
      */
     public void removeDish(Dish dish) throws BadOrderHandlingException {
-        if (dishes.remove(dish)) {
-            price -= dish.getPrice();
-            dish.decrementFrequencyDelivery();
+        removeDish(dish, 1);
+    }
+
+    /**
+     * Removes several units of a dish from the order.
+     * 
+     * @param dish the dish
+     * @param quantity the number of units to remove
+     * @throws BadOrderHandlingException if the order contains less units of the dish
+     */
+    public void removeDish(Dish dish, int quantity) throws BadOrderHandlingException {
+        if (removeQuantity(dishes, dish, quantity)) {
+            price = price.minus(dish.getPrice().times(quantity));
+            dish.decrementFrequencyDelivery(quantity);
         } else {
             throw new BadOrderHandlingException("Dish not found in the order.");    
         }
     }
 
     /**
-     * Adds a meal to the order.
+     * Adds one unit of a meal to the order.
      * 
      * @param meal
      */
     public void addMeal(Meal meal) {
-        meals.add(meal);
-        price += meal.getPrice();
-        meal.incrementFrequencyDelivery();
+        addMeal(meal, 1);
+    }
+
+    /**
+     * Adds several units of a meal to the order, in a single line item.
+     * 
+     * @param meal the meal
+     * @param quantity the number of units to add
+     */
+    public void addMeal(Meal meal, int quantity) {
+        addQuantity(meals, meal, quantity);
+        price = price.plus(meal.getPrice().times(quantity));
+        meal.incrementFrequencyDelivery(quantity);
     }
 
     /**
-     * Removes a meal from the order.
+     * Removes one unit of a meal from the order.
      * 
      * @param meal
      * @throws BadOrderHandlingException if the meal is not found in the order
      */
     public void removeMeal(Meal meal) throws BadOrderHandlingException {
-        if (meals.remove(meal)) {
-            price -= meal.getPrice();
-            meal.decrementFrequencyDelivery();
+        removeMeal(meal, 1);
+    }
+
+    /**
+     * Removes several units of a meal from the order.
+     * 
+     * @param meal the meal
+     * @param quantity the number of units to remove
+     * @throws BadOrderHandlingException if the order contains less units of the meal
+     */
+    public void removeMeal(Meal meal, int quantity) throws BadOrderHandlingException {
+        if (removeQuantity(meals, meal, quantity)) {
+            price = price.minus(meal.getPrice().times(quantity));
+            meal.decrementFrequencyDelivery(quantity);
         }
         else {
             throw new BadOrderHandlingException("Meal not found in the order.");
         }
     }
 
+    /**
+     * Restores a line item of an expanded CompactOrder, without changing the price
+     * nor the delivery frequency of the item. An unknown item (null) is skipped.
+     * 
+     * @param item the dish or meal
+     * @param quantity the number of units
+     */
+    void restoreItem(Object item, int quantity) {
+        if (item instanceof Dish) {
+            dishes.merge((Dish) item, quantity, Integer::sum);
+        } else if (item instanceof Meal) {
+            meals.merge((Meal) item, quantity, Integer::sum);
+        } else {
+            return;
+        }
+        itemCount += quantity;
+    }
+
+    /**
+     * Adds units to the line item of an item.
+     * 
+     * @param items the line items, item and quantity
+     * @param item the item
+     * @param quantity the number of units to add
+     */
+    private <T> void addQuantity(Map<T, Integer> items, T item, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("The quantity must be positive.");
+        }
+        items.merge(item, quantity, Integer::sum);
+        itemCount += quantity;
+    }
+
+    /**
+     * Removes units from the line item of an item, and the line item when no unit is left.
+     * 
+     * @param items the line items, item and quantity
+     * @param item the item
+     * @param quantity the number of units to remove
+     * @return true if the units were removed, false if the order contains less units of the item
+     */
+    private <T> boolean removeQuantity(Map<T, Integer> items, T item, int quantity) {
+        Integer current = items.get(item);
+        if (quantity <= 0 || current == null || current < quantity) {
+            return false;
+        }
+        if (current == quantity) {
+            items.remove(item);
+        } else {
+            items.put(item, current - quantity);
+        }
+        itemCount -= quantity;
+        return true;
+    }
+
     /**
      * Returns the ID of the order.
      *
      * @return the ID of the order
      */
-    public int getId() {
+    public long getId() {
         return id;
     }
 
@@ -272,39 +458,112 @@ public class Order{
     }
 
     /**
-     * Returns the list of dishes in the order.
+     * Returns the list of the different dishes in the order.
      *
-     * @return the list of dishes in the order
+     * @return the list of dishes in the order, each dish once
      */
     public ArrayList<Dish> getDishes() {
-        return dishes;
+        return new ArrayList<Dish>(dishes.keySet());
     }
 
     /**
      * Sets the list of dishes in the order.
+     * A dish appearing several times in the list is ordered in as many units.
      *
      * @param dishes the list of dishes in the order
      */
     public void setDishes(ArrayList<Dish> dishes) {
-        this.dishes = dishes;
+        this.itemCount -= countUnits(this.dishes);
+        this.dishes = new LinkedHashMap<Dish, Integer>();
+        for (Dish dish : dishes) {
+            this.dishes.merge(dish, 1, Integer::sum);
+        }
+        this.itemCount += dishes.size();
+    }
+
+    /**
+     * Returns the number of units of a dish in the order.
+     *
+     * @param dish the dish
+     * @return the quantity of the dish, 0 if it is not in the order
+     */
+    public int getDishQuantity(Dish dish) {
+        return dishes.getOrDefault(dish, 0);
     }
 
     /**
-     * Returns the list of meals in the order.
+     * Returns the line items of dishes of the order.
      *
-     * @return the list of meals in the order
+     * @return unmodifiable LinkedHashMap <dish, quantity>, in the order the dishes were added
+     */
+    public Map<Dish, Integer> getDishQuantities() {
+        return Collections.unmodifiableMap(dishes);
+    }
+
+    /**
+     * Returns the list of the different meals in the order.
+     *
+     * @return the list of meals in the order, each meal once
      */
     public ArrayList<Meal> getMeals() {
-        return meals;
+        return new ArrayList<Meal>(meals.keySet());
     }
 
     /**
      * Sets the list of meals in the order.
+     * A meal appearing several times in the list is ordered in as many units.
      *
      * @param meals the list of meals in the order
      */
     public void setMeals(ArrayList<Meal> meals) {
-        this.meals = meals;
+        this.itemCount -= countUnits(this.meals);
+        this.meals = new LinkedHashMap<Meal, Integer>();
+        for (Meal meal : meals) {
+            this.meals.merge(meal, 1, Integer::sum);
+        }
+        this.itemCount += meals.size();
+    }
+
+    /**
+     * Returns the number of units of a meal in the order.
+     *
+     * @param meal the meal
+     * @return the quantity of the meal, 0 if it is not in the order
+     */
+    public int getMealQuantity(Meal meal) {
+        return meals.getOrDefault(meal, 0);
+    }
+
+    /**
+     * Returns the line items of meals of the order.
+     *
+     * @return unmodifiable LinkedHashMap <meal, quantity>, in the order the meals were added
+     */
+    public Map<Meal, Integer> getMealQuantities() {
+        return Collections.unmodifiableMap(meals);
+    }
+
+    /**
+     * Returns the total number of units of dishes and meals in the order.
+     *
+     * @return the number of items
+     */
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * Sums the quantities of line items.
+     *
+     * @param items the line items, item and quantity
+     * @return the number of units
+     */
+    private static int countUnits(Map<?, Integer> items) {
+        int units = 0;
+        for (int quantity : items.values()) {
+            units += quantity;
+        }
+        return units;
     }
 
     /**
@@ -312,7 +571,7 @@ public class Order{
      *
      * @return the price of the order
      */
-    public double getPrice() {
+    public Money getPrice() {
         return price;
     }
     
@@ -321,10 +580,35 @@ public class Order{
      *
      * @param price the price of the order
      */
-    public void setPrice(double price) {
+    public void setPrice(Money price) {
     	this.price = price;
     }
 
+    /**
+     * Verifies if the argument order is equals to current order.
+     * Two orders are equals if they have the same id, so an order expanded
+     * from a CompactOrder is equal to the order it was built from.
+     *
+     * @param obj the other order to be compared with
+     * @return true if the ids are equals
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof Order)) return false;
+        return id == ((Order) obj).id;
+    }
+
+    /**
+     * Returns the hash code of the order, based on its id.
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id);
+    }
+
     /**
      * String representation of the Order object.
      * 
@@ -0,0 +1,62 @@
+package order;
+
+/**
+ * Enum containing the states of the lifecycle of an order.
+ * CREATED while the customer is adding items to the order
+ * OFFERED once the order is ended and offered to the couriers
+ * ACCEPTED when a courier accepted the order and is delivering it
+ * DELIVERED when the order reached the customer
+ * CANCELLED when the order was abandoned, for example because no courier accepted it
+ *
+ * @author Aymane Adib
+ */
+public enum OrderStatus {
+	CREATED("WAINTING FOR COMPLETION"),
+	OFFERED("COMPLETED AND WAITING FOR ACCEPTANCE OF A COURIER"),
+	ACCEPTED("ACCEPTED AND DELIVERING"),
+	DELIVERED("DELIVERED"),
+	CANCELLED("INCOMPLETE, NO COURIER FOUND");
+
+	private final String label; // Text displayed to the users
+
+	private OrderStatus(String label) {
+		this.label = label;
+	}
+
+	/**
+	 * Returns the text displayed to the users for this status.
+	 *
+	 * @return the label of the status
+	 */
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * Verifies if an order in this status can move to the given status.
+	 *
+	 * @param next the next status
+	 * @return true if the transition is allowed
+	 */
+	public boolean canTransitionTo(OrderStatus next) {
+		switch (this) {
+		case CREATED:
+			return next == OFFERED || next == CANCELLED;
+		case OFFERED:
+			return next == ACCEPTED || next == CANCELLED;
+		case ACCEPTED:
+			return next == DELIVERED || next == CANCELLED;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Verifies if this status ends the lifecycle of the order.
+	 *
+	 * @return true if the order is delivered or cancelled
+	 */
+	public boolean isTerminal() {
+		return this == DELIVERED || this == CANCELLED;
+	}
+}
@@ -0,0 +1,509 @@
+package simulation;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+
+import order.Order;
+import system.CourierPositionStore;
+import system.DeliveryStrategy;
+import system.EtaService;
+import system.EtaService.Eta;
+import system.IdAllocator;
+import system.MyFoodora;
+import system.Money;
+import system.ProfitData;
+import user.BadUserCreationException;
+import user.Courier;
+import user.Location;
+import user.Person;
+import user.Restaurant;
+import user.User;
+
+/**
+ * Discrete-event simulation of the deliveries of a city.
+ * An order stream is replayed in simulated time on real Order and Courier objects: each order
+ * is dispatched by a real DeliveryStrategy, offered to the selected couriers who accept or refuse
+ * it after a response time, and delivered after the travel time of the courier, estimated by an
+ * EtaService. Orders without courier wait and are dispatched again when a courier becomes free.
+ *
+ * The simulation does not change the data of MyFoodora: it works on its own couriers, does not add
+ * the simulated orders to the order history and restores the order counters of the restaurants.
+ * Its couriers and orders take their IDs from an allocator of their own, on the last node, so
+ * they do not consume the IDs of the system.
+ *
+ * @author Alisson Bonatto
+ */
+public class CitySimulator {
+
+	private static int simulatedCourierCounter = 0; // Counter for unique usernames of the simulated couriers
+	private static final IdAllocator simulationIds = new IdAllocator(IdAllocator.MAX_NODE_ID); // Allocator of the simulated couriers and orders, not persisted
+
+	private DeliveryStrategy deliveryStrategy;  // Delivery strategy simulated
+	private ProfitData profitData;              // Profit data used to compute the profit of the orders
+	private EtaService etaService;              // Speed model and restaurant-to-customer legs of the couriers
+	private double responseTime;                // Delay before a courier answers an offer, in seconds
+	private double acceptProbability;           // Probability that a free courier accepts an offer
+	private double retryDelay;                  // Delay before dispatching again the orders without courier, in seconds
+	private double abandonTime;                 // Time after which an order without courier is abandoned, in seconds
+	private LocalDateTime start;                // Date and time of the start of the simulation
+	private long seed;                          // Seed of the random generator of the couriers answers
+
+	// State of the current run
+	private PriorityQueue<Event> events;
+	private long eventCounter;
+	private Random random;
+	private Set<Courier> couriers;
+	private CourierPositionStore positions;
+	private Map<Order, OrderState> states;
+	private ArrayDeque<OrderState> waitingOrders;
+	private boolean retryScheduled;
+	private long abandonedOrders;
+	private SimulationReport report;
+
+	/**
+	 * Type of the simulated events.
+	 */
+	private enum EventType {
+		ORDER_PLACED, OFFER_ANSWERED, ORDER_DELIVERED, DISPATCH_RETRY
+	}
+
+	/**
+	 * Simulated event, processed in time order (then in creation order).
+	 */
+	private static class Event implements Comparable<Event> {
+		private final double time;
+		private final long sequence;
+		private final EventType type;
+		private final OrderState order;
+		private final Courier courier;
+
+		private Event(double time, long sequence, EventType type, OrderState order, Courier courier) {
+			this.time = time;
+			this.sequence = sequence;
+			this.type = type;
+			this.order = order;
+			this.courier = courier;
+		}
+
+		@Override
+		public int compareTo(Event other) {
+			int comparison = Double.compare(this.time, other.time);
+			return (comparison != 0) ? comparison : Long.compare(this.sequence, other.sequence);
+		}
+	}
+
+	/**
+	 * Simulation state of an order.
+	 */
+	private static class OrderState {
+		private final SimulatedOrder source;
+		private final Order order;
+		private Courier offeredTo;
+		private double acceptedAt;
+		private double distance;
+
+		private OrderState(SimulatedOrder source, Order order) {
+			this.source = source;
+			this.order = order;
+		}
+	}
+
+	/**
+	 * Constructs a CitySimulator with default behaviour: couriers riding at 15 distance units per hour,
+	 * answering offers in 30 seconds and accepting 90% of them when they are free, 3 minutes spent at
+	 * the stops, orders without courier dispatched again every minute and abandoned after one hour.
+	 * The simulator uses its own EtaService, so the runs do not fill the cache of the system.
+	 *
+	 * @param deliveryStrategy the delivery strategy simulated
+	 * @param profitData the profit data used to compute the profit of the orders
+	 */
+	public CitySimulator(DeliveryStrategy deliveryStrategy, ProfitData profitData) {
+		this.deliveryStrategy = deliveryStrategy;
+		this.profitData = profitData;
+		this.etaService = new EtaService(15, 90, 90);
+		this.responseTime = 30;
+		this.acceptProbability = 0.9;
+		this.retryDelay = 60;
+		this.abandonTime = 3600;
+		this.start = LocalDateTime.now();
+		this.seed = 42;
+	}
+
+	/**
+	 * Constructs a CitySimulator using the current delivery strategy, profit data
+	 * and speed model of the system. The speed model is copied into a new EtaService,
+	 * so the simulated legs do not evict the legs cached for the live orders.
+	 *
+	 * @param system the MyFoodora system
+	 */
+	public CitySimulator(MyFoodora system) {
+		this(system.getDeliveryStrategy(), system.getProfitData());
+		this.etaService = system.getEtaService().copy();
+	}
+
+	/**
+	 * Returns the service estimating the travel times of the couriers.
+	 *
+	 * @return the EtaService used by the simulation
+	 */
+	public EtaService getEtaService() {
+		return etaService;
+	}
+
+	/**
+	 * Sets the service estimating the travel times of the couriers,
+	 * holding their speed and the time spent at the stops.
+	 *
+	 * @param etaService the EtaService to use
+	 */
+	public void setEtaService(EtaService etaService) {
+		this.etaService = etaService;
+	}
+
+	/**
+	 * Sets the delay before a courier answers an offer.
+	 *
+	 * @param responseTime the response time, in seconds
+	 */
+	public void setResponseTime(double responseTime) {
+		this.responseTime = responseTime;
+	}
+
+	/**
+	 * Sets the probability that a free courier accepts an offer.
+	 *
+	 * @param acceptProbability the probability, between 0 and 1
+	 */
+	public void setAcceptProbability(double acceptProbability) {
+		this.acceptProbability = acceptProbability;
+	}
+
+	/**
+	 * Sets the delay before dispatching again the orders without courier.
+	 *
+	 * @param retryDelay the delay, in seconds
+	 */
+	public void setRetryDelay(double retryDelay) {
+		if (retryDelay <= 0) {
+			throw new IllegalArgumentException("The retry delay must be positive.");
+		}
+		this.retryDelay = retryDelay;
+	}
+
+	/**
+	 * Sets the time after which an order without courier is abandoned.
+	 *
+	 * @param abandonTime the time, in seconds
+	 */
+	public void setAbandonTime(double abandonTime) {
+		this.abandonTime = abandonTime;
+	}
+
+	/**
+	 * Sets the date and time of the start of the simulation, used to date the simulated orders.
+	 *
+	 * @param start the start of the simulation
+	 */
+	public void setStart(LocalDateTime start) {
+		this.start = start;
+	}
+
+	/**
+	 * Sets the seed of the random generator of the couriers answers.
+	 *
+	 * @param seed the seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Replays an order stream with the given couriers.
+	 * The couriers are put on duty at the start; their position, counters and duty status
+	 * are modified by the simulation.
+	 *
+	 * @param simulatedCouriers the couriers
+	 * @param orders the order stream
+	 * @return the report of the simulation
+	 */
+	public SimulationReport run(Collection<Courier> simulatedCouriers, List<SimulatedOrder> orders) {
+		long runStart = System.nanoTime();
+		this.events = new PriorityQueue<Event>();
+		this.eventCounter = 0;
+		this.random = new Random(seed);
+		this.couriers = new HashSet<Courier>(simulatedCouriers);
+		this.states = new HashMap<Order, OrderState>();
+		this.waitingOrders = new ArrayDeque<OrderState>();
+		this.retryScheduled = false;
+		this.abandonedOrders = 0;
+		this.report = new SimulationReport(deliveryStrategy.getClass().getSimpleName(), couriers.size());
+
+		for (Courier courier : couriers) {
+			courier.setOnDuty(true);
+		}
+		this.positions = new CourierPositionStore(couriers);
+
+		// The order counters of the restaurants are restored at the end
+		Map<Restaurant, Integer> restaurantCounters = new HashMap<Restaurant, Integer>();
+		for (SimulatedOrder simulatedOrder : orders) {
+			restaurantCounters.putIfAbsent(simulatedOrder.getRestaurant(), simulatedOrder.getRestaurant().getOrderCounter());
+			schedule(simulatedOrder.getTime(), EventType.ORDER_PLACED, new OrderState(simulatedOrder, null), null);
+		}
+
+		double now = 0;
+		IdAllocator systemIds = IdAllocator.setThreadDefault(simulationIds);
+		try {
+			while (!events.isEmpty()) {
+				Event event = events.poll();
+				now = event.time;
+				switch (event.type) {
+				case ORDER_PLACED:
+					place(event.order, now);
+					break;
+				case OFFER_ANSWERED:
+					answer(event.order, event.courier, now);
+					break;
+				case ORDER_DELIVERED:
+					deliver(event.order, event.courier, now);
+					break;
+				case DISPATCH_RETRY:
+					retryScheduled = false;
+					dispatchWaitingOrders(now);
+					break;
+				}
+			}
+		} finally {
+			IdAllocator.setThreadDefault(systemIds);
+			// The simulation store must not keep observing the couriers
+			positions.clear();
+			for (Map.Entry<Restaurant, Integer> counter : restaurantCounters.entrySet()) {
+				counter.getKey().setOrderCounter(counter.getValue());
+			}
+		}
+
+		report.finish(now, abandonedOrders + waitingOrders.size(), System.nanoTime() - runStart);
+		SimulationReport finishedReport = report;
+		this.events = null;
+		this.states = null;
+		this.waitingOrders = null;
+		this.report = null;
+		return finishedReport;
+	}
+
+	/**
+	 * Creates couriers placed at random in a rectangle, to be used by the simulation.
+	 * They are not registered in MyFoodora; their usernames and phone numbers must be
+	 * released with releaseCouriers once the simulations are over.
+	 *
+	 * @param count the number of couriers
+	 * @param minX the minimum abscissa
+	 * @param minY the minimum ordinate
+	 * @param maxX the maximum abscissa
+	 * @param maxY the maximum ordinate
+	 * @param random the random generator
+	 * @return the couriers
+	 * @throws BadUserCreationException if a generated username or phone number is already used
+	 */
+	public static List<Courier> createCouriers(int count, double minX, double minY, double maxX, double maxY, Random random)
+			throws BadUserCreationException {
+		List<Courier> simulatedCouriers = new ArrayList<Courier>(count);
+		IdAllocator systemIds = IdAllocator.setThreadDefault(simulationIds);
+		try {
+			for (int i = 0; i < count; i++) {
+				int number = ++simulatedCourierCounter;
+				Location position = new Location(minX + (maxX - minX) * random.nextDouble(), minY + (maxY - minY) * random.nextDouble());
+				simulatedCouriers.add(new Courier("Simulated", "Courier" + number, "sim_courier_" + number, "",
+						"sim_phone_" + number, position));
+			}
+		} finally {
+			IdAllocator.setThreadDefault(systemIds);
+		}
+		return simulatedCouriers;
+	}
+
+	/**
+	 * Releases the usernames and phone numbers of simulated couriers.
+	 *
+	 * @param simulatedCouriers the couriers created by createCouriers
+	 */
+	public static void releaseCouriers(Collection<Courier> simulatedCouriers) {
+		for (Courier courier : simulatedCouriers) {
+			User.removeUsernameFromUsernamesUsed(courier.getUsername());
+			Person.removePhoneFromPhonesUsed(courier.getPhoneNumber());
+		}
+	}
+
+	/**
+	 * Places an order: creates the Order and dispatches it.
+	 *
+	 * @param placed the state of the order, without Order yet
+	 * @param now the simulated time
+	 */
+	private void place(OrderState placed, double now) {
+		SimulatedOrder source = placed.source;
+		LocalDateTime dateTime = start.plusNanos((long) (source.getTime() * 1e9));
+		Order order = new Order(source.getCustomer(), source.getRestaurant(), null, dateTime.toLocalTime(), dateTime.toLocalDate());
+		order.setPrice(source.getPrice());
+		OrderState state = new OrderState(source, order);
+		states.put(order, state);
+		report.orderPlaced();
+		dispatch(state, now);
+	}
+
+	/**
+	 * Selects the couriers of an order with the delivery strategy and offers it to the first one.
+	 *
+	 * @param state the state of the order
+	 * @param now the simulated time
+	 */
+	private void dispatch(OrderState state, double now) {
+		Order order = state.order;
+		ArrayList<Courier> selectedCouriers = deliveryStrategy.selectCourier(positions, couriers, order.getRestaurant(), order.getCustomer());
+		if (selectedCouriers == null || selectedCouriers.isEmpty()) {
+			waitForCourier(state, now);
+			return;
+		}
+		order.setPossibleCouriers(new ArrayList<Courier>(selectedCouriers));
+		order.notifyNextCourier();
+		offer(state, now);
+	}
+
+	/**
+	 * Schedules the answer of the courier the order is offered to, if any.
+	 *
+	 * @param state the state of the order
+	 * @param now the simulated time
+	 */
+	private void offer(OrderState state, double now) {
+		ArrayList<Courier> possibleCouriers = state.order.getPossibleCouriers();
+		if (possibleCouriers.isEmpty()) {
+			state.offeredTo = null;
+			waitForCourier(state, now);
+			return;
+		}
+		state.offeredTo = possibleCouriers.get(0);
+		schedule(now + responseTime, EventType.OFFER_ANSWERED, state, state.offeredTo);
+	}
+
+	/**
+	 * Processes the answer of a courier to an offer.
+	 * A free courier accepts with the accept probability; a busy courier always refuses.
+	 *
+	 * @param state the state of the order
+	 * @param courier the courier answering
+	 * @param now the simulated time
+	 */
+	private void answer(OrderState state, Courier courier, double now) {
+		Order order = state.order;
+		if (state.offeredTo != courier || order.getCourier() != null || !courier.getPendingOrders().contains(order)) {
+			return; // Outdated answer: the order was refused meanwhile
+		}
+
+		if (courier.isOnDuty() && random.nextDouble() < acceptProbability) {
+			// The other offers of the courier are refused when accepting
+			List<Order> otherOffers = new ArrayList<Order>(courier.getPendingOrders());
+			otherOffers.remove(order);
+			Location position = courier.getPosition();
+			courier.acceptOrder(order.getId());
+			for (Order otherOrder : otherOffers) {
+				OrderState otherState = states.get(otherOrder);
+				if (otherState != null && otherState.offeredTo == courier) {
+					offer(otherState, now);
+				}
+			}
+
+			state.offeredTo = null;
+			state.acceptedAt = now;
+			report.orderAccepted(now - state.source.getTime());
+			Eta eta = etaService.estimate(position, order.getRestaurant(), order.getCustomer(), start.plusSeconds((long) now));
+			state.distance = eta.getPickupDistance() + eta.getDropoffDistance();
+			schedule(now + eta.getDropoffDelay(), EventType.ORDER_DELIVERED, state, courier);
+		}
+		else {
+			courier.refuseOrder(order.getId());
+			report.offerRefused();
+			offer(state, now);
+		}
+	}
+
+	/**
+	 * Delivers an order: the courier moves to the customer and becomes free again.
+	 *
+	 * @param state the state of the order
+	 * @param courier the courier delivering
+	 * @param now the simulated time
+	 */
+	private void deliver(OrderState state, Courier courier, double now) {
+		Order order = state.order;
+		courier.completeDelivery(order);
+		Money profit = order.getPrice().times(profitData.getMarkupPercentage()).plus(profitData.getServiceFee()).minus(profitData.getDeliveryCost());
+		report.orderDelivered(now - state.source.getTime(), now - state.acceptedAt, state.distance, profit);
+		states.remove(order);
+		dispatchWaitingOrders(now);
+	}
+
+	/**
+	 * Puts an order in the queue of the orders without courier.
+	 *
+	 * @param state the state of the order
+	 * @param now the simulated time
+	 */
+	private void waitForCourier(OrderState state, double now) {
+		waitingOrders.add(state);
+		if (!retryScheduled) {
+			retryScheduled = true;
+			schedule(now + retryDelay, EventType.DISPATCH_RETRY, null, null);
+		}
+	}
+
+	/**
+	 * Dispatches again the orders without courier, abandoning the ones waiting for too long.
+	 *
+	 * @param now the simulated time
+	 */
+	private void dispatchWaitingOrders(double now) {
+		int count = waitingOrders.size();
+		for (int i = 0; i < count; i++) {
+			OrderState state = waitingOrders.poll();
+			if (now - state.source.getTime() > abandonTime) {
+				abandonedOrders++;
+				states.remove(state.order);
+				continue;
+			}
+			dispatch(state, now);
+		}
+	}
+
+	/**
+	 * Adds an event to the queue.
+	 *
+	 * @param time the simulated time of the event
+	 * @param type the type of the event
+	 * @param state the order concerned, or null
+	 * @param courier the courier concerned, or null
+	 */
+	private void schedule(double time, EventType type, OrderState state, Courier courier) {
+		events.add(new Event(time, eventCounter++, type, state, courier));
+	}
+
+	/**
+	 * Returns a string representation of this CitySimulator.
+	 *
+	 * @return string describing the behaviour simulated
+	 */
+	@Override
+	public String toString() {
+		return "CitySimulator : " + deliveryStrategy.getClass().getSimpleName() + ", speed=" + etaService.getSpeedPerHour()
+				+ "/h, responseTime=" + responseTime + "s, acceptProbability=" + acceptProbability + ", stopTime="
+				+ (etaService.getPickupTime() + etaService.getDropoffTime()) + "s";
+	}
+}
@@ -0,0 +1,106 @@
+package simulation;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import order.Order;
+import system.Money;
+import user.Customer;
+import user.Restaurant;
+
+/**
+ * Builds the order streams replayed by the CitySimulator:
+ * synthetic streams with Poisson arrivals, or streams recorded in an order history.
+ *
+ * @author Alisson Bonatto
+ */
+public class OrderStreams {
+
+	/**
+	 * Private constructor: this class only contains static methods.
+	 */
+	private OrderStreams() {
+	}
+
+	/**
+	 * Generates a synthetic order stream with Poisson arrivals.
+	 * Each order is placed by a random customer at a random restaurant, with a price
+	 * drawn uniformly between minPrice and maxPrice.
+	 *
+	 * @param restaurants the restaurants
+	 * @param customers the customers
+	 * @param ordersPerHour the mean number of orders per hour
+	 * @param durationSeconds the duration of the stream, in seconds
+	 * @param minPrice the minimum price of an order
+	 * @param maxPrice the maximum price of an order
+	 * @param random the random generator (a seeded generator makes the stream reproducible)
+	 * @return the orders, sorted by time
+	 */
+	public static List<SimulatedOrder> poisson(List<Restaurant> restaurants, List<Customer> customers, double ordersPerHour,
+			double durationSeconds, double minPrice, double maxPrice, Random random) {
+		if (restaurants.isEmpty() || customers.isEmpty()) {
+			throw new IllegalArgumentException("At least one restaurant and one customer are needed to generate orders.");
+		}
+		if (ordersPerHour <= 0) {
+			throw new IllegalArgumentException("The number of orders per hour must be positive.");
+		}
+
+		List<SimulatedOrder> orders = new ArrayList<SimulatedOrder>();
+		double ratePerSecond = ordersPerHour / 3600;
+		double time = exponential(ratePerSecond, random);
+		while (time < durationSeconds) {
+			Restaurant restaurant = restaurants.get(random.nextInt(restaurants.size()));
+			Customer customer = customers.get(random.nextInt(customers.size()));
+			double price = minPrice + (maxPrice - minPrice) * random.nextDouble();
+			orders.add(new SimulatedOrder(time, restaurant, customer, Money.of(price)));
+			time += exponential(ratePerSecond, random);
+		}
+		return orders;
+	}
+
+	/**
+	 * Builds the order stream recorded in an order history.
+	 * The first order of the history is placed at the start of the simulation,
+	 * the other ones keep their delay from the first one.
+	 *
+	 * @param history the recorded orders
+	 * @return the orders, sorted by time
+	 */
+	public static List<SimulatedOrder> fromHistory(Collection<Order> history) {
+		List<SimulatedOrder> orders = new ArrayList<SimulatedOrder>();
+		if (history.isEmpty()) {
+			return orders;
+		}
+
+		LocalDateTime start = null;
+		for (Order order : history) {
+			LocalDateTime dateTime = LocalDateTime.of(order.getDate(), order.getTime());
+			if (start == null || dateTime.isBefore(start)) {
+				start = dateTime;
+			}
+		}
+		for (Order order : history) {
+			LocalDateTime dateTime = LocalDateTime.of(order.getDate(), order.getTime());
+			double time = Duration.between(start, dateTime).toNanos() / 1e9;
+			orders.add(new SimulatedOrder(time, order.getRestaurant(), order.getCustomer(), order.getPrice()));
+		}
+		Collections.sort(orders);
+		return orders;
+	}
+
+	/**
+	 * Draws the delay before the next arrival of a Poisson process.
+	 *
+	 * @param ratePerSecond the mean number of arrivals per second
+	 * @param random the random generator
+	 * @return the delay, in seconds
+	 */
+	private static double exponential(double ratePerSecond, Random random) {
+		return -Math.log(1 - random.nextDouble()) / ratePerSecond;
+	}
+}
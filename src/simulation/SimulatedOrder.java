@@ -0,0 +1,90 @@
+package simulation;
+
+import system.Money;
+import user.Customer;
+import user.Restaurant;
+
+/**
+ * Order of a simulated order stream: who orders, from which restaurant, when and for how much.
+ * 
+ * @author Alisson Bonatto
+ */
+public class SimulatedOrder implements Comparable<SimulatedOrder> {
+
+	private double time;           // Simulated time of the order, in seconds since the start of the simulation
+	private Restaurant restaurant; // Restaurant from which the order is picked up
+	private Customer customer;     // Customer who receives the order
+	private Money price;           // Price of the order
+
+	/**
+	 * Constructs a SimulatedOrder.
+	 *
+	 * @param time the simulated time of the order, in seconds since the start of the simulation
+	 * @param restaurant the restaurant from which the order is picked up
+	 * @param customer the customer who receives the order
+	 * @param price the price of the order
+	 */
+	public SimulatedOrder(double time, Restaurant restaurant, Customer customer, Money price) {
+		this.time = time;
+		this.restaurant = restaurant;
+		this.customer = customer;
+		this.price = price;
+	}
+
+	/**
+	 * Returns the simulated time of the order.
+	 *
+	 * @return the time, in seconds since the start of the simulation
+	 */
+	public double getTime() {
+		return time;
+	}
+
+	/**
+	 * Returns the restaurant from which the order is picked up.
+	 *
+	 * @return the restaurant
+	 */
+	public Restaurant getRestaurant() {
+		return restaurant;
+	}
+
+	/**
+	 * Returns the customer who receives the order.
+	 *
+	 * @return the customer
+	 */
+	public Customer getCustomer() {
+		return customer;
+	}
+
+	/**
+	 * Returns the price of the order.
+	 *
+	 * @return the price
+	 */
+	public Money getPrice() {
+		return price;
+	}
+
+	/**
+	 * Compares two simulated orders by time.
+	 *
+	 * @param other the other order
+	 * @return a negative number, zero or a positive number if this order is placed before, with or after the other one
+	 */
+	@Override
+	public int compareTo(SimulatedOrder other) {
+		return Double.compare(this.time, other.time);
+	}
+
+	/**
+	 * Returns a string representation of this simulated order.
+	 *
+	 * @return string describing the order
+	 */
+	@Override
+	public String toString() {
+		return "SimulatedOrder at " + time + "s : " + customer.getUsername() + " from " + restaurant.getName() + " (" + price + ")";
+	}
+}
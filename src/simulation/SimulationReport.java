@@ -0,0 +1,242 @@
+package simulation;
+
+import system.Money;
+
+/**
+ * Results of a run of the CitySimulator: throughput, waiting times, courier utilization and profit.
+ * All the times are simulated times, in seconds.
+ *
+ * @author Alisson Bonatto
+ */
+public class SimulationReport {
+
+	private String strategyName;          // Name of the delivery strategy simulated
+	private int couriers;                 // Number of couriers
+	private double duration;              // Simulated duration, from the start to the last event
+	private long ordersPlaced;            // Number of orders placed
+	private long ordersDelivered;         // Number of orders delivered
+	private long ordersUnassigned;        // Number of orders still without courier at the end
+	private long offersRefused;           // Number of offers refused by the couriers
+	private double totalWaitingTime;      // Sum of the delays between placement and acceptance
+	private double maxWaitingTime;        // Longest delay between placement and acceptance
+	private double totalDeliveryTime;     // Sum of the delays between placement and delivery
+	private double totalBusyTime;         // Sum of the times spent delivering by the couriers
+	private double totalDistance;         // Distance travelled by the couriers
+	private Money totalProfit;            // Profit of the orders delivered
+	private long runNanos;                // Real time taken by the simulation
+
+	/**
+	 * Constructs an empty report.
+	 *
+	 * @param strategyName the name of the delivery strategy simulated
+	 * @param couriers the number of couriers
+	 */
+	public SimulationReport(String strategyName, int couriers) {
+		this.strategyName = strategyName;
+		this.couriers = couriers;
+		this.totalProfit = Money.ZERO;
+	}
+
+	/**
+	 * Records an order placed.
+	 */
+	void orderPlaced() {
+		ordersPlaced++;
+	}
+
+	/**
+	 * Records an offer refused by a courier.
+	 */
+	void offerRefused() {
+		offersRefused++;
+	}
+
+	/**
+	 * Records an order accepted by a courier.
+	 *
+	 * @param waitingTime the delay between placement and acceptance
+	 */
+	void orderAccepted(double waitingTime) {
+		totalWaitingTime += waitingTime;
+		maxWaitingTime = Math.max(maxWaitingTime, waitingTime);
+	}
+
+	/**
+	 * Records an order delivered.
+	 *
+	 * @param deliveryTime the delay between placement and delivery
+	 * @param busyTime the time spent by the courier on this order
+	 * @param distance the distance travelled by the courier for this order
+	 * @param profit the profit of the order
+	 */
+	void orderDelivered(double deliveryTime, double busyTime, double distance, Money profit) {
+		ordersDelivered++;
+		totalDeliveryTime += deliveryTime;
+		totalBusyTime += busyTime;
+		totalDistance += distance;
+		totalProfit = totalProfit.plus(profit);
+	}
+
+	/**
+	 * Records the end of the simulation.
+	 *
+	 * @param duration the simulated duration
+	 * @param ordersUnassigned the number of orders which never found a courier
+	 * @param runNanos the real time taken by the simulation
+	 */
+	void finish(double duration, long ordersUnassigned, long runNanos) {
+		this.duration = duration;
+		this.ordersUnassigned = ordersUnassigned;
+		this.runNanos = runNanos;
+	}
+
+	/**
+	 * Returns the name of the delivery strategy simulated.
+	 *
+	 * @return the strategy name
+	 */
+	public String getStrategyName() {
+		return strategyName;
+	}
+
+	/**
+	 * Returns the number of couriers simulated.
+	 *
+	 * @return the number of couriers
+	 */
+	public int getCouriers() {
+		return couriers;
+	}
+
+	/**
+	 * Returns the simulated duration.
+	 *
+	 * @return the duration, in seconds
+	 */
+	public double getDuration() {
+		return duration;
+	}
+
+	/**
+	 * Returns the number of orders placed.
+	 *
+	 * @return the number of orders placed
+	 */
+	public long getOrdersPlaced() {
+		return ordersPlaced;
+	}
+
+	/**
+	 * Returns the number of orders delivered.
+	 *
+	 * @return the number of orders delivered
+	 */
+	public long getOrdersDelivered() {
+		return ordersDelivered;
+	}
+
+	/**
+	 * Returns the number of orders which never found a courier.
+	 *
+	 * @return the number of unassigned orders
+	 */
+	public long getOrdersUnassigned() {
+		return ordersUnassigned;
+	}
+
+	/**
+	 * Returns the number of offers refused by the couriers.
+	 *
+	 * @return the number of refusals
+	 */
+	public long getOffersRefused() {
+		return offersRefused;
+	}
+
+	/**
+	 * Returns the number of orders delivered per simulated hour.
+	 *
+	 * @return the throughput
+	 */
+	public double getThroughputPerHour() {
+		return (duration == 0) ? 0 : ordersDelivered * 3600 / duration;
+	}
+
+	/**
+	 * Returns the average delay between the placement and the acceptance of an order.
+	 *
+	 * @return the average waiting time, in seconds
+	 */
+	public double getAverageWaitingTime() {
+		long accepted = ordersPlaced - ordersUnassigned;
+		return (accepted == 0) ? 0 : totalWaitingTime / accepted;
+	}
+
+	/**
+	 * Returns the longest delay between the placement and the acceptance of an order.
+	 *
+	 * @return the maximum waiting time, in seconds
+	 */
+	public double getMaxWaitingTime() {
+		return maxWaitingTime;
+	}
+
+	/**
+	 * Returns the average delay between the placement and the delivery of an order.
+	 *
+	 * @return the average delivery time, in seconds
+	 */
+	public double getAverageDeliveryTime() {
+		return (ordersDelivered == 0) ? 0 : totalDeliveryTime / ordersDelivered;
+	}
+
+	/**
+	 * Returns the share of the time the couriers spent delivering.
+	 *
+	 * @return the utilization, between 0 and 1
+	 */
+	public double getCourierUtilization() {
+		return (duration == 0 || couriers == 0) ? 0 : totalBusyTime / (duration * couriers);
+	}
+
+	/**
+	 * Returns the distance travelled by the couriers.
+	 *
+	 * @return the total distance
+	 */
+	public double getTotalDistance() {
+		return totalDistance;
+	}
+
+	/**
+	 * Returns the profit of the orders delivered.
+	 *
+	 * @return the total profit
+	 */
+	public Money getTotalProfit() {
+		return totalProfit;
+	}
+
+	/**
+	 * Returns the real time taken by the simulation.
+	 *
+	 * @return the run time, in milliseconds
+	 */
+	public double getRunMillis() {
+		return runNanos / 1e6;
+	}
+
+	/**
+	 * Returns a string representation of this report.
+	 *
+	 * @return string describing the results of the simulation
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s with %d couriers over %.1f h : %d orders placed, %d delivered (%.1f/h), %d unassigned, %d refusals, "
+				+ "avg wait %.0f s (max %.0f s), avg delivery %.0f s, utilization %.0f%%, distance %.1f, profit %s, computed in %.0f ms",
+				strategyName, couriers, duration / 3600, ordersPlaced, ordersDelivered, getThroughputPerHour(), ordersUnassigned,
+				offersRefused, getAverageWaitingTime(), maxWaitingTime, getAverageDeliveryTime(), 100 * getCourierUtilization(),
+				totalDistance, totalProfit, getRunMillis());
+	}
+}
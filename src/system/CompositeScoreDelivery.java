@@ -0,0 +1,282 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.Set;
+
+import user.Courier;
+import user.Customer;
+import user.Location;
+import user.Restaurant;
+
+/**
+ * Delivery strategy that balances speed and fairness with a weighted score.
+ * The score of an on duty courier is the weighted sum of its distance to the restaurant,
+ * its number of deliveries, its number of pending offers and its recent refusal rate;
+ * the lower the score, the better the courier.
+ *
+ * The features of the couriers are read from the columns of a CourierPositionStore,
+ * kept up to date by the couriers themselves, and only the best K couriers are kept
+ * in a bounded heap instead of sorting all the couriers. The scratch arrays of the scan
+ * belong to the calling thread, so the couriers can be selected from several threads.
+ *
+ * @author Alisson Bonatto
+ */
+public class CompositeScoreDelivery implements DeliveryStrategy {
+
+	private double distanceWeight;   // Score added per unit of distance to the restaurant
+	private double deliveryWeight;   // Score added per delivery made
+	private double loadWeight;       // Score added per order offered and not answered yet
+	private double refusalWeight;    // Score added for a refusal rate of 1
+	private int maxCandidates;       // Number of couriers kept (K)
+
+	private ThreadLocal<Scratch> scratch; // Scratch arrays of each thread selecting couriers
+
+	/**
+	 * Scratch arrays of a selection, reused by the next selections of the same thread.
+	 */
+	private static class Scratch {
+		private double[] distances = new double[0]; // Squared distances
+		private final int[] heapSlots;              // Max-heap of the best slots
+		private final double[] heapScores;          // Max-heap of the best scores
+
+		private Scratch(int maxCandidates) {
+			this.heapSlots = new int[maxCandidates];
+			this.heapScores = new double[maxCandidates];
+		}
+	}
+
+	/**
+	 * Constructs a CompositeScoreDelivery strategy with specified weights.
+	 *
+	 * @param distanceWeight the score added per unit of distance to the restaurant
+	 * @param deliveryWeight the score added per delivery made
+	 * @param loadWeight the score added per order offered and not answered yet
+	 * @param refusalWeight the score added for a refusal rate of 1
+	 * @param maxCandidates the number of couriers kept (K)
+	 */
+	public CompositeScoreDelivery(double distanceWeight, double deliveryWeight, double loadWeight, double refusalWeight, int maxCandidates) {
+		if (maxCandidates <= 0) {
+			throw new IllegalArgumentException("The number of candidates must be positive.");
+		}
+		this.distanceWeight = distanceWeight;
+		this.deliveryWeight = deliveryWeight;
+		this.loadWeight = loadWeight;
+		this.refusalWeight = refusalWeight;
+		this.maxCandidates = maxCandidates;
+		this.scratch = ThreadLocal.withInitial(() -> new Scratch(maxCandidates));
+	}
+
+	/**
+	 * Constructs a CompositeScoreDelivery strategy with default weights:
+	 * 1 per unit of distance, 0.5 per delivery, 1 per pending offer, 5 for a refusal rate of 1,
+	 * keeping the 5 best couriers.
+	 */
+	public CompositeScoreDelivery() {
+		this(1, 0.5, 1, 5, 5);
+	}
+
+	/**
+	 * Returns the score added per unit of distance to the restaurant.
+	 *
+	 * @return the distance weight
+	 */
+	public double getDistanceWeight() {
+		return distanceWeight;
+	}
+
+	/**
+	 * Returns the score added per delivery made.
+	 *
+	 * @return the delivery weight
+	 */
+	public double getDeliveryWeight() {
+		return deliveryWeight;
+	}
+
+	/**
+	 * Returns the score added per order offered and not answered yet.
+	 *
+	 * @return the load weight
+	 */
+	public double getLoadWeight() {
+		return loadWeight;
+	}
+
+	/**
+	 * Returns the score added for a refusal rate of 1.
+	 *
+	 * @return the refusal weight
+	 */
+	public double getRefusalWeight() {
+		return refusalWeight;
+	}
+
+	/**
+	 * Returns the number of couriers kept.
+	 *
+	 * @return the maximum number of candidates
+	 */
+	public int getMaxCandidates() {
+		return maxCandidates;
+	}
+
+	/**
+	 * Selects the best on duty couriers from the set of couriers.
+	 *
+	 * @param couriers the couriers
+	 * @param restaurant the restaurant from which the order will be picked up
+	 * @param customer the customer who will receive the order
+	 * @return at most K on duty couriers, the one with the lowest score first
+	 */
+	@Override
+	public ArrayList<Courier> selectCourier(Set<Courier> couriers, Restaurant restaurant, Customer customer) {
+		// The temporary store is filled once and does not observe the couriers
+		CourierPositionStore positions = new CourierPositionStore(false);
+		for (Courier courier : couriers) {
+			positions.add(courier);
+		}
+		return selectCourier(positions, couriers, restaurant, customer);
+	}
+
+	/**
+	 * Selects the best on duty couriers using the position store kept up to date by the system.
+	 *
+	 * @param positions the positions, duty status and workload of the couriers
+	 * @param couriers the couriers
+	 * @param restaurant the restaurant from which the order will be picked up
+	 * @param customer the customer who will receive the order
+	 * @return at most K on duty couriers, the one with the lowest score first
+	 */
+	@Override
+	public ArrayList<Courier> selectCourier(CourierPositionStore positions, Set<Courier> couriers, Restaurant restaurant, Customer customer) {
+		Scratch arrays = scratch.get();
+		if (arrays.distances.length < positions.size()) {
+			arrays.distances = new double[Math.max(positions.size(), 2 * arrays.distances.length)];
+		}
+		double[] distances = arrays.distances;
+		int[] heapSlots = arrays.heapSlots;
+		double[] heapScores = arrays.heapScores;
+		Location location = restaurant.getLocation();
+		positions.squaredDistances(location.getX(), location.getY(), distances);
+
+		// Keeps the K best scores in a max-heap: the worst kept score is at the root
+		int heapSize = 0;
+		for (int slot = positions.nextOnDutySlot(0); slot >= 0; slot = positions.nextOnDutySlot(slot + 1)) {
+			double score = score(positions, slot, distances[slot]);
+			if (heapSize < maxCandidates) {
+				heapSlots[heapSize] = slot;
+				heapScores[heapSize] = score;
+				siftUp(heapSlots, heapScores, heapSize);
+				heapSize++;
+			}
+			else if (score < heapScores[0]) {
+				heapSlots[0] = slot;
+				heapScores[0] = score;
+				siftDown(heapSlots, heapScores, 0, heapSize);
+			}
+		}
+
+		// Empties the heap from the worst to the best score
+		Courier[] sortedCouriers = new Courier[heapSize];
+		for (int i = heapSize - 1; i >= 0; i--) {
+			sortedCouriers[i] = positions.getCourier(heapSlots[0]);
+			heapSlots[0] = heapSlots[i];
+			heapScores[0] = heapScores[i];
+			siftDown(heapSlots, heapScores, 0, i);
+		}
+
+		ArrayList<Courier> selectedCouriers = new ArrayList<Courier>(heapSize);
+		for (Courier courier : sortedCouriers) {
+			selectedCouriers.add(courier);
+		}
+		return selectedCouriers;
+	}
+
+	/**
+	 * Computes the score of the courier of the given slot.
+	 *
+	 * @param positions the store of the couriers
+	 * @param slot the slot of the courier
+	 * @param squaredDistance the squared distance between the courier and the restaurant
+	 * @return the score of the courier, lower is better
+	 */
+	private double score(CourierPositionStore positions, int slot, double squaredDistance) {
+		return distanceWeight * Math.sqrt(squaredDistance)
+				+ deliveryWeight * positions.getDeliveryCount(slot)
+				+ loadWeight * positions.getPendingOfferCount(slot)
+				+ refusalWeight * positions.getRefusalRate(slot);
+	}
+
+	/**
+	 * Moves up the element at the given index of the max-heap.
+	 *
+	 * @param heapSlots the slots of the heap
+	 * @param heapScores the scores of the heap
+	 * @param index the index
+	 */
+	private static void siftUp(int[] heapSlots, double[] heapScores, int index) {
+		while (index > 0) {
+			int parent = (index - 1) / 2;
+			if (heapScores[parent] >= heapScores[index]) {
+				return;
+			}
+			swap(heapSlots, heapScores, parent, index);
+			index = parent;
+		}
+	}
+
+	/**
+	 * Moves down the element at the given index of the max-heap.
+	 *
+	 * @param heapSlots the slots of the heap
+	 * @param heapScores the scores of the heap
+	 * @param index the index
+	 * @param heapSize the size of the heap
+	 */
+	private static void siftDown(int[] heapSlots, double[] heapScores, int index, int heapSize) {
+		while (true) {
+			int largest = index;
+			int left = 2 * index + 1;
+			int right = left + 1;
+			if (left < heapSize && heapScores[left] > heapScores[largest]) {
+				largest = left;
+			}
+			if (right < heapSize && heapScores[right] > heapScores[largest]) {
+				largest = right;
+			}
+			if (largest == index) {
+				return;
+			}
+			swap(heapSlots, heapScores, index, largest);
+			index = largest;
+		}
+	}
+
+	/**
+	 * Swaps two elements of the heap.
+	 *
+	 * @param heapSlots the slots of the heap
+	 * @param heapScores the scores of the heap
+	 * @param i the first index
+	 * @param j the second index
+	 */
+	private static void swap(int[] heapSlots, double[] heapScores, int i, int j) {
+		int slot = heapSlots[i];
+		heapSlots[i] = heapSlots[j];
+		heapSlots[j] = slot;
+		double score = heapScores[i];
+		heapScores[i] = heapScores[j];
+		heapScores[j] = score;
+	}
+
+	/**
+	 * Returns a string representation of this CompositeScoreDelivery strategy.
+	 *
+	 * @return string describing the weights and the number of candidates
+	 */
+	@Override
+	public String toString() {
+		return "CompositeScoreDelivery : distanceWeight=" + distanceWeight + ", deliveryWeight=" + deliveryWeight
+				+ ", loadWeight=" + loadWeight + ", refusalWeight=" + refusalWeight + ", maxCandidates=" + maxCandidates;
+	}
+}
@@ -0,0 +1,595 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import notification.CourierObserver;
+import user.Courier;
+import user.Location;
+
+/**
+ * Structure-of-arrays view of the positions and duty status of the couriers.
+ * Each courier is given a slot; its coordinates are kept in two primitive arrays and its
+ * duty status in a bitset, so nearest-courier scans run over contiguous memory without
+ * allocating any object. The workload of the couriers (deliveries, pending offers and
+ * refusal rate) is kept in other columns used to score them.
+ * The store observes the couriers and refreshes their slot whenever they change.
+ *
+ * This class is not thread-safe: a store must only be used by one thread at a time.
+ *
+ * @author Alisson Bonatto
+ */
+public class CourierPositionStore implements CourierObserver {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private double[] x;                      // Abscissa of the courier of each slot
+	private double[] y;                      // Ordinate of the courier of each slot
+	private BitSet onDuty;                   // Duty status of the courier of each slot
+	private int[] deliveries;                // Number of deliveries of the courier of each slot
+	private int[] pendingOffers;             // Number of orders offered to the courier of each slot
+	private double[] refusalRates;           // Recent refusal rate of the courier of each slot
+	private Courier[] couriers;              // Courier of each slot
+	private Map<Courier, Integer> slots;     // HashMap <courier, slot>, built on first use in a copy
+	private int size;                        // Number of slots used
+	private int modCount;                    // Number of changes made to the store
+	private int membershipCount;             // Number of couriers added to or removed from the store
+	private boolean observing;               // Indicates if the store observes the couriers it contains
+
+	private double[] distances;              // Scratch array of the squared distances of the last scan
+	private int[] indexes;                   // Scratch array of the slots sorted by the last scan
+
+	/**
+	 * Constructs an empty CourierPositionStore observing the couriers it contains.
+	 */
+	public CourierPositionStore() {
+		this(true);
+	}
+
+	/**
+	 * Constructs an empty CourierPositionStore.
+	 * A store which does not observe its couriers must be refreshed by calling
+	 * update(Courier, double, double, boolean), for example from the thread owning the store.
+	 *
+	 * @param observing true if the store observes the couriers it contains
+	 */
+	public CourierPositionStore(boolean observing) {
+		this.observing = observing;
+		this.x = new double[INITIAL_CAPACITY];
+		this.y = new double[INITIAL_CAPACITY];
+		this.onDuty = new BitSet(INITIAL_CAPACITY);
+		this.deliveries = new int[INITIAL_CAPACITY];
+		this.pendingOffers = new int[INITIAL_CAPACITY];
+		this.refusalRates = new double[INITIAL_CAPACITY];
+		this.couriers = new Courier[INITIAL_CAPACITY];
+		this.slots = new HashMap<Courier, Integer>();
+		this.distances = new double[INITIAL_CAPACITY];
+		this.indexes = new int[INITIAL_CAPACITY];
+		this.size = 0;
+		this.modCount = 0;
+		this.membershipCount = 0;
+	}
+
+	/**
+	 * Constructs a CourierPositionStore containing the given couriers.
+	 *
+	 * @param couriers the couriers
+	 */
+	public CourierPositionStore(Iterable<Courier> couriers) {
+		this();
+		for (Courier courier : couriers) {
+			this.add(courier);
+		}
+	}
+
+	/**
+	 * Constructs a copy of the columns of a store, which does not observe the couriers.
+	 * Only the arrays are copied: the slots of the couriers are indexed when first looked up,
+	 * by the thread using the copy.
+	 *
+	 * @param source the store to copy
+	 */
+	private CourierPositionStore(CourierPositionStore source) {
+		this.observing = false;
+		int capacity = Math.max(source.size, INITIAL_CAPACITY);
+		this.x = Arrays.copyOf(source.x, capacity);
+		this.y = Arrays.copyOf(source.y, capacity);
+		this.onDuty = (BitSet) source.onDuty.clone();
+		this.deliveries = Arrays.copyOf(source.deliveries, capacity);
+		this.pendingOffers = Arrays.copyOf(source.pendingOffers, capacity);
+		this.refusalRates = Arrays.copyOf(source.refusalRates, capacity);
+		this.couriers = Arrays.copyOf(source.couriers, capacity);
+		this.slots = null;
+		this.distances = new double[capacity];
+		this.indexes = new int[capacity];
+		this.size = source.size;
+		this.modCount = 0;
+		this.membershipCount = 0;
+	}
+
+	/**
+	 * Returns a copy of the positions, duty status and workloads of the couriers, which does
+	 * not observe them. The copy costs a few array copies, so it can be taken on the thread
+	 * owning the store and handed to another thread.
+	 *
+	 * @return the copy of the store
+	 */
+	public CourierPositionStore copy() {
+		return new CourierPositionStore(this);
+	}
+
+	/**
+	 * Returns the number of couriers in the store.
+	 *
+	 * @return the number of couriers
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of changes made to the store (couriers added, removed or updated).
+	 * It can be used by other views to detect that they must be refreshed.
+	 *
+	 * @return the modification counter
+	 */
+	public int getModCount() {
+		return modCount;
+	}
+
+	/**
+	 * Returns the number of couriers added to or removed from the store.
+	 * Unlike the modification counter, it does not change when a courier moves.
+	 *
+	 * @return the membership counter
+	 */
+	public int getMembershipCount() {
+		return membershipCount;
+	}
+
+	/**
+	 * Returns the courier of the given slot.
+	 *
+	 * @param slot the slot
+	 * @return the courier
+	 */
+	public Courier getCourier(int slot) {
+		return couriers[slot];
+	}
+
+	/**
+	 * Returns the slot of the given courier.
+	 *
+	 * @param courier the courier
+	 * @return the slot of the courier, or -1 if the courier is not in the store
+	 */
+	public int getSlot(Courier courier) {
+		Integer slot = slots().get(courier);
+		return (slot == null) ? -1 : slot;
+	}
+
+	/**
+	 * Verifies if the given courier is in the store.
+	 *
+	 * @param courier the courier
+	 * @return true if the courier is in the store
+	 */
+	public boolean contains(Courier courier) {
+		return slots().containsKey(courier);
+	}
+
+	/**
+	 * Adds a courier to the store and starts observing it.
+	 * Nothing is done if the courier is already in the store.
+	 *
+	 * @param courier the courier to add
+	 */
+	public void add(Courier courier) {
+		Location position = courier.getPosition();
+		if (position != null) {
+			add(courier, position.getX(), position.getY(), courier.isOnDuty());
+		}
+		else {
+			add(courier, Double.NaN, Double.NaN, false);
+		}
+	}
+
+	/**
+	 * Adds a courier to the store with the given position and duty status.
+	 * Nothing is done if the courier is already in the store.
+	 *
+	 * @param courier the courier to add
+	 * @param px the abscissa of the courier
+	 * @param py the ordinate of the courier
+	 * @param isOnDuty the duty status of the courier
+	 */
+	public void add(Courier courier, double px, double py, boolean isOnDuty) {
+		if (slots().containsKey(courier)) {
+			return;
+		}
+		ensureCapacity(size + 1);
+		couriers[size] = courier;
+		slots.put(courier, size);
+		write(size, px, py, isOnDuty);
+		writeWorkload(size, courier);
+		size++;
+		modCount++;
+		membershipCount++;
+		if (observing) {
+			courier.addObserver(this);
+		}
+	}
+
+	/**
+	 * Removes a courier from the store and stops observing it.
+	 * The last slot is moved into the freed slot so the arrays stay contiguous.
+	 *
+	 * @param courier the courier to remove
+	 * @return true if the courier was in the store
+	 */
+	public boolean remove(Courier courier) {
+		Integer slot = slots().remove(courier);
+		if (slot == null) {
+			return false;
+		}
+		int last = size - 1;
+		if (slot != last) {
+			x[slot] = x[last];
+			y[slot] = y[last];
+			onDuty.set(slot, onDuty.get(last));
+			deliveries[slot] = deliveries[last];
+			pendingOffers[slot] = pendingOffers[last];
+			refusalRates[slot] = refusalRates[last];
+			couriers[slot] = couriers[last];
+			slots.put(couriers[slot], slot);
+		}
+		couriers[last] = null;
+		onDuty.clear(last);
+		size--;
+		modCount++;
+		membershipCount++;
+		if (observing) {
+			courier.removeObserver(this);
+		}
+		return true;
+	}
+
+	/**
+	 * Removes all the couriers from the store and stops observing them.
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			if (observing) {
+				couriers[i].removeObserver(this);
+			}
+			couriers[i] = null;
+		}
+		slots().clear();
+		onDuty.clear();
+		size = 0;
+		modCount++;
+		membershipCount++;
+	}
+
+	/**
+	 * Refreshes the slot of a courier whose position or duty status changed.
+	 *
+	 * @param courier the courier
+	 */
+	@Override
+	public void update(Courier courier) {
+		Location position = courier.getPosition();
+		if (position != null) {
+			update(courier, position.getX(), position.getY(), courier.isOnDuty());
+		}
+		else {
+			update(courier, Double.NaN, Double.NaN, false);
+		}
+	}
+
+	/**
+	 * Refreshes the slot of a courier with the given position and duty status.
+	 * The workload of the courier is read from the courier.
+	 *
+	 * @param courier the courier
+	 * @param px the abscissa of the courier
+	 * @param py the ordinate of the courier
+	 * @param isOnDuty the duty status of the courier
+	 */
+	public void update(Courier courier, double px, double py, boolean isOnDuty) {
+		Integer slot = slots().get(courier);
+		if (slot != null) {
+			write(slot, px, py, isOnDuty);
+			writeWorkload(slot, courier);
+			modCount++;
+		}
+	}
+
+	/**
+	 * Computes the squared distance between the point (px, py) and every courier of the store.
+	 * The loop only works on primitive arrays so the JIT compiler can vectorize it.
+	 *
+	 * @param px the abscissa of the point
+	 * @param py the ordinate of the point
+	 * @param result the array receiving the squared distances, of length at least size()
+	 */
+	public void squaredDistances(double px, double py, double[] result) {
+		final double[] xs = this.x;
+		final double[] ys = this.y;
+		final int n = this.size;
+		for (int i = 0; i < n; i++) {
+			double dx = xs[i] - px;
+			double dy = ys[i] - py;
+			result[i] = dx * dx + dy * dy;
+		}
+	}
+
+	/**
+	 * Returns the slot of the on duty courier nearest to the point (px, py).
+	 * This scan does not allocate any object.
+	 *
+	 * @param px the abscissa of the point
+	 * @param py the ordinate of the point
+	 * @return the slot of the nearest on duty courier, or -1 if no courier is on duty
+	 */
+	public int nearestOnDutySlot(double px, double py) {
+		squaredDistances(px, py, distances);
+		int nearest = -1;
+		double nearestDistance = Double.POSITIVE_INFINITY;
+		for (int i = onDuty.nextSetBit(0); i >= 0 && i < size; i = onDuty.nextSetBit(i + 1)) {
+			if (distances[i] < nearestDistance) {
+				nearestDistance = distances[i];
+				nearest = i;
+			}
+		}
+		return nearest;
+	}
+
+	/**
+	 * Returns the on duty courier nearest to the point (px, py).
+	 *
+	 * @param px the abscissa of the point
+	 * @param py the ordinate of the point
+	 * @return the nearest on duty courier, or null if no courier is on duty
+	 */
+	public Courier nearestOnDuty(double px, double py) {
+		int slot = nearestOnDutySlot(px, py);
+		return (slot < 0) ? null : couriers[slot];
+	}
+
+	/**
+	 * Returns all the on duty couriers sorted by distance to the given location, nearest first.
+	 *
+	 * @param location the location
+	 * @return the on duty couriers sorted by distance
+	 */
+	public ArrayList<Courier> sortedOnDuty(Location location) {
+		int count = sortOnDutySlots(location.getX(), location.getY());
+		ArrayList<Courier> sortedCouriers = new ArrayList<Courier>(count);
+		for (int i = 0; i < count; i++) {
+			sortedCouriers.add(couriers[indexes[i]]);
+		}
+		return sortedCouriers;
+	}
+
+	/**
+	 * Sorts the slots of the on duty couriers by squared distance to the point (px, py).
+	 * The sorted slots are kept in the scratch array returned by getSortedSlots().
+	 *
+	 * @param px the abscissa of the point
+	 * @param py the ordinate of the point
+	 * @return the number of on duty couriers sorted
+	 */
+	public int sortOnDutySlots(double px, double py) {
+		squaredDistances(px, py, distances);
+		int count = 0;
+		for (int i = onDuty.nextSetBit(0); i >= 0 && i < size; i = onDuty.nextSetBit(i + 1)) {
+			indexes[count++] = i;
+		}
+		sort(indexes, distances, 0, count - 1);
+		return count;
+	}
+
+	/**
+	 * Returns the scratch array filled by the last call to sortOnDutySlots.
+	 * Its content is overwritten by the next scan.
+	 *
+	 * @return the sorted slots
+	 */
+	public int[] getSortedSlots() {
+		return indexes;
+	}
+
+	/**
+	 * Returns the squared distance computed by the last scan for the given slot.
+	 *
+	 * @param slot the slot
+	 * @return the squared distance between the point of the last scan and the courier
+	 */
+	public double getLastSquaredDistance(int slot) {
+		return distances[slot];
+	}
+
+	/**
+	 * Returns whether the courier of the given slot is on duty.
+	 *
+	 * @param slot the slot
+	 * @return true if the courier is on duty
+	 */
+	public boolean isOnDuty(int slot) {
+		return onDuty.get(slot);
+	}
+
+	/**
+	 * Returns the index of the first slot of an on duty courier at or after the given slot.
+	 *
+	 * @param fromSlot the slot to start from
+	 * @return the slot of the next on duty courier, or -1 if there is none
+	 */
+	public int nextOnDutySlot(int fromSlot) {
+		int slot = onDuty.nextSetBit(fromSlot);
+		return (slot < size) ? slot : -1;
+	}
+
+	/**
+	 * Returns the number of deliveries of the courier of the given slot.
+	 *
+	 * @param slot the slot
+	 * @return the delivery counter
+	 */
+	public int getDeliveryCount(int slot) {
+		return deliveries[slot];
+	}
+
+	/**
+	 * Returns the number of orders offered to the courier of the given slot and not answered yet.
+	 *
+	 * @param slot the slot
+	 * @return the number of pending offers
+	 */
+	public int getPendingOfferCount(int slot) {
+		return pendingOffers[slot];
+	}
+
+	/**
+	 * Returns the recent refusal rate of the courier of the given slot.
+	 *
+	 * @param slot the slot
+	 * @return the refusal rate
+	 */
+	public double getRefusalRate(int slot) {
+		return refusalRates[slot];
+	}
+
+	/**
+	 * Returns the abscissa of the courier of the given slot.
+	 *
+	 * @param slot the slot
+	 * @return the abscissa
+	 */
+	public double getX(int slot) {
+		return x[slot];
+	}
+
+	/**
+	 * Returns the ordinate of the courier of the given slot.
+	 *
+	 * @param slot the slot
+	 * @return the ordinate
+	 */
+	public double getY(int slot) {
+		return y[slot];
+	}
+
+	/**
+	 * Returns the slots of the couriers, indexing them first in a copy of a store.
+	 *
+	 * @return the map of the slots
+	 */
+	private Map<Courier, Integer> slots() {
+		if (slots == null) {
+			slots = new HashMap<Courier, Integer>(2 * size);
+			for (int i = 0; i < size; i++) {
+				slots.put(couriers[i], i);
+			}
+		}
+		return slots;
+	}
+
+	/**
+	 * Copies the position and the duty status of a courier into its slot.
+	 * A courier without position is never considered on duty.
+	 *
+	 * @param slot the slot
+	 * @param px the abscissa of the courier
+	 * @param py the ordinate of the courier
+	 * @param isOnDuty the duty status of the courier
+	 */
+	private void write(int slot, double px, double py, boolean isOnDuty) {
+		x[slot] = px;
+		y[slot] = py;
+		onDuty.set(slot, isOnDuty && !Double.isNaN(px) && !Double.isNaN(py));
+	}
+
+	/**
+	 * Copies the workload of a courier into its slot.
+	 *
+	 * @param slot the slot
+	 * @param courier the courier
+	 */
+	private void writeWorkload(int slot, Courier courier) {
+		deliveries[slot] = courier.getDeliveryCounter();
+		pendingOffers[slot] = courier.getPendingOrders().size();
+		refusalRates[slot] = courier.getRefusalRate();
+	}
+
+	/**
+	 * Grows the arrays so they can hold at least the given number of couriers.
+	 *
+	 * @param capacity the capacity needed
+	 */
+	private void ensureCapacity(int capacity) {
+		if (capacity <= couriers.length) {
+			return;
+		}
+		int newCapacity = Math.max(capacity, couriers.length * 2);
+		x = Arrays.copyOf(x, newCapacity);
+		y = Arrays.copyOf(y, newCapacity);
+		couriers = Arrays.copyOf(couriers, newCapacity);
+		deliveries = Arrays.copyOf(deliveries, newCapacity);
+		pendingOffers = Arrays.copyOf(pendingOffers, newCapacity);
+		refusalRates = Arrays.copyOf(refusalRates, newCapacity);
+		distances = new double[newCapacity];
+		indexes = new int[newCapacity];
+	}
+
+	/**
+	 * Sorts the slots between low and high (inclusive) by their key, using a quicksort
+	 * on primitive arrays that falls back to an insertion sort on small ranges.
+	 *
+	 * @param slots the slots to sort
+	 * @param keys the key of each slot
+	 * @param low the first index of the range
+	 * @param high the last index of the range
+	 */
+	private static void sort(int[] slots, double[] keys, int low, int high) {
+		while (high - low > 16) {
+			double pivot = keys[slots[(low + high) >>> 1]];
+			int i = low;
+			int j = high;
+			while (i <= j) {
+				while (keys[slots[i]] < pivot) i++;
+				while (keys[slots[j]] > pivot) j--;
+				if (i <= j) {
+					int temp = slots[i];
+					slots[i] = slots[j];
+					slots[j] = temp;
+					i++;
+					j--;
+				}
+			}
+			// Recursion on the smallest part keeps the stack depth logarithmic
+			if (j - low < high - i) {
+				sort(slots, keys, low, j);
+				low = i;
+			}
+			else {
+				sort(slots, keys, i, high);
+				high = j;
+			}
+		}
+		for (int i = low + 1; i <= high; i++) {
+			int slot = slots[i];
+			double key = keys[slot];
+			int j = i - 1;
+			while (j >= low && keys[slots[j]] > key) {
+				slots[j + 1] = slots[j];
+				j--;
+			}
+			slots[j + 1] = slot;
+		}
+	}
+}
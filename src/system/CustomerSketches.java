@@ -0,0 +1,165 @@
+package system;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import order.CompactOrder;
+import order.Order;
+
+/**
+ * HyperLogLog sketches of the customers who ordered, per day, per month and per year.
+ *
+ * The sketches are updated as the orders are made. The number of distinct customers of a date range
+ * is estimated by merging the sketches of the full years, the full months and the remaining days of
+ * the range, so a range of several years merges at most a hundred sketches of 2 KB, whatever the
+ * number of orders. As in Manager.getActiveCustomers, the two dates of the range are excluded.
+ *
+ * An order added twice does not change the sketches, so the orders of the history and of the archive
+ * can be added without checking which ones were already added.
+ *
+ * @author Alisson Bonatto
+ */
+public class CustomerSketches {
+
+	private TreeMap<Long, HyperLogLog> days;        // TreeMap <epoch day, customers of the day>
+	private Map<YearMonth, HyperLogLog> months;     // HashMap <month, customers of the month>
+	private Map<Integer, HyperLogLog> years;        // HashMap <year, customers of the year>
+
+	/**
+	 * Constructs empty CustomerSketches.
+	 */
+	public CustomerSketches() {
+		this.days = new TreeMap<Long, HyperLogLog>();
+		this.months = new HashMap<YearMonth, HyperLogLog>();
+		this.years = new HashMap<Integer, HyperLogLog>();
+	}
+
+	/**
+	 * Adds the customer of an order to the sketches of its date.
+	 *
+	 * @param order the order
+	 */
+	public void observe(Order order) {
+		if (order.getCustomer() != null && order.getDate() != null) {
+			observe(order.getDate(), order.getCustomer().getId());
+		}
+	}
+
+	/**
+	 * Adds the customer of a compact order to the sketches of its date.
+	 *
+	 * @param order the compact order
+	 */
+	public void observe(CompactOrder order) {
+		if (order.getCustomerId() >= 0) {
+			observe(LocalDate.ofEpochDay(Math.floorDiv(order.getEpochSecond(), 86400L)), order.getCustomerId());
+		}
+	}
+
+	/**
+	 * Adds a customer to the sketches of a date.
+	 *
+	 * @param date the date of the order
+	 * @param customerId the ID of the customer
+	 */
+	public synchronized void observe(LocalDate date, long customerId) {
+		days.computeIfAbsent(date.toEpochDay(), day -> new HyperLogLog()).add(customerId);
+		months.computeIfAbsent(YearMonth.from(date), month -> new HyperLogLog()).add(customerId);
+		years.computeIfAbsent(date.getYear(), year -> new HyperLogLog()).add(customerId);
+	}
+
+	/**
+	 * Replaces the content of the sketches by the customers of the given orders.
+	 *
+	 * @param orders the orders
+	 */
+	public synchronized void rebuild(Collection<Order> orders) {
+		clear();
+		for (Order order : orders) {
+			observe(order);
+		}
+	}
+
+	/**
+	 * Estimates the number of distinct customers who ordered strictly between two dates.
+	 *
+	 * @param startDate the start date, excluded
+	 * @param endDate the end date, excluded
+	 * @return the estimated number of customers
+	 */
+	public synchronized long estimate(LocalDate startDate, LocalDate endDate) {
+		if (endDate.toEpochDay() - startDate.toEpochDay() < 2) {
+			return 0;
+		}
+		return union(startDate.plusDays(1), endDate.minusDays(1)).estimate();
+	}
+
+	/**
+	 * Merges the sketches of the days between two dates, both included.
+	 *
+	 * @param firstDate the first date
+	 * @param lastDate the last date
+	 * @return a new sketch of the customers who ordered between the two dates
+	 */
+	public synchronized HyperLogLog union(LocalDate firstDate, LocalDate lastDate) {
+		HyperLogLog union = new HyperLogLog();
+		if (days.isEmpty()) {
+			return union;
+		}
+		// The range is bounded by the days with orders, even from LocalDate.MIN to LocalDate.MAX
+		long first = Math.max(firstDate.toEpochDay(), days.firstKey());
+		long last = Math.min(lastDate.toEpochDay(), days.lastKey());
+		if (first > last) {
+			return union;
+		}
+		LocalDate date = LocalDate.ofEpochDay(first);
+		LocalDate end = LocalDate.ofEpochDay(last).plusDays(1);
+		// First day of the first full month, and first day after the last full month
+		LocalDate monthsStart = (date.getDayOfMonth() == 1) ? date : date.withDayOfMonth(1).plusMonths(1);
+		LocalDate monthsEnd = end.withDayOfMonth(1);
+		if (!monthsStart.isBefore(monthsEnd)) {
+			mergeDays(union, date, end);
+			return union;
+		}
+		// Only the days with orders are visited at the ragged ends; the full months and years use their own sketches
+		mergeDays(union, date, monthsStart);
+		date = monthsStart;
+		while (date.isBefore(monthsEnd)) {
+			HyperLogLog sketch;
+			if (date.getDayOfYear() == 1 && !date.plusYears(1).isAfter(monthsEnd)) {
+				sketch = years.get(date.getYear());
+				date = date.plusYears(1);
+			} else {
+				sketch = months.get(YearMonth.from(date));
+				date = date.plusMonths(1);
+			}
+			if (sketch != null) {
+				union.merge(sketch);
+			}
+		}
+		mergeDays(union, monthsEnd, end);
+		return union;
+	}
+
+	/**
+	 * Merges into a sketch the sketches of the days with orders from a date, included, to a date, excluded.
+	 */
+	private void mergeDays(HyperLogLog union, LocalDate startDate, LocalDate endDate) {
+		for (HyperLogLog sketch : days.subMap(startDate.toEpochDay(), endDate.toEpochDay()).values()) {
+			union.merge(sketch);
+		}
+	}
+
+	/**
+	 * Removes all the customers from the sketches.
+	 */
+	public synchronized void clear() {
+		days.clear();
+		months.clear();
+		years.clear();
+	}
+}
@@ -0,0 +1,127 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import order.Order;
+import user.Location;
+
+/**
+ * Plans the drop-off route of a courier carrying several orders picked up at the same restaurant.
+ * The route is built with a nearest-neighbour heuristic over the customers addresses
+ * and then improved with 2-opt moves until no move shortens it.
+ *
+ * @author Alisson Bonatto
+ */
+public class DeliveryRoutePlanner {
+
+	/**
+	 * Plans the order in which the given orders must be delivered.
+	 *
+	 * @param start the location where the route starts (the restaurant)
+	 * @param orders the orders to deliver
+	 * @return a new list with the orders sorted in delivery order
+	 */
+	public ArrayList<Order> planRoute(Location start, List<Order> orders) {
+		ArrayList<Location> stops = new ArrayList<Location>(orders.size());
+		for (Order order : orders) {
+			stops.add(order.getCustomer().getAdress());
+		}
+
+		ArrayList<Order> route = new ArrayList<Order>(orders.size());
+		for (int stop : planStops(start, stops)) {
+			route.add(orders.get(stop));
+		}
+		return route;
+	}
+
+	/**
+	 * Plans the order in which the given stops must be visited.
+	 *
+	 * @param start the location where the route starts
+	 * @param stops the locations to visit
+	 * @return the indexes of the stops in visiting order
+	 */
+	public int[] planStops(Location start, List<Location> stops) {
+		int size = stops.size();
+		int[] route = new int[size];
+		boolean[] visited = new boolean[size];
+
+		// Nearest-neighbour construction
+		Location current = start;
+		for (int position = 0; position < size; position++) {
+			int nearest = -1;
+			double nearestDistance = Double.MAX_VALUE;
+			for (int i = 0; i < size; i++) {
+				if (!visited[i]) {
+					double distance = current.distanceTo(stops.get(i));
+					if (distance < nearestDistance) {
+						nearestDistance = distance;
+						nearest = i;
+					}
+				}
+			}
+			visited[nearest] = true;
+			route[position] = nearest;
+			current = stops.get(nearest);
+		}
+
+		// 2-opt improvement: reverses a segment of the route whenever it makes it shorter
+		boolean improved = true;
+		while (improved) {
+			improved = false;
+			for (int i = 0; i < size - 1; i++) {
+				for (int j = i + 1; j < size; j++) {
+					Location before = (i == 0) ? start : stops.get(route[i - 1]);
+					Location first = stops.get(route[i]);
+					Location last = stops.get(route[j]);
+					double delta = before.distanceTo(last) - before.distanceTo(first);
+					if (j + 1 < size) {
+						Location after = stops.get(route[j + 1]);
+						delta += first.distanceTo(after) - last.distanceTo(after);
+					}
+					if (delta < -1e-9) {
+						reverse(route, i, j);
+						improved = true;
+					}
+				}
+			}
+		}
+
+		return route;
+	}
+
+	/**
+	 * Computes the length of the best route found through the given stops.
+	 *
+	 * @param start the location where the route starts
+	 * @param stops the locations to visit
+	 * @return the total distance travelled to visit all stops
+	 */
+	public double routeLength(Location start, List<Location> stops) {
+		double length = 0;
+		Location current = start;
+		for (int stop : planStops(start, stops)) {
+			length += current.distanceTo(stops.get(stop));
+			current = stops.get(stop);
+		}
+		return length;
+	}
+
+	/**
+	 * Reverses the segment [i, j] of the route.
+	 *
+	 * @param route the route
+	 * @param i the first index of the segment
+	 * @param j the last index of the segment
+	 */
+	private void reverse(int[] route, int i, int j) {
+		while (i < j) {
+			int temp = route[i];
+			route[i] = route[j];
+			route[j] = temp;
+			i++;
+			j--;
+		}
+	}
+}
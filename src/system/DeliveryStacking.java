@@ -0,0 +1,299 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import notification.CourierObserver;
+import order.Order;
+import user.Courier;
+import user.Customer;
+import user.Location;
+import user.Restaurant;
+
+/**
+ * Policy allowing a courier to carry several orders picked up at the same restaurant.
+ * A courier who accepted an order and has not left the restaurant yet can receive
+ * another order of this restaurant if they carry less than the maximum number of orders
+ * and if the new drop-off location does not lengthen their route too much.
+ *
+ * The couriers are observed, and the couriers carrying orders who have not left the restaurant
+ * are indexed by restaurant, so an order only looks at the couriers waiting at its restaurant.
+ * The route of these couriers is already planned: the detour of a new order is the distance
+ * added by inserting its customer at the best place of the route, and the route is only
+ * planned again by the courier who accepts the order.
+ *
+ * @author Alisson Bonatto
+ */
+public class DeliveryStacking implements CourierObserver {
+
+	private int maxStackSize;                              // Maximum number of orders carried by a courier
+	private double maxDetourRatio;                         // Maximum detour accepted, relative to a dedicated delivery
+	private Map<Restaurant, Set<Courier>> waitingCouriers; // HashMap <restaurant, couriers carrying its orders who have not left>
+	private Map<Courier, Restaurant> courierRestaurants;   // HashMap <courier, restaurant it waits at> of the indexed couriers
+	private Set<Courier> observedCouriers;                 // Couriers observed
+	private CourierPositionStore lastPositions;            // Store of the system synchronized with the observed couriers
+	private int lastMembershipCount;                       // Membership counter of this store at the last synchronization
+
+	/**
+	 * Constructs a DeliveryStacking policy with specified values.
+	 *
+	 * @param maxStackSize the maximum number of orders carried by a courier (1 disables stacking)
+	 * @param maxDetourRatio the maximum length added to the route of the courier, as a ratio
+	 *        of the distance between the restaurant and the new customer
+	 */
+	public DeliveryStacking(int maxStackSize, double maxDetourRatio) {
+		this.maxStackSize = maxStackSize;
+		this.maxDetourRatio = maxDetourRatio;
+		this.waitingCouriers = new HashMap<Restaurant, Set<Courier>>();
+		this.courierRestaurants = new HashMap<Courier, Restaurant>();
+		this.observedCouriers = new HashSet<Courier>();
+		this.lastPositions = null;
+		this.lastMembershipCount = -1;
+	}
+
+	/**
+	 * Constructs a DeliveryStacking policy with default values:
+	 * up to 3 orders per courier and a detour of at most half a dedicated delivery.
+	 */
+	public DeliveryStacking() {
+		this(3, 0.5);
+	}
+
+	/**
+	 * Returns the maximum number of orders carried by a courier.
+	 *
+	 * @return the maximum stack size
+	 */
+	public int getMaxStackSize() {
+		return maxStackSize;
+	}
+
+	/**
+	 * Sets the maximum number of orders carried by a courier.
+	 *
+	 * @param maxStackSize the maximum stack size (1 disables stacking)
+	 */
+	public void setMaxStackSize(int maxStackSize) {
+		this.maxStackSize = maxStackSize;
+	}
+
+	/**
+	 * Returns the maximum detour ratio.
+	 *
+	 * @return the maximum detour ratio
+	 */
+	public double getMaxDetourRatio() {
+		return maxDetourRatio;
+	}
+
+	/**
+	 * Sets the maximum detour ratio.
+	 *
+	 * @param maxDetourRatio the maximum detour ratio
+	 */
+	public void setMaxDetourRatio(double maxDetourRatio) {
+		this.maxDetourRatio = maxDetourRatio;
+	}
+
+	/**
+	 * Selects the couriers able to add an order of the given restaurant to the orders they carry,
+	 * sorted by the detour the new order adds to their route.
+	 * The couriers are only observed again when the set differs from the couriers observed.
+	 *
+	 * @param couriers the couriers
+	 * @param restaurant the restaurant from which the order is picked up
+	 * @param customer the customer who will receive the order
+	 * @return the couriers able to stack the order, the one with the smallest detour first
+	 */
+	public synchronized ArrayList<Courier> selectCourier(Set<Courier> couriers, Restaurant restaurant, Customer customer) {
+		if (couriers.size() != observedCouriers.size() || !observedCouriers.containsAll(couriers)) {
+			synchronize(couriers);
+			lastPositions = null;
+		}
+		return selectWaitingCourier(restaurant, customer);
+	}
+
+	/**
+	 * Selects the couriers able to add an order of the given restaurant to the orders they carry,
+	 * sorted by the detour the new order adds to their route.
+	 * The couriers are only observed again when couriers were added to or removed from the store of the system.
+	 *
+	 * @param positions the position store of the couriers of the system
+	 * @param restaurant the restaurant from which the order is picked up
+	 * @param customer the customer who will receive the order
+	 * @return the couriers able to stack the order, the one with the smallest detour first
+	 */
+	public synchronized ArrayList<Courier> selectCourier(CourierPositionStore positions, Restaurant restaurant, Customer customer) {
+		if (positions != lastPositions || positions.getMembershipCount() != lastMembershipCount) {
+			ArrayList<Courier> storedCouriers = new ArrayList<Courier>(positions.size());
+			for (int slot = 0; slot < positions.size(); slot++) {
+				storedCouriers.add(positions.getCourier(slot));
+			}
+			synchronize(storedCouriers);
+			lastMembershipCount = positions.getMembershipCount();
+			lastPositions = positions;
+		}
+		return selectWaitingCourier(restaurant, customer);
+	}
+
+	/**
+	 * Refreshes the index of a courier whose position, duty status or workload changed.
+	 *
+	 * @param courier the courier
+	 */
+	@Override
+	public synchronized void update(Courier courier) {
+		if (observedCouriers.contains(courier)) {
+			index(courier);
+		}
+	}
+
+	/**
+	 * Stops observing the couriers.
+	 */
+	public synchronized void clear() {
+		for (Courier courier : observedCouriers) {
+			courier.removeObserver(this);
+		}
+		observedCouriers.clear();
+		waitingCouriers.clear();
+		courierRestaurants.clear();
+		lastPositions = null;
+	}
+
+	/**
+	 * Verifies if a courier can receive one more order of the given restaurant.
+	 *
+	 * @param courier the courier
+	 * @param restaurant the restaurant from which the order is picked up
+	 * @return true if the courier is still at the restaurant and carries less than the maximum number of orders
+	 */
+	public boolean canStack(Courier courier, Restaurant restaurant) {
+		ArrayList<Order> deliveringOrders = courier.getDeliveringOrders();
+		return !deliveringOrders.isEmpty()
+				&& !courier.hasStartedDelivering()
+				&& deliveringOrders.size() < maxStackSize
+				&& deliveringOrders.get(0).getRestaurant().equals(restaurant);
+	}
+
+	/**
+	 * Computes the distance added to the route of the courier when delivering one more customer.
+	 * The orders carried are already in the order of the planned route, so the new customer is
+	 * inserted between the two stops, or after the last stop, where it adds the least distance.
+	 *
+	 * @param courier the courier
+	 * @param restaurant the restaurant where the route starts
+	 * @param customer the new customer
+	 * @return the length added to the route
+	 */
+	public double getDetour(Courier courier, Restaurant restaurant, Customer customer) {
+		Location stop = customer.getAdress();
+		Location previous = restaurant.getLocation();
+		double detour = Double.POSITIVE_INFINITY;
+		for (Order order : courier.getDeliveringOrders()) {
+			Location next = order.getCustomer().getAdress();
+			detour = Math.min(detour, previous.distanceTo(stop) + stop.distanceTo(next) - previous.distanceTo(next));
+			previous = next;
+		}
+		return Math.min(detour, previous.distanceTo(stop));
+	}
+
+	/**
+	 * Selects the couriers waiting at the restaurant who can stack the order.
+	 *
+	 * @param restaurant the restaurant from which the order is picked up
+	 * @param customer the customer who will receive the order
+	 * @return the couriers able to stack the order, the one with the smallest detour first
+	 */
+	private ArrayList<Courier> selectWaitingCourier(Restaurant restaurant, Customer customer) {
+		ArrayList<Courier> stackingCouriers = new ArrayList<Courier>();
+		Set<Courier> candidates = waitingCouriers.get(restaurant);
+		if (maxStackSize <= 1 || candidates == null) {
+			return stackingCouriers;
+		}
+
+		Map<Courier, Double> detours = new HashMap<Courier, Double>();
+		double dedicatedDistance = restaurant.getLocation().distanceTo(customer.getAdress());
+		for (Courier courier : candidates) {
+			if (!canStack(courier, restaurant)) {
+				continue;
+			}
+			double detour = getDetour(courier, restaurant, customer);
+			if (detour <= maxDetourRatio * dedicatedDistance) {
+				detours.put(courier, detour);
+				stackingCouriers.add(courier);
+			}
+		}
+
+		stackingCouriers.sort(Comparator.comparingDouble(courier -> detours.get(courier)));
+		return stackingCouriers;
+	}
+
+	/**
+	 * Makes the observed couriers exactly the given couriers.
+	 *
+	 * @param couriers the couriers of the system
+	 */
+	private void synchronize(Iterable<Courier> couriers) {
+		Set<Courier> current = new HashSet<Courier>();
+		for (Courier courier : couriers) {
+			current.add(courier);
+			if (observedCouriers.add(courier)) {
+				courier.addObserver(this);
+				index(courier);
+			}
+		}
+		for (Courier courier : new ArrayList<Courier>(observedCouriers)) {
+			if (!current.contains(courier)) {
+				courier.removeObserver(this);
+				observedCouriers.remove(courier);
+				unindex(courier);
+			}
+		}
+	}
+
+	/**
+	 * Indexes a courier under the restaurant of the orders they carry, if they have not left it yet.
+	 *
+	 * @param courier the courier
+	 */
+	private void index(Courier courier) {
+		unindex(courier);
+		ArrayList<Order> deliveringOrders = courier.getDeliveringOrders();
+		if (!deliveringOrders.isEmpty() && !courier.hasStartedDelivering()) {
+			Restaurant restaurant = deliveringOrders.get(0).getRestaurant();
+			courierRestaurants.put(courier, restaurant);
+			waitingCouriers.computeIfAbsent(restaurant, key -> new HashSet<Courier>()).add(courier);
+		}
+	}
+
+	/**
+	 * Removes a courier from the index.
+	 *
+	 * @param courier the courier
+	 */
+	private void unindex(Courier courier) {
+		Restaurant restaurant = courierRestaurants.remove(courier);
+		if (restaurant != null) {
+			Set<Courier> couriers = waitingCouriers.get(restaurant);
+			couriers.remove(courier);
+			if (couriers.isEmpty()) {
+				waitingCouriers.remove(restaurant);
+			}
+		}
+	}
+
+	/**
+	 * Returns a string representation of this DeliveryStacking policy.
+	 *
+	 * @return string describing maxStackSize and maxDetourRatio
+	 */
+	@Override
+	public String toString() {
+		return "DeliveryStacking : maxStackSize=" + maxStackSize + ", maxDetourRatio=" + maxDetourRatio;
+	}
+}
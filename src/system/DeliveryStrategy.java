@@ -26,4 +26,18 @@ public interface DeliveryStrategy {
      */
     public ArrayList<Courier> selectCourier(Set<Courier> couriers, Restaurant restaurant, Customer customer);
     
+    /**
+     * Selects an appropriate courier using the position store kept up to date by the system.
+     * By default, the store is ignored and the set of couriers is used.
+     * 
+     * @param positions the positions and duty status of the couriers
+     * @param couriers the set of couriers
+     * @param restaurant the restaurant from which the order is picked up
+     * @param customer the customer who will receive the order
+     * @return the selected Courier for the delivery
+     */
+    public default ArrayList<Courier> selectCourier(CourierPositionStore positions, Set<Courier> couriers, Restaurant restaurant, Customer customer) {
+    	return selectCourier(couriers, restaurant, customer);
+    }
+    
 }
@@ -0,0 +1,340 @@
+package system;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import order.Order;
+import user.Location;
+import user.Restaurant;
+
+/**
+ * Incremental demand model predicting the number of orders of the next hour,
+ * per restaurant, per zone of the map and for the whole platform.
+ *
+ * Each series keeps one level per hour of the week (168 buckets). When an hour is over,
+ * its number of orders updates the level of its bucket by exponential smoothing:
+ * level = alpha * orders + (1 - alpha) * level. The hours without orders count as zero.
+ * The forecast of an hour is the level of its bucket, so the model learns for example
+ * that Friday evenings are busier than Monday mornings.
+ *
+ * Orders must be observed in chronological order; an order older than the current hour
+ * of its series is added directly to the level of its bucket.
+ *
+ * @author Alisson Bonatto
+ */
+public class DemandForecaster {
+
+	private double alpha;                              // Smoothing factor, weight of the last week
+	private double zoneSize;                           // Side of the square zones of the map
+	private Map<Restaurant, DemandSeries> restaurants; // HashMap <restaurant, demand series>
+	private Map<Long, DemandSeries> zones;             // HashMap <zone key, demand series>
+	private DemandSeries total;                        // Demand series of the whole platform
+
+	/**
+	 * Demand series of one restaurant, zone or of the platform.
+	 */
+	private static class DemandSeries {
+		private final double[] levels = new double[HourOfWeek.HOURS_PER_WEEK];
+		private final boolean[] initialized = new boolean[HourOfWeek.HOURS_PER_WEEK];
+		private long currentHour = Long.MIN_VALUE; // Absolute hour being counted
+		private int currentCount;                   // Orders of the current hour
+
+		/**
+		 * Counts an order of the given absolute hour.
+		 */
+		private void observe(long epochHour, double alpha) {
+			if (currentHour == Long.MIN_VALUE) {
+				currentHour = epochHour;
+			}
+			if (epochHour < currentHour) {
+				// Late order: its hour is already folded into the levels
+				int bucket = HourOfWeek.of(epochHour);
+				levels[bucket] += initialized[bucket] ? alpha : 1;
+				initialized[bucket] = true;
+				return;
+			}
+			advance(epochHour, alpha);
+			currentCount++;
+		}
+
+		/**
+		 * Folds the hours before the given absolute hour into the levels.
+		 */
+		private void advance(long epochHour, double alpha) {
+			if (currentHour == Long.MIN_VALUE || epochHour <= currentHour) {
+				return;
+			}
+			fold(HourOfWeek.of(currentHour), currentCount, alpha);
+
+			// The hours without orders count as zero; whole weeks decay every bucket at once
+			long skippedHours = epochHour - currentHour - 1;
+			long skippedWeeks = skippedHours / HourOfWeek.HOURS_PER_WEEK;
+			if (skippedWeeks > 0) {
+				double decay = Math.pow(1 - alpha, skippedWeeks);
+				for (int bucket = 0; bucket < HourOfWeek.HOURS_PER_WEEK; bucket++) {
+					if (initialized[bucket]) {
+						levels[bucket] *= decay;
+					}
+				}
+			}
+			long hour = currentHour + 1 + skippedWeeks * HourOfWeek.HOURS_PER_WEEK;
+			for (; hour < epochHour; hour++) {
+				fold(HourOfWeek.of(hour), 0, alpha);
+			}
+			currentHour = epochHour;
+			currentCount = 0;
+		}
+
+		/**
+		 * Updates the level of a bucket with the number of orders of one of its hours.
+		 */
+		private void fold(int bucket, int count, double alpha) {
+			if (initialized[bucket]) {
+				levels[bucket] = alpha * count + (1 - alpha) * levels[bucket];
+			}
+			else {
+				levels[bucket] = count;
+				initialized[bucket] = true;
+			}
+		}
+
+		/**
+		 * Returns the forecast of the given absolute hour.
+		 */
+		private double forecast(long epochHour) {
+			if (epochHour == currentHour) {
+				// The hour is not over: its level has not been updated yet
+				int bucket = HourOfWeek.of(epochHour);
+				return initialized[bucket] ? Math.max(levels[bucket], currentCount) : currentCount;
+			}
+			return levels[HourOfWeek.of(epochHour)];
+		}
+	}
+
+	/**
+	 * Zone of the map with its forecast.
+	 */
+	public static class ZoneForecast {
+		private final Location center;
+		private final double orders;
+
+		private ZoneForecast(Location center, double orders) {
+			this.center = center;
+			this.orders = orders;
+		}
+
+		/**
+		 * Returns the center of the zone, where couriers can wait.
+		 *
+		 * @return the center of the zone
+		 */
+		public Location getCenter() {
+			return center;
+		}
+
+		/**
+		 * Returns the number of orders forecast in the zone.
+		 *
+		 * @return the forecast number of orders
+		 */
+		public double getOrders() {
+			return orders;
+		}
+	}
+
+	/**
+	 * Constructs a DemandForecaster.
+	 *
+	 * @param alpha the smoothing factor, between 0 (never learns) and 1 (only remembers the last week)
+	 * @param zoneSize the side of the square zones of the map
+	 */
+	public DemandForecaster(double alpha, double zoneSize) {
+		if (alpha <= 0 || alpha > 1) {
+			throw new IllegalArgumentException("The smoothing factor must be in ]0, 1].");
+		}
+		if (zoneSize <= 0) {
+			throw new IllegalArgumentException("The zone size must be positive.");
+		}
+		this.alpha = alpha;
+		this.zoneSize = zoneSize;
+		this.restaurants = new HashMap<Restaurant, DemandSeries>();
+		this.zones = new HashMap<Long, DemandSeries>();
+		this.total = new DemandSeries();
+	}
+
+	/**
+	 * Constructs a DemandForecaster with a smoothing factor of 0.3 and zones of side 10.
+	 */
+	public DemandForecaster() {
+		this(0.3, 10);
+	}
+
+	/**
+	 * Returns the smoothing factor.
+	 *
+	 * @return alpha
+	 */
+	public double getAlpha() {
+		return alpha;
+	}
+
+	/**
+	 * Returns the side of the square zones of the map.
+	 *
+	 * @return the zone size
+	 */
+	public double getZoneSize() {
+		return zoneSize;
+	}
+
+	/**
+	 * Counts an order in the series of its restaurant, of its zone and of the platform.
+	 *
+	 * @param order the order
+	 */
+	public void observe(Order order) {
+		if (order.getDate() == null || order.getTime() == null || order.getRestaurant() == null) {
+			return;
+		}
+		long epochHour = HourOfWeek.epochHour(order.getDate(), order.getTime());
+		Restaurant restaurant = order.getRestaurant();
+		restaurants.computeIfAbsent(restaurant, key -> new DemandSeries()).observe(epochHour, alpha);
+		if (restaurant.getLocation() != null) {
+			zones.computeIfAbsent(zoneKey(restaurant.getLocation()), key -> new DemandSeries()).observe(epochHour, alpha);
+		}
+		total.observe(epochHour, alpha);
+	}
+
+	/**
+	 * Forgets everything and learns again from an order history, in chronological order.
+	 *
+	 * @param orders the orders
+	 */
+	public void rebuild(Collection<Order> orders) {
+		this.restaurants = new HashMap<Restaurant, DemandSeries>();
+		this.zones = new HashMap<Long, DemandSeries>();
+		this.total = new DemandSeries();
+
+		List<Order> sortedOrders = new ArrayList<Order>();
+		for (Order order : orders) {
+			if (order.getDate() != null && order.getTime() != null) {
+				sortedOrders.add(order);
+			}
+		}
+		sortedOrders.sort(Comparator.comparing(Order::getDate).thenComparing(Order::getTime));
+		for (Order order : sortedOrders) {
+			observe(order);
+		}
+	}
+
+	/**
+	 * Forecasts the number of orders of a restaurant in the hour following the given time.
+	 *
+	 * @param restaurant the restaurant
+	 * @param now the current date and time
+	 * @return the forecast number of orders, 0 if the restaurant never received orders
+	 */
+	public double forecastNextHour(Restaurant restaurant, LocalDateTime now) {
+		DemandSeries series = restaurants.get(restaurant);
+		return (series == null) ? 0 : forecast(series, now);
+	}
+
+	/**
+	 * Forecasts the number of orders of the zone containing a location in the hour following the given time.
+	 *
+	 * @param location the location
+	 * @param now the current date and time
+	 * @return the forecast number of orders, 0 if the zone never received orders
+	 */
+	public double forecastNextHour(Location location, LocalDateTime now) {
+		DemandSeries series = zones.get(zoneKey(location));
+		return (series == null) ? 0 : forecast(series, now);
+	}
+
+	/**
+	 * Forecasts the number of orders of the platform in the hour following the given time.
+	 *
+	 * @param now the current date and time
+	 * @return the forecast number of orders
+	 */
+	public double forecastNextHour(LocalDateTime now) {
+		return forecast(total, now);
+	}
+
+	/**
+	 * Forecasts the number of orders of every restaurant in the hour following the given time.
+	 *
+	 * @param now the current date and time
+	 * @return HashMap <restaurant, forecast number of orders> of the restaurants which received orders
+	 */
+	public Map<Restaurant, Double> forecastRestaurants(LocalDateTime now) {
+		Map<Restaurant, Double> forecasts = new HashMap<Restaurant, Double>();
+		for (Map.Entry<Restaurant, DemandSeries> entry : restaurants.entrySet()) {
+			forecasts.put(entry.getKey(), forecast(entry.getValue(), now));
+		}
+		return forecasts;
+	}
+
+	/**
+	 * Forecasts the number of orders of every zone in the hour following the given time.
+	 *
+	 * @param now the current date and time
+	 * @return the zones which received orders, the busiest first
+	 */
+	public List<ZoneForecast> forecastZones(LocalDateTime now) {
+		List<ZoneForecast> forecasts = new ArrayList<ZoneForecast>();
+		for (Map.Entry<Long, DemandSeries> entry : zones.entrySet()) {
+			long key = entry.getKey();
+			int cx = (int) (key >> 32);
+			int cy = (int) key;
+			Location center = new Location((cx + 0.5) * zoneSize, (cy + 0.5) * zoneSize);
+			forecasts.add(new ZoneForecast(center, forecast(entry.getValue(), now)));
+		}
+		forecasts.sort(Comparator.comparingDouble(ZoneForecast::getOrders).reversed());
+		return forecasts;
+	}
+
+	/**
+	 * Computes the number of couriers needed to deliver a forecast number of orders.
+	 *
+	 * @param forecastOrders the forecast number of orders in one hour
+	 * @param deliveriesPerCourierPerHour the number of orders a courier delivers in one hour
+	 * @return the number of couriers to ask to go on duty
+	 */
+	public static int suggestedCouriers(double forecastOrders, double deliveriesPerCourierPerHour) {
+		if (deliveriesPerCourierPerHour <= 0) {
+			throw new IllegalArgumentException("The number of deliveries per courier must be positive.");
+		}
+		return (int) Math.ceil(forecastOrders / deliveriesPerCourierPerHour - 1e-9);
+	}
+
+	/**
+	 * Forecasts the hour following the given time, after folding the hours already over.
+	 *
+	 * @param series the demand series
+	 * @param now the current date and time
+	 * @return the forecast number of orders
+	 */
+	private double forecast(DemandSeries series, LocalDateTime now) {
+		long currentHour = HourOfWeek.epochHour(now);
+		series.advance(currentHour, alpha);
+		return series.forecast(currentHour + 1);
+	}
+
+	/**
+	 * Packs the indexes of the zone containing a location into a single key.
+	 *
+	 * @param location the location
+	 * @return the zone key
+	 */
+	private long zoneKey(Location location) {
+		int cx = (int) Math.floor(location.getX() / zoneSize);
+		int cy = (int) Math.floor(location.getY() / zoneSize);
+		return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+	}
+}
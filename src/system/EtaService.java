@@ -0,0 +1,460 @@
+package system;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import order.Order;
+import user.Courier;
+import user.Customer;
+import user.Location;
+import user.Restaurant;
+
+/**
+ * Estimates the pickup and drop-off times of the orders.
+ *
+ * The travel times follow a speed model: couriers ride at a base speed, multiplied by a factor
+ * depending on the hour of the day (for example 0.7 during the rush hours), and spend a fixed
+ * time at the restaurant and at the customer.
+ *
+ * The restaurant-to-customer legs are the same for every courier offered an order, so their
+ * lengths are kept in a least recently used cache instead of being computed again by every
+ * dispatch, display or simulation step. The cache is keyed by the coordinates of the two ends,
+ * so a restaurant or customer moving simply creates a new leg. The service is thread safe.
+ *
+ * @author Alisson Bonatto
+ */
+public class EtaService {
+
+	private double speedPerHour;      // Distance travelled by a courier in one hour
+	private double[] speedFactors;    // Factor applied to the speed for each hour of the day
+	private double pickupTime;        // Time spent at the restaurant, in seconds
+	private double dropoffTime;       // Time spent at the customer, in seconds
+	private int cacheCapacity;        // Maximum number of legs kept in the cache
+	private Map<Leg, Double> legs;    // LinkedHashMap <leg, length> in access order
+	private long cacheHits;           // Number of leg lengths found in the cache
+	private long cacheMisses;         // Number of leg lengths computed
+
+	/**
+	 * Key of the cache: the coordinates of the two ends of a leg.
+	 */
+	private static final class Leg {
+		private final double fromX;
+		private final double fromY;
+		private final double toX;
+		private final double toY;
+
+		private Leg(Location from, Location to) {
+			this.fromX = from.getX();
+			this.fromY = from.getY();
+			this.toX = to.getX();
+			this.toY = to.getY();
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Leg)) {
+				return false;
+			}
+			Leg leg = (Leg) other;
+			return fromX == leg.fromX && fromY == leg.fromY && toX == leg.toX && toY == leg.toY;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = Double.hashCode(fromX);
+			hash = 31 * hash + Double.hashCode(fromY);
+			hash = 31 * hash + Double.hashCode(toX);
+			return 31 * hash + Double.hashCode(toY);
+		}
+	}
+
+	/**
+	 * Estimate of the delivery of an order, relative to the moment it was computed.
+	 */
+	public static class Eta {
+		private final double pickupDistance;
+		private final double dropoffDistance;
+		private final double pickupDelay;
+		private final double dropoffDelay;
+
+		private Eta(double pickupDistance, double dropoffDistance, double pickupDelay, double dropoffDelay) {
+			this.pickupDistance = pickupDistance;
+			this.dropoffDistance = dropoffDistance;
+			this.pickupDelay = pickupDelay;
+			this.dropoffDelay = dropoffDelay;
+		}
+
+		/**
+		 * Returns the distance travelled by the courier to reach the restaurant.
+		 *
+		 * @return the pickup distance, 0 if the order was already picked up
+		 */
+		public double getPickupDistance() {
+			return pickupDistance;
+		}
+
+		/**
+		 * Returns the distance travelled by the courier from the restaurant to the customer.
+		 *
+		 * @return the drop-off distance
+		 */
+		public double getDropoffDistance() {
+			return dropoffDistance;
+		}
+
+		/**
+		 * Returns the delay before the courier leaves the restaurant with the order.
+		 *
+		 * @return the pickup delay, in seconds
+		 */
+		public double getPickupDelay() {
+			return pickupDelay;
+		}
+
+		/**
+		 * Returns the delay before the order is delivered.
+		 *
+		 * @return the drop-off delay, in seconds
+		 */
+		public double getDropoffDelay() {
+			return dropoffDelay;
+		}
+
+		/**
+		 * Returns the time the courier leaves the restaurant with the order.
+		 *
+		 * @param now the date and time the estimate was computed
+		 * @return the pickup time
+		 */
+		public LocalDateTime getPickupTime(LocalDateTime now) {
+			return now.plusSeconds(Math.round(pickupDelay));
+		}
+
+		/**
+		 * Returns the time the order is delivered.
+		 *
+		 * @param now the date and time the estimate was computed
+		 * @return the drop-off time
+		 */
+		public LocalDateTime getDropoffTime(LocalDateTime now) {
+			return now.plusSeconds(Math.round(dropoffDelay));
+		}
+	}
+
+	/**
+	 * Constructs an EtaService with the given speed model and a cache of 4096 legs.
+	 *
+	 * @param speedPerHour the distance travelled by a courier in one hour
+	 * @param pickupTime the time spent at the restaurant, in seconds
+	 * @param dropoffTime the time spent at the customer, in seconds
+	 */
+	public EtaService(double speedPerHour, double pickupTime, double dropoffTime) {
+		this(speedPerHour, pickupTime, dropoffTime, 4096);
+	}
+
+	/**
+	 * Constructs an EtaService with the given speed model and cache capacity.
+	 *
+	 * @param speedPerHour the distance travelled by a courier in one hour
+	 * @param pickupTime the time spent at the restaurant, in seconds
+	 * @param dropoffTime the time spent at the customer, in seconds
+	 * @param cacheCapacity the maximum number of legs kept in the cache
+	 */
+	public EtaService(double speedPerHour, double pickupTime, double dropoffTime, int cacheCapacity) {
+		if (cacheCapacity <= 0) {
+			throw new IllegalArgumentException("The cache capacity must be positive.");
+		}
+		setSpeedPerHour(speedPerHour);
+		this.speedFactors = new double[24];
+		for (int hour = 0; hour < 24; hour++) {
+			this.speedFactors[hour] = 1;
+		}
+		this.pickupTime = pickupTime;
+		this.dropoffTime = dropoffTime;
+		this.cacheCapacity = cacheCapacity;
+		this.legs = new LinkedHashMap<Leg, Double>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Leg, Double> eldest) {
+				return size() > EtaService.this.cacheCapacity;
+			}
+		};
+	}
+
+	/**
+	 * Constructs an EtaService with default values: couriers riding at 15 distance units
+	 * per hour at any time, 2 minutes at the restaurant and 1 minute at the customer.
+	 */
+	public EtaService() {
+		this(15, 120, 60);
+	}
+
+	/**
+	 * Returns the distance travelled by a courier in one hour, before the hourly factor.
+	 *
+	 * @return the base speed
+	 */
+	public synchronized double getSpeedPerHour() {
+		return speedPerHour;
+	}
+
+	/**
+	 * Sets the distance travelled by a courier in one hour, before the hourly factor.
+	 *
+	 * @param speedPerHour the base speed
+	 */
+	public synchronized void setSpeedPerHour(double speedPerHour) {
+		if (speedPerHour <= 0) {
+			throw new IllegalArgumentException("The speed of the couriers must be positive.");
+		}
+		this.speedPerHour = speedPerHour;
+	}
+
+	/**
+	 * Returns the factor applied to the speed during an hour of the day.
+	 *
+	 * @param hourOfDay the hour of the day, between 0 and 23
+	 * @return the speed factor
+	 */
+	public synchronized double getSpeedFactor(int hourOfDay) {
+		return speedFactors[hourOfDay];
+	}
+
+	/**
+	 * Sets the factor applied to the speed during an hour of the day,
+	 * for example 0.7 when the traffic slows the couriers down.
+	 *
+	 * @param hourOfDay the hour of the day, between 0 and 23
+	 * @param speedFactor the speed factor
+	 */
+	public synchronized void setSpeedFactor(int hourOfDay, double speedFactor) {
+		if (speedFactor <= 0) {
+			throw new IllegalArgumentException("The speed factor must be positive.");
+		}
+		this.speedFactors[hourOfDay] = speedFactor;
+	}
+
+	/**
+	 * Returns the time spent by a courier at the restaurant.
+	 *
+	 * @return the pickup time, in seconds
+	 */
+	public synchronized double getPickupTime() {
+		return pickupTime;
+	}
+
+	/**
+	 * Sets the time spent by a courier at the restaurant.
+	 *
+	 * @param pickupTime the pickup time, in seconds
+	 */
+	public synchronized void setPickupTime(double pickupTime) {
+		this.pickupTime = pickupTime;
+	}
+
+	/**
+	 * Returns the time spent by a courier at the customer.
+	 *
+	 * @return the drop-off time, in seconds
+	 */
+	public synchronized double getDropoffTime() {
+		return dropoffTime;
+	}
+
+	/**
+	 * Sets the time spent by a courier at the customer.
+	 *
+	 * @param dropoffTime the drop-off time, in seconds
+	 */
+	public synchronized void setDropoffTime(double dropoffTime) {
+		this.dropoffTime = dropoffTime;
+	}
+
+	/**
+	 * Returns the length of the leg between a restaurant and the address of a customer.
+	 *
+	 * @param restaurant the restaurant
+	 * @param customer the customer
+	 * @return the distance from the restaurant to the customer
+	 */
+	public double getLegDistance(Restaurant restaurant, Customer customer) {
+		return getLegDistance(restaurant.getLocation(), customer.getAdress());
+	}
+
+	/**
+	 * Returns the length of a leg, from the cache if it was already computed.
+	 *
+	 * @param from the start of the leg
+	 * @param to the end of the leg
+	 * @return the distance between the two locations
+	 */
+	public synchronized double getLegDistance(Location from, Location to) {
+		Leg leg = new Leg(from, to);
+		Double distance = legs.get(leg);
+		if (distance != null) {
+			cacheHits++;
+			return distance;
+		}
+		cacheMisses++;
+		double computedDistance = from.distanceTo(to);
+		legs.put(leg, computedDistance);
+		return computedDistance;
+	}
+
+	/**
+	 * Returns the time needed to ride a distance, at the speed of the hour of departure.
+	 *
+	 * @param distance the distance
+	 * @param departure the date and time of departure
+	 * @return the travel time, in seconds
+	 */
+	public synchronized double getTravelTime(double distance, LocalDateTime departure) {
+		return distance / (speedPerHour * speedFactors[departure.getHour()]) * 3600;
+	}
+
+	/**
+	 * Estimates the delivery of a new order by a courier at the given position:
+	 * the courier rides to the restaurant, picks the order up, then rides to the customer.
+	 *
+	 * @param position the position of the courier
+	 * @param restaurant the restaurant from which the order is picked up
+	 * @param customer the customer who receives the order
+	 * @param now the current date and time
+	 * @return the estimate of the delivery
+	 */
+	public Eta estimate(Location position, Restaurant restaurant, Customer customer, LocalDateTime now) {
+		double pickupDistance = (position == null) ? 0 : position.distanceTo(restaurant.getLocation());
+		double dropoffDistance = getLegDistance(restaurant, customer);
+		double speed = getHourlySpeed(now);
+		double pickupDelay = pickupDistance / speed * 3600 + getPickupTime();
+		double dropoffDelay = pickupDelay + dropoffDistance / speed * 3600 + getDropoffTime();
+		return new Eta(pickupDistance, dropoffDistance, pickupDelay, dropoffDelay);
+	}
+
+	/**
+	 * Estimates the delivery of an order of the system.
+	 * An order being delivered follows the route of its courier, through the customers delivered
+	 * before it; an order waiting for a courier is estimated with the first courier it is offered to.
+	 *
+	 * @param order the order
+	 * @param now the current date and time
+	 * @return the estimate of the delivery, or null if the order is not waiting nor being delivered
+	 */
+	public Eta estimate(Order order, LocalDateTime now) {
+		Restaurant restaurant = order.getRestaurant();
+		Customer customer = order.getCustomer();
+		Courier courier = order.getCourier();
+
+		if (courier == null) {
+			List<Courier> possibleCouriers = order.getPossibleCouriers();
+			if (possibleCouriers == null || possibleCouriers.isEmpty()) {
+				return null;
+			}
+			return estimate(possibleCouriers.get(0).getPosition(), restaurant, customer, now);
+		}
+
+		List<Order> route = courier.getDeliveringOrders();
+		int stop = route.indexOf(order);
+		if (stop < 0) {
+			return null;
+		}
+		if (stop == 0 && !courier.hasStartedDelivering()) {
+			return estimate(courier.getPosition(), restaurant, customer, now);
+		}
+
+		// Follows the route of the courier, from their position or from the restaurant
+		double speed = getHourlySpeed(now);
+		double pickupDistance = 0;
+		double delay = 0;
+		Location current = courier.getPosition();
+		if (!courier.hasStartedDelivering()) {
+			pickupDistance = current.distanceTo(restaurant.getLocation());
+			delay = pickupDistance / speed * 3600 + getPickupTime();
+			current = restaurant.getLocation();
+		}
+		double pickupDelay = delay;
+		double dropoffDistance = 0;
+		for (int i = 0; i <= stop; i++) {
+			Location address = route.get(i).getCustomer().getAdress();
+			double distance = current.equals(restaurant.getLocation())
+					? getLegDistance(current, address)
+					: current.distanceTo(address);
+			dropoffDistance += distance;
+			delay += distance / speed * 3600 + getDropoffTime();
+			current = address;
+		}
+		return new Eta(pickupDistance, dropoffDistance, pickupDelay, delay);
+	}
+
+	/**
+	 * Returns the number of leg lengths found in the cache.
+	 *
+	 * @return the cache hits
+	 */
+	public synchronized long getCacheHits() {
+		return cacheHits;
+	}
+
+	/**
+	 * Returns the number of leg lengths computed because they were not in the cache.
+	 *
+	 * @return the cache misses
+	 */
+	public synchronized long getCacheMisses() {
+		return cacheMisses;
+	}
+
+	/**
+	 * Returns the number of legs kept in the cache.
+	 *
+	 * @return the cache size
+	 */
+	public synchronized int getCacheSize() {
+		return legs.size();
+	}
+
+	/**
+	 * Returns a new EtaService with the same speed model and cache capacity, and an empty cache.
+	 *
+	 * @return the copy of this EtaService
+	 */
+	public synchronized EtaService copy() {
+		EtaService copy = new EtaService(speedPerHour, pickupTime, dropoffTime, cacheCapacity);
+		copy.speedFactors = Arrays.copyOf(speedFactors, speedFactors.length);
+		return copy;
+	}
+
+	/**
+	 * Forgets all the legs of the cache and resets its counters.
+	 */
+	public synchronized void clearCache() {
+		legs.clear();
+		cacheHits = 0;
+		cacheMisses = 0;
+	}
+
+	/**
+	 * Returns the speed of the couriers at the given time.
+	 *
+	 * @param now the date and time
+	 * @return the distance travelled in one hour
+	 */
+	private synchronized double getHourlySpeed(LocalDateTime now) {
+		return speedPerHour * speedFactors[now.getHour()];
+	}
+
+	/**
+	 * Returns a string representation of this EtaService.
+	 *
+	 * @return string describing the speed model and the cache
+	 */
+	@Override
+	public synchronized String toString() {
+		return "EtaService : speed=" + speedPerHour + "/h, pickupTime=" + pickupTime + "s, dropoffTime=" + dropoffTime
+				+ "s, cache=" + legs.size() + "/" + cacheCapacity + " legs (" + cacheHits + " hits, " + cacheMisses + " misses)";
+	}
+}
@@ -1,6 +1,7 @@
 package system;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Set;
 
@@ -44,4 +45,32 @@ public class FairOccupationDelivery implements DeliveryStrategy {
         return arrayCouriers;
     }
 
+    /**
+     * Selects the on duty couriers sorted by number of deliveries, in the order of CourierComparator,
+     * using the position store kept up to date by the system. Only the columns of the store are read.
+     * 
+     * @param positions the positions, duty status and workload of the couriers
+     * @param couriers the couriers
+     * @param restaurant the restaurant from which the order will be picked up (not used in this strategy)
+     * @param customer the customer who will receive the order (not used in this strategy)
+     * @return the on duty couriers sorted by number of deliveries
+     */
+    @Override
+    public ArrayList<Courier> selectCourier(CourierPositionStore positions, Set<Courier> couriers, Restaurant restaurant, Customer customer) {
+        // Each on duty slot is sorted as one long: the key of its delivery counter, then the slot
+        long[] keys = new long[positions.size()];
+        int count = 0;
+        for (int slot = positions.nextOnDutySlot(0); slot >= 0; slot = positions.nextOnDutySlot(slot + 1)) {
+            long key = Integer.MAX_VALUE - (long) positions.getDeliveryCount(slot);
+            keys[count++] = (key << 32) | slot;
+        }
+        Arrays.sort(keys, 0, count);
+        
+        ArrayList<Courier> arrayCouriers = new ArrayList<Courier>(count);
+        for (int i = 0; i < count; i++) {
+            arrayCouriers.add(positions.getCourier((int) keys[i]));
+        }
+        return arrayCouriers;
+    }
+
 }
@@ -1,7 +1,6 @@
 package system;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Set;
 
 import user.Courier;
@@ -13,6 +12,10 @@ import user.Restaurant;
  * based on the total distance from the courier to the restaurant plus the distance
  * from the restaurant to the customer. Only couriers who are on duty are considered.
  * 
+ * Since the distance from the restaurant to the customer is the same for every courier,
+ * the couriers are sorted by their squared distance to the restaurant, computed on the
+ * primitive arrays of a CourierPositionStore.
+ * 
  * @author Alisson Bonatto
  */
 public class FastestDelivery implements DeliveryStrategy {
@@ -29,36 +32,26 @@ public class FastestDelivery implements DeliveryStrategy {
      */
     @Override
     public ArrayList<Courier> selectCourier(Set<Courier> couriers, Restaurant restaurant, Customer customer) {
-    	ArrayList<Double> couriersDistances = new ArrayList<Double>();
-    	ArrayList<Courier> orderedCouriers = new ArrayList<Courier>();
-    	ArrayList<Courier> listOfCouriers = new ArrayList<>(couriers);
-
-        // Calculate distances
-        for (Courier courier : couriers) {
-            double totalDistance = restaurant.getLocation().distanceTo(courier.getPosition())
-                                 + restaurant.getLocation().distanceTo(customer.getAdress());
-            couriersDistances.add(totalDistance);
-        }
-        
-        // Creating a list of indexes
-        ArrayList<Integer> indices = new ArrayList<>();
-        for (int i = 0; i < listOfCouriers.size(); i++) {
-            indices.add(i);
-        }
-        
-        // Sorting indexes by distances
-        indices.sort(Comparator.comparingDouble(index -> couriersDistances.get(index)));
-        for (int sortedIndex : indices) {
-            orderedCouriers.add(listOfCouriers.get(sortedIndex));
-        }
-        
-        // Excluding not onDuty Courier
-        for (int i = orderedCouriers.size() - 1; i >= 0; i--) {
-            if (!orderedCouriers.get(i).isOnDuty()) {
-            	orderedCouriers.remove(i);
-            }
-        }
+    	// The temporary store is filled once and does not observe the couriers
+    	CourierPositionStore positions = new CourierPositionStore(false);
+    	for (Courier courier : couriers) {
+    		positions.add(courier);
+    	}
+        return positions.sortedOnDuty(restaurant.getLocation());
+    }
 
-        return orderedCouriers;
+    /**
+     * Selects the on duty couriers sorted by distance to the restaurant,
+     * using the position store kept up to date by the system.
+     * 
+     * @param positions the positions and duty status of the couriers
+     * @param couriers the couriers
+     * @param restaurant the restaurant from which the order will be picked up
+     * @param customer the customer who will receive the order
+     * @return the on duty couriers, the one with the shortest delivery path first
+     */
+    @Override
+    public ArrayList<Courier> selectCourier(CourierPositionStore positions, Set<Courier> couriers, Restaurant restaurant, Customer customer) {
+    	return positions.sortedOnDuty(restaurant.getLocation());
     }
 }
@@ -0,0 +1,100 @@
+package system;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+
+/**
+ * Helper methods mapping dates and times to the 168 hours of a week
+ * (0 is Monday from 00:00 to 00:59, 167 is Sunday from 23:00 to 23:59)
+ * and to absolute hour numbers, used to bucket the orders by time.
+ *
+ * @author Alisson Bonatto
+ */
+public class HourOfWeek {
+
+	public static final int HOURS_PER_WEEK = 168;
+
+	/**
+	 * Private constructor: this class only contains static methods.
+	 */
+	private HourOfWeek() {
+	}
+
+	/**
+	 * Returns the hour of the week of a date and time.
+	 *
+	 * @param date the date
+	 * @param time the time
+	 * @return the hour of the week, between 0 and 167
+	 */
+	public static int of(LocalDate date, LocalTime time) {
+		return (date.getDayOfWeek().getValue() - 1) * 24 + time.getHour();
+	}
+
+	/**
+	 * Returns the hour of the week of a date and time.
+	 *
+	 * @param dateTime the date and time
+	 * @return the hour of the week, between 0 and 167
+	 */
+	public static int of(LocalDateTime dateTime) {
+		return of(dateTime.toLocalDate(), dateTime.toLocalTime());
+	}
+
+	/**
+	 * Returns the hour of the week of an absolute hour number.
+	 *
+	 * @param epochHour the number of hours since 1970-01-01 00:00
+	 * @return the hour of the week, between 0 and 167
+	 */
+	public static int of(long epochHour) {
+		// 1970-01-01 was a Thursday, 72 hours after the start of its week
+		return (int) Math.floorMod(epochHour + 72, (long) HOURS_PER_WEEK);
+	}
+
+	/**
+	 * Returns the absolute hour number of a date and time.
+	 *
+	 * @param date the date
+	 * @param time the time
+	 * @return the number of hours since 1970-01-01 00:00
+	 */
+	public static long epochHour(LocalDate date, LocalTime time) {
+		return date.toEpochDay() * 24 + time.getHour();
+	}
+
+	/**
+	 * Returns the absolute hour number of a date and time.
+	 *
+	 * @param dateTime the date and time
+	 * @return the number of hours since 1970-01-01 00:00
+	 */
+	public static long epochHour(LocalDateTime dateTime) {
+		return epochHour(dateTime.toLocalDate(), dateTime.toLocalTime());
+	}
+
+	/**
+	 * Returns the date and time of the start of an absolute hour.
+	 *
+	 * @param epochHour the number of hours since 1970-01-01 00:00
+	 * @return the start of the hour
+	 */
+	public static LocalDateTime toDateTime(long epochHour) {
+		return LocalDateTime.ofEpochSecond(epochHour * 3600, 0, ZoneOffset.UTC);
+	}
+
+	/**
+	 * Returns a readable label of an hour of the week, such as "MONDAY 12:00-12:59".
+	 *
+	 * @param hourOfWeek the hour of the week, between 0 and 167
+	 * @return the label
+	 */
+	public static String label(int hourOfWeek) {
+		DayOfWeek day = DayOfWeek.of(hourOfWeek / 24 + 1);
+		int hour = hourOfWeek % 24;
+		return String.format("%s %02d:00-%02d:59", day, hour, hour);
+	}
+}
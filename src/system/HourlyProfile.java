@@ -0,0 +1,135 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import order.Order;
+import order.OrderStatus;
+
+/**
+ * Number of orders, revenue and profit of the delivered orders, per hour of the week.
+ *
+ * The profile is updated as the orders are delivered, so reading it never goes through the orders.
+ * An order is counted in the hour of the week it was made. The profile keeps the number of orders and
+ * their price; the revenue of an hour is its price plus the service fees, as in the total income of the
+ * manager, and its profit is the markup plus the service fees minus the delivery cost. Both are computed
+ * with the profit data given to the query, as in Manager.computeTotalProfit.
+ *
+ * @author Alisson Bonatto
+ */
+public class HourlyProfile {
+
+	private final long[] counts;      // Number of delivered orders of each hour of the week
+	private final long[] prices;      // Price of the delivered orders of each hour of the week, in cents
+
+	/**
+	 * Constructs an empty HourlyProfile.
+	 */
+	public HourlyProfile() {
+		this.counts = new long[HourOfWeek.HOURS_PER_WEEK];
+		this.prices = new long[HourOfWeek.HOURS_PER_WEEK];
+	}
+
+	/**
+	 * Adds an order to its hour of the week if it was delivered.
+	 *
+	 * @param order the order
+	 */
+	public synchronized void observe(Order order) {
+		if (order.getStatus() != OrderStatus.DELIVERED || order.getDate() == null || order.getTime() == null) {
+			return;
+		}
+		int hour = HourOfWeek.of(order.getDate(), order.getTime());
+		counts[hour]++;
+		prices[hour] += order.getPrice().getCents();
+	}
+
+	/**
+	 * Replaces the content of the profile by the delivered orders among the given orders.
+	 *
+	 * @param orders the orders
+	 */
+	public synchronized void rebuild(Collection<Order> orders) {
+		clear();
+		for (Order order : orders) {
+			observe(order);
+		}
+	}
+
+	/**
+	 * Returns the number of delivered orders of an hour of the week.
+	 *
+	 * @param hourOfWeek the hour of the week, between 0 and 167
+	 * @return the number of orders
+	 */
+	public synchronized long getOrders(int hourOfWeek) {
+		return counts[hourOfWeek];
+	}
+
+	/**
+	 * Returns the revenue of the delivered orders of an hour of the week.
+	 *
+	 * @param hourOfWeek the hour of the week, between 0 and 167
+	 * @param profitData the profit data applied to the orders
+	 * @return the revenue
+	 */
+	public synchronized Money getRevenue(int hourOfWeek, ProfitData profitData) {
+		return Money.ofCents(prices[hourOfWeek]).plus(profitData.getServiceFee().times(counts[hourOfWeek]));
+	}
+
+	/**
+	 * Returns the profit of the delivered orders of an hour of the week.
+	 *
+	 * @param hourOfWeek the hour of the week, between 0 and 167
+	 * @param profitData the profit data applied to the orders
+	 * @return the profit
+	 */
+	public synchronized Money getProfit(int hourOfWeek, ProfitData profitData) {
+		return Money.ofCents(prices[hourOfWeek]).times(profitData.getMarkupPercentage())
+				.plus(profitData.getServiceFee().minus(profitData.getDeliveryCost()).times(counts[hourOfWeek]));
+	}
+
+	/**
+	 * Returns the number of delivered orders of all the hours of the week.
+	 *
+	 * @return the number of orders
+	 */
+	public synchronized long getTotalOrders() {
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the hours of the week with the most profit.
+	 *
+	 * @param n the maximum number of hours
+	 * @param profitData the profit data applied to the orders
+	 * @return the hours of the week with orders, by decreasing profit, at most n of them
+	 */
+	public synchronized List<Integer> getTopHours(int n, ProfitData profitData) {
+		List<Integer> hours = new ArrayList<Integer>();
+		long[] profits = new long[HourOfWeek.HOURS_PER_WEEK];
+		for (int hour = 0; hour < HourOfWeek.HOURS_PER_WEEK; hour++) {
+			if (counts[hour] > 0) {
+				hours.add(hour);
+				profits[hour] = getProfit(hour, profitData).getCents();
+			}
+		}
+		hours.sort((first, second) -> Long.compare(profits[second], profits[first]));
+		return (hours.size() > n) ? new ArrayList<Integer>(hours.subList(0, n)) : hours;
+	}
+
+	/**
+	 * Removes all the orders from the profile.
+	 */
+	public synchronized void clear() {
+		for (int hour = 0; hour < HourOfWeek.HOURS_PER_WEEK; hour++) {
+			counts[hour] = 0;
+			prices[hour] = 0;
+		}
+	}
+}
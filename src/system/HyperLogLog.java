@@ -0,0 +1,112 @@
+package system;
+
+import java.util.Arrays;
+
+/**
+ * HyperLogLog sketch estimating the number of distinct IDs added to it.
+ *
+ * The sketch keeps 2048 registers of one byte, so it takes 2 KB whatever the number of IDs, with a
+ * standard error of about 2.3%. Adding an ID twice does not change the sketch, and the union of two
+ * sets of IDs is estimated by merging their sketches, which keeps the maximum of each register.
+ * Small counts are estimated from the number of empty registers (linear counting), which is more precise.
+ *
+ * @author Alisson Bonatto
+ */
+public class HyperLogLog {
+
+	private static final int PRECISION = 11;                 // Number of bits of the hash selecting the register
+	private static final int REGISTERS = 1 << PRECISION;
+	private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+	private final byte[] registers;
+
+	/**
+	 * Constructs an empty HyperLogLog.
+	 */
+	public HyperLogLog() {
+		this.registers = new byte[REGISTERS];
+	}
+
+	/**
+	 * Constructs a copy of a HyperLogLog.
+	 *
+	 * @param other the sketch to copy
+	 */
+	public HyperLogLog(HyperLogLog other) {
+		this.registers = Arrays.copyOf(other.registers, REGISTERS);
+	}
+
+	/**
+	 * Adds an ID to the sketch.
+	 *
+	 * @param id the ID
+	 */
+	public void add(long id) {
+		long hash = hash(id);
+		int register = (int) (hash >>> (64 - PRECISION));
+		// Position of the first 1 bit in the remaining bits, the sentinel bounding it
+		int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+		if (rank > registers[register]) {
+			registers[register] = (byte) rank;
+		}
+	}
+
+	/**
+	 * Adds the IDs of another sketch to this sketch.
+	 *
+	 * @param other the other sketch
+	 */
+	public void merge(HyperLogLog other) {
+		byte[] otherRegisters = other.registers;
+		for (int i = 0; i < REGISTERS; i++) {
+			if (otherRegisters[i] > registers[i]) {
+				registers[i] = otherRegisters[i];
+			}
+		}
+	}
+
+	/**
+	 * Estimates the number of distinct IDs added to the sketch.
+	 *
+	 * @return the estimated number of distinct IDs
+	 */
+	public long estimate() {
+		double sum = 0;
+		int zeros = 0;
+		for (byte register : registers) {
+			sum += Math.scalb(1.0, -register);
+			if (register == 0) {
+				zeros++;
+			}
+		}
+		double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+		if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+			estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+		}
+		return Math.round(estimate);
+	}
+
+	/**
+	 * Verifies if no ID was added to the sketch.
+	 *
+	 * @return true if the sketch is empty
+	 */
+	public boolean isEmpty() {
+		for (byte register : registers) {
+			if (register != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Mixes the bits of an ID, so close IDs fall in unrelated registers.
+	 */
+	private static long hash(long id) {
+		long hash = id + 0x9E3779B97F4A7C15L;
+		hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+		hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+		return hash ^ (hash >>> 31);
+	}
+}
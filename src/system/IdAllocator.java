@@ -0,0 +1,242 @@
+package system;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Allocator of the IDs of the users and orders.
+ *
+ * An ID is a long made of the node identifier of the instance of the system, in the high bits,
+ * and of a sequence number, in the 48 low bits. Several instances with different node identifiers
+ * never give the same ID.
+ *
+ * Each thread takes its IDs from a block of consecutive sequence numbers reserved for it, so
+ * allocating an ID does not contend with the other threads: the shared counter is only locked
+ * to reserve a new block.
+ *
+ * The high-water mark of the reserved sequence numbers is written to a file ahead of the blocks
+ * given to the threads. After a restart the allocator starts from it, so it never gives again an
+ * ID given before. The sequence numbers reserved but not used before a restart are lost.
+ *
+ * The default allocator of the users and orders is kept in memory, so the tests do not write or
+ * advance the high-water mark; the CLI installs the persisted allocator when it starts. A thread can
+ * replace the default allocator for itself only, so the users and orders of a simulation do not
+ * consume the IDs of the system.
+ *
+ * @author Alisson Bonatto
+ */
+public class IdAllocator {
+
+	public static final int SEQUENCE_BITS = 48;
+	public static final int MAX_NODE_ID = (1 << 15) - 1;
+	private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+	private static final int DEFAULT_BLOCK_SIZE = 64;
+	private static final long DEFAULT_RESERVATION = 1 << 16; // Sequence numbers reserved in the file at once
+
+	private static IdAllocator defaultAllocator; // Allocator of the users and orders of the system
+	private static final ThreadLocal<IdAllocator> threadAllocators = new ThreadLocal<IdAllocator>(); // Allocator replacing the default one on a thread, or null
+
+	private final long nodeId;           // Node identifier, in the high bits of the IDs
+	private final Path highWaterFile;    // File of the high-water mark, null if it is not persisted
+	private final int blockSize;         // Number of IDs of the block of a thread
+	private final long reservation;      // Sequence numbers reserved in the file at once
+	private long nextBlock;              // First sequence number of the next block
+	private long highWaterMark;          // Sequence numbers below are reserved in the file
+	private final ThreadLocal<long[]> blocks; // Block of each thread: next sequence number and end of the block
+
+	/**
+	 * Constructs an IdAllocator whose high-water mark is kept in a file.
+	 *
+	 * @param nodeId the node identifier, between 0 and MAX_NODE_ID
+	 * @param highWaterFile the file of the high-water mark, or null to keep it in memory only
+	 * @param blockSize the number of IDs reserved at once by a thread
+	 * @param reservation the number of sequence numbers reserved at once in the file, at least the block size
+	 * @throws IOException if the high-water mark cannot be read
+	 */
+	public IdAllocator(int nodeId, Path highWaterFile, int blockSize, long reservation) throws IOException {
+		if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+			throw new IllegalArgumentException("The node identifier must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+		}
+		if (blockSize <= 0 || reservation < blockSize) {
+			throw new IllegalArgumentException("The reservation must be at least the block size, which must be positive.");
+		}
+		this.nodeId = nodeId;
+		this.highWaterFile = highWaterFile;
+		this.blockSize = blockSize;
+		this.reservation = reservation;
+		this.blocks = ThreadLocal.withInitial(() -> new long[2]);
+		if (highWaterFile != null && Files.exists(highWaterFile)) {
+			this.highWaterMark = Long.parseLong(new String(Files.readAllBytes(highWaterFile), StandardCharsets.UTF_8).trim());
+		}
+		this.nextBlock = this.highWaterMark;
+	}
+
+	/**
+	 * Constructs an IdAllocator whose high-water mark is kept in memory only.
+	 *
+	 * @param nodeId the node identifier, between 0 and MAX_NODE_ID
+	 */
+	public IdAllocator(int nodeId) {
+		if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+			throw new IllegalArgumentException("The node identifier must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+		}
+		this.nodeId = nodeId;
+		this.highWaterFile = null;
+		this.blockSize = DEFAULT_BLOCK_SIZE;
+		this.reservation = DEFAULT_RESERVATION;
+		this.blocks = ThreadLocal.withInitial(() -> new long[2]);
+	}
+
+	/**
+	 * Returns the allocator of the IDs of the users and orders: the allocator of the calling
+	 * thread if one was set, else the default allocator. Unless another one was installed, the
+	 * default allocator is kept in memory, with the node identifier given by the system property
+	 * myfoodora.node (0 by default).
+	 *
+	 * @return the allocator of the calling thread
+	 */
+	public static IdAllocator getDefault() {
+		IdAllocator threadAllocator = threadAllocators.get();
+		if (threadAllocator != null) {
+			return threadAllocator;
+		}
+		synchronized (IdAllocator.class) {
+			if (defaultAllocator == null) {
+				defaultAllocator = new IdAllocator(Integer.getInteger("myfoodora.node", 0));
+			}
+			return defaultAllocator;
+		}
+	}
+
+	/**
+	 * Sets the allocator of the IDs of the users and orders.
+	 *
+	 * @param allocator the allocator
+	 */
+	public static synchronized void setDefault(IdAllocator allocator) {
+		defaultAllocator = allocator;
+	}
+
+	/**
+	 * Replaces the default allocator on the calling thread only.
+	 *
+	 * @param allocator the allocator of the calling thread, or null to use the default allocator again
+	 * @return the allocator of the calling thread before this call, or null if it used the default allocator
+	 */
+	public static IdAllocator setThreadDefault(IdAllocator allocator) {
+		IdAllocator previous = threadAllocators.get();
+		if (allocator == null) {
+			threadAllocators.remove();
+		}
+		else {
+			threadAllocators.set(allocator);
+		}
+		return previous;
+	}
+
+	/**
+	 * Creates the allocator whose high-water mark is persisted, used by the CLI.
+	 * Its node identifier is given by the system property myfoodora.node (0 by default)
+	 * and its high-water mark is kept in the file given by the system property
+	 * myfoodora.idfile (myfoodora-ids.hwm by default).
+	 *
+	 * @return the persisted allocator
+	 * @throws IOException if the high-water mark cannot be read
+	 */
+	public static IdAllocator fromSystemProperties() throws IOException {
+		return new IdAllocator(Integer.getInteger("myfoodora.node", 0),
+				Paths.get(System.getProperty("myfoodora.idfile", "myfoodora-ids.hwm")),
+				DEFAULT_BLOCK_SIZE, DEFAULT_RESERVATION);
+	}
+
+	/**
+	 * Returns a new ID, from the block of the calling thread.
+	 *
+	 * @return the ID
+	 */
+	public long nextId() {
+		long[] block = blocks.get();
+		if (block[0] == block[1]) {
+			block[0] = reserveBlock();
+			block[1] = block[0] + blockSize;
+		}
+		return (nodeId << SEQUENCE_BITS) | block[0]++;
+	}
+
+	/**
+	 * Returns the node identifier of the allocator.
+	 *
+	 * @return the node identifier
+	 */
+	public int getNodeId() {
+		return (int) nodeId;
+	}
+
+	/**
+	 * Returns the high-water mark: no sequence number above was given.
+	 *
+	 * @return the high-water mark
+	 */
+	public synchronized long getHighWaterMark() {
+		return highWaterMark;
+	}
+
+	/**
+	 * Returns the node identifier of an ID.
+	 *
+	 * @param id the ID
+	 * @return the node identifier
+	 */
+	public static int nodeOf(long id) {
+		return (int) (id >>> SEQUENCE_BITS);
+	}
+
+	/**
+	 * Returns the sequence number of an ID.
+	 *
+	 * @param id the ID
+	 * @return the sequence number
+	 */
+	public static long sequenceOf(long id) {
+		return id & MAX_SEQUENCE;
+	}
+
+	/**
+	 * Reserves a block of sequence numbers, moving the high-water mark in the file if needed.
+	 *
+	 * @return the first sequence number of the block
+	 */
+	private synchronized long reserveBlock() {
+		long block = nextBlock;
+		if (block + blockSize > MAX_SEQUENCE) {
+			throw new IllegalStateException("No more IDs can be given by the node " + nodeId);
+		}
+		nextBlock += blockSize;
+		if (nextBlock > highWaterMark) {
+			highWaterMark = Math.min(block + reservation, MAX_SEQUENCE);
+			writeHighWaterMark();
+		}
+		return block;
+	}
+
+	/**
+	 * Writes the high-water mark to its file, replacing the previous one at once.
+	 */
+	private void writeHighWaterMark() {
+		if (highWaterFile == null) {
+			return;
+		}
+		try {
+			Path temporaryFile = highWaterFile.resolveSibling(highWaterFile.getFileName() + ".tmp");
+			Files.write(temporaryFile, Long.toString(highWaterMark).getBytes(StandardCharsets.UTF_8));
+			Files.move(temporaryFile, highWaterFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new UncheckedIOException("The high-water mark of the IDs cannot be written", e);
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package system;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Set of IDs given by an IdAllocator.
+ *
+ * The IDs are long, with the node identifier in their high bits, so they cannot index a single
+ * BitSet. The set keeps one BitSet per range of 65536 IDs: the IDs given by one node are close
+ * to each other, so the set stays as compact as a BitSet.
+ *
+ * @author Alisson Bonatto
+ */
+public class IdSet {
+
+	private static final int RANGE_BITS = 16;
+	private static final long RANGE_MASK = (1L << RANGE_BITS) - 1;
+
+	private Map<Long, BitSet> ranges; // HashMap <id >>> RANGE_BITS, bits of the IDs of the range>
+
+	/**
+	 * Constructs an empty IdSet.
+	 */
+	public IdSet() {
+		this.ranges = new HashMap<Long, BitSet>();
+	}
+
+	/**
+	 * Adds an ID to the set.
+	 *
+	 * @param id the ID
+	 */
+	public void add(long id) {
+		ranges.computeIfAbsent(id >>> RANGE_BITS, range -> new BitSet()).set((int) (id & RANGE_MASK));
+	}
+
+	/**
+	 * Removes an ID from the set.
+	 *
+	 * @param id the ID
+	 */
+	public void remove(long id) {
+		BitSet range = ranges.get(id >>> RANGE_BITS);
+		if (range != null) {
+			range.clear((int) (id & RANGE_MASK));
+			if (range.isEmpty()) {
+				ranges.remove(id >>> RANGE_BITS);
+			}
+		}
+	}
+
+	/**
+	 * Verifies if an ID is in the set.
+	 *
+	 * @param id the ID
+	 * @return true if the ID is in the set
+	 */
+	public boolean contains(long id) {
+		BitSet range = ranges.get(id >>> RANGE_BITS);
+		return range != null && range.get((int) (id & RANGE_MASK));
+	}
+
+	/**
+	 * Adds all the IDs of another set to this set.
+	 *
+	 * @param other the other set
+	 */
+	public void addAll(IdSet other) {
+		for (Map.Entry<Long, BitSet> range : other.ranges.entrySet()) {
+			ranges.computeIfAbsent(range.getKey(), key -> new BitSet()).or(range.getValue());
+		}
+	}
+
+	/**
+	 * Removes all IDs from the set.
+	 */
+	public void clear() {
+		ranges.clear();
+	}
+
+	/**
+	 * Verifies if the set is empty.
+	 *
+	 * @return true if the set has no ID
+	 */
+	public boolean isEmpty() {
+		return ranges.isEmpty();
+	}
+
+	/**
+	 * Returns the number of IDs of the set.
+	 *
+	 * @return the number of IDs
+	 */
+	public int size() {
+		int size = 0;
+		for (BitSet range : ranges.values()) {
+			size += range.cardinality();
+		}
+		return size;
+	}
+}
@@ -0,0 +1,161 @@
+package system;
+
+import java.util.Arrays;
+
+/**
+ * Map from long keys to non-negative int values, such as the row of an order from its ID.
+ *
+ * The keys and values are kept in two primitive arrays with open addressing and linear probing,
+ * so an entry takes about 24 bytes instead of the 80 bytes of a HashMap entry with boxed keys and
+ * values. The lookups, insertions and removals take a constant time on average.
+ *
+ * @author Alisson Bonatto
+ */
+public class LongIntMap {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private long[] keys;
+	private int[] values; // Value of each slot, -1 if the slot is empty
+	private int size;
+
+	/**
+	 * Constructs an empty LongIntMap.
+	 */
+	public LongIntMap() {
+		clear();
+	}
+
+	/**
+	 * Returns the value of a key.
+	 *
+	 * @param key the key
+	 * @return the value, or -1 if the key is not in the map
+	 */
+	public int get(long key) {
+		int slot = find(key);
+		return (slot < 0) ? -1 : values[slot];
+	}
+
+	/**
+	 * Verifies if a key is in the map.
+	 *
+	 * @param key the key
+	 * @return true if the key is in the map
+	 */
+	public boolean containsKey(long key) {
+		return find(key) >= 0;
+	}
+
+	/**
+	 * Associates a value to a key, replacing its previous value.
+	 *
+	 * @param key the key
+	 * @param value the value, not negative
+	 */
+	public void put(long key, int value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("The values of a LongIntMap can not be negative.");
+		}
+		if (2 * (size + 1) > keys.length) {
+			grow();
+		}
+		int mask = keys.length - 1;
+		int slot = home(key, mask);
+		while (values[slot] >= 0) {
+			if (keys[slot] == key) {
+				values[slot] = value;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+	}
+
+	/**
+	 * Removes a key from the map.
+	 *
+	 * @param key the key
+	 * @return the value of the key, or -1 if the key was not in the map
+	 */
+	public int remove(long key) {
+		int slot = find(key);
+		if (slot < 0) {
+			return -1;
+		}
+		int value = values[slot];
+		// Moves back the following entries of the run which can be found from the freed slot
+		int mask = keys.length - 1;
+		int hole = slot;
+		for (int next = (slot + 1) & mask; values[next] >= 0; next = (next + 1) & mask) {
+			if (((next - home(keys[next], mask)) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				values[hole] = values[next];
+				hole = next;
+			}
+		}
+		values[hole] = -1;
+		size--;
+		return value;
+	}
+
+	/**
+	 * Returns the number of keys of the map.
+	 *
+	 * @return the number of keys
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all the keys from the map.
+	 */
+	public void clear() {
+		this.keys = new long[INITIAL_CAPACITY];
+		this.values = new int[INITIAL_CAPACITY];
+		Arrays.fill(values, -1);
+		this.size = 0;
+	}
+
+	/**
+	 * Returns the slot of a key, or -1 if the key is not in the map.
+	 */
+	private int find(long key) {
+		int mask = keys.length - 1;
+		for (int slot = home(key, mask); values[slot] >= 0; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the first slot probed for a key. The bits of the key are mixed, as the IDs
+	 * given by an IdAllocator are consecutive.
+	 */
+	private static int home(long key, int mask) {
+		long hash = (key ^ (key >>> 33)) * 0xFF51AFD7ED558CCDL;
+		return (int) (hash ^ (hash >>> 33)) & mask;
+	}
+
+	/**
+	 * Doubles the number of slots.
+	 */
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		this.keys = new long[2 * oldKeys.length];
+		this.values = new int[2 * oldValues.length];
+		Arrays.fill(values, -1);
+		this.size = 0;
+		for (int slot = 0; slot < oldKeys.length; slot++) {
+			if (oldValues[slot] >= 0) {
+				put(oldKeys[slot], oldValues[slot]);
+			}
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package system;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amount of money, held as a long number of cents.
+ *
+ * The prices, fees, costs and totals of the system are Money objects, so adding them up is exact
+ * whatever the number of orders, and an amount is packed in a single long in the indexes and
+ * archives. Amounts given as decimals (the dishes created from the command line, the ratios of the
+ * markup and discounts) are rounded to the cent half-even, once, when they become Money.
+ *
+ * @author Alisson Bonatto
+ */
+public final class Money implements Comparable<Money> {
+
+	public static final Money ZERO = new Money(0);
+
+	private final long cents; // Amount, in cents
+
+	/**
+	 * Constructs a Money object from a number of cents.
+	 *
+	 * @param cents the amount in cents
+	 */
+	private Money(long cents) {
+		this.cents = cents;
+	}
+
+	/**
+	 * Returns the amount of a number of cents.
+	 *
+	 * @param cents the amount in cents
+	 * @return the amount
+	 */
+	public static Money ofCents(long cents) {
+		return (cents == 0) ? ZERO : new Money(cents);
+	}
+
+	/**
+	 * Returns an amount given as a decimal, rounded to the cent.
+	 *
+	 * @param amount the amount, for example 12.5
+	 * @return the amount
+	 */
+	public static Money of(double amount) {
+		if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+			throw new IllegalArgumentException("Not an amount: " + amount);
+		}
+		return ofCents(BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValueExact());
+	}
+
+	/**
+	 * Returns an amount written as a decimal, rounded to the cent.
+	 *
+	 * @param amount the amount, for example "12.50"
+	 * @return the amount
+	 * @throws NumberFormatException if the string is not a decimal number
+	 */
+	public static Money parse(String amount) {
+		return ofCents(new BigDecimal(amount.trim()).setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValueExact());
+	}
+
+	/**
+	 * Returns the amount in cents.
+	 *
+	 * @return the number of cents
+	 */
+	public long getCents() {
+		return cents;
+	}
+
+	/**
+	 * Returns the amount as a decimal, for the computations which are not exact anyway
+	 * (ratios, averages, optimization of the profit data).
+	 *
+	 * @return the amount, for example 12.5
+	 */
+	public double toDouble() {
+		return cents / 100.0;
+	}
+
+	/**
+	 * Returns the sum of this amount and another one.
+	 *
+	 * @param other the other amount
+	 * @return the sum
+	 */
+	public Money plus(Money other) {
+		return ofCents(Math.addExact(cents, other.cents));
+	}
+
+	/**
+	 * Returns the difference between this amount and another one.
+	 *
+	 * @param other the other amount
+	 * @return the difference
+	 */
+	public Money minus(Money other) {
+		return ofCents(Math.subtractExact(cents, other.cents));
+	}
+
+	/**
+	 * Returns this amount multiplied by a whole number, for example a quantity.
+	 *
+	 * @param factor the multiplier
+	 * @return the product
+	 */
+	public Money times(long factor) {
+		return ofCents(Math.multiplyExact(cents, factor));
+	}
+
+	/**
+	 * Returns this amount multiplied by a ratio, for example a markup or a discount, rounded to the cent.
+	 *
+	 * @param ratio the multiplier
+	 * @return the product
+	 */
+	public Money times(double ratio) {
+		return ofCents(BigDecimal.valueOf(cents).multiply(BigDecimal.valueOf(ratio))
+				.setScale(0, RoundingMode.HALF_EVEN).longValueExact());
+	}
+
+	/**
+	 * Returns this amount divided by a whole number, for example to average it, rounded to the cent.
+	 *
+	 * @param divisor the divisor, not zero
+	 * @return the quotient
+	 */
+	public Money dividedBy(long divisor) {
+		return ofCents(BigDecimal.valueOf(cents).divide(BigDecimal.valueOf(divisor), 0, RoundingMode.HALF_EVEN).longValueExact());
+	}
+
+	/**
+	 * Verifies if the amount is below zero.
+	 *
+	 * @return true if the amount is negative
+	 */
+	public boolean isNegative() {
+		return cents < 0;
+	}
+
+	@Override
+	public int compareTo(Money other) {
+		return Long.compare(cents, other.cents);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof Money && ((Money) obj).cents == cents;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(cents);
+	}
+
+	/**
+	 * Returns the amount with two decimals, for example "12.50".
+	 *
+	 * @return the amount as a string
+	 */
+	@Override
+	public String toString() {
+		return BigDecimal.valueOf(cents, 2).toPlainString();
+	}
+}
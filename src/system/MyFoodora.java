@@ -3,8 +3,10 @@ package system;
 import order.*;
 import user.*;
 import food.*;
+import notification.OrderObserver;
 
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -12,6 +14,8 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * Singleton class representing the MyFoodora system, managing users, orders,
@@ -28,10 +32,26 @@ public class MyFoodora {
     private Set<Restaurant> restaurants;         // Set of all restaurants
     private Set<Manager> managers;               // Set of all manages
     private Set<Courier> couriers;               // Set of all couriers
+    private CourierPositionStore courierPositions; // Positions and duty status of all couriers, used by the delivery policies
     private Map<String, User> userMap;           // HashMap <username, user>
-    private HashSet<Order> orderHistory;         // All orders made using the system
+    private OrderHistory orderHistory;           // All orders made using the system, compacted once delivered or cancelled
+    private Map<Long, Order> orderIndex;         // HashMap <order id, order> of the orders in progress
+    private OrderObserver orderCompactor;        // Compacts the orders of the history reaching a terminal state
+    private OrderStatusIndex orderStatusIndex;   // Orders made using the system, by status
+    private OrderArchive orderArchive;           // Off-heap archive of the old orders, null if the orders are never archived
+    private int archiveAge;                      // Age in days from which the delivered and cancelled orders are archived
     private ProfitData profitData;               // Profit data (markup percentage, service fee and delivery cost)
     private DeliveryStrategy deliveryStrategy;   // Delivery police (least occupied or fastest delivery)
+    private DeliveryStacking deliveryStacking;   // Policy allowing couriers to carry several orders of the same restaurant
+    private ShadowDispatcher shadowDispatcher;   // Evaluation of alternative delivery policies on the real orders
+    private DemandForecaster demandForecaster;   // Forecast of the orders of the next hour, learnt from the orders made
+    private ProfitWindow profitWindow;           // Number and prices of the orders of the last 30 days, for the target profit
+    private RestaurantProfitView restaurantProfitView; // Profit and loss of each restaurant per day, kept up to date as the orders are made
+    private HourlyProfile hourlyProfile;         // Orders, revenue and profit per hour of the week, kept up to date as the orders are delivered
+    private CustomerSketches customerSketches;   // Sketches of the customers who ordered per day, month and year, for the active customer counts
+    private AtomicLong mutationEpoch;            // Moved forward each time an order or a user changes
+    private ReportCache reportCache;             // Reports of the managers, served while the mutation epoch has not moved
+    private EtaService etaService;                // Estimation of the pickup and drop-off times of the orders
     private ProfitStrategy profitStrategy;       // Profit strategy (markup percentage, service fee and delivery cost oriented)
     private DishFactory dishFactory;             // Factory of dishes
     private MealFactory mealFactory;             // Factory of meals
@@ -47,10 +67,28 @@ public class MyFoodora {
     	this.restaurants = new HashSet<Restaurant>();
     	this.managers = new HashSet<Manager>();
     	this.couriers = new HashSet<Courier>();
+    	this.courierPositions = new CourierPositionStore();
     	this.userMap = new HashMap<String, User>();
-    	this.orderHistory = new HashSet<Order>();
-    	this.profitData = new ProfitData(0.1, 0.05, 10);
+    	this.orderHistory = new OrderHistory();
+    	this.orderIndex = new HashMap<Long, Order>();
+    	this.orderCompactor = (order, previousStatus) -> {
+    		this.advanceEpoch();
+    		this.compactOrder(order);
+    	};
+    	this.orderStatusIndex = new OrderStatusIndex();
+    	this.archiveAge = 365;
+    	this.profitData = new ProfitData(0.1, Money.of(0.05), Money.of(10));
     	this.deliveryStrategy = new FairOccupationDelivery();
+    	this.deliveryStacking = new DeliveryStacking();
+    	this.shadowDispatcher = new ShadowDispatcher();
+    	this.demandForecaster = new DemandForecaster();
+    	this.profitWindow = new ProfitWindow(30);
+    	this.restaurantProfitView = new RestaurantProfitView();
+    	this.hourlyProfile = new HourlyProfile();
+    	this.customerSketches = new CustomerSketches();
+    	this.mutationEpoch = new AtomicLong();
+    	this.reportCache = new ReportCache(64);
+    	this.etaService = new EtaService();
     	this.profitStrategy = new TargetProfitDeliveryCostOriented();
     	this.dishFactory = new DishFactory();
     	this.mealFactory = new MealFactory();
@@ -85,9 +123,84 @@ public class MyFoodora {
      * @param deliveryStrategy the DeliveryStrategy to apply
      */
     public void setDeliveryStrategy(DeliveryStrategy deliveryStrategy) {
+        // Stops the dispatcher threads of the previous zone sharded strategy
+        if (this.deliveryStrategy instanceof ZoneShardedDelivery && this.deliveryStrategy != deliveryStrategy) {
+            ((ZoneShardedDelivery) this.deliveryStrategy).shutdown();
+        }
         this.deliveryStrategy = deliveryStrategy;
     }
 
+    /**
+     * Returns the stacking policy used to give several orders of the same restaurant to a courier.
+     *
+     * @return the DeliveryStacking policy currently in use
+     */
+    public DeliveryStacking getDeliveryStacking() {
+        return deliveryStacking;
+    }
+
+    /**
+     * Sets the stacking policy used to give several orders of the same restaurant to a courier.
+     *
+     * @param deliveryStacking the DeliveryStacking policy to apply
+     */
+    public void setDeliveryStacking(DeliveryStacking deliveryStacking) {
+        // The previous policy must not keep observing the couriers
+        if (this.deliveryStacking != null && this.deliveryStacking != deliveryStacking) {
+            this.deliveryStacking.clear();
+        }
+        this.deliveryStacking = deliveryStacking;
+    }
+
+    /**
+     * Returns the dispatcher evaluating the shadow delivery policies.
+     *
+     * @return the ShadowDispatcher of the system
+     */
+    public ShadowDispatcher getShadowDispatcher() {
+        return shadowDispatcher;
+    }
+
+    /**
+     * Adds a delivery policy evaluated in shadow mode: it selects couriers for every
+     * new order in the background, without its selection being used.
+     *
+     * @param deliveryStrategy the DeliveryStrategy to evaluate
+     */
+    public void addShadowStrategy(DeliveryStrategy deliveryStrategy) {
+        this.shadowDispatcher.addStrategy(deliveryStrategy);
+    }
+
+    /**
+     * Stops evaluating delivery policies in shadow mode and forgets their metrics.
+     */
+    public void clearShadowStrategies() {
+        for (DeliveryStrategy deliveryStrategy : this.shadowDispatcher.getStrategies()) {
+            if (deliveryStrategy instanceof ZoneShardedDelivery && deliveryStrategy != this.deliveryStrategy) {
+                ((ZoneShardedDelivery) deliveryStrategy).shutdown();
+            }
+        }
+        this.shadowDispatcher.clearStrategies();
+    }
+
+    /**
+     * Returns the service estimating the pickup and drop-off times of the orders.
+     *
+     * @return the EtaService of the system
+     */
+    public EtaService getEtaService() {
+        return etaService;
+    }
+
+    /**
+     * Sets the service estimating the pickup and drop-off times of the orders.
+     *
+     * @param etaService the EtaService to use
+     */
+    public void setEtaService(EtaService etaService) {
+        this.etaService = etaService;
+    }
+
     /**
      * Gets the current user logged into the system.
      *
@@ -140,6 +253,7 @@ public class MyFoodora {
      */
     public void setCustomers(Set<Customer> customers) {
         this.customers = customers;
+        this.advanceEpoch();
     }
 
     /**
@@ -174,6 +288,7 @@ public class MyFoodora {
      */
     public void setRestaurants(Set<Restaurant> restaurants) {
         this.restaurants = restaurants;
+        this.advanceEpoch();
     }
 
     /**
@@ -192,43 +307,310 @@ public class MyFoodora {
      */
     public void setManagers(Set<Manager> managers) {
         this.managers = managers;
+        this.advanceEpoch();
     }
 
     /**
      * Returns the set of registered couriers in the system.
+     * The set can not be modified: the couriers are added and removed with addUser,
+     * removeUser and setCouriers, which keep the position store in line with them.
      *
-     * @return a set of Courier objects
+     * @return an unmodifiable view of the set of Courier objects
      */
     public Set<Courier> getCouriers() {
-        return couriers;
+        return Collections.unmodifiableSet(couriers);
     }
 
     /**
      * Sets the registered couriers in the system.
+     * The couriers are copied, so the given set can be modified afterwards.
      *
      * @param couriers a set of Courier objects to be assigned
      */
     public void setCouriers(Set<Courier> couriers) {
-        this.couriers = couriers;
+        this.couriers = new HashSet<Courier>(couriers);
+        this.advanceEpoch();
+        this.courierPositions.clear();
+        for (Courier courier : couriers) {
+        	this.courierPositions.add(courier);
+        }
+    }
+
+    /**
+     * Returns the positions and duty status of the registered couriers.
+     *
+     * @return the CourierPositionStore of the couriers
+     */
+    public CourierPositionStore getCourierPositions() {
+        return courierPositions;
     }
 
 
 	/**
      * Returns the history of all completed orders.
+     * The delivered and cancelled orders are kept in compact form and expanded when iterating.
      * 
      * @return a set of orders
      */
-    public HashSet<Order> getOrderHistory() {
+    public OrderHistory getOrderHistory() {
         return this.orderHistory;
     }
     
     /**
      * Sets history of all completed orders.
+     * The order indexes are rebuilt from the new history and the orders
+     * already delivered or cancelled are compacted.
      * 
      * @param orders a set of orders
      */
-    public void setOrderHistory(HashSet<Order> orders) {
-    	this.orderHistory = orders;
+    public void setOrderHistory(Set<Order> orders) {
+    	this.advanceEpoch();
+    	for (Order order : this.orderIndex.values()) {
+    		order.removeObserver(this.orderCompactor);
+    	}
+    	this.orderHistory = new OrderHistory();
+    	this.orderIndex = new HashMap<Long, Order>();
+    	this.orderStatusIndex.clear();
+    	for (Order order : orders) {
+    		this.addToHistory(order);
+    	}
+    	this.demandForecaster.rebuild(orders);
+    	this.profitWindow.rebuild(orders);
+    	this.customerSketches.rebuild(orders);
+    	if (this.orderArchive != null) {
+    		this.orderArchive.forEach(LocalDate.MIN, LocalDate.MAX, this.customerSketches::observe);
+    	}
+    	this.restaurantProfitView.rebuild(orders);
+    	this.hourlyProfile.rebuild(orders);
+    }
+
+    /**
+     * Adds an order to the history and to the order indexes.
+     * An order in progress is observed so it is compacted once delivered or cancelled.
+     * 
+     * @param order the order
+     */
+    private void addToHistory(Order order) {
+    	this.advanceEpoch();
+    	this.orderStatusIndex.add(order);
+    	if (order.getStatus().isTerminal()) {
+    		this.orderStatusIndex.release(order);
+    		this.orderHistory.add(order);
+    		return;
+    	}
+    	this.orderHistory.add(order);
+    	this.orderIndex.put(order.getId(), order);
+    	order.addObserver(this.orderCompactor);
+    }
+
+    /**
+     * Converts an order of the history which was delivered or cancelled to its compact form:
+     * the system does not keep any reference to the order object anymore.
+     * A delivered order is added to the hourly profile.
+     * 
+     * @param order the order which changed status
+     */
+    private void compactOrder(Order order) {
+    	if (!order.getStatus().isTerminal()) {
+    		return;
+    	}
+    	order.removeObserver(this.orderCompactor);
+    	this.orderStatusIndex.release(order);
+    	this.orderIndex.remove(order.getId());
+    	this.orderHistory.compact(order);
+    	this.hourlyProfile.observe(order);
+    }
+
+    /**
+     * Returns the archive of the old orders.
+     *
+     * @return the OrderArchive of the system, or null if the orders are never archived
+     */
+    public OrderArchive getOrderArchive() {
+        return orderArchive;
+    }
+
+    /**
+     * Sets the archive of the old orders. The users of the system and the menus of the restaurants
+     * are registered in the archive, so the orders archived before a restart can be expanded with
+     * their users and line items.
+     * The customers of the archived orders are added to the customer sketches.
+     *
+     * @param orderArchive the archive, or null to keep all orders in the history
+     */
+    public void setOrderArchive(OrderArchive orderArchive) {
+        this.orderArchive = orderArchive;
+        if (orderArchive != null) {
+        	for (User user : this.userMap.values()) {
+        		orderArchive.registerUser(user);
+        		if (user instanceof Restaurant) {
+        			orderArchive.registerMenu((Restaurant) user);
+        		}
+        	}
+        	orderArchive.forEach(LocalDate.MIN, LocalDate.MAX, this.customerSketches::observe);
+        }
+    }
+
+    /**
+     * Returns the age from which the delivered and cancelled orders are archived.
+     *
+     * @return the age in days
+     */
+    public int getArchiveAge() {
+        return archiveAge;
+    }
+
+    /**
+     * Sets the age from which the delivered and cancelled orders are archived.
+     *
+     * @param archiveAge the age in days
+     */
+    public void setArchiveAge(int archiveAge) {
+        this.archiveAge = archiveAge;
+    }
+
+    /**
+     * Moves the delivered and cancelled orders older than the archive age out of the
+     * order history, into the order archive. The orders are removed from the history
+     * only once they are all written in the archive, and the orders already archived are
+     * skipped, so archiving again after a failure does not archive an order twice.
+     *
+     * @param today the current date
+     * @return the number of orders archived
+     * @throws IOException if the orders cannot be written in the archive
+     */
+    public int archiveOrders(LocalDate today) throws IOException {
+    	if (this.orderArchive == null) {
+    		return 0;
+    	}
+    	this.advanceEpoch();
+    	LocalDate firstDateKept = today.minusDays(this.archiveAge);
+    	long firstSecondKept = firstDateKept.toEpochDay() * 86400L;
+    	for (CompactOrder compactOrder : this.orderHistory.getCompactOrders()) {
+    		if (compactOrder.getEpochSecond() < firstSecondKept) {
+    			this.orderArchive.add(this.orderHistory.expand(compactOrder));
+    		}
+    	}
+    	return this.orderHistory.removeCompactOrdersBefore(firstDateKept);
+    }
+
+    /**
+     * Returns the index of the orders made by status.
+     *
+     * @return the OrderStatusIndex of the system
+     */
+    public OrderStatusIndex getOrderStatusIndex() {
+        return orderStatusIndex;
+    }
+
+    /**
+     * Returns the window of the orders of the last 30 days, used to update the profit data.
+     *
+     * @return the ProfitWindow of the system
+     */
+    public ProfitWindow getProfitWindow() {
+        return profitWindow;
+    }
+
+    /**
+     * Returns the profit and loss of each restaurant per day, kept up to date as the orders are made.
+     *
+     * @return the RestaurantProfitView of the system
+     */
+    public RestaurantProfitView getRestaurantProfitView() {
+        return restaurantProfitView;
+    }
+
+    /**
+     * Returns the orders, revenue and profit per hour of the week, kept up to date as the orders are delivered.
+     *
+     * @return the HourlyProfile of the system
+     */
+    public HourlyProfile getHourlyProfile() {
+        return hourlyProfile;
+    }
+
+    /**
+     * Returns the sketches of the customers who ordered, kept up to date as the orders are made.
+     *
+     * @return the CustomerSketches of the system
+     */
+    public CustomerSketches getCustomerSketches() {
+        return customerSketches;
+    }
+
+    /**
+     * Returns the mutation epoch of the system, moved forward each time an order or a user changes:
+     * orders made or changing status, users added or removed, profit data changed.
+     *
+     * @return the mutation epoch
+     */
+    public long getMutationEpoch() {
+        return mutationEpoch.get();
+    }
+
+    /**
+     * Moves the mutation epoch forward, so the cached reports are computed again.
+     * To be called when an order or a user is changed outside of the system.
+     */
+    public void advanceEpoch() {
+    	this.mutationEpoch.incrementAndGet();
+    }
+
+    /**
+     * Returns the cache of the reports of the managers.
+     *
+     * @return the ReportCache of the system
+     */
+    public ReportCache getReportCache() {
+        return reportCache;
+    }
+
+    /**
+     * Returns a report of the managers, from the report cache if it was computed since the last
+     * change of an order or a user.
+     *
+     * @param <T> the type of the report
+     * @param report the name of the report
+     * @param compute computes the report
+     * @param arguments the arguments of the report
+     * @return the report, which must not be modified
+     */
+    public <T> T getReport(String report, Supplier<T> compute, Object... arguments) {
+    	return this.reportCache.get(report, this.getMutationEpoch(), compute, arguments);
+    }
+
+    /**
+     * Returns the demand forecaster learning from the orders made.
+     *
+     * @return the DemandForecaster of the system
+     */
+    public DemandForecaster getDemandForecaster() {
+        return demandForecaster;
+    }
+    
+    /**
+     * Returns the order with the given ID.
+     * The orders in progress are found in the order index, and the delivered or cancelled orders
+     * in the index of the compact orders of the history, so the lookup does not depend on the size
+     * of the history. A compact order is expanded; an order older than the history is read back
+     * from the order archive.
+     * If no order is found with the given ID, it returns null instead of throwing an exception.
+     * 
+     * @param id the ID of the order
+     * @return the Order object if found, or null if not found
+     */
+    public Order getOrder(long id) {
+    	Order order = this.orderIndex.get(id);
+    	if (order == null) {
+    		CompactOrder compactOrder = this.orderHistory.getCompactOrder(id);
+    		if (compactOrder != null) {
+    			order = this.orderHistory.expand(compactOrder);
+    		} else if (this.orderArchive != null) {
+    			order = this.orderArchive.getOrder(id);
+    		}
+    	}
+    	return order;
     }
     
     /**
@@ -245,8 +627,9 @@ public class MyFoodora {
      * 
      * @param serviceFee the new service fee
      */
-    public void setServiceFee(double serviceFee) {
+    public void setServiceFee(Money serviceFee) {
     	this.profitData.setServiceFee(serviceFee);
+    	this.advanceEpoch();
     }
     
     /**
@@ -256,6 +639,7 @@ public class MyFoodora {
      */
     public void setMarkupPercentage(double markupPercentage) {
     	this.profitData.setMarkupPercentage(markupPercentage);
+    	this.advanceEpoch();
     }
     
     /**
@@ -263,8 +647,9 @@ public class MyFoodora {
      * 
      * @param deliveryCost the new delivery cost
      */
-    public void setDeliveryCost(double deliveryCost) {
+    public void setDeliveryCost(Money deliveryCost) {
     	this.profitData.setDeliveryCost(deliveryCost);
+    	this.advanceEpoch();
     }
     
     /**
@@ -283,6 +668,7 @@ public class MyFoodora {
      * @param user the user to add
      */
     public void addUser(User user) {
+    	this.advanceEpoch();
     	// Puts user in the map
     	this.userMap.put(user.getUsername(), user);
     	
@@ -295,6 +681,7 @@ public class MyFoodora {
     	}
     	else if(user instanceof Courier) {
     		this.couriers.add((Courier) user);
+    		this.courierPositions.add((Courier) user);
     	}
     	else if(user instanceof Manager) {
     		this.managers.add((Manager) user);
@@ -317,6 +704,7 @@ public class MyFoodora {
     	}
     	
     	User.removeUsernameFromUsernamesUsed(user.getUsername());
+    	this.advanceEpoch();
     	
     	// Removes user from HashSet
     	if (user instanceof Customer) {
@@ -329,6 +717,7 @@ public class MyFoodora {
     	}
     	else if(user instanceof Courier) {
     		this.couriers.remove((Courier) user);
+    		this.courierPositions.remove((Courier) user);
     		Customer.removePhoneFromPhonesUsed(((Courier) user).getPhoneNumber());
     	}
     	else if(user instanceof Manager) {
@@ -470,6 +859,8 @@ public class MyFoodora {
     
     /**
      * Selects a courier to deliver an order based on current delivery police.
+     * Couriers still at the restaurant with orders to deliver nearby are proposed first,
+     * so the order can be stacked with the orders they already carry.
      * 
      * @param restaurantToPickDeliver the restaurant
      * @param customerToDeliver the customer
@@ -477,13 +868,23 @@ public class MyFoodora {
      * @throws AvailableCourierNotFoundException if no courier is available
      */
     public ArrayList<Courier> selectCourier(Restaurant restaurantToPickDeliver, Customer customerToDeliver) throws AvailableCourierNotFoundException{
+    	// Selecting couriers able to stack the order
+    	ArrayList<Courier> selectedCouriers = new ArrayList<Courier>();
+    	if (this.deliveryStacking != null) {
+    		selectedCouriers.addAll(this.deliveryStacking.selectCourier(this.courierPositions, restaurantToPickDeliver, customerToDeliver));
+    	}
+    	
     	// Selecting courier based on current policy
-    	ArrayList<Courier> selectedCouriers = this.deliveryStrategy.selectCourier(this.couriers, restaurantToPickDeliver, customerToDeliver);
+    	ArrayList<Courier> policyCouriers = this.deliveryStrategy.selectCourier(this.courierPositions, this.couriers, restaurantToPickDeliver, customerToDeliver);
+    	if (policyCouriers != null) {
+    		for (Courier courier : policyCouriers) {
+    			if (!selectedCouriers.contains(courier)) {
+    				selectedCouriers.add(courier);
+    			}
+    		}
+    	}
     	
     	// If there's no available couriers, throws an error
-    	if (selectedCouriers == null) {
-    		throw new AvailableCourierNotFoundException("Available courier not found.");
-    	}
     	if (selectedCouriers.size() == 0) {
     		throw new AvailableCourierNotFoundException("Available courier not found.");
     	}
@@ -597,19 +998,33 @@ public class MyFoodora {
         				newOrder.addMeal(meal);
         			}
         			
-        			// Choosing the possible couriers
-        			ArrayList<Courier> possibleCouriers = this.selectCourier(newOrder.getRestaurant(), newOrder.getCustomer());
+        			// Choosing the possible couriers, the shadow policies choose theirs in the background
+        			// from a copy of the couriers taken before the live choice
+        			CourierPositionStore shadowCouriers = this.shadowDispatcher.snapshot(this.courierPositions);
+        			long selectionStart = System.nanoTime();
+        			ArrayList<Courier> possibleCouriers;
+        			try {
+        				possibleCouriers = this.selectCourier(newOrder.getRestaurant(), newOrder.getCustomer());
+        			} catch (AvailableCourierNotFoundException e) {
+        				this.shadowDispatcher.dispatch(shadowCouriers, newOrder.getRestaurant(), newOrder.getCustomer(), null, System.nanoTime() - selectionStart);
+        				throw e;
+        			}
+        			this.shadowDispatcher.dispatch(shadowCouriers, newOrder.getRestaurant(), newOrder.getCustomer(), possibleCouriers, System.nanoTime() - selectionStart);
         			newOrder.setPossibleCouriers(possibleCouriers);
         			
         			// Notifies first courier
         			newOrder.notifyNextCourier();
         			
         			// Getting and setting the final price based on fidelity card
-        			double newPrice = ((Customer) this.currentUser).getFidelityCard().getFinalPrice(newOrder);
+        			Money newPrice = ((Customer) this.currentUser).getFidelityCard().getFinalPrice(newOrder);
         			newOrder.setPrice(newPrice);
         			
-        			// Adding order to history
-        			this.orderHistory.add(newOrder);
+        			// Adding order to history and to the order indexes
+        			this.addToHistory(newOrder);
+        			this.demandForecaster.observe(newOrder);
+        			this.profitWindow.observe(newOrder);
+        			this.customerSketches.observe(newOrder);
+        			this.restaurantProfitView.observe(newOrder);
                     
                     return newOrder;
         		}
@@ -619,27 +1034,42 @@ public class MyFoodora {
     }
 
     /**
-     * Updates the platform's profit data to meet a target profit over the last month.
+     * Completes the delivery of the order of the given ID.
+     * The order is marked as delivered and its courier is moved to the customer
+     * address. The courier is put back on duty after the last order carried,
+     * so it can be selected for the next orders.
      * 
-     * @param targetProfit the profit goal
+     * @param orderId the ID of the order being delivered
+     * @return the delivered order
+     * @throws BadOrderHandlingException if the order does not exist or is not being delivered
      */
-    public void updateProfitDataFromTargetProfit(double targetProfit) {
-    	// Getting the date interval
-    	// Last month = last 30 days
-    	LocalDate currentDate = LocalDate.now();
-    	LocalDate lastMonthDate = currentDate.minusMonths(1);
-    	
-    	
-    	// Searching for last month orders
-    	Set<Order> lastMonthOrders = new HashSet<Order>();
+    public Order completeDelivery(long orderId) throws BadOrderHandlingException {
+    	Order order = this.getOrder(orderId);
+    	if (order == null) {
+    		throw new BadOrderHandlingException("Order " + orderId + " not found.");
+    	}
     	
-    	for(Order order : this.orderHistory) {
-    		if(order.getDate().isAfter(lastMonthDate) && order.getDate().isBefore(currentDate)) {
-    			lastMonthOrders.add(order);
-    		}
+    	Courier courier = order.getCourier();
+    	if (courier == null || !courier.getDeliveringOrders().contains(order)) {
+    		throw new BadOrderHandlingException("Order " + orderId + " is not being delivered.");
     	}
     	
+    	return courier.completeDelivery(order);
+    }
+
+    /**
+     * Updates the platform's profit data to meet a target profit over the last month.
+     * The orders of the last month are read from the profit window, kept up to date
+     * as the orders are made, so the update does not scan the order history.
+     * 
+     * @param targetProfit the profit goal
+     */
+    public void updateProfitDataFromTargetProfit(Money targetProfit) {
+    	// Last month = the 30 days before today
+    	ProfitWindow.Totals lastMonth = this.profitWindow.getTotals(LocalDate.now());
+    	
     	// Updating profit strategy
-    	this.profitData = this.profitStrategy.getProfitData(profitData, lastMonthOrders, targetProfit);
+    	this.profitData = this.profitStrategy.getProfitData(profitData, lastMonth, targetProfit);
+    	this.advanceEpoch();
     }
 }
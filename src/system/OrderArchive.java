@@ -0,0 +1,663 @@
+package system;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import food.Dish;
+import food.Meal;
+import order.CompactOrder;
+import order.Order;
+import order.OrderStatus;
+import user.Restaurant;
+import user.User;
+
+/**
+ * Archive of the old orders, kept off the heap in memory-mapped files.
+ *
+ * The delivered and cancelled orders older than the archive age of the system are moved out of
+ * the order history into one pair of files per month: a file of fixed-width records, one per order,
+ * and a file of the line items of the orders (item ID and quantity). The files are mapped in memory,
+ * so the archived orders are read by the operating system when they are scanned and the heap used
+ * by the system does not grow with the archive.
+ *
+ * The archive answers the same date-range queries as the order history: the orders, their totals,
+ * the active customers and the orders of each restaurant. Only the months of the range are scanned.
+ *
+ * The line items refer to the dishes and meals by item ID. The key of each item, its restaurant,
+ * kind and name, is appended to a dictionary file of the archive before the first record using it,
+ * so the item IDs keep their meaning after a restart and the new items get new IDs. The users and the
+ * dishes and meals themselves are kept in memory: after a restart, they are registered again with
+ * registerUser and registerMenu so the archived orders can be expanded back into Order objects.
+ *
+ * Each month also has an index file of the IDs of its orders, sorted by ID next to their record,
+ * so an order is found by a binary search in the mapped index and an order already archived is not
+ * archived twice, without keeping the IDs on the heap. The index is rebuilt from the records when it
+ * is missing or was not written up to the last record.
+ *
+ * A mapped file is limited to 2 GB: when a file of a month is full, the orders of this month are
+ * refused with an IOException instead of being written past the limit.
+ *
+ * @author Alisson Bonatto
+ */
+public class OrderArchive implements Closeable {
+
+	private static final int HEADER_SIZE = 16;               // Number of records and of line item ints of the month
+	private static final int RECORD_SIZE = 64;               // Size of the record of an order, in bytes
+	private static final int INDEX_HEADER_SIZE = 8;          // Number of entries of the index of the month
+	private static final int INDEX_ENTRY_SIZE = 16;          // Size of an entry of the index: order ID and record index
+	private static final long MAX_FILE_SIZE = Integer.MAX_VALUE; // Largest file which can be mapped in one buffer
+	private static final int INITIAL_RECORDS = 1024;         // Number of records of a new file
+	private static final String DICTIONARY = "items.dat";    // File of the keys of the items, by item ID
+	private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+	// Offsets of the fields in a record
+	private static final int ID = 0;
+	private static final int CUSTOMER_ID = 8;
+	private static final int RESTAURANT_ID = 16;
+	private static final int COURIER_ID = 24;
+	private static final int EPOCH_SECOND = 32;
+	private static final int PRICE_CENTS = 40;
+	private static final int ITEM_OFFSET = 48;
+	private static final int LINE_ITEMS = 56;
+	private static final int STATUS = 60;
+
+	private final Path directory;                 // Directory of the files of the archive
+	private TreeMap<YearMonth, MonthFile> months; // TreeMap <month, files of the orders of this month>
+	private Map<Long, User> users;                // HashMap <user id, user> of the users of the archived orders
+	private Map<String, Integer> itemIds;         // HashMap <item key, item ID> of the dictionary file
+	private ArrayList<Object> items;              // Dishes and meals of the archived orders by item ID, null until registered
+	private DataOutputStream dictionary;          // Output appending the keys of the new items to the dictionary file
+
+	/**
+	 * Files of the orders of one month.
+	 */
+	private static class MonthFile {
+		private final YearMonth month;
+		private final FileChannel recordChannel;
+		private final FileChannel itemChannel;
+		private final FileChannel indexChannel;
+		private MappedByteBuffer records;
+		private MappedByteBuffer lineItems;
+		private MappedByteBuffer index; // Entries sorted by order ID
+		private int count;     // Number of records
+		private long itemInts; // Number of ints written in the line items file
+
+		private MonthFile(YearMonth month, Path recordPath, Path itemPath, Path indexPath) throws IOException {
+			this.month = month;
+			this.recordChannel = FileChannel.open(recordPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			this.itemChannel = FileChannel.open(itemPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			this.indexChannel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			long recordSize = Math.max(recordChannel.size(), HEADER_SIZE + (long) INITIAL_RECORDS * RECORD_SIZE);
+			long itemSize = Math.max(itemChannel.size(), 4L * INITIAL_RECORDS);
+			long indexSize = Math.max(indexChannel.size(), INDEX_HEADER_SIZE + (long) INITIAL_RECORDS * INDEX_ENTRY_SIZE);
+			this.records = recordChannel.map(FileChannel.MapMode.READ_WRITE, 0, recordSize);
+			this.lineItems = itemChannel.map(FileChannel.MapMode.READ_WRITE, 0, itemSize);
+			this.index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexSize);
+			this.count = (int) records.getLong(0);
+			this.itemInts = records.getLong(8);
+			if (index.getLong(0) != count) {
+				// The index is missing or was cut by a crash: the records are indexed again
+				index.putLong(0, 0);
+				for (int i = 0; i < count; i++) {
+					insert(records.getLong(record(i) + ID), i);
+				}
+			}
+		}
+
+		/**
+		 * Returns the offset of a record.
+		 */
+		private static int record(int recordIndex) {
+			return HEADER_SIZE + recordIndex * RECORD_SIZE;
+		}
+
+		/**
+		 * Returns the record index of an order ID, by a binary search in the index.
+		 *
+		 * @return the record index, or -1 if the order is not in this month
+		 */
+		private int find(long id) {
+			int low = 0;
+			int high = (int) index.getLong(0) - 1;
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				long middleId = index.getLong(INDEX_HEADER_SIZE + middle * INDEX_ENTRY_SIZE);
+				if (middleId < id) {
+					low = middle + 1;
+				} else if (middleId > id) {
+					high = middle - 1;
+				} else {
+					return (int) index.getLong(INDEX_HEADER_SIZE + middle * INDEX_ENTRY_SIZE + 8);
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Inserts an entry in the index, moving the entries of the larger IDs.
+		 * The IDs of the orders archived are mostly increasing, so the entry is usually appended at the end.
+		 */
+		private void insert(long id, int recordIndex) throws IOException {
+			int entries = (int) index.getLong(0);
+			long indexEnd = INDEX_HEADER_SIZE + (long) (entries + 1) * INDEX_ENTRY_SIZE;
+			if (indexEnd > index.capacity()) {
+				index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, grownSize(indexEnd, index.capacity()));
+			}
+			int position = entries;
+			while (position > 0 && index.getLong(INDEX_HEADER_SIZE + (position - 1) * INDEX_ENTRY_SIZE) > id) {
+				int from = INDEX_HEADER_SIZE + (position - 1) * INDEX_ENTRY_SIZE;
+				index.putLong(from + INDEX_ENTRY_SIZE, index.getLong(from));
+				index.putLong(from + INDEX_ENTRY_SIZE + 8, index.getLong(from + 8));
+				position--;
+			}
+			index.putLong(INDEX_HEADER_SIZE + position * INDEX_ENTRY_SIZE, id);
+			index.putLong(INDEX_HEADER_SIZE + position * INDEX_ENTRY_SIZE + 8, recordIndex);
+			index.putLong(0, entries + 1);
+		}
+
+		/**
+		 * Verifies that a file of the month can hold the given number of bytes.
+		 *
+		 * @throws IOException if the file would exceed the size of a mapped buffer
+		 */
+		private void checkSize(long end) throws IOException {
+			if (end > MAX_FILE_SIZE) {
+				throw new IOException("The archive of " + month + " is full: a file of a month cannot exceed "
+						+ MAX_FILE_SIZE + " bytes.");
+			}
+		}
+
+		/**
+		 * Returns the new size of a file which must hold the given number of bytes.
+		 */
+		private static long grownSize(long end, long capacity) {
+			return Math.min(Math.max(end, 2L * capacity), MAX_FILE_SIZE);
+		}
+
+		/**
+		 * Appends the record and line items of an order, growing the files if needed.
+		 *
+		 * @throws IOException if a file of the month is full
+		 */
+		private void append(CompactOrder order) throws IOException {
+			long recordEnd = HEADER_SIZE + (long) (count + 1) * RECORD_SIZE;
+			long itemEnd = 4 * (itemInts + 2L * order.getLineItemCount());
+			long indexEnd = INDEX_HEADER_SIZE + (long) (count + 1) * INDEX_ENTRY_SIZE;
+			// Nothing is written unless the three files can hold the order
+			checkSize(recordEnd);
+			checkSize(itemEnd);
+			checkSize(indexEnd);
+			if (recordEnd > records.capacity()) {
+				records = recordChannel.map(FileChannel.MapMode.READ_WRITE, 0, grownSize(recordEnd, records.capacity()));
+			}
+			if (itemEnd > lineItems.capacity()) {
+				lineItems = itemChannel.map(FileChannel.MapMode.READ_WRITE, 0, grownSize(itemEnd, lineItems.capacity()));
+			}
+
+			int itemStart = (int) (4 * itemInts);
+			for (int i = 0; i < order.getLineItemCount(); i++) {
+				lineItems.putInt(itemStart + 8 * i, order.getItemId(i));
+				lineItems.putInt(itemStart + 8 * i + 4, order.getQuantity(i));
+			}
+			int record = record(count);
+			records.putLong(record + ID, order.getId());
+			records.putLong(record + CUSTOMER_ID, order.getCustomerId());
+			records.putLong(record + RESTAURANT_ID, order.getRestaurantId());
+			records.putLong(record + COURIER_ID, order.getCourierId());
+			records.putLong(record + EPOCH_SECOND, order.getEpochSecond());
+			records.putLong(record + PRICE_CENTS, order.getPriceCents());
+			records.putLong(record + ITEM_OFFSET, itemInts);
+			records.putInt(record + LINE_ITEMS, order.getLineItemCount());
+			records.put(record + STATUS, (byte) order.getStatus().ordinal());
+
+			insert(order.getId(), count);
+			count++;
+			itemInts += 2L * order.getLineItemCount();
+			// The header is written last, so a record is only counted once it is complete
+			records.putLong(8, itemInts);
+			records.putLong(0, count);
+		}
+
+		/**
+		 * Reads back the order of a record.
+		 */
+		private CompactOrder read(int recordIndex) {
+			int record = record(recordIndex);
+			int itemStart = (int) (4 * records.getLong(record + ITEM_OFFSET));
+			int[] items = new int[2 * records.getInt(record + LINE_ITEMS)];
+			for (int i = 0; i < items.length; i++) {
+				items[i] = lineItems.getInt(itemStart + 4 * i);
+			}
+			return new CompactOrder(records.getLong(record + ID), records.getLong(record + CUSTOMER_ID),
+					records.getLong(record + RESTAURANT_ID), records.getLong(record + COURIER_ID),
+					records.getLong(record + EPOCH_SECOND), records.getLong(record + PRICE_CENTS),
+					STATUSES[records.get(record + STATUS)], items);
+		}
+
+		private void close() throws IOException {
+			records.force();
+			lineItems.force();
+			index.force();
+			recordChannel.close();
+			itemChannel.close();
+			indexChannel.close();
+		}
+	}
+
+	/**
+	 * Scan of the records of the archive.
+	 */
+	private interface RecordScan {
+		void record(MonthFile month, int index, int record);
+	}
+
+	/**
+	 * Opens the archive stored in a directory, creating the directory if needed.
+	 * The months already archived in the directory are mapped in memory, and the keys
+	 * of the items already archived are read from the dictionary file.
+	 *
+	 * @param directory the directory of the archive
+	 * @throws IOException if the directory or the files of the archive cannot be opened
+	 */
+	public OrderArchive(Path directory) throws IOException {
+		this.directory = directory;
+		this.months = new TreeMap<YearMonth, MonthFile>();
+		this.users = new HashMap<Long, User>();
+		this.itemIds = new HashMap<String, Integer>();
+		this.items = new ArrayList<Object>();
+
+		Files.createDirectories(directory);
+		openDictionary(directory.resolve(DICTIONARY));
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "orders-*.dat")) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				YearMonth month = YearMonth.parse(name.substring("orders-".length(), name.length() - ".dat".length()));
+				months.put(month, new MonthFile(month, file, itemPath(month), indexPath(month)));
+			}
+		}
+	}
+
+	/**
+	 * Archives an order in the file of its month, unless it is already archived.
+	 *
+	 * @param order the order, in a terminal state
+	 * @return true if the order was archived, false if it was already in the archive
+	 * @throws IOException if the files of the month cannot be written
+	 */
+	public synchronized boolean add(Order order) throws IOException {
+		YearMonth month = YearMonth.from(order.getDate());
+		MonthFile monthFile = months.get(month);
+		if (monthFile == null) {
+			monthFile = new MonthFile(month, recordPath(month), itemPath(month), indexPath(month));
+			months.put(month, monthFile);
+		} else if (monthFile.find(order.getId()) >= 0) {
+			return false;
+		}
+		CompactOrder compactOrder;
+		try {
+			compactOrder = new CompactOrder(order, item -> registerItem(order.getRestaurant(), item));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		monthFile.append(compactOrder);
+		registerUser(order.getCustomer());
+		registerUser(order.getRestaurant());
+		registerUser(order.getCourier());
+		return true;
+	}
+
+	/**
+	 * Registers a user in the dictionary of the archive, so the archived orders
+	 * referring to its ID can be expanded. Used to restore the users after a restart.
+	 *
+	 * @param user the user, or null
+	 */
+	public synchronized void registerUser(User user) {
+		if (user != null) {
+			users.putIfAbsent(user.getId(), user);
+		}
+	}
+
+	/**
+	 * Registers the dishes and meals of the menu of a restaurant, so the archived orders
+	 * of this restaurant referring to them can be expanded. Used to restore the items after a restart.
+	 *
+	 * @param restaurant the restaurant
+	 */
+	public synchronized void registerMenu(Restaurant restaurant) {
+		for (Dish dish : restaurant.getMenu().getDishes()) {
+			bindItem(itemKey(restaurant, dish), dish);
+		}
+		for (Meal meal : restaurant.getMenu().getMeals()) {
+			bindItem(itemKey(restaurant, meal), meal);
+		}
+	}
+
+	/**
+	 * Returns the number of archived orders.
+	 *
+	 * @return the number of orders
+	 */
+	public synchronized long size() {
+		long size = 0;
+		for (MonthFile month : months.values()) {
+			size += month.count;
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the months of the archive.
+	 *
+	 * @return the months, from the oldest
+	 */
+	public synchronized List<YearMonth> getMonths() {
+		return new ArrayList<YearMonth>(months.keySet());
+	}
+
+	/**
+	 * Returns the archived orders between two dates, both included.
+	 * As in Manager.getOrders, the orders made on one of the two dates are returned even if the
+	 * start date is after the end date.
+	 *
+	 * @param startDate the start date
+	 * @param endDate the end date
+	 * @return the orders, expanded from their records
+	 */
+	public synchronized ArrayList<Order> getOrders(LocalDate startDate, LocalDate endDate) {
+		ArrayList<Order> orders = new ArrayList<Order>();
+		forEach(startDate, endDate, order -> orders.add(expand(order)));
+		return orders;
+	}
+
+	/**
+	 * Gives the archived orders between two dates, both included, to a consumer.
+	 *
+	 * @param startDate the start date
+	 * @param endDate the end date
+	 * @param consumer the consumer of the orders, in their compact form
+	 */
+	public synchronized void forEach(LocalDate startDate, LocalDate endDate, Consumer<CompactOrder> consumer) {
+		scan(startDate, endDate, (month, index, record) -> consumer.accept(month.read(index)));
+	}
+
+	/**
+	 * Counts the archived orders between two dates, both included, and sums their prices.
+	 *
+	 * @param startDate the start date
+	 * @param endDate the end date
+	 * @return the number of orders and their total price
+	 */
+	public synchronized OrderColumnStore.Totals getTotals(LocalDate startDate, LocalDate endDate) {
+		long[] totals = new long[2];
+		scan(startDate, endDate, (month, index, record) -> {
+			totals[0]++;
+			totals[1] += month.records.getLong(record + PRICE_CENTS);
+		});
+		return new OrderColumnStore.Totals(totals[0], totals[1]);
+	}
+
+	/**
+	 * Finds the customers who made an archived order strictly between two dates.
+	 *
+	 * @param startDate the start date, excluded
+	 * @param endDate the end date, excluded
+	 * @return the IDs of the customers
+	 */
+	public synchronized IdSet getCustomerIds(LocalDate startDate, LocalDate endDate) {
+		IdSet ids = new IdSet();
+		if (endDate.toEpochDay() - startDate.toEpochDay() < 2) {
+			return ids;
+		}
+		scan(startDate.plusDays(1), endDate.minusDays(1), (month, index, record) -> {
+			long customer = month.records.getLong(record + CUSTOMER_ID);
+			if (customer >= 0) {
+				ids.add(customer);
+			}
+		});
+		return ids;
+	}
+
+	/**
+	 * Counts the archived orders of each restaurant between two dates, both included.
+	 *
+	 * @param startDate the start date
+	 * @param endDate the end date
+	 * @return HashMap <restaurant id, number of orders>
+	 */
+	public synchronized Map<Long, Long> getRestaurantCounts(LocalDate startDate, LocalDate endDate) {
+		Map<Long, Long> counts = new HashMap<Long, Long>();
+		if (startDate.isAfter(endDate)) {
+			return counts;
+		}
+		scan(startDate, endDate, (month, index, record) -> {
+			long restaurant = month.records.getLong(record + RESTAURANT_ID);
+			if (restaurant >= 0) {
+				counts.merge(restaurant, 1L, Long::sum);
+			}
+		});
+		return counts;
+	}
+
+	/**
+	 * Counts the archived orders delivered by each courier between two dates, both included.
+	 *
+	 * @param startDate the start date
+	 * @param endDate the end date
+	 * @return HashMap <courier id, number of delivered orders>
+	 */
+	public synchronized Map<Long, Long> getCourierCounts(LocalDate startDate, LocalDate endDate) {
+		Map<Long, Long> counts = new HashMap<Long, Long>();
+		if (startDate.isAfter(endDate)) {
+			return counts;
+		}
+		scan(startDate, endDate, (month, index, record) -> {
+			long courier = month.records.getLong(record + COURIER_ID);
+			if (courier >= 0 && STATUSES[month.records.get(record + STATUS)] == OrderStatus.DELIVERED) {
+				counts.merge(courier, 1L, Long::sum);
+			}
+		});
+		return counts;
+	}
+
+	/**
+	 * Counts the archived orders made at each hour of the day between two dates, both included.
+	 *
+	 * @param startDate the start date
+	 * @param endDate the end date
+	 * @return the number of orders of each hour of the day, from 0 to 23
+	 */
+	public synchronized long[] getHourCounts(LocalDate startDate, LocalDate endDate) {
+		long[] counts = new long[24];
+		if (startDate.isAfter(endDate)) {
+			return counts;
+		}
+		scan(startDate, endDate, (month, index, record) ->
+				counts[(int) (Math.floorMod(month.records.getLong(record + EPOCH_SECOND), 86400L) / 3600)]++);
+		return counts;
+	}
+
+	/**
+	 * Returns the archived order of the given ID.
+	 * The index file of each month is searched, from the most recent month.
+	 *
+	 * @param id the ID of the order
+	 * @return the order, or null if it was not archived
+	 */
+	public synchronized Order getOrder(long id) {
+		for (MonthFile month : months.descendingMap().values()) {
+			int index = month.find(id);
+			if (index >= 0) {
+				return expand(month.read(index));
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Rebuilds an Order object from an archived order.
+	 *
+	 * @param order the archived order
+	 * @return the expanded order
+	 */
+	public synchronized Order expand(CompactOrder order) {
+		return order.toOrder(users::get, itemId -> (itemId < items.size()) ? items.get(itemId) : null);
+	}
+
+	/**
+	 * Writes the mapped files to the disk and closes them.
+	 *
+	 * @throws IOException if the files cannot be written
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		for (MonthFile month : months.values()) {
+			month.close();
+		}
+		months.clear();
+		dictionary.close();
+	}
+
+	/**
+	 * Scans the records of the orders between two dates, both included, or made on
+	 * one of the two dates if the start date is after the end date.
+	 * Only the files of the months of the range are read.
+	 *
+	 * @param startDate the start date
+	 * @param endDate the end date
+	 * @param recordScan the scan of a record
+	 */
+	private void scan(LocalDate startDate, LocalDate endDate, RecordScan recordScan) {
+		if (startDate.isAfter(endDate)) {
+			scan(startDate, startDate, recordScan);
+			if (!startDate.isEqual(endDate)) {
+				scan(endDate, endDate, recordScan);
+			}
+			return;
+		}
+		long from = startDate.toEpochDay() * 86400L;
+		long to = (endDate.toEpochDay() + 1) * 86400L;
+		for (MonthFile month : months.subMap(YearMonth.from(startDate), true, YearMonth.from(endDate), true).values()) {
+			for (int index = 0, record = HEADER_SIZE; index < month.count; index++, record += RECORD_SIZE) {
+				long epochSecond = month.records.getLong(record + EPOCH_SECOND);
+				if (epochSecond >= from && epochSecond < to) {
+					recordScan.record(month, index, record);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the keys of the dictionary file and opens it to append the keys of the new items.
+	 * A key cut by a crash is dropped from the file: no record refers to it, as the key of an
+	 * item is written before the first record using it.
+	 *
+	 * @param path the path of the dictionary file
+	 * @throws IOException if the dictionary file cannot be read or written
+	 */
+	private void openDictionary(Path path) throws IOException {
+		byte[] bytes = Files.exists(path) ? Files.readAllBytes(path) : new byte[0];
+		DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+		long length = 0;
+		try {
+			while (input.available() > 0) {
+				addItemKey(input.readUTF());
+				length = bytes.length - input.available();
+			}
+		} catch (EOFException e) {
+			// The last key is incomplete
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			channel.truncate(length);
+		}
+		this.dictionary = new DataOutputStream(new BufferedOutputStream(
+				Files.newOutputStream(path, StandardOpenOption.APPEND)));
+	}
+
+	/**
+	 * Returns the ID of a dish or meal of a restaurant, appending its key to the dictionary if needed.
+	 *
+	 * @param restaurant the restaurant of the order
+	 * @param item the dish or meal
+	 * @return the item ID
+	 * @throws UncheckedIOException if the dictionary file cannot be written
+	 */
+	private int registerItem(User restaurant, Object item) {
+		String key = itemKey(restaurant, item);
+		Integer itemId = itemIds.get(key);
+		if (itemId == null) {
+			try {
+				dictionary.writeUTF(key);
+				dictionary.flush();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			itemId = addItemKey(key);
+		}
+		items.set(itemId, item);
+		return itemId;
+	}
+
+	/**
+	 * Gives the next item ID to a key.
+	 */
+	private int addItemKey(String key) {
+		int itemId = items.size();
+		itemIds.put(key, itemId);
+		items.add(null);
+		return itemId;
+	}
+
+	/**
+	 * Binds a dish or meal to the ID of its key, if it was archived.
+	 */
+	private void bindItem(String key, Object item) {
+		Integer itemId = itemIds.get(key);
+		if (itemId != null) {
+			items.set(itemId, item);
+		}
+	}
+
+	/**
+	 * Returns the key of a dish or meal in the dictionary: the ID of its restaurant, its kind and its name.
+	 */
+	private static String itemKey(User restaurant, Object item) {
+		long restaurantId = (restaurant == null) ? -1 : restaurant.getId();
+		if (item instanceof Meal) {
+			return restaurantId + "/meal/" + ((Meal) item).getName();
+		}
+		return restaurantId + "/dish/" + ((Dish) item).getName();
+	}
+
+	private Path recordPath(YearMonth month) {
+		return directory.resolve("orders-" + month + ".dat");
+	}
+
+	private Path itemPath(YearMonth month) {
+		return directory.resolve("items-" + month + ".dat");
+	}
+
+	private Path indexPath(YearMonth month) {
+		return directory.resolve("index-" + month + ".dat");
+	}
+}
@@ -0,0 +1,463 @@
+package system;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+import order.CompactOrder;
+import order.OrderStatus;
+
+/**
+ * Columnar store of the completed orders, used by the manager analytics.
+ *
+ * Each field of the orders read by the reports is kept in its own primitive array (structure of
+ * arrays): epoch day, hour of the day, restaurant, customer and courier IDs and price in cents. A report only reads
+ * the columns it needs, sequentially, instead of following the pointers of millions of Order objects.
+ * Large scans are split into chunks summed in parallel on the common fork-join pool.
+ *
+ * The orders are appended when they are completed. The scans work on a snapshot of the columns,
+ * so they can run while orders are appended or removed: while a scan is running, the columns are
+ * copied before a removal or an append overwrites one of the rows it sees. The copy is made once
+ * per snapshot: the writes which follow it go to the new columns, which no scan has seen yet.
+ *
+ * @author Alisson Bonatto
+ */
+public class OrderColumnStore {
+
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final int SCAN_CHUNK = 1 << 16; // Number of orders scanned by a single fork-join task
+
+	private long[] orderIds;     // ID of the order
+	private int[] epochDays;     // Date of the order, in days since 1970-01-01
+	private byte[] hours;        // Hour of the day of the order
+	private long[] restaurantIds; // ID of the restaurant
+	private long[] customerIds;  // ID of the customer
+	private long[] courierIds;   // ID of the courier who delivered the order, -1 if it was not delivered
+	private long[] priceCents;   // Price of the order, in cents
+	private int size;            // Number of orders stored
+	private int sharedSize;      // Number of rows of the columns seen by the running scans, 0 if none
+	private int runningScans;    // Number of scans running on the current columns
+	private LongIntMap rows;     // LongIntMap <order id, row>
+
+	/**
+	 * Sums of a scan: number of orders and total price.
+	 */
+	public static class Totals {
+		private final long count;
+		private final long priceCents;
+
+		/**
+		 * Constructs the totals of a set of orders.
+		 *
+		 * @param count the number of orders
+		 * @param priceCents the total price of the orders, in cents
+		 */
+		public Totals(long count, long priceCents) {
+			this.count = count;
+			this.priceCents = priceCents;
+		}
+
+		/**
+		 * Adds two totals.
+		 *
+		 * @param other the other totals
+		 * @return the totals of both sets of orders
+		 */
+		public Totals plus(Totals other) {
+			return new Totals(count + other.count, priceCents + other.priceCents);
+		}
+
+		/**
+		 * Returns the number of orders.
+		 *
+		 * @return the number of orders
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Returns the total price of the orders, in cents.
+		 *
+		 * @return the total price in cents
+		 */
+		public long getPriceCents() {
+			return priceCents;
+		}
+
+		/**
+		 * Returns the total price of the orders.
+		 *
+		 * @return the total price
+		 */
+		public Money getPrice() {
+			return Money.ofCents(priceCents);
+		}
+	}
+
+	/**
+	 * Snapshot of the columns, read by the scans.
+	 */
+	private static class Columns {
+		private final int[] epochDays;
+		private final byte[] hours;
+		private final long[] restaurantIds;
+		private final long[] customerIds;
+		private final long[] courierIds;
+		private final long[] priceCents;
+		private final int size;
+
+		private Columns(OrderColumnStore store) {
+			this.epochDays = store.epochDays;
+			this.hours = store.hours;
+			this.restaurantIds = store.restaurantIds;
+			this.customerIds = store.customerIds;
+			this.courierIds = store.courierIds;
+			this.priceCents = store.priceCents;
+			this.size = store.size;
+		}
+	}
+
+	/**
+	 * Scan of a range of rows of a snapshot of the columns.
+	 */
+	private interface RangeScan<R> {
+		R scan(Columns columns, int from, int to);
+	}
+
+	/**
+	 * Fork-join task splitting a scan into chunks and merging their results.
+	 */
+	private static class ScanTask<R> extends RecursiveTask<R> {
+		private static final long serialVersionUID = 1L;
+
+		private final Columns columns;
+		private final int from;
+		private final int to;
+		private final RangeScan<R> rangeScan;
+		private final BinaryOperator<R> merge;
+
+		private ScanTask(Columns columns, int from, int to, RangeScan<R> rangeScan, BinaryOperator<R> merge) {
+			this.columns = columns;
+			this.from = from;
+			this.to = to;
+			this.rangeScan = rangeScan;
+			this.merge = merge;
+		}
+
+		@Override
+		protected R compute() {
+			if (to - from <= SCAN_CHUNK) {
+				return rangeScan.scan(columns, from, to);
+			}
+			int middle = (from + to) >>> 1;
+			ScanTask<R> left = new ScanTask<R>(columns, from, middle, rangeScan, merge);
+			left.fork();
+			R right = new ScanTask<R>(columns, middle, to, rangeScan, merge).compute();
+			return merge.apply(left.join(), right);
+		}
+	}
+
+	/**
+	 * Constructs an empty OrderColumnStore.
+	 */
+	public OrderColumnStore() {
+		clear();
+	}
+
+	/**
+	 * Appends a completed order to the columns.
+	 *
+	 * @param order the order, in compact form
+	 */
+	public synchronized void add(CompactOrder order) {
+		if (size == orderIds.length) {
+			copyColumns(2 * orderIds.length);
+		}
+		else if (size < sharedSize) {
+			copyColumns(orderIds.length);
+		}
+		rows.put(order.getId(), size);
+		orderIds[size] = order.getId();
+		epochDays[size] = (int) Math.floorDiv(order.getEpochSecond(), 86400L);
+		hours[size] = (byte) (Math.floorMod(order.getEpochSecond(), 86400L) / 3600);
+		restaurantIds[size] = order.getRestaurantId();
+		customerIds[size] = order.getCustomerId();
+		courierIds[size] = (order.getStatus() == OrderStatus.DELIVERED) ? order.getCourierId() : -1;
+		priceCents[size] = order.getPriceCents();
+		size++;
+	}
+
+	/**
+	 * Removes an order from the columns, replacing it with the last order.
+	 *
+	 * @param orderId the ID of the order
+	 * @return true if the order was in the columns
+	 */
+	public synchronized boolean remove(long orderId) {
+		int row = rows.remove(orderId);
+		if (row < 0) {
+			return false;
+		}
+		int last = --size;
+		if (row != last) {
+			if (row < sharedSize) {
+				copyColumns(orderIds.length);
+			}
+			orderIds[row] = orderIds[last];
+			epochDays[row] = epochDays[last];
+			hours[row] = hours[last];
+			restaurantIds[row] = restaurantIds[last];
+			customerIds[row] = customerIds[last];
+			courierIds[row] = courierIds[last];
+			priceCents[row] = priceCents[last];
+			rows.put(orderIds[row], row);
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the orders made before a date from the columns.
+	 *
+	 * @param epochDay the first day kept
+	 * @return the number of orders removed
+	 */
+	public synchronized int removeBefore(long epochDay) {
+		if (sharedSize > 0) {
+			copyColumns(orderIds.length);
+		}
+		int kept = 0;
+		rows.clear();
+		for (int row = 0; row < size; row++) {
+			if (epochDays[row] >= epochDay) {
+				rows.put(orderIds[row], kept);
+				orderIds[kept] = orderIds[row];
+				epochDays[kept] = epochDays[row];
+				hours[kept] = hours[row];
+				restaurantIds[kept] = restaurantIds[row];
+				customerIds[kept] = customerIds[row];
+				courierIds[kept] = courierIds[row];
+				priceCents[kept] = priceCents[row];
+				kept++;
+			}
+		}
+		int removed = size - kept;
+		size = kept;
+		return removed;
+	}
+
+	/**
+	 * Removes all orders from the columns.
+	 */
+	public synchronized void clear() {
+		this.orderIds = new long[INITIAL_CAPACITY];
+		this.epochDays = new int[INITIAL_CAPACITY];
+		this.hours = new byte[INITIAL_CAPACITY];
+		this.restaurantIds = new long[INITIAL_CAPACITY];
+		this.customerIds = new long[INITIAL_CAPACITY];
+		this.courierIds = new long[INITIAL_CAPACITY];
+		this.priceCents = new long[INITIAL_CAPACITY];
+		this.size = 0;
+		this.sharedSize = 0;
+		this.runningScans = 0;
+		this.rows = new LongIntMap();
+	}
+
+	/**
+	 * Returns the number of orders stored.
+	 *
+	 * @return the number of orders
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Counts the orders between two dates and sums their prices.
+	 *
+	 * @param fromEpochDay the first day, included
+	 * @param toEpochDay the last day, included
+	 * @return the number of orders and their total price
+	 */
+	public Totals getTotals(long fromEpochDay, long toEpochDay) {
+		return scan((columns, from, to) -> {
+			long count = 0;
+			long cents = 0;
+			int[] days = columns.epochDays;
+			long[] prices = columns.priceCents;
+			for (int row = from; row < to; row++) {
+				int day = days[row];
+				if (day >= fromEpochDay && day <= toEpochDay) {
+					count++;
+					cents += prices[row];
+				}
+			}
+			return new Totals(count, cents);
+		}, Totals::plus);
+	}
+
+	/**
+	 * Finds the customers who made at least one order between two dates.
+	 *
+	 * @param fromEpochDay the first day, included
+	 * @param toEpochDay the last day, included
+	 * @return the IDs of the customers
+	 */
+	public IdSet getCustomerIds(long fromEpochDay, long toEpochDay) {
+		return scan((columns, from, to) -> {
+			IdSet ids = new IdSet();
+			int[] days = columns.epochDays;
+			long[] customers = columns.customerIds;
+			for (int row = from; row < to; row++) {
+				int day = days[row];
+				if (day >= fromEpochDay && day <= toEpochDay && customers[row] >= 0) {
+					ids.add(customers[row]);
+				}
+			}
+			return ids;
+		}, (first, second) -> {
+			first.addAll(second);
+			return first;
+		});
+	}
+
+	/**
+	 * Counts the orders of each restaurant between two dates.
+	 *
+	 * @param fromEpochDay the first day, included
+	 * @param toEpochDay the last day, included
+	 * @return HashMap <restaurant id, number of orders>
+	 */
+	public Map<Long, Long> getRestaurantCounts(long fromEpochDay, long toEpochDay) {
+		return scan((columns, from, to) -> {
+			Map<Long, Long> counts = new HashMap<Long, Long>();
+			int[] days = columns.epochDays;
+			long[] restaurants = columns.restaurantIds;
+			for (int row = from; row < to; row++) {
+				int day = days[row];
+				if (day >= fromEpochDay && day <= toEpochDay && restaurants[row] >= 0) {
+					counts.merge(restaurants[row], 1L, Long::sum);
+				}
+			}
+			return counts;
+		}, (first, second) -> {
+			second.forEach((restaurant, count) -> first.merge(restaurant, count, Long::sum));
+			return first;
+		});
+	}
+
+	/**
+	 * Counts the orders delivered by each courier between two dates.
+	 *
+	 * @param fromEpochDay the first day, included
+	 * @param toEpochDay the last day, included
+	 * @return HashMap <courier id, number of delivered orders>
+	 */
+	public Map<Long, Long> getCourierCounts(long fromEpochDay, long toEpochDay) {
+		return scan((columns, from, to) -> {
+			Map<Long, Long> counts = new HashMap<Long, Long>();
+			int[] days = columns.epochDays;
+			long[] couriers = columns.courierIds;
+			for (int row = from; row < to; row++) {
+				int day = days[row];
+				if (day >= fromEpochDay && day <= toEpochDay && couriers[row] >= 0) {
+					counts.merge(couriers[row], 1L, Long::sum);
+				}
+			}
+			return counts;
+		}, (first, second) -> {
+			second.forEach((courier, count) -> first.merge(courier, count, Long::sum));
+			return first;
+		});
+	}
+
+	/**
+	 * Counts the orders made at each hour of the day between two dates.
+	 *
+	 * @param fromEpochDay the first day, included
+	 * @param toEpochDay the last day, included
+	 * @return the number of orders of each hour of the day, from 0 to 23
+	 */
+	public long[] getHourCounts(long fromEpochDay, long toEpochDay) {
+		return scan((columns, from, to) -> {
+			long[] counts = new long[24];
+			int[] days = columns.epochDays;
+			byte[] hours = columns.hours;
+			for (int row = from; row < to; row++) {
+				int day = days[row];
+				if (day >= fromEpochDay && day <= toEpochDay) {
+					counts[hours[row]]++;
+				}
+			}
+			return counts;
+		}, (first, second) -> {
+			for (int hour = 0; hour < first.length; hour++) {
+				first[hour] += second[hour];
+			}
+			return first;
+		});
+	}
+
+	/**
+	 * Takes a snapshot of the columns for a scan. Until the scan is released, its rows are
+	 * not written again: the next write to one of them copies the columns first (copy on write).
+	 *
+	 * @return the snapshot
+	 */
+	private synchronized Columns snapshot() {
+		sharedSize = Math.max(sharedSize, size);
+		runningScans++;
+		return new Columns(this);
+	}
+
+	/**
+	 * Releases the snapshot of a finished scan. When no scan is running on the current columns
+	 * anymore, they can be written again without being copied.
+	 *
+	 * @param columns the snapshot
+	 */
+	private synchronized void release(Columns columns) {
+		if (columns.epochDays == epochDays && --runningScans == 0) {
+			sharedSize = 0;
+		}
+	}
+
+	/**
+	 * Runs a scan over a snapshot of the columns, in parallel when it is large.
+	 *
+	 * @param rangeScan the scan of a range of rows
+	 * @param merge the function merging the results of two ranges
+	 * @return the result of the scan
+	 */
+	private <R> R scan(RangeScan<R> rangeScan, BinaryOperator<R> merge) {
+		Columns columns = snapshot();
+		try {
+			if (columns.size <= SCAN_CHUNK) {
+				return rangeScan.scan(columns, 0, columns.size);
+			}
+			return ForkJoinPool.commonPool().invoke(new ScanTask<R>(columns, 0, columns.size, rangeScan, merge));
+		} finally {
+			release(columns);
+		}
+	}
+
+	/**
+	 * Copies the columns into new arrays, which no snapshot has seen yet.
+	 *
+	 * @param capacity the capacity of the new arrays
+	 */
+	private void copyColumns(int capacity) {
+		orderIds = Arrays.copyOf(orderIds, capacity);
+		epochDays = Arrays.copyOf(epochDays, capacity);
+		hours = Arrays.copyOf(hours, capacity);
+		restaurantIds = Arrays.copyOf(restaurantIds, capacity);
+		customerIds = Arrays.copyOf(customerIds, capacity);
+		courierIds = Arrays.copyOf(courierIds, capacity);
+		priceCents = Arrays.copyOf(priceCents, capacity);
+		sharedSize = 0;
+		runningScans = 0;
+	}
+}
@@ -0,0 +1,482 @@
+package system;
+
+import java.time.LocalDate;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import order.CompactOrder;
+import order.Order;
+import user.User;
+
+/**
+ * History of all the orders made using the system.
+ *
+ * The orders still in progress are kept as Order objects. The orders which reached a terminal
+ * state (delivered or cancelled) are converted to CompactOrder, which only holds primitive values,
+ * so far more history fits in the same heap. The dishes, meals and users of the compact orders
+ * are kept once in dictionaries shared by all compact orders.
+ *
+ * The history is a Set of orders: iterating over it expands the compact orders into new Order
+ * objects, equal to the orders they were built from.
+ *
+ * @author Alisson Bonatto
+ */
+public class OrderHistory extends AbstractSet<Order> {
+
+	private Map<Long, Order> liveOrders;         // HashMap <order id, order> of the orders in progress
+	private ArrayList<CompactOrder> compactOrders; // Orders in a terminal state, in the order they reached it
+	private LongIntMap compactRows;              // LongIntMap <order id, index in compactOrders> of the compact orders
+	private Map<Long, User> users;               // HashMap <user id, user> of the users of the compact orders
+	private ArrayList<Object> items;             // Dishes and meals of the compact orders, by item ID
+	private Map<Object, Integer> itemIds;        // IdentityHashMap <dish or meal, item ID>
+	private OrderColumnStore columns;            // Columns of the compact orders, scanned by the analytics
+
+	/**
+	 * Constructs an empty OrderHistory.
+	 */
+	public OrderHistory() {
+		this.liveOrders = new HashMap<Long, Order>();
+		this.compactOrders = new ArrayList<CompactOrder>();
+		this.columns = new OrderColumnStore();
+		this.compactRows = new LongIntMap();
+		this.users = new HashMap<Long, User>();
+		this.items = new ArrayList<Object>();
+		this.itemIds = new IdentityHashMap<Object, Integer>();
+	}
+
+	/**
+	 * Constructs an OrderHistory containing the given orders.
+	 * The orders already in a terminal state are compacted.
+	 *
+	 * @param orders the orders
+	 */
+	public OrderHistory(Collection<Order> orders) {
+		this();
+		addAll(orders);
+	}
+
+	/**
+	 * Adds an order to the history. An order in a terminal state is compacted.
+	 *
+	 * @param order the order
+	 * @return true if the order was not in the history
+	 */
+	@Override
+	public boolean add(Order order) {
+		if (compactRows.containsKey(order.getId())) {
+			return false;
+		}
+		if (order.getStatus().isTerminal()) {
+			liveOrders.remove(order.getId());
+			CompactOrder compactOrder = new CompactOrder(order, this::registerItem);
+			compactRows.put(order.getId(), compactOrders.size());
+			compactOrders.add(compactOrder);
+			columns.add(compactOrder);
+			registerUser(order.getCustomer());
+			registerUser(order.getRestaurant());
+			registerUser(order.getCourier());
+			return true;
+		}
+		return liveOrders.putIfAbsent(order.getId(), order) == null;
+	}
+
+	/**
+	 * Converts an order of the history which reached a terminal state to its compact form.
+	 *
+	 * @param order the order
+	 * @return true if the order was compacted
+	 */
+	public boolean compact(Order order) {
+		if (!order.getStatus().isTerminal() || !liveOrders.containsKey(order.getId())) {
+			return false;
+		}
+		return add(order);
+	}
+
+	/**
+	 * Verifies if an order is in the history.
+	 *
+	 * @param object the order
+	 * @return true if the order is in progress or was compacted
+	 */
+	@Override
+	public boolean contains(Object object) {
+		if (!(object instanceof Order)) {
+			return false;
+		}
+		long id = ((Order) object).getId();
+		return liveOrders.containsKey(id) || compactRows.containsKey(id);
+	}
+
+	/**
+	 * Removes an order from the history.
+	 * The last compact order takes the place of a removed compact order.
+	 *
+	 * @param object the order
+	 * @return true if the order was in the history
+	 */
+	@Override
+	public boolean remove(Object object) {
+		if (!(object instanceof Order)) {
+			return false;
+		}
+		long id = ((Order) object).getId();
+		if (liveOrders.remove(id) != null) {
+			return true;
+		}
+		int row = compactRows.get(id);
+		if (row < 0) {
+			return false;
+		}
+		removeCompactOrder(row);
+		return true;
+	}
+
+	/**
+	 * Removes the compact orders made before a date, for example once they are archived.
+	 * The orders in progress are kept.
+	 *
+	 * @param date the first date kept
+	 * @return the number of orders removed
+	 */
+	public int removeCompactOrdersBefore(LocalDate date) {
+		long epochSecond = date.toEpochDay() * 86400L;
+		int size = compactOrders.size();
+		compactOrders.removeIf(compactOrder -> compactOrder.getEpochSecond() < epochSecond);
+		compactRows.clear();
+		for (int row = 0; row < compactOrders.size(); row++) {
+			compactRows.put(compactOrders.get(row).getId(), row);
+		}
+		columns.removeBefore(date.toEpochDay());
+		return size - compactOrders.size();
+	}
+
+	/**
+	 * Removes all orders from the history.
+	 */
+	@Override
+	public void clear() {
+		liveOrders.clear();
+		compactOrders.clear();
+		compactRows.clear();
+		columns.clear();
+		users.clear();
+		items.clear();
+		itemIds.clear();
+	}
+
+	/**
+	 * Returns the number of orders of the history.
+	 *
+	 * @return the number of orders in progress and compacted
+	 */
+	@Override
+	public int size() {
+		return liveOrders.size() + compactOrders.size();
+	}
+
+	/**
+	 * Returns an iterator over the orders in progress, then over the compact orders
+	 * expanded one at a time.
+	 *
+	 * @return the iterator
+	 */
+	@Override
+	public Iterator<Order> iterator() {
+		return new Iterator<Order>() {
+			private final Iterator<Order> live = liveOrders.values().iterator();
+			private int next = 0;         // Index of the next compact order
+			private boolean lastLive;     // Whether the last order returned was in progress
+			private boolean canRemove;
+
+			@Override
+			public boolean hasNext() {
+				return live.hasNext() || next < compactOrders.size();
+			}
+
+			@Override
+			public Order next() {
+				if (live.hasNext()) {
+					lastLive = true;
+					canRemove = true;
+					return live.next();
+				}
+				if (next >= compactOrders.size()) {
+					throw new NoSuchElementException();
+				}
+				lastLive = false;
+				canRemove = true;
+				return expand(compactOrders.get(next++));
+			}
+
+			@Override
+			public void remove() {
+				if (!canRemove) {
+					throw new IllegalStateException();
+				}
+				canRemove = false;
+				if (lastLive) {
+					live.remove();
+				} else {
+					removeCompactOrder(--next);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns the compact order of the given ID, found by the index of the compact orders.
+	 *
+	 * @param id the ID of the order
+	 * @return the compact order, or null if no order of this ID was compacted
+	 */
+	public CompactOrder getCompactOrder(long id) {
+		int row = compactRows.get(id);
+		return (row < 0) ? null : compactOrders.get(row);
+	}
+
+	/**
+	 * Returns the order of the given ID, expanded if it was compacted.
+	 *
+	 * @param id the ID of the order
+	 * @return the order, or null if it is not in the history
+	 */
+	public Order getOrder(long id) {
+		CompactOrder compactOrder = getCompactOrder(id);
+		if (compactOrder != null) {
+			return expand(compactOrder);
+		}
+		return liveOrders.get(id);
+	}
+
+	/**
+	 * Rebuilds an Order object from a compact order of this history.
+	 *
+	 * @param compactOrder the compact order
+	 * @return the expanded order
+	 */
+	public Order expand(CompactOrder compactOrder) {
+		return compactOrder.toOrder(users::get, items::get);
+	}
+
+	/**
+	 * Returns the orders in progress.
+	 *
+	 * @return unmodifiable collection of the orders in progress
+	 */
+	public Collection<Order> getLiveOrders() {
+		return Collections.unmodifiableCollection(liveOrders.values());
+	}
+
+	/**
+	 * Returns the orders in a terminal state, in their compact form.
+	 *
+	 * @return unmodifiable list of the compact orders, in the order they were compacted, a removed
+	 *         compact order being replaced by the last one
+	 */
+	public List<CompactOrder> getCompactOrders() {
+		return Collections.unmodifiableList(compactOrders);
+	}
+
+	/**
+	 * Returns the orders between two dates, both included, in the order of the iterator.
+	 * The compact orders are filtered and expanded in parallel chunks on the common fork-join pool.
+	 * As in Manager.getOrders, the orders made on one of the two dates are returned even if the
+	 * start date is after the end date.
+	 *
+	 * @param startDate the start date
+	 * @param endDate the end date
+	 * @return the orders, the compact ones expanded
+	 */
+	public ArrayList<Order> getOrders(LocalDate startDate, LocalDate endDate) {
+		long startDay = startDate.toEpochDay();
+		long endDay = endDate.toEpochDay();
+		ArrayList<Order> orders = new ArrayList<Order>();
+		for (Order order : liveOrders.values()) {
+			long day = order.getDate().toEpochDay();
+			if ((day > startDay && day < endDay) || day == startDay || day == endDay) {
+				orders.add(order);
+			}
+		}
+		orders.addAll(ParallelAggregation.aggregate(compactOrders, chunk -> {
+			ArrayList<Order> expanded = new ArrayList<Order>();
+			for (CompactOrder compactOrder : chunk) {
+				long day = Math.floorDiv(compactOrder.getEpochSecond(), 86400L);
+				if ((day > startDay && day < endDay) || day == startDay || day == endDay) {
+					expanded.add(expand(compactOrder));
+				}
+			}
+			return expanded;
+		}, (first, second) -> {
+			first.addAll(second);
+			return first;
+		}));
+		return orders;
+	}
+
+	/**
+	 * Counts the orders between two dates, both included, and sums their prices.
+	 * The compact orders are summed by a scan of the columns, the orders in progress one by one.
+	 * As in Manager.getOrders, the orders made on one of the two dates are counted even if the
+	 * start date is after the end date.
+	 *
+	 * @param startDate the start date
+	 * @param endDate the end date
+	 * @return the number of orders and their total price, in cents
+	 */
+	public OrderColumnStore.Totals getTotals(LocalDate startDate, LocalDate endDate) {
+		OrderColumnStore.Totals totals;
+		if (startDate.isAfter(endDate)) {
+			totals = columns.getTotals(startDate.toEpochDay(), startDate.toEpochDay())
+					.plus(columns.getTotals(endDate.toEpochDay(), endDate.toEpochDay()));
+		} else {
+			totals = columns.getTotals(startDate.toEpochDay(), endDate.toEpochDay());
+		}
+		long count = 0;
+		long priceCents = 0;
+		for (Order order : liveOrders.values()) {
+			LocalDate date = order.getDate();
+			if ((date.isAfter(startDate) && date.isBefore(endDate)) || date.isEqual(startDate) || date.isEqual(endDate)) {
+				count++;
+				priceCents += order.getPrice().getCents();
+			}
+		}
+		return totals.plus(new OrderColumnStore.Totals(count, priceCents));
+	}
+
+	/**
+	 * Finds the customers who made an order strictly between two dates.
+	 *
+	 * @param startDate the start date, excluded
+	 * @param endDate the end date, excluded
+	 * @return the IDs of the customers
+	 */
+	public IdSet getCustomerIds(LocalDate startDate, LocalDate endDate) {
+		IdSet ids = columns.getCustomerIds(startDate.toEpochDay() + 1, endDate.toEpochDay() - 1);
+		for (Order order : liveOrders.values()) {
+			if (order.getCustomer() != null && order.getDate().isAfter(startDate) && order.getDate().isBefore(endDate)) {
+				ids.add(order.getCustomer().getId());
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * Counts the orders of each restaurant between two dates, both included.
+	 *
+	 * @param startDate the start date
+	 * @param endDate the end date
+	 * @return HashMap <restaurant id, number of orders>
+	 */
+	public Map<Long, Long> getRestaurantCounts(LocalDate startDate, LocalDate endDate) {
+		Map<Long, Long> counts = columns.getRestaurantCounts(startDate.toEpochDay(), endDate.toEpochDay());
+		for (Order order : liveOrders.values()) {
+			LocalDate date = order.getDate();
+			if (order.getRestaurant() != null && !date.isBefore(startDate) && !date.isAfter(endDate)) {
+				counts.merge(order.getRestaurant().getId(), 1L, Long::sum);
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Counts the orders delivered by each courier between two dates, both included.
+	 * Only the compact orders are scanned, as the orders in progress are not delivered yet.
+	 *
+	 * @param startDate the start date
+	 * @param endDate the end date
+	 * @return HashMap <courier id, number of delivered orders>
+	 */
+	public Map<Long, Long> getCourierCounts(LocalDate startDate, LocalDate endDate) {
+		return columns.getCourierCounts(startDate.toEpochDay(), endDate.toEpochDay());
+	}
+
+	/**
+	 * Counts the orders made at each hour of the day between two dates, both included.
+	 *
+	 * @param startDate the start date
+	 * @param endDate the end date
+	 * @return the number of orders of each hour of the day, from 0 to 23
+	 */
+	public long[] getHourCounts(LocalDate startDate, LocalDate endDate) {
+		long[] counts = columns.getHourCounts(startDate.toEpochDay(), endDate.toEpochDay());
+		for (Order order : liveOrders.values()) {
+			LocalDate date = order.getDate();
+			if (!date.isBefore(startDate) && !date.isAfter(endDate)) {
+				counts[order.getTime().getHour()]++;
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Returns the user of an ID of a compact order.
+	 *
+	 * @param id the ID of the user
+	 * @return the user, or null if no compact order refers to this ID
+	 */
+	public User getUser(long id) {
+		return users.get(id);
+	}
+
+	/**
+	 * Returns the dish or meal of an item ID of a compact order.
+	 *
+	 * @param itemId the item ID
+	 * @return the dish or meal
+	 */
+	public Object getItem(int itemId) {
+		return items.get(itemId);
+	}
+
+	/**
+	 * Returns the ID of a dish or meal, registering it in the dictionary if needed.
+	 *
+	 * @param item the dish or meal
+	 * @return the item ID
+	 */
+	private int registerItem(Object item) {
+		Integer itemId = itemIds.get(item);
+		if (itemId == null) {
+			itemId = items.size();
+			items.add(item);
+			itemIds.put(item, itemId);
+		}
+		return itemId;
+	}
+
+	/**
+	 * Registers a user of a compact order in the dictionary.
+	 *
+	 * @param user the user, or null
+	 */
+	private void registerUser(User user) {
+		if (user != null) {
+			users.putIfAbsent(user.getId(), user);
+		}
+	}
+
+	/**
+	 * Removes the compact order at the given index, moving the last compact order to this index.
+	 *
+	 * @param index the index of the compact order
+	 */
+	private void removeCompactOrder(int index) {
+		CompactOrder removed = compactOrders.get(index);
+		CompactOrder last = compactOrders.remove(compactOrders.size() - 1);
+		if (last != removed) {
+			compactOrders.set(index, last);
+			compactRows.put(last.getId(), index);
+		}
+		compactRows.remove(removed.getId());
+		columns.remove(removed.getId());
+	}
+}
@@ -0,0 +1,166 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import notification.OrderObserver;
+import order.Order;
+import order.OrderStatus;
+
+/**
+ * Index of the orders of the system by status.
+ * The index observes the orders it contains and moves them from one set to another
+ * on each transition, so the number of orders in a status is read without scanning
+ * the order history and the orders in a status are listed in the order they reached it.
+ *
+ * The orders released once they reached a terminal state, for example when they are
+ * compacted, are still counted but are not listed anymore.
+ *
+ * @author Alisson Bonatto
+ */
+public class OrderStatusIndex implements OrderObserver {
+
+	private Map<OrderStatus, Set<Order>> orders; // EnumMap <status, orders in this status>
+	private int[] releasedCounts;                // Number of orders released, by status ordinal
+
+	/**
+	 * Constructs an empty OrderStatusIndex.
+	 */
+	public OrderStatusIndex() {
+		this.orders = new EnumMap<OrderStatus, Set<Order>>(OrderStatus.class);
+		for (OrderStatus status : OrderStatus.values()) {
+			this.orders.put(status, new LinkedHashSet<Order>());
+		}
+		this.releasedCounts = new int[OrderStatus.values().length];
+	}
+
+	/**
+	 * Constructs an OrderStatusIndex containing the given orders.
+	 *
+	 * @param orders the orders to index
+	 */
+	public OrderStatusIndex(Collection<Order> orders) {
+		this();
+		for (Order order : orders) {
+			add(order);
+		}
+	}
+
+	/**
+	 * Adds an order to the index and starts observing its transitions.
+	 *
+	 * @param order the order
+	 */
+	public synchronized void add(Order order) {
+		if (orders.get(order.getStatus()).add(order)) {
+			order.addObserver(this);
+		}
+	}
+
+	/**
+	 * Removes an order from the index and stops observing it.
+	 *
+	 * @param order the order
+	 * @return true if the order was in the index
+	 */
+	public synchronized boolean remove(Order order) {
+		order.removeObserver(this);
+		return orders.get(order.getStatus()).remove(order);
+	}
+
+	/**
+	 * Stops observing an order in a terminal state and forgets it, while still counting it.
+	 *
+	 * @param order the order
+	 * @return true if the order was released
+	 */
+	public synchronized boolean release(Order order) {
+		if (!order.getStatus().isTerminal() || !orders.get(order.getStatus()).remove(order)) {
+			return false;
+		}
+		order.removeObserver(this);
+		releasedCounts[order.getStatus().ordinal()]++;
+		return true;
+	}
+
+	/**
+	 * Removes all orders from the index and stops observing them.
+	 */
+	public synchronized void clear() {
+		for (Set<Order> statusOrders : orders.values()) {
+			for (Order order : statusOrders) {
+				order.removeObserver(this);
+			}
+			statusOrders.clear();
+		}
+		Arrays.fill(releasedCounts, 0);
+	}
+
+	/**
+	 * Moves an order to the set of its new status.
+	 *
+	 * @param order the order whose status changed
+	 * @param previousStatus the status of the order before the transition
+	 */
+	@Override
+	public synchronized void update(Order order, OrderStatus previousStatus) {
+		if (orders.get(previousStatus).remove(order)) {
+			orders.get(order.getStatus()).add(order);
+		}
+	}
+
+	/**
+	 * Returns the number of orders in a status.
+	 *
+	 * @param status the status
+	 * @return the number of orders
+	 */
+	public synchronized int getCount(OrderStatus status) {
+		return orders.get(status).size() + releasedCounts[status.ordinal()];
+	}
+
+	/**
+	 * Returns the number of orders of every status.
+	 *
+	 * @return EnumMap <status, number of orders>
+	 */
+	public synchronized Map<OrderStatus, Integer> getCounts() {
+		Map<OrderStatus, Integer> counts = new EnumMap<OrderStatus, Integer>(OrderStatus.class);
+		for (Map.Entry<OrderStatus, Set<Order>> entry : orders.entrySet()) {
+			counts.put(entry.getKey(), entry.getValue().size() + releasedCounts[entry.getKey().ordinal()]);
+		}
+		return counts;
+	}
+
+	/**
+	 * Returns the orders in a status, in the order they reached it.
+	 * The orders released are not listed.
+	 *
+	 * @param status the status
+	 * @return a copy of the orders in this status
+	 */
+	public synchronized ArrayList<Order> getOrders(OrderStatus status) {
+		return new ArrayList<Order>(orders.get(status));
+	}
+
+	/**
+	 * Returns the number of orders in the index.
+	 *
+	 * @return the number of orders
+	 */
+	public synchronized int size() {
+		int size = 0;
+		for (Set<Order> statusOrders : orders.values()) {
+			size += statusOrders.size();
+		}
+		for (int releasedCount : releasedCounts) {
+			size += releasedCount;
+		}
+		return size;
+	}
+}
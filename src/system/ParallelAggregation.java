@@ -0,0 +1,79 @@
+package system;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Aggregation of a list split into chunks on the common fork-join pool.
+ *
+ * Each chunk is reduced to a partial aggregate, and the partial aggregates are combined two by two,
+ * the aggregate of the first half of a range always being the first argument of the combination.
+ * A combination keeping the order of its arguments therefore gives the same result as a
+ * sequential aggregation.
+ *
+ * @author Alisson Bonatto
+ */
+public class ParallelAggregation {
+
+	public static final int CHUNK = 4096; // Number of items aggregated by a single fork-join task
+
+	/**
+	 * Private constructor: this class only contains static methods.
+	 */
+	private ParallelAggregation() {
+	}
+
+	/**
+	 * Fork-join task splitting a range of the list into chunks and combining their aggregates.
+	 */
+	private static class AggregateTask<T, R> extends RecursiveTask<R> {
+		private static final long serialVersionUID = 1L;
+
+		private final List<T> items;
+		private final int from;
+		private final int to;
+		private final Function<List<T>, R> partial;
+		private final BinaryOperator<R> combine;
+
+		private AggregateTask(List<T> items, int from, int to, Function<List<T>, R> partial, BinaryOperator<R> combine) {
+			this.items = items;
+			this.from = from;
+			this.to = to;
+			this.partial = partial;
+			this.combine = combine;
+		}
+
+		@Override
+		protected R compute() {
+			if (to - from <= CHUNK) {
+				return partial.apply(items.subList(from, to));
+			}
+			int middle = (from + to) >>> 1;
+			AggregateTask<T, R> left = new AggregateTask<T, R>(items, from, middle, partial, combine);
+			left.fork();
+			R right = new AggregateTask<T, R>(items, middle, to, partial, combine).compute();
+			return combine.apply(left.join(), right);
+		}
+	}
+
+	/**
+	 * Aggregates a list, in parallel when it is larger than a chunk.
+	 * The list must not be modified during the aggregation.
+	 *
+	 * @param <T> the type of the items
+	 * @param <R> the type of the aggregates
+	 * @param items the items
+	 * @param partial computes the aggregate of a chunk of the items
+	 * @param combine combines the aggregates of two consecutive chunks
+	 * @return the aggregate of all the items
+	 */
+	public static <T, R> R aggregate(List<T> items, Function<List<T>, R> partial, BinaryOperator<R> combine) {
+		if (items.size() <= CHUNK) {
+			return partial.apply(items);
+		}
+		return ForkJoinPool.commonPool().invoke(new AggregateTask<T, R>(items, 0, items.size(), partial, combine));
+	}
+}
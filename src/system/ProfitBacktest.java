@@ -0,0 +1,237 @@
+package system;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+import order.CompactOrder;
+import order.Order;
+
+/**
+ * Backtest of profit strategies over the past orders, month by month.
+ *
+ * The orders are read once and summed per month: number of orders, sum and sum of squares of their
+ * prices. A strategy is then replayed on these months: at the start of each month, it computes the
+ * profit data reaching the target profit on the orders of the previous month, and the profit the
+ * orders of the month would have made under this profit data is recorded. The first month is
+ * replayed with the initial profit data.
+ *
+ * Replaying a strategy only reads the monthly sums, so several strategies are replayed in parallel
+ * on the common fork-join pool without reading the orders again.
+ *
+ * @author Alisson Bonatto
+ */
+public class ProfitBacktest {
+
+	private TreeMap<YearMonth, MonthTotals> months; // TreeMap <month, sums of the orders of the month>
+
+	/**
+	 * Sums of the orders of one month.
+	 */
+	private static class MonthTotals {
+		private long count;
+		private long priceCents;
+		private double priceSquares;
+	}
+
+	/**
+	 * Result of one month of a backtest: the profit data applied during the month and the profit made.
+	 */
+	public static class Step {
+		private final YearMonth month;
+		private final ProfitData profitData;
+		private final long orders;
+		private final Money profit;
+
+		/**
+		 * Constructs the result of one month of a backtest.
+		 *
+		 * @param month the month
+		 * @param profitData the profit data applied during the month
+		 * @param orders the number of orders of the month
+		 * @param profit the profit the orders made under the profit data
+		 */
+		public Step(YearMonth month, ProfitData profitData, long orders, Money profit) {
+			this.month = month;
+			this.profitData = profitData;
+			this.orders = orders;
+			this.profit = profit;
+		}
+
+		/**
+		 * Returns the month.
+		 *
+		 * @return the month
+		 */
+		public YearMonth getMonth() {
+			return month;
+		}
+
+		/**
+		 * Returns the profit data applied during the month.
+		 *
+		 * @return the profit data
+		 */
+		public ProfitData getProfitData() {
+			return profitData;
+		}
+
+		/**
+		 * Returns the number of orders of the month.
+		 *
+		 * @return the number of orders
+		 */
+		public long getOrders() {
+			return orders;
+		}
+
+		/**
+		 * Returns the profit the orders of the month made under the profit data.
+		 *
+		 * @return the realized profit
+		 */
+		public Money getProfit() {
+			return profit;
+		}
+
+		/**
+		 * Returns a string representation of this step.
+		 *
+		 * @return string describing the month, its profit data and its profit
+		 */
+		@Override
+		public String toString() {
+			return month + " : " + orders + " orders, markup " + String.format("%.4f", profitData.getMarkupPercentage())
+					+ ", service fee " + profitData.getServiceFee() + ", delivery cost " + profitData.getDeliveryCost()
+					+ ", profit " + profit;
+		}
+	}
+
+	/**
+	 * Constructs a ProfitBacktest without orders.
+	 */
+	public ProfitBacktest() {
+		this.months = new TreeMap<YearMonth, MonthTotals>();
+	}
+
+	/**
+	 * Constructs the ProfitBacktest of all the orders of a system: the orders of the history,
+	 * in progress or compacted, and the orders of the archive.
+	 *
+	 * @param system the MyFoodora system
+	 * @return the backtest of the orders of the system
+	 */
+	public static ProfitBacktest of(MyFoodora system) {
+		ProfitBacktest backtest = new ProfitBacktest();
+		OrderHistory history = system.getOrderHistory();
+		for (Order order : history.getLiveOrders()) {
+			backtest.observe(order);
+		}
+		for (CompactOrder order : history.getCompactOrders()) {
+			backtest.observe(order);
+		}
+		if (system.getOrderArchive() != null) {
+			system.getOrderArchive().forEach(LocalDate.MIN, LocalDate.MAX, backtest::observe);
+		}
+		return backtest;
+	}
+
+	/**
+	 * Adds an order to the sums of its month.
+	 *
+	 * @param order the order
+	 */
+	public void observe(Order order) {
+		if (order.getDate() != null) {
+			observe(order.getDate(), order.getPrice().getCents());
+		}
+	}
+
+	/**
+	 * Adds a compact order to the sums of its month.
+	 *
+	 * @param order the compact order
+	 */
+	public void observe(CompactOrder order) {
+		observe(LocalDate.ofEpochDay(Math.floorDiv(order.getEpochSecond(), 86400L)), order.getPriceCents());
+	}
+
+	/**
+	 * Adds an order to the sums of its month.
+	 *
+	 * @param date the date of the order
+	 * @param priceCents the price of the order, in cents
+	 */
+	public void observe(LocalDate date, long priceCents) {
+		MonthTotals totals = months.computeIfAbsent(YearMonth.from(date), month -> new MonthTotals());
+		totals.count++;
+		totals.priceCents += priceCents;
+		totals.priceSquares += (double) priceCents * priceCents;
+	}
+
+	/**
+	 * Returns the months from the first to the last month with orders.
+	 *
+	 * @return the months, in chronological order
+	 */
+	public List<YearMonth> getMonths() {
+		List<YearMonth> result = new ArrayList<YearMonth>();
+		if (!months.isEmpty()) {
+			for (YearMonth month = months.firstKey(); !month.isAfter(months.lastKey()); month = month.plusMonths(1)) {
+				result.add(month);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Replays a profit strategy over the months of the orders.
+	 *
+	 * @param strategy the profit strategy applied at the start of each month
+	 * @param initial the profit data of the first month
+	 * @param monthlyTargetProfit the profit targeted each month
+	 * @return the profit data and profit of each month, in chronological order
+	 */
+	public List<Step> run(ProfitStrategy strategy, ProfitData initial, Money monthlyTargetProfit) {
+		List<Step> steps = new ArrayList<Step>();
+		ProfitData profitData = initial;
+		ProfitWindow.Totals previousMonth = null;
+		for (YearMonth month : getMonths()) {
+			if (previousMonth != null) {
+				profitData = strategy.getProfitData(profitData, previousMonth, monthlyTargetProfit);
+			}
+			MonthTotals totals = months.get(month);
+			previousMonth = (totals == null) ? new ProfitWindow.Totals(0, 0, 0)
+					: new ProfitWindow.Totals(totals.count, totals.priceCents, totals.priceSquares);
+			Money profit = previousMonth.getTotalPrice().times(profitData.getMarkupPercentage())
+					.plus(profitData.getServiceFee().minus(profitData.getDeliveryCost()).times(previousMonth.getCount()));
+			steps.add(new Step(month, profitData, previousMonth.getCount(), profit));
+		}
+		return steps;
+	}
+
+	/**
+	 * Replays several profit strategies in parallel over the months of the orders.
+	 *
+	 * @param strategies the profit strategies
+	 * @param initial the profit data of the first month
+	 * @param monthlyTargetProfit the profit targeted each month
+	 * @return the steps of each strategy, in the order of the strategies
+	 */
+	public Map<ProfitStrategy, List<Step>> runAll(List<ProfitStrategy> strategies, ProfitData initial, Money monthlyTargetProfit) {
+		List<CompletableFuture<List<Step>>> runs = new ArrayList<CompletableFuture<List<Step>>>();
+		for (ProfitStrategy strategy : strategies) {
+			runs.add(CompletableFuture.supplyAsync(() -> run(strategy, initial, monthlyTargetProfit)));
+		}
+		Map<ProfitStrategy, List<Step>> results = new LinkedHashMap<ProfitStrategy, List<Step>>();
+		for (int i = 0; i < strategies.size(); i++) {
+			results.put(strategies.get(i), runs.get(i).join());
+		}
+		return results;
+	}
+}
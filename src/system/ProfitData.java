@@ -8,8 +8,8 @@ package system;
 public class ProfitData {
 	
     private double markupPercentage;
-    private double serviceFee;
-    private double deliveryCost;
+    private Money serviceFee;
+    private Money deliveryCost;
     
     /**
      * Constructs a ProfitData instance with specified values.
@@ -18,7 +18,7 @@ public class ProfitData {
      * @param serviceFee the service fee
      * @param deliveryCost the delivery cost
      */
-	public ProfitData(double markupPercentage, double serviceFee, double deliveryCost) {
+	public ProfitData(double markupPercentage, Money serviceFee, Money deliveryCost) {
 		this.markupPercentage = markupPercentage;
 		this.serviceFee = serviceFee;
 		this.deliveryCost = deliveryCost;
@@ -29,8 +29,8 @@ public class ProfitData {
 	 */
 	public ProfitData() {
 		this.markupPercentage = 0;
-		this.serviceFee = 0;
-		this.deliveryCost = 0;
+		this.serviceFee = Money.ZERO;
+		this.deliveryCost = Money.ZERO;
 	}
 
 	/**
@@ -56,7 +56,7 @@ public class ProfitData {
 	 * 
 	 * @return the service fee
 	 */
-	public double getServiceFee() {
+	public Money getServiceFee() {
 		return serviceFee;
 	}
 
@@ -65,7 +65,7 @@ public class ProfitData {
 	 * 
 	 * @param serviceFee the service fee to set
 	 */
-	public void setServiceFee(double serviceFee) {
+	public void setServiceFee(Money serviceFee) {
 		this.serviceFee = serviceFee;
 	}
 
@@ -74,7 +74,7 @@ public class ProfitData {
 	 * 
 	 * @return the delivery cost
 	 */
-	public double getDeliveryCost() {
+	public Money getDeliveryCost() {
 		return deliveryCost;
 	}
 
@@ -83,7 +83,7 @@ public class ProfitData {
 	 * 
 	 * @param deliveryCost the delivery cost to set
 	 */
-	public void setDeliveryCost(double deliveryCost) {
+	public void setDeliveryCost(Money deliveryCost) {
 		this.deliveryCost = deliveryCost;
 	}
 
@@ -15,15 +15,35 @@ import order.Order;
  */
 public interface ProfitStrategy {
 	
+	/**
+	 * Calculates and returns updated ProfitData based on given input data,
+	 * the aggregates of the orders of the last month, and a target profit.
+	 * 
+	 * @param profitData the initial profit data
+	 * @param lastMonth the number of orders of the last month and the sums of their prices
+	 * @param targetProfit the desired profit target to reach or consider
+	 * @return updated ProfitData reflecting the strategy's calculations
+	 */
+	public ProfitData getProfitData(ProfitData profitData, ProfitWindow.Totals lastMonth, Money targetProfit);
+	
 	/**
 	 * Calculates and returns updated ProfitData based on given input data,
 	 * previous orders, and a target profit.
+	 * By default, the orders are summed and the aggregates are used.
 	 * 
 	 * @param profitData the initial profit data
 	 * @param lastMonthOrders a set of orders from the last month for analysis
 	 * @param targetProfit the desired profit target to reach or consider
 	 * @return updated ProfitData reflecting the strategy's calculations
 	 */
-	public ProfitData getProfitData(ProfitData profitData, Set<Order> lastMonthOrders, double targetProfit);
-
+	public default ProfitData getProfitData(ProfitData profitData, Set<Order> lastMonthOrders, Money targetProfit) {
+		long priceCents = 0;
+		double priceSquares = 0;
+		for (Order order : lastMonthOrders) {
+			long cents = order.getPrice().getCents();
+			priceCents += cents;
+			priceSquares += (double) cents * cents;
+		}
+		return getProfitData(profitData, new ProfitWindow.Totals(lastMonthOrders.size(), priceCents, priceSquares), targetProfit);
+	}
 }
@@ -0,0 +1,318 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * What-if evaluation of a grid of candidate profit data (markup percentage, service fee and
+ * delivery cost) against the number and total price of past orders.
+ *
+ * For each candidate, the profit is projected as the number of orders times the profit of an order:
+ * average price * markup percentage + service fee - delivery cost. The number of orders is assumed
+ * to fall linearly when the platform takes more on an order (markup and service fee), by the given
+ * elasticity: with an elasticity of 1, taking 10% more of the price of an order loses 10% of the
+ * orders. With an elasticity of 0, the number of orders is the past one.
+ *
+ * The candidates are evaluated in chunks on the common fork-join pool. Each chunk keeps the candidates
+ * which are not beaten on both profit and number of orders by another one of the chunk, and the chunks
+ * are merged two by two, so the Pareto-best candidates are found in the same pass as the profit surface.
+ *
+ * @author Alisson Bonatto
+ */
+public class ProfitSweep {
+
+	private static final int SWEEP_CHUNK = 1 << 12; // Number of candidates evaluated by a single fork-join task
+
+	private final double[] markupPercentages;
+	private final long[] serviceFeeCents;
+	private final long[] deliveryCostCents;
+	private final double elasticity;
+
+	/**
+	 * Projected profit and number of orders of the candidates of a sweep, and its Pareto-best candidates.
+	 */
+	public class Surface {
+		private final long[] profitCents;  // Projected profit of each candidate, in cents
+		private final double[] orders;     // Projected number of orders of each candidate
+		private final int[] paretoFront;   // Pareto-best candidates, by decreasing profit
+
+		private Surface(long[] profitCents, double[] orders, int[] paretoFront) {
+			this.profitCents = profitCents;
+			this.orders = orders;
+			this.paretoFront = paretoFront;
+		}
+
+		/**
+		 * Returns the number of candidates.
+		 *
+		 * @return the number of candidates
+		 */
+		public int size() {
+			return profitCents.length;
+		}
+
+		/**
+		 * Returns a candidate.
+		 *
+		 * @param index the index of the candidate
+		 * @return the profit data of the candidate
+		 */
+		public ProfitData getCandidate(int index) {
+			return ProfitSweep.this.getCandidate(index);
+		}
+
+		/**
+		 * Returns the projected profit of a candidate.
+		 *
+		 * @param index the index of the candidate
+		 * @return the projected profit
+		 */
+		public Money getProfit(int index) {
+			return Money.ofCents(profitCents[index]);
+		}
+
+		/**
+		 * Returns the projected number of orders of a candidate.
+		 *
+		 * @param index the index of the candidate
+		 * @return the projected number of orders
+		 */
+		public double getProjectedOrders(int index) {
+			return orders[index];
+		}
+
+		/**
+		 * Returns the candidate of highest projected profit.
+		 *
+		 * @return the index of the best candidate
+		 */
+		public int getBest() {
+			return paretoFront[0];
+		}
+
+		/**
+		 * Returns the Pareto-best candidates: no other candidate has both a higher projected profit
+		 * and more projected orders.
+		 *
+		 * @return the indexes of the Pareto-best candidates, by decreasing profit
+		 */
+		public List<Integer> getParetoFront() {
+			List<Integer> front = new ArrayList<Integer>(paretoFront.length);
+			for (int index : paretoFront) {
+				front.add(index);
+			}
+			return front;
+		}
+	}
+
+	/**
+	 * Fork-join task evaluating a range of candidates and returning its Pareto-best candidates.
+	 */
+	private class SweepTask extends RecursiveTask<int[]> {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final long[] profitCents;
+		private final double[] orders;
+		private final double averageCents;
+		private final double pastOrders;
+		private final double referenceTake;
+
+		private SweepTask(int from, int to, long[] profitCents, double[] orders, double averageCents, double pastOrders,
+				double referenceTake) {
+			this.from = from;
+			this.to = to;
+			this.profitCents = profitCents;
+			this.orders = orders;
+			this.averageCents = averageCents;
+			this.pastOrders = pastOrders;
+			this.referenceTake = referenceTake;
+		}
+
+		@Override
+		protected int[] compute() {
+			if (to - from <= SWEEP_CHUNK) {
+				return evaluate();
+			}
+			int middle = (from + to) >>> 1;
+			SweepTask left = new SweepTask(from, middle, profitCents, orders, averageCents, pastOrders, referenceTake);
+			left.fork();
+			int[] right = new SweepTask(middle, to, profitCents, orders, averageCents, pastOrders, referenceTake).compute();
+			return mergeFronts(left.join(), right, profitCents, orders);
+		}
+
+		/**
+		 * Evaluates the candidates of the range and returns their Pareto-best candidates.
+		 */
+		private int[] evaluate() {
+			int costs = deliveryCostCents.length;
+			int fees = serviceFeeCents.length;
+			for (int index = from; index < to; index++) {
+				double markup = markupPercentages[index / (fees * costs)];
+				long fee = serviceFeeCents[(index / costs) % fees];
+				long cost = deliveryCostCents[index % costs];
+				double take = averageCents * markup + fee;
+				double projectedOrders = pastOrders;
+				if (elasticity != 0 && averageCents + referenceTake > 0) {
+					projectedOrders *= Math.max(0, 1 - elasticity * (take - referenceTake) / (averageCents + referenceTake));
+				}
+				orders[index] = projectedOrders;
+				profitCents[index] = Math.round(projectedOrders * (take - cost));
+			}
+			Integer[] range = new Integer[to - from];
+			for (int i = 0; i < range.length; i++) {
+				range[i] = from + i;
+			}
+			Arrays.sort(range, byProfit(profitCents, orders));
+			int[] front = new int[range.length];
+			int size = 0;
+			double maxOrders = Double.NEGATIVE_INFINITY;
+			for (int index : range) {
+				if (orders[index] > maxOrders) {
+					front[size++] = index;
+					maxOrders = orders[index];
+				}
+			}
+			return Arrays.copyOf(front, size);
+		}
+	}
+
+	/**
+	 * Constructs a ProfitSweep over all the combinations of the given values.
+	 *
+	 * @param markupPercentages the candidate markup percentages
+	 * @param serviceFees the candidate service fees
+	 * @param deliveryCosts the candidate delivery costs
+	 * @param elasticity the relative loss of orders per relative increase of what the platform takes on an order
+	 */
+	public ProfitSweep(double[] markupPercentages, Money[] serviceFees, Money[] deliveryCosts, double elasticity) {
+		if (markupPercentages.length == 0 || serviceFees.length == 0 || deliveryCosts.length == 0) {
+			throw new IllegalArgumentException("Each parameter needs at least one candidate value.");
+		}
+		if ((long) markupPercentages.length * serviceFees.length * deliveryCosts.length > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many candidates.");
+		}
+		this.markupPercentages = markupPercentages.clone();
+		this.serviceFeeCents = new long[serviceFees.length];
+		for (int i = 0; i < serviceFees.length; i++) {
+			serviceFeeCents[i] = serviceFees[i].getCents();
+		}
+		this.deliveryCostCents = new long[deliveryCosts.length];
+		for (int i = 0; i < deliveryCosts.length; i++) {
+			deliveryCostCents[i] = deliveryCosts[i].getCents();
+		}
+		this.elasticity = elasticity;
+	}
+
+	/**
+	 * Returns a sweep of evenly spaced values between two profit data, bounds included.
+	 *
+	 * @param from the lowest values of the parameters
+	 * @param to the highest values of the parameters
+	 * @param steps the number of values of each parameter, at least 1
+	 * @param elasticity the relative loss of orders per relative increase of what the platform takes on an order
+	 * @return the sweep of the steps^3 combinations
+	 */
+	public static ProfitSweep grid(ProfitData from, ProfitData to, int steps, double elasticity) {
+		if (steps < 1) {
+			throw new IllegalArgumentException("The grid needs at least one step.");
+		}
+		double[] markups = new double[steps];
+		Money[] fees = new Money[steps];
+		Money[] costs = new Money[steps];
+		for (int i = 0; i < steps; i++) {
+			double ratio = (steps == 1) ? 0 : (double) i / (steps - 1);
+			markups[i] = from.getMarkupPercentage() + ratio * (to.getMarkupPercentage() - from.getMarkupPercentage());
+			fees[i] = Money.ofCents(interpolate(from.getServiceFee(), to.getServiceFee(), ratio));
+			costs[i] = Money.ofCents(interpolate(from.getDeliveryCost(), to.getDeliveryCost(), ratio));
+		}
+		return new ProfitSweep(markups, fees, costs, elasticity);
+	}
+
+	/**
+	 * Returns the number of candidates.
+	 *
+	 * @return the number of combinations of the values
+	 */
+	public int size() {
+		return markupPercentages.length * serviceFeeCents.length * deliveryCostCents.length;
+	}
+
+	/**
+	 * Returns a candidate.
+	 *
+	 * @param index the index of the candidate
+	 * @return the profit data of the candidate
+	 */
+	public ProfitData getCandidate(int index) {
+		int costs = deliveryCostCents.length;
+		int fees = serviceFeeCents.length;
+		return new ProfitData(markupPercentages[index / (fees * costs)], Money.ofCents(serviceFeeCents[(index / costs) % fees]),
+				Money.ofCents(deliveryCostCents[index % costs]));
+	}
+
+	/**
+	 * Evaluates all the candidates against past orders.
+	 *
+	 * @param history the number and total price of the past orders
+	 * @param reference the profit data under which the past orders were made
+	 * @return the projected profit surface and the Pareto-best candidates
+	 */
+	public Surface evaluate(OrderColumnStore.Totals history, ProfitData reference) {
+		int size = size();
+		long[] profitCents = new long[size];
+		double[] orders = new double[size];
+		double averageCents = (history.getCount() == 0) ? 0 : (double) history.getPriceCents() / history.getCount();
+		double referenceTake = averageCents * reference.getMarkupPercentage() + reference.getServiceFee().getCents();
+		int[] front = ForkJoinPool.commonPool().invoke(
+				new SweepTask(0, size, profitCents, orders, averageCents, history.getCount(), referenceTake));
+		return new Surface(profitCents, orders, front);
+	}
+
+	/**
+	 * Merges the Pareto-best candidates of two ranges.
+	 */
+	private static int[] mergeFronts(int[] left, int[] right, long[] profitCents, double[] orders) {
+		Comparator<Integer> order = byProfit(profitCents, orders);
+		int[] front = new int[left.length + right.length];
+		int size = 0;
+		int i = 0;
+		int j = 0;
+		double maxOrders = Double.NEGATIVE_INFINITY;
+		while (i < left.length || j < right.length) {
+			int index;
+			if (j == right.length || (i < left.length && order.compare(left[i], right[j]) <= 0)) {
+				index = left[i++];
+			} else {
+				index = right[j++];
+			}
+			if (orders[index] > maxOrders) {
+				front[size++] = index;
+				maxOrders = orders[index];
+			}
+		}
+		return Arrays.copyOf(front, size);
+	}
+
+	/**
+	 * Orders the candidates by decreasing profit, then by decreasing number of orders.
+	 */
+	private static Comparator<Integer> byProfit(long[] profitCents, double[] orders) {
+		return (a, b) -> {
+			int compare = Long.compare(profitCents[b], profitCents[a]);
+			return (compare != 0) ? compare : Double.compare(orders[b], orders[a]);
+		};
+	}
+
+	/**
+	 * Returns the amount at the given ratio between two amounts, in cents.
+	 */
+	private static long interpolate(Money from, Money to, double ratio) {
+		return from.getCents() + Math.round(ratio * (to.getCents() - from.getCents()));
+	}
+}
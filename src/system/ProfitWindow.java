@@ -0,0 +1,266 @@
+package system;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+import order.Order;
+
+/**
+ * Sliding window of the orders of the last days, used to update the profit data from a target profit.
+ *
+ * The window keeps, for each of its days, the number of orders, the sum of their prices and the sum
+ * of the squares of their prices, and the totals of all its days. An order is added to the bucket of
+ * its day and to the totals; when the window moves to a new day, the buckets of the days which left
+ * the window are subtracted from the totals. Reading the aggregates of the last days therefore costs
+ * the same whatever the number of orders, instead of a scan of the history.
+ *
+ * The window covers the given number of full days before the current day. The orders of the current
+ * day are kept in their own bucket until the day is over. Orders older than the window are ignored.
+ *
+ * @author Alisson Bonatto
+ */
+public class ProfitWindow {
+
+	private final int days;          // Number of full days of the window
+	private final long[] bucketDays; // Epoch day of each bucket, Long.MIN_VALUE if the bucket is empty
+	private final long[] counts;     // Number of orders of each bucket
+	private final long[] sumCents;   // Sum of the prices of each bucket, in cents
+	private final double[] sumSquares; // Sum of the squares of the prices of each bucket, in cents squared
+	private long latestDay;          // Most recent epoch day seen
+	private long totalCount;         // Number of orders of all the buckets
+	private long totalCents;         // Sum of the prices of all the buckets, in cents
+	private double totalSquares;     // Sum of the squares of the prices of all the buckets
+
+	/**
+	 * Aggregates of the orders of the window: number of orders, sum and sum of squares of their prices.
+	 */
+	public static class Totals {
+		private final long count;
+		private final long priceCents;
+		private final double priceSquares;
+
+		/**
+		 * Constructs the aggregates of a set of orders.
+		 *
+		 * @param count the number of orders
+		 * @param priceCents the total price of the orders, in cents
+		 * @param priceSquares the sum of the squares of the prices, in cents squared
+		 */
+		public Totals(long count, long priceCents, double priceSquares) {
+			this.count = count;
+			this.priceCents = priceCents;
+			this.priceSquares = priceSquares;
+		}
+
+		/**
+		 * Returns the number of orders.
+		 *
+		 * @return the number of orders
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Returns the total price of the orders.
+		 *
+		 * @return the total price
+		 */
+		public Money getTotalPrice() {
+			return Money.ofCents(priceCents);
+		}
+
+		/**
+		 * Returns the average price of the orders.
+		 *
+		 * @return the average price, 0 if there is no order
+		 */
+		public double getAveragePrice() {
+			return (count == 0) ? 0 : priceCents / 100.0 / count;
+		}
+
+		/**
+		 * Returns the variance of the prices of the orders.
+		 *
+		 * @return the variance of the prices, 0 if there is no order
+		 */
+		public double getPriceVariance() {
+			if (count == 0) {
+				return 0;
+			}
+			double mean = (double) priceCents / count;
+			return Math.max(0, priceSquares / count - mean * mean) / 10000;
+		}
+	}
+
+	/**
+	 * Constructs an empty ProfitWindow.
+	 *
+	 * @param days the number of full days of the window, at least 1
+	 */
+	public ProfitWindow(int days) {
+		if (days < 1) {
+			throw new IllegalArgumentException("The window must cover at least one day.");
+		}
+		this.days = days;
+		// One more bucket than the window, for the current day
+		this.bucketDays = new long[days + 1];
+		this.counts = new long[days + 1];
+		this.sumCents = new long[days + 1];
+		this.sumSquares = new double[days + 1];
+		clear();
+	}
+
+	/**
+	 * Adds an order to the window.
+	 *
+	 * @param order the order
+	 */
+	public void observe(Order order) {
+		if (order.getDate() != null) {
+			observe(order.getDate(), order.getPrice());
+		}
+	}
+
+	/**
+	 * Adds an order to the window.
+	 *
+	 * @param date the date of the order
+	 * @param price the price of the order
+	 */
+	public synchronized void observe(LocalDate date, Money price) {
+		long day = date.toEpochDay();
+		advance(day);
+		if (day < latestDay - days) {
+			return; // Older than the window
+		}
+		int bucket = bucketOf(day);
+		if (bucketDays[bucket] != day) {
+			expire(bucket);
+			bucketDays[bucket] = day;
+		}
+		long cents = price.getCents();
+		double square = (double) cents * cents;
+		counts[bucket]++;
+		sumCents[bucket] += cents;
+		sumSquares[bucket] += square;
+		totalCount++;
+		totalCents += cents;
+		totalSquares += square;
+	}
+
+	/**
+	 * Replaces the content of the window by the given orders.
+	 *
+	 * @param orders the orders
+	 */
+	public synchronized void rebuild(Collection<Order> orders) {
+		clear();
+		// Moving to the most recent day first, so the order of the orders does not matter
+		for (Order order : orders) {
+			if (order.getDate() != null) {
+				advance(order.getDate().toEpochDay());
+			}
+		}
+		for (Order order : orders) {
+			observe(order);
+		}
+	}
+
+	/**
+	 * Returns the aggregates of the orders of the full days before the given day.
+	 *
+	 * @param today the current day
+	 * @return the number of orders of the window and the sum and sum of squares of their prices
+	 */
+	public synchronized Totals getTotals(LocalDate today) {
+		long day = today.toEpochDay();
+		advance(day);
+		if (day < latestDay) {
+			// Past day: the buckets between it and the latest day are not part of its window
+			long count = 0;
+			long cents = 0;
+			double squares = 0;
+			for (int bucket = 0; bucket < bucketDays.length; bucket++) {
+				if (bucketDays[bucket] >= day - days && bucketDays[bucket] < day) {
+					count += counts[bucket];
+					cents += sumCents[bucket];
+					squares += sumSquares[bucket];
+				}
+			}
+			return new Totals(count, cents, squares);
+		}
+		int current = bucketOf(day);
+		if (bucketDays[current] != day) {
+			return new Totals(totalCount, totalCents, totalSquares);
+		}
+		return new Totals(totalCount - counts[current], totalCents - sumCents[current], totalSquares - sumSquares[current]);
+	}
+
+	/**
+	 * Returns the number of full days of the window.
+	 *
+	 * @return the number of days
+	 */
+	public int getDays() {
+		return days;
+	}
+
+	/**
+	 * Removes all the orders from the window.
+	 */
+	public synchronized void clear() {
+		for (int bucket = 0; bucket < bucketDays.length; bucket++) {
+			bucketDays[bucket] = Long.MIN_VALUE;
+			counts[bucket] = 0;
+			sumCents[bucket] = 0;
+			sumSquares[bucket] = 0;
+		}
+		this.latestDay = Long.MIN_VALUE;
+		this.totalCount = 0;
+		this.totalCents = 0;
+		this.totalSquares = 0;
+	}
+
+	/**
+	 * Moves the window to a new day, expiring the buckets of the days which left it.
+	 */
+	private void advance(long day) {
+		if (day <= latestDay) {
+			return;
+		}
+		if (latestDay != Long.MIN_VALUE && day - latestDay <= days) {
+			for (long expired = latestDay - days; expired < day - days; expired++) {
+				expire(bucketOf(expired));
+			}
+		} else {
+			for (int bucket = 0; bucket < bucketDays.length; bucket++) {
+				expire(bucket);
+			}
+		}
+		latestDay = day;
+	}
+
+	/**
+	 * Subtracts a bucket from the totals and empties it.
+	 */
+	private void expire(int bucket) {
+		if (bucketDays[bucket] == Long.MIN_VALUE) {
+			return;
+		}
+		totalCount -= counts[bucket];
+		totalCents -= sumCents[bucket];
+		totalSquares -= sumSquares[bucket];
+		bucketDays[bucket] = Long.MIN_VALUE;
+		counts[bucket] = 0;
+		sumCents[bucket] = 0;
+		sumSquares[bucket] = 0;
+	}
+
+	/**
+	 * Returns the bucket of an epoch day.
+	 */
+	private int bucketOf(long day) {
+		return (int) Math.floorMod(day, (long) bucketDays.length);
+	}
+}
@@ -0,0 +1,136 @@
+package system;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the reports of the managers, keyed by the report and its arguments.
+ *
+ * Each entry is tagged with the mutation epoch of the system when it was computed. The system
+ * moves its epoch forward each time an order or a user changes, so an entry is served as long as
+ * the epoch has not moved, and computed again otherwise. The cache keeps at most a given number of
+ * entries, the least recently used entry being evicted first.
+ *
+ * A cached report is shared by all its readers and must not be modified.
+ *
+ * @author Alisson Bonatto
+ */
+public class ReportCache {
+
+	private final int capacity;               // Maximum number of entries
+	private final LinkedHashMap<String, Entry> entries; // LinkedHashMap <report and arguments, entry>, in access order
+	private long hits;
+	private long misses;
+
+	/**
+	 * A report and the epoch it was computed at.
+	 */
+	private static class Entry {
+		private final long epoch;
+		private final Object report;
+
+		private Entry(long epoch, Object report) {
+			this.epoch = epoch;
+			this.report = report;
+		}
+	}
+
+	/**
+	 * Constructs an empty ReportCache.
+	 *
+	 * @param capacity the maximum number of reports kept
+	 */
+	public ReportCache(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The capacity of the report cache must be positive.");
+		}
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > ReportCache.this.capacity;
+			}
+		};
+	}
+
+	/**
+	 * Returns a report computed at the given epoch, computing it if it is not cached or if it was
+	 * computed at another epoch. The report is computed outside of the lock of the cache, so a long
+	 * report does not block the other reports.
+	 *
+	 * @param <T> the type of the report
+	 * @param report the name of the report
+	 * @param epoch the current mutation epoch of the system
+	 * @param compute computes the report
+	 * @param arguments the arguments of the report
+	 * @return the report
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(String report, long epoch, Supplier<T> compute, Object... arguments) {
+		String key = report + Arrays.toString(arguments);
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (entry != null && entry.epoch == epoch) {
+				hits++;
+				return (T) entry.report;
+			}
+			misses++;
+		}
+		T result = compute.get();
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			// A report of a later epoch may have been put meanwhile
+			if (entry == null || entry.epoch <= epoch) {
+				entries.put(key, new Entry(epoch, result));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of reports kept.
+	 *
+	 * @return the number of entries
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the maximum number of reports kept.
+	 *
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of reports served from the cache.
+	 *
+	 * @return the number of hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of reports computed.
+	 *
+	 * @return the number of misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Removes all the reports from the cache.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+}
@@ -0,0 +1,202 @@
+package system;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import order.Order;
+import user.Restaurant;
+
+/**
+ * Profit and loss of each restaurant, per day, kept up to date as the orders are made.
+ *
+ * For each restaurant and each day with orders, the view keeps the number of orders and their gross
+ * price. The markup revenue, the service fees and the delivery cost of the platform are computed from
+ * them with the profit data given to the query, as in Manager.computeTotalProfit, so the same orders
+ * always have the same value whatever the profit data was when they were made. A breakdown over a date
+ * range reads the days of the range of each restaurant, so its cost depends on the number of
+ * restaurants and of days, not on the number of orders.
+ *
+ * @author Alisson Bonatto
+ */
+public class RestaurantProfitView {
+
+	// Indexes of the sums of a day
+	private static final int COUNT = 0;
+	private static final int GROSS = 1;
+
+	private Map<Restaurant, TreeMap<Long, long[]>> restaurants; // HashMap <restaurant, TreeMap <epoch day, sums of the day>>
+
+	/**
+	 * Profit and loss statement of a restaurant over a date range.
+	 */
+	public static class Statement {
+		private final long[] sums;
+		private final ProfitData profitData;
+
+		private Statement(long[] sums, ProfitData profitData) {
+			this.sums = sums;
+			this.profitData = profitData;
+		}
+
+		/**
+		 * Returns the number of orders.
+		 *
+		 * @return the number of orders
+		 */
+		public long getOrders() {
+			return sums[COUNT];
+		}
+
+		/**
+		 * Returns the total price of the orders.
+		 *
+		 * @return the gross price
+		 */
+		public Money getGross() {
+			return Money.ofCents(sums[GROSS]);
+		}
+
+		/**
+		 * Returns the markup taken by the platform on the orders.
+		 *
+		 * @return the markup revenue
+		 */
+		public Money getMarkupRevenue() {
+			return getGross().times(profitData.getMarkupPercentage());
+		}
+
+		/**
+		 * Returns the service fees of the orders.
+		 *
+		 * @return the service fees
+		 */
+		public Money getServiceFees() {
+			return profitData.getServiceFee().times(sums[COUNT]);
+		}
+
+		/**
+		 * Returns the delivery cost of the orders.
+		 *
+		 * @return the delivery cost
+		 */
+		public Money getDeliveryCost() {
+			return profitData.getDeliveryCost().times(sums[COUNT]);
+		}
+
+		/**
+		 * Returns the profit of the platform on the orders: markup revenue plus service fees minus delivery cost.
+		 *
+		 * @return the profit
+		 */
+		public Money getProfit() {
+			return getMarkupRevenue().plus(getServiceFees()).minus(getDeliveryCost());
+		}
+
+		/**
+		 * Returns a string representation of this statement.
+		 *
+		 * @return string describing the orders, gross, revenues, cost and profit
+		 */
+		@Override
+		public String toString() {
+			return getOrders() + " orders, gross " + getGross() + ", markup " + getMarkupRevenue() + ", service fees "
+					+ getServiceFees() + ", delivery cost " + getDeliveryCost() + ", profit " + getProfit();
+		}
+	}
+
+	/**
+	 * Constructs an empty RestaurantProfitView.
+	 */
+	public RestaurantProfitView() {
+		this.restaurants = new HashMap<Restaurant, TreeMap<Long, long[]>>();
+	}
+
+	/**
+	 * Adds an order to the day of its restaurant.
+	 *
+	 * @param order the order
+	 */
+	public synchronized void observe(Order order) {
+		if (order.getRestaurant() == null || order.getDate() == null) {
+			return;
+		}
+		long[] day = restaurants.computeIfAbsent(order.getRestaurant(), restaurant -> new TreeMap<Long, long[]>())
+				.computeIfAbsent(order.getDate().toEpochDay(), epochDay -> new long[2]);
+		day[COUNT]++;
+		day[GROSS] += order.getPrice().getCents();
+	}
+
+	/**
+	 * Replaces the content of the view by the given orders.
+	 *
+	 * @param orders the orders
+	 */
+	public synchronized void rebuild(Collection<Order> orders) {
+		restaurants.clear();
+		for (Order order : orders) {
+			observe(order);
+		}
+	}
+
+	/**
+	 * Returns the statement of each restaurant with orders between two dates, both included.
+	 *
+	 * @param startDate the start date
+	 * @param endDate the end date
+	 * @param profitData the profit data applied to the orders
+	 * @return HashMap <restaurant, statement of its orders of the range>
+	 */
+	public synchronized Map<Restaurant, Statement> getStatements(LocalDate startDate, LocalDate endDate, ProfitData profitData) {
+		Map<Restaurant, Statement> statements = new HashMap<Restaurant, Statement>();
+		if (startDate.isAfter(endDate)) {
+			return statements;
+		}
+		for (Map.Entry<Restaurant, TreeMap<Long, long[]>> restaurant : restaurants.entrySet()) {
+			long[] sums = sum(restaurant.getValue().subMap(startDate.toEpochDay(), true, endDate.toEpochDay(), true));
+			if (sums[COUNT] > 0) {
+				statements.put(restaurant.getKey(), new Statement(sums, profitData));
+			}
+		}
+		return statements;
+	}
+
+	/**
+	 * Returns the statement of one restaurant between two dates, both included.
+	 *
+	 * @param restaurant the restaurant
+	 * @param startDate the start date
+	 * @param endDate the end date
+	 * @param profitData the profit data applied to the orders
+	 * @return the statement of the orders of the restaurant, with zero orders if it has none in the range
+	 */
+	public synchronized Statement getStatement(Restaurant restaurant, LocalDate startDate, LocalDate endDate, ProfitData profitData) {
+		TreeMap<Long, long[]> days = restaurants.get(restaurant);
+		if (days == null || startDate.isAfter(endDate)) {
+			return new Statement(new long[2], profitData);
+		}
+		return new Statement(sum(days.subMap(startDate.toEpochDay(), true, endDate.toEpochDay(), true)), profitData);
+	}
+
+	/**
+	 * Removes all the orders from the view.
+	 */
+	public synchronized void clear() {
+		restaurants.clear();
+	}
+
+	/**
+	 * Sums the days of a range.
+	 */
+	private static long[] sum(Map<Long, long[]> days) {
+		long[] sums = new long[2];
+		for (long[] day : days.values()) {
+			for (int i = 0; i < sums.length; i++) {
+				sums[i] += day[i];
+			}
+		}
+		return sums;
+	}
+}
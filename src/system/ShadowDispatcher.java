@@ -0,0 +1,307 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import user.Courier;
+import user.Customer;
+import user.Location;
+import user.Restaurant;
+
+/**
+ * Evaluates alternative delivery strategies on the real orders without using their selection.
+ * For each order, the live selection is recorded and the shadow strategies select couriers
+ * on a background thread, so the placement of the order is not slowed down.
+ * The metrics of the live strategy and of each shadow strategy can then be compared.
+ *
+ * The columns of the position store of the system are copied on the dispatching thread before
+ * the live selection, which only costs a few array copies, so the live and shadow strategies are
+ * measured on the same state and the background thread never reads the couriers while they change.
+ * The shadow strategies must read the couriers through the copied position store they are given:
+ * the strategies of the system all have a selection working on the store only.
+ *
+ * If the background thread falls behind, the orders exceeding its queue are dropped
+ * and counted instead of delaying the orders placed.
+ *
+ * @author Alisson Bonatto
+ */
+public class ShadowDispatcher {
+
+	private static final int MAX_QUEUED_ORDERS = 1024;
+
+	private List<DeliveryStrategy> strategies;                  // Shadow strategies, in the order they were added
+	private Map<DeliveryStrategy, ShadowMetrics> metrics;       // ConcurrentHashMap <shadow strategy, metrics>
+	private ShadowMetrics liveMetrics;                          // Metrics of the live selections
+	private AtomicLong droppedOrders;                           // Orders not evaluated because the queue was full
+	private ThreadPoolExecutor executor;                        // Background thread, created with the first shadow strategy
+
+	/**
+	 * Constructs a ShadowDispatcher without shadow strategies.
+	 */
+	public ShadowDispatcher() {
+		this.strategies = new CopyOnWriteArrayList<DeliveryStrategy>();
+		this.metrics = new ConcurrentHashMap<DeliveryStrategy, ShadowMetrics>();
+		this.liveMetrics = new ShadowMetrics("live");
+		this.droppedOrders = new AtomicLong();
+		this.executor = null;
+	}
+
+	/**
+	 * Adds a shadow strategy. Its metrics start empty.
+	 *
+	 * @param strategy the strategy to evaluate
+	 */
+	public synchronized void addStrategy(DeliveryStrategy strategy) {
+		if (metrics.containsKey(strategy)) {
+			return;
+		}
+		if (executor == null || executor.isShutdown()) {
+			executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(MAX_QUEUED_ORDERS),
+					runnable -> {
+						Thread thread = new Thread(runnable, "shadow-dispatcher");
+						thread.setDaemon(true);
+						return thread;
+					},
+					(runnable, pool) -> droppedOrders.incrementAndGet());
+		}
+		metrics.put(strategy, new ShadowMetrics(strategy.getClass().getSimpleName()));
+		strategies.add(strategy);
+	}
+
+	/**
+	 * Removes all the shadow strategies and their metrics and stops the background thread.
+	 */
+	public synchronized void clearStrategies() {
+		strategies.clear();
+		metrics.clear();
+		liveMetrics = new ShadowMetrics("live");
+		droppedOrders.set(0);
+		if (executor != null) {
+			executor.shutdown();
+			executor = null;
+		}
+	}
+
+	/**
+	 * Returns whether shadow strategies are evaluated.
+	 *
+	 * @return true if there is at least one shadow strategy
+	 */
+	public boolean hasStrategies() {
+		return !strategies.isEmpty();
+	}
+
+	/**
+	 * Returns the shadow strategies.
+	 *
+	 * @return the shadow strategies, in the order they were added
+	 */
+	public List<DeliveryStrategy> getStrategies() {
+		return new ArrayList<DeliveryStrategy>(strategies);
+	}
+
+	/**
+	 * Returns the metrics of the live strategy.
+	 *
+	 * @return the live metrics
+	 */
+	public ShadowMetrics getLiveMetrics() {
+		return liveMetrics;
+	}
+
+	/**
+	 * Returns the metrics of a shadow strategy.
+	 *
+	 * @param strategy the shadow strategy
+	 * @return the metrics of the strategy, or null if it is not a shadow strategy
+	 */
+	public ShadowMetrics getMetrics(DeliveryStrategy strategy) {
+		return metrics.get(strategy);
+	}
+
+	/**
+	 * Returns the metrics of the live strategy followed by the metrics of the shadow strategies.
+	 *
+	 * @return all the metrics
+	 */
+	public List<ShadowMetrics> getAllMetrics() {
+		List<ShadowMetrics> allMetrics = new ArrayList<ShadowMetrics>();
+		allMetrics.add(liveMetrics);
+		for (DeliveryStrategy strategy : strategies) {
+			ShadowMetrics strategyMetrics = metrics.get(strategy);
+			if (strategyMetrics != null) {
+				allMetrics.add(strategyMetrics);
+			}
+		}
+		return allMetrics;
+	}
+
+	/**
+	 * Returns the number of orders not evaluated because the background thread fell behind.
+	 *
+	 * @return the number of dropped orders
+	 */
+	public long getDroppedOrders() {
+		return droppedOrders.get();
+	}
+
+	/**
+	 * Copies the positions, duty status and workloads of the couriers, on the dispatching thread
+	 * and before the live selection changes the courier it selects.
+	 *
+	 * @param positions the position store of the system
+	 * @return the copy of the store, or null if there is no shadow strategy
+	 */
+	public CourierPositionStore snapshot(CourierPositionStore positions) {
+		if (strategies.isEmpty() || this.executor == null) {
+			return null;
+		}
+		return positions.copy();
+	}
+
+	/**
+	 * Records the live selection of an order and evaluates the shadow strategies on the background thread.
+	 * The couriers are only read from the snapshot, which is not changed once given to this method;
+	 * nothing is done without a snapshot.
+	 *
+	 * @param snapshot the copy of the couriers taken before the live selection, or null
+	 * @param restaurant the restaurant from which the order is picked up
+	 * @param customer the customer who will receive the order
+	 * @param liveCouriers the couriers selected by the live strategy, or null if none was found
+	 * @param liveNanos the time spent by the live selection
+	 */
+	public void dispatch(final CourierPositionStore snapshot, final Restaurant restaurant, final Customer customer,
+			ArrayList<Courier> liveCouriers, final long liveNanos) {
+		ThreadPoolExecutor currentExecutor = this.executor;
+		if (snapshot == null || currentExecutor == null) {
+			return;
+		}
+		final Courier liveCourier = (liveCouriers == null || liveCouriers.isEmpty()) ? null : liveCouriers.get(0);
+		final Location restaurantLocation = restaurant.getLocation();
+
+		try {
+			currentExecutor.execute(() -> {
+				int liveSlot = (liveCourier == null) ? -1 : snapshot.getSlot(liveCourier);
+				if (liveSlot < 0) {
+					liveMetrics.recordMiss(liveNanos);
+				}
+				else {
+					liveMetrics.recordSelection(distance(snapshot, liveSlot, restaurantLocation), snapshot.getDeliveryCount(liveSlot),
+							snapshot.getPendingOfferCount(liveSlot), true, liveNanos);
+				}
+				evaluate(snapshot, restaurant, restaurantLocation, customer, liveCourier);
+			});
+		} catch (RejectedExecutionException e) {
+			// The shadow strategies were cleared in the meantime
+		}
+	}
+
+	/**
+	 * Waits until the orders already dispatched are evaluated.
+	 *
+	 * @param timeoutMillis the maximum time to wait, in milliseconds
+	 * @return true if all the orders dispatched were evaluated in time
+	 */
+	public boolean awaitIdle(long timeoutMillis) {
+		ThreadPoolExecutor currentExecutor = this.executor;
+		if (currentExecutor == null) {
+			return true;
+		}
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		while (System.currentTimeMillis() < deadline) {
+			try {
+				Future<?> marker = currentExecutor.submit(() -> { });
+				marker.get(Math.max(1, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+				return true;
+			} catch (RejectedExecutionException e) {
+				// The queue is full: waits for the background thread to catch up
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			} catch (ExecutionException | TimeoutException e) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Runs every shadow strategy on the copy of the couriers. Runs on the background thread.
+	 *
+	 * @param snapshot the copy of the couriers
+	 * @param restaurant the restaurant from which the order is picked up
+	 * @param restaurantLocation the location of the restaurant when the order was dispatched
+	 * @param customer the customer who will receive the order
+	 * @param liveCourier the first courier selected by the live strategy, or null
+	 */
+	private void evaluate(CourierPositionStore snapshot, Restaurant restaurant, Location restaurantLocation,
+			Customer customer, Courier liveCourier) {
+		Set<Courier> couriers = new HashSet<Courier>();
+		for (int slot = 0; slot < snapshot.size(); slot++) {
+			couriers.add(snapshot.getCourier(slot));
+		}
+
+		for (DeliveryStrategy strategy : strategies) {
+			ShadowMetrics strategyMetrics = metrics.get(strategy);
+			if (strategyMetrics == null) {
+				continue;
+			}
+			long start = System.nanoTime();
+			ArrayList<Courier> selectedCouriers;
+			try {
+				selectedCouriers = strategy.selectCourier(snapshot, couriers, restaurant, customer);
+			} catch (RuntimeException e) {
+				selectedCouriers = null;
+			}
+			long nanos = System.nanoTime() - start;
+
+			if (selectedCouriers == null || selectedCouriers.isEmpty()) {
+				strategyMetrics.recordMiss(nanos);
+			}
+			else {
+				Courier courier = selectedCouriers.get(0);
+				int slot = snapshot.getSlot(courier);
+				if (slot < 0) {
+					strategyMetrics.recordMiss(nanos);
+				}
+				else {
+					strategyMetrics.recordSelection(distance(snapshot, slot, restaurantLocation), snapshot.getDeliveryCount(slot),
+							snapshot.getPendingOfferCount(slot), courier == liveCourier, nanos);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the distance between a copied courier and a restaurant.
+	 *
+	 * @param snapshot the copy of the couriers
+	 * @param slot the slot of the courier in the copy
+	 * @param restaurantLocation the location of the restaurant
+	 * @return the distance, or 0 if the courier has no position
+	 */
+	private static double distance(CourierPositionStore snapshot, int slot, Location restaurantLocation) {
+		double px = snapshot.getX(slot);
+		double py = snapshot.getY(slot);
+		return (Double.isNaN(px) || Double.isNaN(py)) ? 0 : new Location(px, py).distanceTo(restaurantLocation);
+	}
+}
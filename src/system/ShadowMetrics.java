@@ -0,0 +1,149 @@
+package system;
+
+/**
+ * Metrics of the selections made by a delivery strategy, live or in shadow mode.
+ * For each order, the first courier selected is the one the order would be offered to;
+ * its distance to the restaurant and its workload are accumulated.
+ *
+ * The metrics are written by the shadow dispatch thread and may be read by any thread.
+ *
+ * @author Alisson Bonatto
+ */
+public class ShadowMetrics {
+
+	private String strategyName;     // Name of the strategy measured
+	private long orders;             // Number of orders evaluated
+	private long misses;             // Number of orders for which no courier was selected
+	private long agreements;         // Number of orders offered first to the same courier as the live strategy
+	private double totalDistance;    // Sum of the distances between the first courier and the restaurant
+	private long totalDeliveries;    // Sum of the delivery counters of the first couriers
+	private long totalPendingOffers; // Sum of the pending offers of the first couriers
+	private long totalNanos;         // Time spent selecting the couriers
+
+	/**
+	 * Constructs empty metrics for a strategy.
+	 *
+	 * @param strategyName the name of the strategy
+	 */
+	public ShadowMetrics(String strategyName) {
+		this.strategyName = strategyName;
+	}
+
+	/**
+	 * Records a selection for which at least one courier was found.
+	 *
+	 * @param distance the distance between the first courier and the restaurant
+	 * @param deliveries the delivery counter of the first courier
+	 * @param pendingOffers the pending offers of the first courier
+	 * @param agreesWithLive true if the first courier is the one chosen by the live strategy
+	 * @param nanos the time spent selecting the couriers
+	 */
+	public synchronized void recordSelection(double distance, int deliveries, int pendingOffers, boolean agreesWithLive, long nanos) {
+		orders++;
+		totalDistance += distance;
+		totalDeliveries += deliveries;
+		totalPendingOffers += pendingOffers;
+		totalNanos += nanos;
+		if (agreesWithLive) {
+			agreements++;
+		}
+	}
+
+	/**
+	 * Records a selection for which no courier was found.
+	 *
+	 * @param nanos the time spent selecting the couriers
+	 */
+	public synchronized void recordMiss(long nanos) {
+		orders++;
+		misses++;
+		totalNanos += nanos;
+	}
+
+	/**
+	 * Returns the name of the strategy measured.
+	 *
+	 * @return the strategy name
+	 */
+	public String getStrategyName() {
+		return strategyName;
+	}
+
+	/**
+	 * Returns the number of orders evaluated.
+	 *
+	 * @return the number of orders
+	 */
+	public synchronized long getOrders() {
+		return orders;
+	}
+
+	/**
+	 * Returns the number of orders for which no courier was selected.
+	 *
+	 * @return the number of misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the share of the orders offered first to the same courier as the live strategy.
+	 *
+	 * @return the agreement rate, between 0 and 1
+	 */
+	public synchronized double getAgreementRate() {
+		return (orders == 0) ? 0 : (double) agreements / orders;
+	}
+
+	/**
+	 * Returns the average distance between the first courier selected and the restaurant.
+	 *
+	 * @return the average pickup distance
+	 */
+	public synchronized double getAverageDistance() {
+		long served = orders - misses;
+		return (served == 0) ? 0 : totalDistance / served;
+	}
+
+	/**
+	 * Returns the average delivery counter of the first courier selected.
+	 *
+	 * @return the average number of deliveries
+	 */
+	public synchronized double getAverageDeliveries() {
+		long served = orders - misses;
+		return (served == 0) ? 0 : (double) totalDeliveries / served;
+	}
+
+	/**
+	 * Returns the average number of pending offers of the first courier selected.
+	 *
+	 * @return the average load
+	 */
+	public synchronized double getAveragePendingOffers() {
+		long served = orders - misses;
+		return (served == 0) ? 0 : (double) totalPendingOffers / served;
+	}
+
+	/**
+	 * Returns the average time spent selecting the couriers of an order, in microseconds.
+	 *
+	 * @return the average selection time
+	 */
+	public synchronized double getAverageMicros() {
+		return (orders == 0) ? 0 : totalNanos / 1000.0 / orders;
+	}
+
+	/**
+	 * Returns a string representation of these metrics.
+	 *
+	 * @return string describing the metrics
+	 */
+	@Override
+	public synchronized String toString() {
+		return String.format("%s : %d orders, %d misses, avg distance %.2f, avg deliveries %.2f, avg pending offers %.2f, agreement %.0f%%, avg %.1f us",
+				strategyName, orders, misses, getAverageDistance(), getAverageDeliveries(), getAveragePendingOffers(),
+				100 * getAgreementRate(), getAverageMicros());
+	}
+}
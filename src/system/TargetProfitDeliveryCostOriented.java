@@ -1,9 +1,5 @@
 package system;
 
-import java.util.Set;
-
-import order.Order;
-
 /**
  * Implementation of ProfitStrategy focused on adjusting the delivery cost
  * to achieve a target profit, considering markup percentage and service fee.
@@ -20,39 +16,25 @@ public class TargetProfitDeliveryCostOriented implements ProfitStrategy{
      * It uses the markup percentage, service fee, number of orders, and average order price in the calculation.
      * 
      * @param profitData current profit data
-     * @param lastMonthOrders set of orders from the last month
+     * @param lastMonth number of orders of the last month and sums of their prices
      * @param targetProfit desired profit target to achieve
      * @return updated ProfitData with adjusted delivery cost
      */
     @Override
-    public ProfitData getProfitData(ProfitData profitData, Set<Order> lastMonthOrders, double targetProfit) {
+    public ProfitData getProfitData(ProfitData profitData, ProfitWindow.Totals lastMonth, Money targetProfit) {
+        if (lastMonth.getCount() == 0) {
+            return profitData; // No order to fit the delivery cost on
+        }
         double markupPercentage = profitData.getMarkupPercentage();
-        double serviceFee = profitData.getServiceFee();
-        int numberOfOrders = lastMonthOrders.size();
-        double averagePriceOfOrder = getAveragePriceOfOrder(lastMonthOrders);
+        double serviceFee = profitData.getServiceFee().toDouble();
+        long numberOfOrders = lastMonth.getCount();
+        double averagePriceOfOrder = lastMonth.getAveragePrice();
 
         // Computing the delivery cost
-        double newDeliveryCost = averagePriceOfOrder * markupPercentage + serviceFee - targetProfit / numberOfOrders;
-        ProfitData newProfitData = new ProfitData(markupPercentage, serviceFee, newDeliveryCost);
+        double newDeliveryCost = averagePriceOfOrder * markupPercentage + serviceFee - targetProfit.toDouble() / numberOfOrders;
+        ProfitData newProfitData = new ProfitData(markupPercentage, profitData.getServiceFee(), Money.of(newDeliveryCost));
 
         return newProfitData;
     }
 
-    /**
-     * Calculates the average price of the orders in the given set.
-     * 
-     * @param lastMonthOrders the set of orders to calculate the average from
-     * @return the average price of orders, or 0 if the set is empty
-     */
-    private double getAveragePriceOfOrder(Set<Order> lastMonthOrders) {
-        if (lastMonthOrders.isEmpty()) {
-            return 0;
-        }
-        double sum = 0;
-        for(Order order : lastMonthOrders) {
-            sum += order.getPrice();
-        }
-        return sum / lastMonthOrders.size();
-    }
-
 }
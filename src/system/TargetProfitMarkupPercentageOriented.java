@@ -1,9 +1,5 @@
 package system;
 
-import java.util.Set;
-
-import order.Order;
-
 /**
  * Implementation of ProfitStrategy focused on adjusting the markup percentage
  * to achieve a target profit, considering delivery cost and service fee.
@@ -20,41 +16,25 @@ public class TargetProfitMarkupPercentageOriented implements ProfitStrategy {
      * It uses the delivery cost, service fee, number of orders, and average order price in the calculation.
      * 
      * @param profitData current profit data
-     * @param lastMonthOrders set of orders from the last month
+     * @param lastMonth number of orders of the last month and sums of their prices
      * @param targetProfit desired profit target to achieve
      * @return updated ProfitData with adjusted markup percentage
      */
     @Override
-    public ProfitData getProfitData(ProfitData profitData, Set<Order> lastMonthOrders, double targetProfit) {
-        double deliveryCost = profitData.getDeliveryCost();
-        double serviceFee = profitData.getServiceFee();
-        int numberOfOrders = lastMonthOrders.size();
-        double averagePriceOfOrder = getAveragePriceOfOrder(lastMonthOrders);
+    public ProfitData getProfitData(ProfitData profitData, ProfitWindow.Totals lastMonth, Money targetProfit) {
+        if (lastMonth.getCount() == 0) {
+            return profitData; // No order to fit the markup percentage on
+        }
+        double deliveryCost = profitData.getDeliveryCost().toDouble();
+        double serviceFee = profitData.getServiceFee().toDouble();
+        long numberOfOrders = lastMonth.getCount();
+        double averagePriceOfOrder = lastMonth.getAveragePrice();
 
         // Computing the markup percentage
-        double newMarkupPercentage = (targetProfit / numberOfOrders - serviceFee + deliveryCost) / averagePriceOfOrder;
-        ProfitData newProfitData = new ProfitData(newMarkupPercentage, serviceFee, deliveryCost);
+        double newMarkupPercentage = (targetProfit.toDouble() / numberOfOrders - serviceFee + deliveryCost) / averagePriceOfOrder;
+        ProfitData newProfitData = new ProfitData(newMarkupPercentage, profitData.getServiceFee(), profitData.getDeliveryCost());
 
         return newProfitData;
     }
 
-    /**
-     * Calculates the average price of the orders in the given set.
-     * 
-     * @param lastMonthOrders the set of orders to calculate the average from
-     * @return the average price of orders, or 0 if the set is empty
-     */
-    private double getAveragePriceOfOrder(Set<Order> lastMonthOrders) {
-        if (lastMonthOrders.isEmpty()) {
-            return 0;
-        }
-        double sum = 0;
-
-        for(Order order : lastMonthOrders) {
-            sum += order.getPrice();
-        }
-
-        return sum / lastMonthOrders.size();
-    }
-
 }
@@ -1,9 +1,5 @@
 package system;
 
-import java.util.Set;
-
-import order.Order;
-
 /**
  * Implementation of ProfitStrategy focused on adjusting the service fee
  * to achieve a target profit, considering markup percentage and delivery cost.
@@ -20,41 +16,25 @@ public class TargetProfitServiceFeeOriented implements ProfitStrategy {
      * It uses the markup percentage, delivery cost, number of orders, and average order price in the calculation.
      * 
      * @param profitData current profit data
-     * @param lastMonthOrders set of orders from the last month
+     * @param lastMonth number of orders of the last month and sums of their prices
      * @param targetProfit desired profit target to achieve
      * @return updated ProfitData with adjusted service fee
      */
     @Override
-    public ProfitData getProfitData(ProfitData profitData, Set<Order> lastMonthOrders, double targetProfit) {
+    public ProfitData getProfitData(ProfitData profitData, ProfitWindow.Totals lastMonth, Money targetProfit) {
+        if (lastMonth.getCount() == 0) {
+            return profitData; // No order to fit the service fee on
+        }
         double markupPercentage = profitData.getMarkupPercentage();
-        double deliveryCost = profitData.getDeliveryCost();
-        int numberOfOrders = lastMonthOrders.size();
-        double averagePriceOfOrder = getAveragePriceOfOrder(lastMonthOrders);
+        double deliveryCost = profitData.getDeliveryCost().toDouble();
+        long numberOfOrders = lastMonth.getCount();
+        double averagePriceOfOrder = lastMonth.getAveragePrice();
 
         // Computing the service fee
-        double newServiceFee = targetProfit / numberOfOrders - averagePriceOfOrder * markupPercentage + deliveryCost;
-        ProfitData newProfitData = new ProfitData(markupPercentage, newServiceFee, deliveryCost);
+        double newServiceFee = targetProfit.toDouble() / numberOfOrders - averagePriceOfOrder * markupPercentage + deliveryCost;
+        ProfitData newProfitData = new ProfitData(markupPercentage, Money.of(newServiceFee), profitData.getDeliveryCost());
 
         return newProfitData;
     }
 
-    /**
-     * Calculates the average price of the orders in the given set.
-     * 
-     * @param lastMonthOrders the set of orders to calculate the average from
-     * @return the average price of orders, or 0 if the set is empty
-     */
-    private double getAveragePriceOfOrder(Set<Order> lastMonthOrders) {
-        if (lastMonthOrders.isEmpty()) {
-            return 0;
-        }
-        double sum = 0;
-
-        for (Order order : lastMonthOrders) {
-            sum += order.getPrice();
-        }
-
-        return sum / lastMonthOrders.size();
-    }
-
 }
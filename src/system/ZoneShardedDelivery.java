@@ -0,0 +1,528 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+
+import notification.CourierObserver;
+import user.Courier;
+import user.Customer;
+import user.Location;
+import user.Restaurant;
+
+/**
+ * Delivery strategy that partitions the map into square cells (zones).
+ * Each zone has its own courier pool, and the zones are hashed onto a fixed set of
+ * dispatcher threads, one per core, so orders picked up in different zones are dispatched
+ * in parallel. An order is routed to the zone of its restaurant; when the restaurant is close
+ * to the border of its zone, the couriers of the neighbouring zones are also proposed,
+ * the nearest couriers first. When these zones have no courier on duty, the search widens
+ * ring by ring to the zones around them, until couriers are found or no zone is left.
+ *
+ * The couriers are observed, so a courier moving to another zone changes pool.
+ * Only the dispatcher thread of a zone reads or writes the pool of this zone, and a zone
+ * left without couriers is dropped. A courier moving to a zone of another thread is added
+ * to its new zone before being removed from the previous one, and the couriers found twice
+ * by a scan are only proposed once, so a courier is never missed while it changes zone.
+ *
+ * @author Alisson Bonatto
+ */
+public class ZoneShardedDelivery implements DeliveryStrategy, CourierObserver {
+
+	private double cellSize;                             // Side of the square cells
+	private double borrowDistance;                       // Distance to the border under which neighbouring zones are used
+	private Map<Long, CourierPositionStore> zones;       // ConcurrentHashMap <cell key, couriers of the zone>, changed by the thread of the cell only
+	private Map<Courier, Long> courierCells;             // ConcurrentHashMap <courier, cell key> of the couriers observed
+	private ExecutorService[] dispatchers;               // Dispatcher threads, created when a zone is first hashed onto them
+	private volatile CourierPositionStore lastPositions; // Store of the system synchronized with the zones
+	private volatile int lastMembershipCount;            // Membership counter of this store at the last synchronization
+	private volatile boolean shutdown;                   // Indicates if the dispatcher threads were stopped
+
+	/**
+	 * Couriers of a zone sorted by squared distance to a restaurant.
+	 */
+	private static class ZoneScan {
+		private final ArrayList<Courier> couriers;
+		private final double[] distances;
+
+		private ZoneScan(ArrayList<Courier> couriers, double[] distances) {
+			this.couriers = couriers;
+			this.distances = distances;
+		}
+	}
+
+	/**
+	 * Constructs a ZoneShardedDelivery strategy with specified values.
+	 *
+	 * @param cellSize the side of the square cells
+	 * @param borrowDistance the distance to the border of its zone under which a restaurant
+	 *        also uses the couriers of the neighbouring zones
+	 */
+	public ZoneShardedDelivery(double cellSize, double borrowDistance) {
+		if (cellSize <= 0) {
+			throw new IllegalArgumentException("The cell size must be positive.");
+		}
+		this.cellSize = cellSize;
+		this.borrowDistance = Math.min(Math.max(borrowDistance, 0), cellSize);
+		this.zones = new ConcurrentHashMap<Long, CourierPositionStore>();
+		this.courierCells = new ConcurrentHashMap<Courier, Long>();
+		this.dispatchers = new ExecutorService[Runtime.getRuntime().availableProcessors()];
+		this.lastPositions = null;
+		this.lastMembershipCount = -1;
+		this.shutdown = false;
+	}
+
+	/**
+	 * Constructs a ZoneShardedDelivery strategy whose restaurants borrow couriers
+	 * from the neighbouring zones when they are in the outer quarter of their zone.
+	 *
+	 * @param cellSize the side of the square cells
+	 */
+	public ZoneShardedDelivery(double cellSize) {
+		this(cellSize, cellSize / 4);
+	}
+
+	/**
+	 * Returns the side of the square cells.
+	 *
+	 * @return the cell size
+	 */
+	public double getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * Returns the distance to the border under which neighbouring zones are used.
+	 *
+	 * @return the borrow distance
+	 */
+	public double getBorrowDistance() {
+		return borrowDistance;
+	}
+
+	/**
+	 * Returns the number of zones containing couriers.
+	 *
+	 * @return the number of zones
+	 */
+	public int getZoneCount() {
+		return zones.size();
+	}
+
+	/**
+	 * Selects the on duty couriers of the zone of the restaurant (and of the neighbouring
+	 * zones if the restaurant is close to a border), the nearest first.
+	 * The zones are only synchronized with the couriers when the set differs from the couriers placed.
+	 *
+	 * @param couriers the couriers
+	 * @param restaurant the restaurant from which the order is picked up
+	 * @param customer the customer who will receive the order
+	 * @return the selected couriers sorted by distance to the restaurant
+	 */
+	@Override
+	public ArrayList<Courier> selectCourier(Set<Courier> couriers, Restaurant restaurant, Customer customer) {
+		if (couriers.size() != courierCells.size() || !courierCells.keySet().containsAll(couriers)) {
+			synchronize(couriers);
+		}
+		return dispatchAsync(restaurant, customer).join();
+	}
+
+	/**
+	 * Selects the on duty couriers of the zone of the restaurant (and of the neighbouring
+	 * zones if the restaurant is close to a border), the nearest first.
+	 * The zones are only synchronized with the couriers of the system when couriers were added or removed.
+	 *
+	 * @param positions the positions and duty status of the couriers
+	 * @param couriers the couriers
+	 * @param restaurant the restaurant from which the order is picked up
+	 * @param customer the customer who will receive the order
+	 * @return the selected couriers sorted by distance to the restaurant
+	 */
+	@Override
+	public ArrayList<Courier> selectCourier(CourierPositionStore positions, Set<Courier> couriers, Restaurant restaurant, Customer customer) {
+		if (positions != lastPositions || positions.getMembershipCount() != lastMembershipCount) {
+			synchronized (this) {
+				if (positions != lastPositions || positions.getMembershipCount() != lastMembershipCount) {
+					ArrayList<Courier> storedCouriers = new ArrayList<Courier>(positions.size());
+					for (int slot = 0; slot < positions.size(); slot++) {
+						storedCouriers.add(positions.getCourier(slot));
+					}
+					synchronize(storedCouriers);
+					lastMembershipCount = positions.getMembershipCount();
+					lastPositions = positions;
+				}
+			}
+		}
+		return dispatchAsync(restaurant, customer).join();
+	}
+
+	/**
+	 * Dispatches an order without blocking the calling thread.
+	 * Each zone involved sorts its own couriers on its dispatcher thread; the sorted
+	 * lists are then merged by distance. The dispatcher threads never wait for each other,
+	 * and the calling threads only wait for the zones of their own orders.
+	 * If the zone of the restaurant and its borrowed neighbours have no courier on duty,
+	 * the other zones are scanned ring by ring around the zone of the restaurant.
+	 *
+	 * @param restaurant the restaurant from which the order is picked up
+	 * @param customer the customer who will receive the order
+	 * @return a future completed with the selected couriers sorted by distance to the restaurant
+	 */
+	public CompletableFuture<ArrayList<Courier>> dispatchAsync(Restaurant restaurant, Customer customer) {
+		if (shutdown) {
+			throw new IllegalStateException("The zone dispatchers were shut down.");
+		}
+		Location location = restaurant.getLocation();
+		final double px = location.getX();
+		final double py = location.getY();
+
+		final List<Long> cells = cellsToScan(px, py);
+		return scanCells(cells, px, py)
+				.thenCompose(scan -> scan.couriers.isEmpty() ? widen(rings(cells, px, py).entrySet().iterator(), scan, px, py)
+						: CompletableFuture.completedFuture(scan))
+				.thenApply(scan -> scan.couriers);
+	}
+
+	/**
+	 * Scans several zones on their dispatcher threads and merges their couriers by distance.
+	 *
+	 * @param cells the keys of the cells to scan, at least one
+	 * @param px the abscissa of the restaurant
+	 * @param py the ordinate of the restaurant
+	 * @return a future completed with the merged scan
+	 */
+	private CompletableFuture<ZoneScan> scanCells(List<Long> cells, double px, double py) {
+		CompletableFuture<ZoneScan> result = null;
+		for (long cell : cells) {
+			CompletableFuture<ZoneScan> scan = CompletableFuture.supplyAsync(() -> scan(zones.get(cell), px, py), dispatcher(cell));
+			result = (result == null) ? scan : result.thenCombine(scan, ZoneShardedDelivery::merge);
+		}
+		return result;
+	}
+
+	/**
+	 * Scans the rings of zones one after the other, from the nearest, until couriers are found.
+	 * The next rings are still scanned while they can hold a courier nearer than the nearest found,
+	 * so the couriers stay sorted by distance.
+	 *
+	 * @param rings the rings left, from the nearest
+	 * @param found the couriers found so far
+	 * @param px the abscissa of the restaurant
+	 * @param py the ordinate of the restaurant
+	 * @return a future completed with the couriers found
+	 */
+	private CompletableFuture<ZoneScan> widen(Iterator<Map.Entry<Integer, List<Long>>> rings, ZoneScan found, double px, double py) {
+		if (!rings.hasNext()) {
+			return CompletableFuture.completedFuture(found);
+		}
+		Map.Entry<Integer, List<Long>> ring = rings.next();
+		// A cell of the ring r is at least (r - 1) cells away from the restaurant
+		if (!found.couriers.isEmpty() && (ring.getKey() - 1) * cellSize >= Math.sqrt(found.distances[0])) {
+			return CompletableFuture.completedFuture(found);
+		}
+		return scanCells(ring.getValue(), px, py).thenCompose(scan -> widen(rings, merge(found, scan), px, py));
+	}
+
+	/**
+	 * Groups the zones containing couriers, other than the cells already scanned, by ring around
+	 * the cell of the restaurant: the ring of a zone is its distance in cells on the farthest axis.
+	 *
+	 * @param scannedCells the cells already scanned
+	 * @param px the abscissa of the restaurant
+	 * @param py the ordinate of the restaurant
+	 * @return TreeMap <ring, keys of the cells of the ring>
+	 */
+	private TreeMap<Integer, List<Long>> rings(List<Long> scannedCells, double px, double py) {
+		int cx = cellIndex(px);
+		int cy = cellIndex(py);
+		TreeMap<Integer, List<Long>> rings = new TreeMap<Integer, List<Long>>();
+		for (long cell : zones.keySet()) {
+			if (!scannedCells.contains(cell)) {
+				int ring = (int) Math.max(Math.abs((long) (int) (cell >> 32) - cx), Math.abs((long) (int) cell - cy));
+				rings.computeIfAbsent(ring, key -> new ArrayList<Long>()).add(cell);
+			}
+		}
+		return rings;
+	}
+
+	/**
+	 * Updates the zone of a courier whose position or duty status changed.
+	 *
+	 * @param courier the courier
+	 */
+	@Override
+	public void update(Courier courier) {
+		courierCells.computeIfPresent(courier, placement(courier));
+	}
+
+	/**
+	 * Stops the dispatcher threads and stops observing the couriers.
+	 */
+	public synchronized void shutdown() {
+		shutdown = true;
+		for (Courier courier : courierCells.keySet()) {
+			courier.removeObserver(this);
+		}
+		courierCells.clear();
+		synchronized (dispatchers) {
+			for (ExecutorService dispatcher : dispatchers) {
+				if (dispatcher != null) {
+					dispatcher.shutdown();
+				}
+			}
+		}
+		zones.clear();
+		lastPositions = null;
+	}
+
+	/**
+	 * Makes the zones contain exactly the given couriers.
+	 *
+	 * @param couriers the couriers of the system
+	 */
+	private synchronized void synchronize(Iterable<Courier> couriers) {
+		Set<Courier> current = new HashSet<Courier>();
+		for (Courier courier : couriers) {
+			current.add(courier);
+			if (!courierCells.containsKey(courier)) {
+				courier.addObserver(this);
+				courierCells.compute(courier, placement(courier));
+			}
+		}
+
+		for (Courier courier : courierCells.keySet()) {
+			if (!current.contains(courier)) {
+				courier.removeObserver(this);
+				courierCells.computeIfPresent(courier, (key, cell) -> {
+					dispatcher(cell).execute(() -> removeFromZone(cell, courier));
+					return null;
+				});
+			}
+		}
+	}
+
+	/**
+	 * Returns the function placing a courier in the zone of its position, given the cell
+	 * it was placed in before (or null), and returning its new cell. It is run by the
+	 * ConcurrentHashMap of the cells while the entry of the courier is locked, so the
+	 * tasks of a courier are submitted in the order of its changes.
+	 * The pools are only modified by their dispatcher thread.
+	 *
+	 * @param courier the courier
+	 * @return the function computing the new cell of the courier
+	 */
+	private BiFunction<Courier, Long, Long> placement(final Courier courier) {
+		return (key, previousCell) -> {
+			Location position = courier.getPosition();
+			final double px = (position == null) ? Double.NaN : position.getX();
+			final double py = (position == null) ? Double.NaN : position.getY();
+			final boolean isOnDuty = courier.isOnDuty();
+			final long cell = (position == null) ? cellKey(0, 0) : cellKey(cellIndex(px), cellIndex(py));
+
+			ExecutorService dispatcher = dispatcher(cell);
+			if (previousCell == null || previousCell == cell) {
+				dispatcher.execute(() -> addToZone(cell, courier, px, py, isOnDuty));
+			}
+			else if (dispatcher(previousCell) == dispatcher) {
+				dispatcher.execute(() -> {
+					removeFromZone(previousCell, courier);
+					addToZone(cell, courier, px, py, isOnDuty);
+				});
+			}
+			else {
+				// Added to the new zone before being removed from the previous one
+				CompletableFuture.runAsync(() -> addToZone(cell, courier, px, py, isOnDuty), dispatcher)
+						.thenRunAsync(() -> removeFromZone(previousCell, courier), dispatcher(previousCell));
+			}
+			return cell;
+		};
+	}
+
+	/**
+	 * Adds a courier to the pool of a zone, or refreshes its slot, creating the zone if needed.
+	 * Runs on the dispatcher thread of the zone.
+	 *
+	 * @param cell the cell key of the zone
+	 * @param courier the courier
+	 * @param px the abscissa of the courier
+	 * @param py the ordinate of the courier
+	 * @param isOnDuty the duty status of the courier
+	 */
+	private void addToZone(long cell, Courier courier, double px, double py, boolean isOnDuty) {
+		CourierPositionStore zone = zones.computeIfAbsent(cell, key -> new CourierPositionStore(false));
+		if (zone.contains(courier)) {
+			zone.update(courier, px, py, isOnDuty);
+		}
+		else {
+			zone.add(courier, px, py, isOnDuty);
+		}
+	}
+
+	/**
+	 * Removes a courier from the pool of a zone, unless the courier was placed back in this zone
+	 * in the meantime, and drops the zone if it is left without couriers.
+	 * Runs on the dispatcher thread of the zone.
+	 *
+	 * @param cell the cell key of the zone
+	 * @param courier the courier
+	 */
+	private void removeFromZone(long cell, Courier courier) {
+		CourierPositionStore zone = zones.get(cell);
+		// Unlike get, computeIfPresent waits for the placement of the courier being computed
+		Long currentCell = courierCells.computeIfPresent(courier, (key, placedCell) -> placedCell);
+		if (zone == null || (currentCell != null && currentCell == cell)) {
+			return;
+		}
+		zone.remove(courier);
+		if (zone.size() == 0) {
+			zones.remove(cell);
+		}
+	}
+
+	/**
+	 * Returns the dispatcher thread owning the zone of the given cell, creating it if needed.
+	 *
+	 * @param cell the cell key
+	 * @return the dispatcher thread of the cell
+	 */
+	private ExecutorService dispatcher(long cell) {
+		long hash = cell * 0x9E3779B97F4A7C15L;
+		int index = (int) Math.floorMod(hash ^ (hash >>> 32), (long) dispatchers.length);
+		synchronized (dispatchers) {
+			if (dispatchers[index] == null) {
+				final String name = "zone-dispatcher-" + index;
+				dispatchers[index] = Executors.newSingleThreadExecutor(runnable -> {
+					Thread thread = new Thread(runnable, name);
+					thread.setDaemon(true);
+					return thread;
+				});
+			}
+			return dispatchers[index];
+		}
+	}
+
+	/**
+	 * Returns the cells whose couriers can be proposed for a restaurant at (px, py):
+	 * the cell of the restaurant and the neighbouring cells closer than the borrow distance.
+	 *
+	 * @param px the abscissa of the restaurant
+	 * @param py the ordinate of the restaurant
+	 * @return the keys of the cells to scan
+	 */
+	private List<Long> cellsToScan(double px, double py) {
+		int cx = cellIndex(px);
+		int cy = cellIndex(py);
+		int dxMin = (px - cx * cellSize < borrowDistance) ? -1 : 0;
+		int dxMax = ((cx + 1) * cellSize - px < borrowDistance) ? 1 : 0;
+		int dyMin = (py - cy * cellSize < borrowDistance) ? -1 : 0;
+		int dyMax = ((cy + 1) * cellSize - py < borrowDistance) ? 1 : 0;
+
+		List<Long> cells = new ArrayList<Long>(4);
+		for (int dx = dxMin; dx <= dxMax; dx++) {
+			for (int dy = dyMin; dy <= dyMax; dy++) {
+				cells.add(cellKey(cx + dx, cy + dy));
+			}
+		}
+		return cells;
+	}
+
+	/**
+	 * Sorts the on duty couriers of a zone by squared distance to (px, py).
+	 * Runs on the dispatcher thread of the zone.
+	 *
+	 * @param store the couriers of the zone, or null if the zone has no courier
+	 * @param px the abscissa of the restaurant
+	 * @param py the ordinate of the restaurant
+	 * @return the sorted couriers and their squared distances
+	 */
+	private static ZoneScan scan(CourierPositionStore store, double px, double py) {
+		if (store == null) {
+			return new ZoneScan(new ArrayList<Courier>(), new double[0]);
+		}
+		int count = store.sortOnDutySlots(px, py);
+		int[] slots = store.getSortedSlots();
+		ArrayList<Courier> couriers = new ArrayList<Courier>(count);
+		double[] distances = new double[count];
+		for (int i = 0; i < count; i++) {
+			couriers.add(store.getCourier(slots[i]));
+			distances[i] = store.getLastSquaredDistance(slots[i]);
+		}
+		return new ZoneScan(couriers, distances);
+	}
+
+	/**
+	 * Merges two sorted zone scans into one sorted scan. A courier found in both scans,
+	 * because it was changing zone, is only kept at its nearest position.
+	 *
+	 * @param first the first scan
+	 * @param second the second scan
+	 * @return the merged scan
+	 */
+	private static ZoneScan merge(ZoneScan first, ZoneScan second) {
+		int size = first.distances.length + second.distances.length;
+		ArrayList<Courier> couriers = new ArrayList<Courier>(size);
+		double[] distances = new double[size];
+		Set<Courier> merged = new HashSet<Courier>();
+		int i = 0;
+		int j = 0;
+		int k = 0;
+		while (i < first.distances.length || j < second.distances.length) {
+			Courier courier;
+			double distance;
+			if (j >= second.distances.length || (i < first.distances.length && first.distances[i] <= second.distances[j])) {
+				courier = first.couriers.get(i);
+				distance = first.distances[i++];
+			}
+			else {
+				courier = second.couriers.get(j);
+				distance = second.distances[j++];
+			}
+			if (merged.add(courier)) {
+				couriers.add(courier);
+				distances[k++] = distance;
+			}
+		}
+		return new ZoneScan(couriers, Arrays.copyOf(distances, k));
+	}
+
+	/**
+	 * Returns the index of the cell containing the given coordinate.
+	 *
+	 * @param coordinate the coordinate
+	 * @return the cell index
+	 */
+	private int cellIndex(double coordinate) {
+		return (int) Math.floor(coordinate / cellSize);
+	}
+
+	/**
+	 * Packs the indexes of a cell into a single key.
+	 *
+	 * @param cx the cell index on the x axis
+	 * @param cy the cell index on the y axis
+	 * @return the cell key
+	 */
+	private static long cellKey(int cx, int cy) {
+		return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Returns a string representation of this ZoneShardedDelivery strategy.
+	 *
+	 * @return string describing the cell size and the borrow distance
+	 */
+	@Override
+	public String toString() {
+		return "ZoneShardedDelivery : cellSize=" + cellSize + ", borrowDistance=" + borrowDistance;
+	}
+}
@@ -0,0 +1,92 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import simulation.CitySimulator;
+import simulation.OrderStreams;
+import simulation.SimulatedOrder;
+import simulation.SimulationReport;
+import system.FairOccupationDelivery;
+import system.FastestDelivery;
+import system.IdAllocator;
+import system.Money;
+import system.ProfitData;
+import user.BadUserCreationException;
+import user.Courier;
+import user.Customer;
+import user.Location;
+import user.Restaurant;
+
+/**
+ * Test class for CitySimulator class.
+ *
+ * @author Alisson Bonatto
+ */
+public class TestCitySimulator {
+
+	static List<Restaurant> restaurants;
+	static List<Customer> customers;
+	static List<Courier> couriers;
+
+	@BeforeClass
+	public static void setUp() throws BadUserCreationException {
+		restaurants = new ArrayList<Restaurant>();
+		restaurants.add(new Restaurant("SimRestaurant1", "simrestaurant1", "1234", new Location(2, 2)));
+		restaurants.add(new Restaurant("SimRestaurant2", "simrestaurant2", "1234", new Location(7, 6)));
+		customers = new ArrayList<Customer>();
+		for (int i = 0; i < 10; i++) {
+			customers.add(new Customer("Sim", "Customer" + i, "simcustomer" + i, "1234", "+testsimcustomer" + i,
+					"sim.customer" + i + "@email.com", new Location(i, 9 - i)));
+		}
+		couriers = CitySimulator.createCouriers(20, 0, 0, 10, 10, new Random(1));
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		CitySimulator.releaseCouriers(couriers);
+	}
+
+	@Test
+	public void testRun() {
+		List<SimulatedOrder> orders = OrderStreams.poisson(restaurants, customers, 100, 4 * 3600, 10, 30, new Random(2));
+		Assert.assertTrue(!orders.isEmpty());
+		int restaurantCounter = restaurants.get(0).getOrderCounter();
+
+		CitySimulator simulator = new CitySimulator(new FastestDelivery(), new ProfitData(0.1, Money.ofCents(200), Money.ofCents(300)));
+		SimulationReport report = simulator.run(couriers, orders);
+
+		Assert.assertTrue(report.getOrdersPlaced() == orders.size());
+		Assert.assertTrue(report.getOrdersDelivered() + report.getOrdersUnassigned() == report.getOrdersPlaced());
+		Assert.assertTrue(report.getOrdersDelivered() > 0);
+		Assert.assertTrue(report.getAverageWaitingTime() >= 30);
+		Assert.assertTrue(report.getCourierUtilization() > 0 && report.getCourierUtilization() <= 1);
+		Assert.assertTrue(report.getThroughputPerHour() > 0);
+
+		// The restaurants are left as they were
+		Assert.assertTrue(restaurants.get(0).getOrderCounter() == restaurantCounter);
+		// The simulated couriers do not take the IDs of the system, which the simulation leaves in place
+		Assert.assertTrue(IdAllocator.nodeOf(couriers.get(0).getId()) == IdAllocator.MAX_NODE_ID);
+		Assert.assertTrue(IdAllocator.nodeOf(IdAllocator.getDefault().nextId()) != IdAllocator.MAX_NODE_ID);
+	}
+
+	@Test
+	public void testNotEnoughCouriers() {
+		List<SimulatedOrder> orders = OrderStreams.poisson(restaurants, customers, 600, 3600, 10, 30, new Random(3));
+
+		CitySimulator simulator = new CitySimulator(new FairOccupationDelivery(), new ProfitData());
+		simulator.setAbandonTime(600);
+		SimulationReport report = simulator.run(couriers.subList(0, 2), orders);
+
+		// Two couriers can not deliver 600 orders per hour
+		Assert.assertTrue(report.getOrdersUnassigned() > 0);
+		Assert.assertTrue(report.getOrdersDelivered() + report.getOrdersUnassigned() == report.getOrdersPlaced());
+	}
+
+}
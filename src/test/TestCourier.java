@@ -3,6 +3,7 @@ package test;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Set;
 
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -16,6 +17,7 @@ import food.MainDish;
 import food.Meal;
 import food.UnrecognizedDishException;
 import order.Order;
+import system.DeliveryStacking;
 import user.BadUserCreationException;
 import user.Courier;
 import user.Customer;
@@ -108,6 +110,122 @@ public class TestCourier {
 		Assert.assertTrue(courierTest.isActive() == true);
 	}
 	
+	@Test
+	public void testCompleteDelivery() throws BadUserCreationException {
+		Courier courierTest = new Courier("Marc", "Dupont", "marcdupont2025", "1234", "+testcompletedelivery", new Location(0, 0));
+		Customer customer = new Customer("Julie", "Martin", "juliemartin2025", "1234", "+testcompletedeliverycustomer",
+				"julie.martin@email.com", new Location(3, 4));
+		Restaurant restaurant = new Restaurant("RestaurantLyon", "restolyon2025", "1234", new Location(1, 1));
+		courierTest.setOnDuty(true);
+		
+		Order order = new Order(customer, restaurant, null);
+		order.setPossibleCouriers(new ArrayList<Courier>(Arrays.asList(courierTest)));
+		order.notifyNextCourier();
+		Assert.assertTrue(courierTest.acceptOrder(order.getId()));
+		Assert.assertTrue(courierTest.getCurrentDeliveringOrder() == order);
+		Assert.assertTrue(courierTest.isOnDuty() == false);
+		
+		Assert.assertTrue(courierTest.completeDelivery() == order);
+		Assert.assertTrue(order.getCurrentStatus().equals("DELIVERED"));
+		Assert.assertTrue(courierTest.getPosition().equals(new Location(3, 4)));
+		Assert.assertTrue(courierTest.getCurrentDeliveringOrder() == null);
+		Assert.assertTrue(courierTest.isOnDuty() == true);
+		Assert.assertTrue(courierTest.completeDelivery() == null);
+	}
+	
+	@Test
+	public void testStackedDelivery() throws BadUserCreationException {
+		Courier courierTest = new Courier("Paul", "Durand", "pauldurand2025", "1234", "+teststackeddelivery", new Location(0, 0));
+		Customer farCustomer = new Customer("Lea", "Petit", "leapetit2025", "1234", "+teststackedfarcustomer",
+				"lea.petit@email.com", new Location(4, 0));
+		Customer nearCustomer = new Customer("Hugo", "Roux", "hugoroux2025", "1234", "+teststackednearcustomer",
+				"hugo.roux@email.com", new Location(2, 0));
+		Restaurant restaurant = new Restaurant("RestaurantNantes", "restonantes2025", "1234", new Location(0, 0));
+		courierTest.setOnDuty(true);
+		
+		Order farOrder = new Order(farCustomer, restaurant, null);
+		farOrder.setPossibleCouriers(new ArrayList<Courier>(Arrays.asList(courierTest)));
+		farOrder.notifyNextCourier();
+		Assert.assertTrue(courierTest.acceptOrder(farOrder.getId()));
+		
+		// The courier is still at the restaurant and the second customer is on the way
+		DeliveryStacking stacking = new DeliveryStacking();
+		Set<Courier> couriers = new HashSet<Courier>(Arrays.asList(courierTest));
+		Assert.assertTrue(stacking.selectCourier(couriers, restaurant, nearCustomer).contains(courierTest));
+		
+		Order nearOrder = new Order(nearCustomer, restaurant, null);
+		nearOrder.setPossibleCouriers(new ArrayList<Courier>(Arrays.asList(courierTest)));
+		nearOrder.notifyNextCourier();
+		Assert.assertTrue(courierTest.acceptOrder(nearOrder.getId()));
+		
+		// The route starts with the nearest customer
+		Assert.assertTrue(courierTest.getDeliveringOrders().size() == 2);
+		Assert.assertTrue(courierTest.getCurrentDeliveringOrder() == nearOrder);
+		
+		Assert.assertTrue(courierTest.completeDelivery() == nearOrder);
+		Assert.assertTrue(courierTest.isOnDuty() == false);
+		Assert.assertTrue(courierTest.hasStartedDelivering());
+		Assert.assertTrue(stacking.selectCourier(couriers, restaurant, nearCustomer).isEmpty());
+		
+		Assert.assertTrue(courierTest.completeDelivery() == farOrder);
+		Assert.assertTrue(courierTest.isOnDuty() == true);
+		Assert.assertTrue(courierTest.getPosition().equals(new Location(4, 0)));
+	}
+	
+	@Test
+	public void testStackingIndex() throws BadUserCreationException {
+		Restaurant pizzeria = new Restaurant("RestaurantRennes", "restorennes2025", "1234", new Location(0, 0));
+		Restaurant creperie = new Restaurant("RestaurantBrest", "restobrest2025", "1234", new Location(10, 0));
+		Customer customer = new Customer("Yann", "Leroy", "yannleroy2025", "1234", "+teststackingindexcustomer",
+				"yann.leroy@email.com", new Location(5, 0));
+		Courier pizzeriaCourier = new Courier("Anne", "Morel", "annemorel2025", "1234", "+teststackingindex1", new Location(0, 0));
+		Courier creperieCourier = new Courier("Loic", "Faure", "loicfaure2025", "1234", "+teststackingindex2", new Location(10, 0));
+		Courier idleCourier = new Courier("Rose", "Garnier", "rosegarnier2025", "1234", "+teststackingindex3", new Location(1, 0));
+		Set<Courier> couriers = new HashSet<Courier>(Arrays.asList(pizzeriaCourier, creperieCourier, idleCourier));
+		DeliveryStacking stacking = new DeliveryStacking(3, 2);
+		try {
+			Assert.assertTrue(stacking.selectCourier(couriers, pizzeria, customer).isEmpty());
+
+			// The couriers accepting an order are indexed under its restaurant
+			for (Courier courier : Arrays.asList(pizzeriaCourier, creperieCourier)) {
+				courier.setOnDuty(true);
+				Order order = new Order(customer, courier == pizzeriaCourier ? pizzeria : creperie, null);
+				order.setPossibleCouriers(new ArrayList<Courier>(Arrays.asList(courier)));
+				order.notifyNextCourier();
+				Assert.assertTrue(courier.acceptOrder(order.getId()));
+			}
+			Assert.assertEquals(Arrays.asList(pizzeriaCourier), stacking.selectCourier(couriers, pizzeria, customer));
+			Assert.assertEquals(Arrays.asList(creperieCourier), stacking.selectCourier(couriers, creperie, customer));
+
+			// A courier who left the restaurant is not indexed anymore
+			Assert.assertTrue(pizzeriaCourier.completeDelivery() != null);
+			Assert.assertTrue(stacking.selectCourier(couriers, pizzeria, customer).isEmpty());
+		} finally {
+			stacking.clear();
+		}
+	}
+	
+	@Test
+	public void testRefusalRate() throws BadUserCreationException {
+		Courier courierTest = new Courier("Nina", "Blanc", "ninablanc2025", "1234", "+testrefusalrate", new Location(0, 0));
+		Customer customer = new Customer("Marc", "Noir", "marcnoir2025", "1234", "+testrefusalratecustomer",
+				"marc.noir@email.com", new Location(1, 1));
+		Restaurant restaurant = new Restaurant("RestaurantLille", "restolille2025", "1234", new Location(0, 1));
+		
+		Order refusedOrder = new Order(customer, restaurant, null);
+		refusedOrder.setPossibleCouriers(new ArrayList<Courier>(Arrays.asList(courierTest)));
+		refusedOrder.notifyNextCourier();
+		Assert.assertTrue(courierTest.refuseOrder(refusedOrder.getId()));
+		double refusalRate = courierTest.getRefusalRate();
+		Assert.assertTrue(refusalRate > 0 && refusalRate <= 1);
+		
+		Order acceptedOrder = new Order(customer, restaurant, null);
+		acceptedOrder.setPossibleCouriers(new ArrayList<Courier>(Arrays.asList(courierTest)));
+		acceptedOrder.notifyNextCourier();
+		Assert.assertTrue(courierTest.acceptOrder(acceptedOrder.getId()));
+		Assert.assertTrue(courierTest.getRefusalRate() < refusalRate);
+	}
+	
 	@Test(expected = BadUserCreationException.class)
 	public void testPhoneNumberAlreadyUsed() throws BadUserCreationException {
 		String courier1PhoneNumber = "+testcourierphone";
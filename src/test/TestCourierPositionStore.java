@@ -0,0 +1,141 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import system.CourierPositionStore;
+import system.FairOccupationDelivery;
+import user.BadUserCreationException;
+import user.Courier;
+import user.Location;
+
+/**
+ * Test class for CourierPositionStore class.
+ *
+ * @author Alisson Bonatto
+ */
+public class TestCourierPositionStore {
+
+	static Courier[] couriers;
+
+	@BeforeClass
+	public static void setUp() throws BadUserCreationException {
+		// Couriers placed on a line, at x = 0, 1, ..., 39
+		couriers = new Courier[40];
+		for (int i = 0; i < couriers.length; i++) {
+			couriers[i] = new Courier("Courier", "Store" + i, "courierstore" + i, "1234", "+testpositionstore" + i, new Location(i, 0));
+		}
+	}
+
+	@Test
+	public void testNearestOnDuty() {
+		CourierPositionStore store = new CourierPositionStore();
+		for (Courier courier : couriers) {
+			courier.setOnDuty(true);
+			store.add(courier);
+		}
+		Assert.assertTrue(store.size() == couriers.length);
+		Assert.assertTrue(store.nearestOnDuty(10.2, 3) == couriers[10]);
+
+		// The store is notified when the courier goes off duty
+		couriers[10].setOnDuty(false);
+		Assert.assertTrue(store.nearestOnDuty(10.2, 3) == couriers[11]);
+		couriers[10].setOnDuty(true);
+
+		// The store is notified when the courier moves
+		couriers[0].setPosition(new Location(10.2, 2.9));
+		Assert.assertTrue(store.nearestOnDuty(10.2, 3) == couriers[0]);
+		couriers[0].setPosition(new Location(0, 0));
+
+		store.clear();
+		Assert.assertTrue(store.nearestOnDuty(10.2, 3) == null);
+	}
+
+	@Test
+	public void testSortedOnDuty() {
+		CourierPositionStore store = new CourierPositionStore();
+		for (int i = couriers.length - 1; i >= 0; i--) {
+			couriers[i].setOnDuty(i % 2 == 0);
+			store.add(couriers[i]);
+		}
+
+		ArrayList<Courier> sortedCouriers = store.sortedOnDuty(new Location(0, 0));
+		Assert.assertTrue(sortedCouriers.size() == couriers.length / 2);
+		for (int i = 0; i < sortedCouriers.size(); i++) {
+			Assert.assertTrue(sortedCouriers.get(i) == couriers[2 * i]);
+		}
+		store.clear();
+	}
+
+	@Test
+	public void testRemove() {
+		CourierPositionStore store = new CourierPositionStore();
+		for (Courier courier : couriers) {
+			courier.setOnDuty(true);
+			store.add(courier);
+		}
+
+		Assert.assertTrue(store.remove(couriers[5]));
+		Assert.assertTrue(!store.remove(couriers[5]));
+		Assert.assertTrue(!store.contains(couriers[5]));
+		Assert.assertTrue(store.size() == couriers.length - 1);
+		Assert.assertTrue(store.nearestOnDuty(5, 0) == couriers[4] || store.nearestOnDuty(5, 0) == couriers[6]);
+
+		// The last courier was moved to the free slot and is still found
+		Courier lastCourier = couriers[couriers.length - 1];
+		Assert.assertTrue(store.getCourier(store.getSlot(lastCourier)) == lastCourier);
+		Assert.assertTrue(store.nearestOnDuty(100, 0) == lastCourier);
+		store.clear();
+	}
+
+	@Test
+	public void testCopy() {
+		CourierPositionStore store = new CourierPositionStore();
+		for (Courier courier : couriers) {
+			courier.setOnDuty(true);
+			store.add(courier);
+		}
+		CourierPositionStore copy = store.copy();
+
+		// The copy keeps the state of the couriers when it was taken
+		couriers[10].setOnDuty(false);
+		couriers[0].setPosition(new Location(10.2, 2.9));
+		Assert.assertTrue(store.nearestOnDuty(10.2, 3) == couriers[0]);
+		Assert.assertTrue(copy.nearestOnDuty(10.2, 3) == couriers[10]);
+		Assert.assertTrue(copy.getSlot(couriers[10]) == store.getSlot(couriers[10]));
+		Assert.assertTrue(copy.size() == couriers.length);
+		couriers[10].setOnDuty(true);
+		couriers[0].setPosition(new Location(0, 0));
+		store.clear();
+	}
+
+	@Test
+	public void testFairOccupationOnStore() {
+		CourierPositionStore store = new CourierPositionStore();
+		for (int i = 0; i < couriers.length; i++) {
+			couriers[i].setOnDuty(i % 4 != 0);
+			couriers[i].setDeliveryCounter(i % 7);
+			store.add(couriers[i]);
+		}
+
+		// The store overload reads the columns only, and sorts as the set overload
+		FairOccupationDelivery strategy = new FairOccupationDelivery();
+		ArrayList<Courier> fromSet = strategy.selectCourier(new HashSet<Courier>(Arrays.asList(couriers)), null, null);
+		ArrayList<Courier> fromStore = strategy.selectCourier(store.copy(), null, null, null);
+		Assert.assertTrue(fromStore.size() == fromSet.size());
+		for (int i = 0; i < fromStore.size(); i++) {
+			Assert.assertTrue(fromStore.get(i).isOnDuty());
+			Assert.assertTrue(fromStore.get(i).getDeliveryCounter() == fromSet.get(i).getDeliveryCounter());
+		}
+		for (Courier courier : couriers) {
+			courier.setDeliveryCounter(0);
+			courier.setOnDuty(true);
+		}
+		store.clear();
+	}
+}
@@ -0,0 +1,87 @@
+package test;
+
+import java.time.LocalDate;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import system.CustomerSketches;
+import system.HyperLogLog;
+
+/**
+ * Test class for HyperLogLog and CustomerSketches classes.
+ *
+ * @author Alisson Bonatto
+ */
+public class TestCustomerSketches {
+
+	@Test
+	public void testHyperLogLog() {
+		HyperLogLog sketch = new HyperLogLog();
+		Assert.assertTrue(sketch.isEmpty());
+		Assert.assertTrue(sketch.estimate() == 0);
+
+		// Small counts within a few percent, and adding an ID twice changes nothing
+		for (long id = 1; id <= 100; id++) {
+			sketch.add(id);
+			sketch.add(id);
+		}
+		Assert.assertEquals(100, sketch.estimate(), 6);
+
+		// Large counts within 5% (about twice the standard error)
+		HyperLogLog large = new HyperLogLog();
+		for (long id = 0; id < 200000; id++) {
+			large.add(id);
+		}
+		Assert.assertEquals(200000, large.estimate(), 10000);
+
+		// The merge estimates the union: 100000 IDs shared out of 300000
+		HyperLogLog other = new HyperLogLog();
+		for (long id = 100000; id < 300000; id++) {
+			other.add(id);
+		}
+		HyperLogLog union = new HyperLogLog(large);
+		union.merge(other);
+		Assert.assertEquals(300000, union.estimate(), 15000);
+		Assert.assertEquals(200000, large.estimate(), 10000);
+	}
+
+	@Test
+	public void testDateRanges() {
+		CustomerSketches sketches = new CustomerSketches();
+		LocalDate firstDay = LocalDate.of(2021, 3, 15);
+		// 1000 days, customer i % 500 + day / 100 * 1000 orders on day i
+		HyperLogLog expected = new HyperLogLog();
+		for (int i = 0; i < 1000; i++) {
+			long customer = i % 500 + (i / 100) * 1000;
+			sketches.observe(firstDay.plusDays(i), customer);
+			if (i > 0 && i < 999) {
+				expected.add(customer);
+			}
+		}
+
+		// The two dates are excluded, as in Manager.getActiveCustomers
+		Assert.assertTrue(sketches.estimate(firstDay, firstDay.plusDays(1)) == 0);
+		Assert.assertTrue(sketches.estimate(firstDay.minusDays(1), firstDay.plusDays(1)) == 1);
+		Assert.assertTrue(sketches.estimate(firstDay.plusDays(5), firstDay) == 0);
+
+		// The years, months and days merged give the same sketch as the days one by one
+		Assert.assertEquals(expected.estimate(), sketches.estimate(firstDay, firstDay.plusDays(999)));
+		Assert.assertEquals(998, sketches.estimate(firstDay, firstDay.plusDays(999)), 40);
+		Assert.assertEquals(sketches.estimate(firstDay.minusDays(1), firstDay.plusDays(1000)),
+				sketches.estimate(LocalDate.MIN, LocalDate.MAX));
+
+		// All the 1000 customers within 5% (about twice the standard error)
+		Assert.assertEquals(1000, sketches.estimate(LocalDate.MIN, LocalDate.MAX), 50);
+
+		// A range of a whole year gives the same sketch as its days one by one: 365 customers in 2022
+		HyperLogLog year = new HyperLogLog();
+		for (int i = 0; i < 1000; i++) {
+			if (firstDay.plusDays(i).getYear() == 2022) {
+				year.add(i % 500 + (i / 100) * 1000);
+			}
+		}
+		Assert.assertEquals(year.estimate(), sketches.estimate(LocalDate.of(2021, 12, 31), LocalDate.of(2023, 1, 1)));
+		Assert.assertEquals(365, sketches.estimate(LocalDate.of(2021, 12, 31), LocalDate.of(2023, 1, 1)), 18);
+	}
+}
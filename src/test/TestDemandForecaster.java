@@ -0,0 +1,102 @@
+package test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import order.Order;
+import system.DemandForecaster;
+import system.HourOfWeek;
+import user.BadUserCreationException;
+import user.Customer;
+import user.Location;
+import user.Restaurant;
+
+/**
+ * Test class for DemandForecaster class.
+ *
+ * @author Alisson Bonatto
+ */
+public class TestDemandForecaster {
+
+	static Restaurant restaurant;
+	static Customer customer;
+
+	@BeforeClass
+	public static void setUp() throws BadUserCreationException {
+		restaurant = new Restaurant("ForecastRestaurant", "forecastrestaurant", "1234", new Location(12, 3));
+		customer = new Customer("Forecast", "Customer", "forecastcustomer", "1234", "+testforecastcustomer",
+				"forecast.customer@email.com", new Location(0, 0));
+	}
+
+	/**
+	 * Creates the given number of orders at the given date, between 12:00 and 12:59.
+	 */
+	private static List<Order> lunchOrders(LocalDate date, int count) {
+		List<Order> orders = new ArrayList<Order>();
+		for (int i = 0; i < count; i++) {
+			orders.add(new Order(customer, restaurant, null, LocalTime.of(12, i), date));
+		}
+		return orders;
+	}
+
+	@Test
+	public void testHourOfWeek() {
+		LocalDate monday = LocalDate.of(2025, 1, 6);
+		Assert.assertTrue(HourOfWeek.of(monday, LocalTime.of(0, 30)) == 0);
+		Assert.assertTrue(HourOfWeek.of(monday.plusDays(6), LocalTime.of(23, 0)) == 167);
+		long epochHour = HourOfWeek.epochHour(monday, LocalTime.of(12, 0));
+		Assert.assertTrue(HourOfWeek.of(epochHour) == 12);
+		Assert.assertTrue(HourOfWeek.toDateTime(epochHour).equals(LocalDateTime.of(2025, 1, 6, 12, 0)));
+	}
+
+	@Test
+	public void testForecastNextHour() {
+		DemandForecaster forecaster = new DemandForecaster(0.5, 10);
+		LocalDate monday = LocalDate.of(2025, 1, 6);
+
+		// 4 orders every Monday at lunch for 3 weeks, then 8 orders
+		for (int week = 0; week < 3; week++) {
+			for (Order order : lunchOrders(monday.plusWeeks(week), 4)) {
+				forecaster.observe(order);
+			}
+		}
+		for (Order order : lunchOrders(monday.plusWeeks(3), 8)) {
+			forecaster.observe(order);
+		}
+
+		LocalDateTime beforeLunch = LocalDateTime.of(monday.plusWeeks(4), LocalTime.of(11, 30));
+		Assert.assertEquals(6, forecaster.forecastNextHour(restaurant, beforeLunch), 1e-9);
+		Assert.assertEquals(6, forecaster.forecastNextHour(new Location(15, 5), beforeLunch), 1e-9);
+		Assert.assertEquals(6, forecaster.forecastNextHour(beforeLunch), 1e-9);
+		Assert.assertTrue(DemandForecaster.suggestedCouriers(6, 2) == 3);
+
+		// No orders on Monday afternoon
+		LocalDateTime afterLunch = LocalDateTime.of(monday.plusWeeks(4), LocalTime.of(14, 30));
+		Assert.assertEquals(0, forecaster.forecastNextHour(restaurant, afterLunch), 1e-9);
+
+		// The zone of the restaurant is the busiest one
+		Assert.assertEquals(1, forecaster.forecastZones(beforeLunch).size());
+		Assert.assertTrue(forecaster.forecastZones(beforeLunch).get(0).getCenter().equals(new Location(15, 5)));
+	}
+
+	@Test
+	public void testRebuild() {
+		LocalDate monday = LocalDate.of(2025, 1, 6);
+		List<Order> orders = new ArrayList<Order>();
+		orders.addAll(lunchOrders(monday.plusWeeks(1), 2));
+		orders.addAll(lunchOrders(monday, 2));
+
+		DemandForecaster forecaster = new DemandForecaster(0.5, 10);
+		forecaster.rebuild(orders);
+		LocalDateTime beforeLunch = LocalDateTime.of(monday.plusWeeks(2), LocalTime.of(11, 0));
+		Assert.assertEquals(2, forecaster.forecastNextHour(restaurant, beforeLunch), 1e-9);
+	}
+
+}
@@ -3,6 +3,7 @@ package test;
 import food.*;
 import org.junit.*;
 import org.junit.Test;
+import system.Money;
 
 
 /**
@@ -17,7 +18,7 @@ public class TestDish {
         Dish dish1 = new Dessert("Gelato", 5.99, true, false);
         Assert.assertNotNull(dish1);
         Assert.assertEquals("Gelato", dish1.getName());
-        Assert.assertEquals(5.99, dish1.getPrice(), 0.01);
+        Assert.assertEquals(Money.ofCents(599), dish1.getPrice());
     }
 
     @Test
@@ -25,7 +26,7 @@ public class TestDish {
         Dish dish = new MainDish("Burger", 8.99, true, false);
         Assert.assertNotNull(dish);
         Assert.assertEquals("Burger", dish.getName());
-        Assert.assertEquals(8.99, dish.getPrice(), 0.01);
+        Assert.assertEquals(Money.ofCents(899), dish.getPrice());
         Assert.assertTrue(dish.isVegetarian());
         Assert.assertFalse(dish.isGlutenFree());
     }
@@ -35,7 +36,7 @@ public class TestDish {
         Dish dish = new Starter("Soup", 4.50, false, true);
         Assert.assertNotNull(dish);
         Assert.assertEquals("Soup", dish.getName());
-        Assert.assertEquals(4.50, dish.getPrice(), 0.01);
+        Assert.assertEquals(Money.ofCents(450), dish.getPrice());
         Assert.assertFalse(dish.isVegetarian());
         Assert.assertTrue(dish.isGlutenFree());
     }
@@ -43,8 +44,8 @@ public class TestDish {
     @Test
     public void testDishPriceUpdate() {
         Dish dish = new MainDish("Burger", 8.99, true, false);
-        dish.setPrice(9.99);
-        Assert.assertEquals(9.99, dish.getPrice(), 0.01);
+        dish.setPrice(Money.parse("9.99"));
+        Assert.assertEquals(Money.ofCents(999), dish.getPrice());
         dish.incrementFrequencyDelivery();
         Assert.assertEquals(1, dish.getFrequencyDelivery());
     }
@@ -52,7 +53,7 @@ public class TestDish {
     @Test(expected = IllegalArgumentException.class)
     public void testDishPriceUpdateWithNegativeValue() throws IllegalArgumentException {
         Dish dish = new Dessert("Gelato", 5.99, true, false);
-        dish.setPrice(-1.0); // Should throw IllegalArgumentException
+        dish.setPrice(Money.parse("-1.00")); // Should throw IllegalArgumentException
     }
 
     @Test
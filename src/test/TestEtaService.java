@@ -0,0 +1,117 @@
+package test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import order.Order;
+import system.EtaService;
+import system.EtaService.Eta;
+import user.BadUserCreationException;
+import user.Courier;
+import user.Customer;
+import user.Location;
+import user.Restaurant;
+
+/**
+ * Test class for EtaService class.
+ *
+ * @author Alisson Bonatto
+ */
+public class TestEtaService {
+
+	static Restaurant restaurant;
+	static Customer nearCustomer;
+	static Customer farCustomer;
+
+	@BeforeClass
+	public static void setUp() throws BadUserCreationException {
+		restaurant = new Restaurant("EtaRestaurant", "etarestaurant", "1234", new Location(0, 0));
+		nearCustomer = new Customer("Eta", "Near", "etanearcustomer", "1234", "+testetanearcustomer",
+				"eta.near@email.com", new Location(3, 4));
+		farCustomer = new Customer("Eta", "Far", "etafarcustomer", "1234", "+testetafarcustomer",
+				"eta.far@email.com", new Location(6, 8));
+	}
+
+	@Test
+	public void testLegCache() {
+		EtaService etaService = new EtaService(15, 120, 60, 2);
+		Assert.assertTrue(etaService.getLegDistance(restaurant, nearCustomer) == 5);
+		Assert.assertTrue(etaService.getLegDistance(restaurant, nearCustomer) == 5);
+		Assert.assertTrue(etaService.getCacheHits() == 1);
+		Assert.assertTrue(etaService.getCacheMisses() == 1);
+
+		// The least recently used leg is evicted when the cache is full
+		etaService.getLegDistance(restaurant, farCustomer);
+		etaService.getLegDistance(restaurant, nearCustomer);
+		etaService.getLegDistance(new Location(1, 1), new Location(2, 2));
+		Assert.assertTrue(etaService.getCacheSize() == 2);
+		etaService.getLegDistance(restaurant, nearCustomer);
+		Assert.assertTrue(etaService.getCacheHits() == 3);
+		etaService.getLegDistance(restaurant, farCustomer);
+		Assert.assertTrue(etaService.getCacheMisses() == 4);
+
+		// A copy keeps the speed model with its own empty cache, as used by the simulator
+		etaService.setSpeedFactor(12, 0.5);
+		EtaService copy = etaService.copy();
+		Assert.assertTrue(copy.getCacheSize() == 0);
+		Assert.assertTrue(copy.getSpeedFactor(12) == 0.5);
+		copy.getLegDistance(new Location(3, 3), new Location(4, 4));
+		copy.getLegDistance(new Location(5, 5), new Location(6, 6));
+		Assert.assertTrue(copy.getCacheSize() == 2);
+		Assert.assertTrue(etaService.getLegDistance(restaurant, farCustomer) > 0);
+		Assert.assertTrue(etaService.getCacheHits() == 4);
+	}
+
+	@Test
+	public void testEstimate() {
+		EtaService etaService = new EtaService(10, 120, 60);
+		LocalDateTime now = LocalDateTime.of(2025, 3, 3, 12, 0);
+
+		// 5 units to the restaurant and 5 to the customer at 10 units per hour
+		Eta eta = etaService.estimate(new Location(-3, -4), restaurant, nearCustomer, now);
+		Assert.assertEquals(1800 + 120, eta.getPickupDelay(), 1e-9);
+		Assert.assertEquals(1800 + 120 + 1800 + 60, eta.getDropoffDelay(), 1e-9);
+		Assert.assertTrue(eta.getDropoffTime(now).equals(LocalDateTime.of(2025, 3, 3, 13, 3)));
+
+		// The traffic slows the couriers down at noon
+		etaService.setSpeedFactor(12, 0.5);
+		eta = etaService.estimate(new Location(-3, -4), restaurant, nearCustomer, now);
+		Assert.assertEquals(3600 + 120 + 3600 + 60, eta.getDropoffDelay(), 1e-9);
+	}
+
+	@Test
+	public void testEstimateStackedOrders() throws BadUserCreationException {
+		EtaService etaService = new EtaService(10, 120, 60);
+		LocalDateTime now = LocalDateTime.of(2025, 3, 3, 15, 0);
+		Courier courier = new Courier("Eta", "Courier", "etacourier", "1234", "+testetacourier", new Location(0, 0));
+		courier.setOnDuty(true);
+
+		Order farOrder = new Order(farCustomer, restaurant, null);
+		farOrder.setPossibleCouriers(new ArrayList<Courier>(Arrays.asList(courier)));
+		farOrder.notifyNextCourier();
+
+		// Waiting for the answer of the courier
+		Eta eta = etaService.estimate(farOrder, now);
+		Assert.assertEquals(120 + 3600 + 60, eta.getDropoffDelay(), 1e-9);
+		courier.acceptOrder(farOrder.getId());
+
+		Order nearOrder = new Order(nearCustomer, restaurant, null);
+		nearOrder.setPossibleCouriers(new ArrayList<Courier>(Arrays.asList(courier)));
+		nearOrder.notifyNextCourier();
+		courier.acceptOrder(nearOrder.getId());
+
+		// The far customer is delivered after the near one
+		Assert.assertEquals(120 + 1800 + 60, etaService.estimate(nearOrder, now).getDropoffDelay(), 1e-9);
+		Assert.assertEquals(120 + 1800 + 60 + 1800 + 60, etaService.estimate(farOrder, now).getDropoffDelay(), 1e-9);
+
+		courier.completeDelivery();
+		Assert.assertTrue(etaService.estimate(nearOrder, now) == null);
+		Assert.assertEquals(1800 + 60, etaService.estimate(farOrder, now).getDropoffDelay(), 1e-9);
+	}
+
+}
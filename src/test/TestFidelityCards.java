@@ -14,6 +14,7 @@ import food.HalfMeal;
 import food.MainDish;
 import food.UnrecognizedDishException;
 import order.Order;
+import system.Money;
 import user.BadUserCreationException;
 import user.Courier;
 import user.Customer;
@@ -67,9 +68,9 @@ public class TestFidelityCards {
 	@Test
 	public void testBasicCardFinalPrice() {
 		BasicCard basicCard = new BasicCard(customerLucas);
-		double expectedFinalPrice = (100 + 200) * (1 + 0.95);
+		Money expectedFinalPrice = Money.ofCents((100 + 200) * 195);
 		
-		Assert.assertTrue(basicCard.getFinalPrice(order) >= expectedFinalPrice*0.99 && basicCard.getFinalPrice(order) <= expectedFinalPrice*1.01);
+		Assert.assertEquals(expectedFinalPrice, basicCard.getFinalPrice(order));
 	}
 	
 	@Test
@@ -84,18 +85,18 @@ public class TestFidelityCards {
 		PointCard pointCard = new PointCard(customerLucas);
 
 		Assert.assertTrue(pointCard.getOwner().equals(customerLucas));
-		Assert.assertTrue(pointCard.getMoneySpent() == 0);
+		Assert.assertTrue(pointCard.getMoneySpent().equals(Money.ZERO));
 		Assert.assertTrue(pointCard.getPoints() == 0);
 	}
 	
 	@Test
 	public void testPointCardFinalPrice() {
 		PointCard pointCard = new PointCard(customerLucas);
-		pointCard.addMoneySpent(1000);
-		double expectedFinalPrice = (100 + 200) * (1 + 0.95) * 0.9;
-		double retunedPrice = pointCard.getFinalPrice(order);
+		pointCard.addMoneySpent(Money.ofCents(100000));
+		Money expectedFinalPrice = Money.ofCents((100 + 200) * 195 * 9 / 10);
+		Money retunedPrice = pointCard.getFinalPrice(order);
 		
-		Assert.assertTrue(retunedPrice >= expectedFinalPrice*0.99 && retunedPrice <= expectedFinalPrice*1.01);
+		Assert.assertEquals(expectedFinalPrice, retunedPrice);
 	}
 	
 	@Test
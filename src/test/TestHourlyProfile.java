@@ -0,0 +1,71 @@
+package test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import order.Order;
+import order.OrderStatus;
+import system.HourOfWeek;
+import system.HourlyProfile;
+import system.Money;
+import system.ProfitData;
+
+/**
+ * Test class for HourlyProfile class.
+ *
+ * @author Alisson Bonatto
+ */
+public class TestHourlyProfile {
+
+	// A Monday
+	static final LocalDate monday = LocalDate.of(2024, 5, 13);
+	static final ProfitData profitData = new ProfitData(0.1, Money.ofCents(150), Money.ofCents(300));
+
+	/**
+	 * Creates an order of the given date, time and price, delivered if asked.
+	 */
+	private static Order order(LocalDate date, LocalTime time, long priceCents, boolean delivered) {
+		Order order = new Order(null, null, null, time, date);
+		order.setPrice(Money.ofCents(priceCents));
+		order.transitionTo(OrderStatus.OFFERED);
+		order.transitionTo(OrderStatus.ACCEPTED);
+		if (delivered) {
+			order.transitionTo(OrderStatus.DELIVERED);
+		}
+		return order;
+	}
+
+	@Test
+	public void testHoursOfTheWeek() {
+		HourlyProfile profile = new HourlyProfile();
+		profile.observe(order(monday, LocalTime.of(12, 10), 2000, true));
+		// Same hour of the next week
+		profile.observe(order(monday.plusDays(7), LocalTime.of(12, 50), 4000, true));
+		profile.observe(order(monday.plusDays(6), LocalTime.of(23, 0), 10000, true));
+		// Orders in progress are not counted
+		profile.observe(order(monday, LocalTime.of(12, 30), 5000, false));
+
+		Assert.assertTrue(profile.getTotalOrders() == 3);
+		Assert.assertTrue(profile.getOrders(12) == 2);
+		Assert.assertEquals(Money.ofCents(6300), profile.getRevenue(12, profitData));
+		// 6000 * 0.1 + 2 * (150 - 300)
+		Assert.assertEquals(Money.ofCents(300), profile.getProfit(12, profitData));
+		Assert.assertTrue(profile.getOrders(HourOfWeek.HOURS_PER_WEEK - 1) == 1);
+		Assert.assertEquals(Money.ofCents(850), profile.getProfit(HourOfWeek.HOURS_PER_WEEK - 1, profitData));
+		Assert.assertEquals(Money.ZERO, profile.getProfit(13, profitData));
+
+		List<Integer> topHours = profile.getTopHours(5, profitData);
+		Assert.assertEquals(Arrays.asList(HourOfWeek.HOURS_PER_WEEK - 1, 12), topHours);
+		Assert.assertTrue(profile.getTopHours(1, profitData).size() == 1);
+
+		profile.rebuild(Arrays.asList(order(monday, LocalTime.of(0, 0), 1000, true)));
+		Assert.assertTrue(profile.getTotalOrders() == 1);
+		Assert.assertTrue(profile.getOrders(0) == 1);
+		Assert.assertTrue(profile.getOrders(12) == 0);
+	}
+}
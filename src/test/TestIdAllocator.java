@@ -0,0 +1,101 @@
+package test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import system.IdAllocator;
+import system.IdSet;
+
+/**
+ * Test class for IdAllocator class.
+ *
+ * @author Alisson Bonatto
+ */
+public class TestIdAllocator {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testConcurrentIds() throws InterruptedException {
+		IdAllocator allocator = new IdAllocator(3);
+		Set<Long> ids = ConcurrentHashMap.newKeySet();
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 8; t++) {
+			Thread thread = new Thread(() -> {
+				for (int i = 0; i < 10000; i++) {
+					ids.add(allocator.nextId());
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		// No ID is lost nor given twice, and all carry the node identifier
+		Assert.assertTrue(ids.size() == 80000);
+		for (long id : ids) {
+			Assert.assertTrue(IdAllocator.nodeOf(id) == 3);
+		}
+		Assert.assertFalse(ids.contains(new IdAllocator(4).nextId()));
+	}
+
+	@Test
+	public void testHighWaterMarkSurvivesRestart() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("ids.hwm");
+		IdAllocator allocator = new IdAllocator(0, file, 4, 16);
+		long lastId = 0;
+		for (int i = 0; i < 20; i++) {
+			lastId = allocator.nextId();
+		}
+		Assert.assertTrue(allocator.getHighWaterMark() == 32);
+
+		// After a restart, the IDs start above all the IDs given before
+		IdAllocator restarted = new IdAllocator(0, file, 4, 16);
+		long firstId = restarted.nextId();
+		Assert.assertTrue(firstId > lastId);
+		Assert.assertTrue(IdAllocator.sequenceOf(firstId) == 32);
+	}
+
+	@Test
+	public void testThreadDefault() throws InterruptedException {
+		IdAllocator systemIds = IdAllocator.getDefault();
+		IdAllocator threadIds = new IdAllocator(9);
+		Assert.assertNull(IdAllocator.setThreadDefault(threadIds));
+		try {
+			Assert.assertSame(threadIds, IdAllocator.getDefault());
+			// The other threads keep the default allocator
+			IdAllocator[] otherThreadIds = new IdAllocator[1];
+			Thread thread = new Thread(() -> otherThreadIds[0] = IdAllocator.getDefault());
+			thread.start();
+			thread.join();
+			Assert.assertSame(systemIds, otherThreadIds[0]);
+		} finally {
+			Assert.assertSame(threadIds, IdAllocator.setThreadDefault(null));
+		}
+		Assert.assertSame(systemIds, IdAllocator.getDefault());
+	}
+
+	@Test
+	public void testIdSet() {
+		IdSet ids = new IdSet();
+		long farId = (5L << IdAllocator.SEQUENCE_BITS) | 42;
+		ids.add(7);
+		ids.add(farId);
+		Assert.assertTrue(ids.contains(7) && ids.contains(farId));
+		Assert.assertFalse(ids.contains(42));
+		Assert.assertTrue(ids.size() == 2);
+		ids.remove(farId);
+		Assert.assertFalse(ids.contains(farId));
+		Assert.assertTrue(ids.size() == 1);
+	}
+}
@@ -1,6 +1,8 @@
 package test;
 
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.HashSet;
 
 import org.junit.Assert;
@@ -14,10 +16,13 @@ import food.HalfMeal;
 import food.MainDish;
 import food.Meal;
 import food.UnrecognizedDishException;
+import order.BadOrderHandlingException;
 import order.Order;
+import order.OrderStatus;
 import system.AvailableCourierNotFoundException;
 import system.FairOccupationDelivery;
 import system.IncorrectCredentialsException;
+import system.Money;
 import system.MyFoodora;
 import system.UserNotFoundException;
 import user.BadUserCreationException;
@@ -87,9 +92,9 @@ public class TestManager {
 		managerTest.setUsername("bobdylan");
 		managerTest.setPassword("123456789");
 		managerTest.deactivateUser();
-		managerTest.setDeliveryCost(20, system);
+		managerTest.setDeliveryCost(Money.ofCents(2000), system);
 		managerTest.setMarkupPercentage(0.1, system);
-		managerTest.setServiceFee(0.3, system);
+		managerTest.setServiceFee(Money.ofCents(30), system);
 		managerTest.setDeliveryStrategy(system, new FairOccupationDelivery());
 		
 		Assert.assertTrue(managerTest.getName().equals("Bob"));
@@ -97,9 +102,9 @@ public class TestManager {
 		Assert.assertTrue(managerTest.getUsername().equals("bobdylan"));
 		Assert.assertTrue(managerTest.getPassword().equals("123456789"));
 		Assert.assertTrue(managerTest.isActive() == false);
-		Assert.assertTrue(system.getProfitData().getDeliveryCost() == 20);
+		Assert.assertTrue(system.getProfitData().getDeliveryCost().equals(Money.ofCents(2000)));
 		Assert.assertTrue(system.getProfitData().getMarkupPercentage() == 0.1);
-		Assert.assertTrue(system.getProfitData().getServiceFee() == 0.3);
+		Assert.assertTrue(system.getProfitData().getServiceFee().equals(Money.ofCents(30)));
 		Assert.assertTrue(system.getDeliveryStrategy() instanceof FairOccupationDelivery);
 	}
 	
@@ -206,16 +211,95 @@ public class TestManager {
 		Order order2 = system.createOrder(restaurant1, customerTheo);
 		order2 = system.makeOrder(order2, new HashSet<Dish>(), meals);
 		
-		// Comparing expected total income and profit with the return of the system
-		// considering a error of 1% (due to imprecision in calculations)
-		double expectedIncome = 100 + 200 + 2*(100+200)*0.95 + system.getProfitData().getServiceFee()*2;
-		double totalIncomeReturnedBySystem = manager1.computeTotalIncome(system, LocalDate.now().minusMonths(1), LocalDate.now());
-		Assert.assertTrue(totalIncomeReturnedBySystem >= expectedIncome*0.99 && totalIncomeReturnedBySystem <= expectedIncome*1.01);
+		// Comparing expected total income and profit with the return of the system,
+		// exactly since the amounts are in cents
+		Money totalPrice = Money.ofCents((100 + 200 + 2*(100+200)*95/100) * 100);
+		Money expectedIncome = totalPrice.plus(system.getProfitData().getServiceFee().times(2));
+		Money totalIncomeReturnedBySystem = manager1.computeTotalIncome(system, LocalDate.now().minusMonths(1), LocalDate.now());
+		Assert.assertEquals(expectedIncome, totalIncomeReturnedBySystem);
 		
-		double expectedTotalProfit = (100 + 200 + 2*(100+200)*0.95)*system.getProfitData().getMarkupPercentage()
-				+ system.getProfitData().getServiceFee()*2 - system.getProfitData().getDeliveryCost()*2;
-		double totalProfitReturnedBySystem = manager1.computeTotalProfit(system, LocalDate.now().minusMonths(1), LocalDate.now());
-		Assert.assertTrue(totalProfitReturnedBySystem >= expectedTotalProfit*0.99 && totalProfitReturnedBySystem <= expectedTotalProfit*1.01);
+		Money expectedTotalProfit = totalPrice.times(system.getProfitData().getMarkupPercentage())
+				.plus(system.getProfitData().getServiceFee().times(2)).minus(system.getProfitData().getDeliveryCost().times(2));
+		Money totalProfitReturnedBySystem = manager1.computeTotalProfit(system, LocalDate.now().minusMonths(1), LocalDate.now());
+		Assert.assertEquals(expectedTotalProfit, totalProfitReturnedBySystem);
+	}
+	
+	@Test
+	public void testAnalyticsOnCompactOrders() throws AvailableCourierNotFoundException, UnrecognizedDishException,
+			UserNotFoundException, IncorrectCredentialsException, BadOrderHandlingException {
+		system.setOrderHistory(new HashSet<Order>());
+		MainDish dish = new MainDish("Dish3", 12.5, true, false);
+		restaurant2.addDish(dish);
+		HashSet<Dish> dishes = new HashSet<Dish>();
+		dishes.add(dish);
+		
+		// customerLucas makes an order at restaurant2, which is delivered and compacted
+		system.login("c_username", "1234");
+		Order order = system.createOrder(restaurant2, customerLucas);
+		order = system.makeOrder(order, dishes, new HashSet<Meal>());
+		Courier courier = order.getPossibleCouriers().get(0);
+		Assert.assertTrue(courier.acceptOrder(order.getId()));
+		system.completeDelivery(order.getId());
+		courier.setOnDuty(true);
+		Assert.assertNotNull(system.getOrderHistory().getCompactOrder(order.getId()));
+		
+		// The scans of the columns give the same results as the orders
+		LocalDate today = LocalDate.now();
+		Money expectedIncome = Money.ZERO;
+		for (Order o : manager1.getOrders(system, today, today)) {
+			expectedIncome = expectedIncome.plus(o.getPrice()).plus(system.getProfitData().getServiceFee());
+		}
+		Assert.assertEquals(expectedIncome, manager1.computeTotalIncome(system, today, today));
+		Assert.assertEquals(Money.ZERO, manager1.computeTotalIncome(system, today.plusDays(1), today.plusDays(2)));
+		
+		// The active customers are searched strictly between the two dates
+		Assert.assertTrue(manager1.getActiveCustomers(system, today.minusDays(1), today.plusDays(1)).contains(customerLucas));
+		Assert.assertFalse(manager1.getActiveCustomers(system, today.minusDays(1), today.plusDays(1)).contains(customerTheo));
+		Assert.assertTrue(manager1.getActiveCustomers(system, today, today.plusDays(1)).isEmpty());
+		Assert.assertTrue(manager1.countActiveCustomers(system, today.minusDays(1), today.plusDays(1), false) == 1);
+		Assert.assertTrue(manager1.countActiveCustomers(system, today.minusDays(1), today.plusDays(1), true) == 1);
+		Assert.assertTrue(manager1.countActiveCustomers(system, today, today.plusDays(1), true) == 0);
+		
+		Assert.assertTrue(manager1.sortRestaurants(system, today, today).get(0).equals(restaurant2));
+	}
+	
+	@Test
+	public void testParallelAnalytics() {
+		// 10000 delivered orders over 100 days, more than a chunk of the parallel aggregation
+		LocalDate firstDay = LocalDate.of(2024, 1, 1);
+		HashSet<Order> orders = new HashSet<Order>();
+		for (int i = 0; i < 10000; i++) {
+			Order order = new Order((i % 3 == 0) ? customerTheo : customerLucas, restaurant1, null, LocalTime.NOON, firstDay.plusDays(i % 100));
+			order.setPrice(Money.ofCents(1000 + i));
+			order.transitionTo(OrderStatus.OFFERED);
+			order.transitionTo(OrderStatus.ACCEPTED);
+			order.transitionTo(OrderStatus.DELIVERED);
+			orders.add(order);
+		}
+		system.setOrderHistory(orders);
+		
+		LocalDate start = firstDay.plusDays(10);
+		LocalDate end = firstDay.plusDays(60);
+		ArrayList<Order> sequentialOrders = manager1.getOrders(system, start, end);
+		Money sequentialIncome = manager1.computeTotalIncome(system, start, end);
+		Money sequentialAverage = manager1.computeAverageProfitPerCustomer(system, start, end);
+		manager1.setParallel(true);
+		try {
+			Assert.assertTrue(manager1.isParallel());
+			Assert.assertTrue(sequentialOrders.size() == 5100);
+			Assert.assertEquals(sequentialOrders, manager1.getOrders(system, start, end));
+			Assert.assertEquals(sequentialIncome, manager1.computeTotalIncome(system, start, end));
+			Assert.assertEquals(sequentialAverage, manager1.computeAverageProfitPerCustomer(system, start, end));
+			Assert.assertTrue(manager1.getActiveCustomers(system, start, end).size() == 2);
+			Assert.assertTrue(manager1.countActiveCustomers(system, start, end, false) == 2);
+			Assert.assertTrue(manager1.countActiveCustomers(system, start, end, true) == 2);
+			Assert.assertEquals(sequentialAverage, manager1.computeAverageProfitPerCustomer(system, start, end, true));
+			// Same quirk as the sequential mode: both dates are included even when the start is after the end
+			Assert.assertTrue(manager1.getOrders(system, end, start).size() == 200);
+		} finally {
+			manager1.setParallel(false);
+			system.setOrderHistory(new HashSet<Order>());
+		}
 	}
 	
 	@Test
@@ -4,6 +4,7 @@ import org.junit.*;
 import java.util.*;
 
 import food.*;
+import system.Money;
 
 /**
  * Test class for the Meal class and its subclasses.
@@ -121,16 +122,16 @@ public class TestMeal {
         Dish starter = new  Starter("Salad", 5, false, true);
         Dish dessert = new Dessert("Gelato", 5, true, false);
         Meal fullMeal = new FullMeal("Full Meal", Set.of(maindish, starter, dessert));
-        double price = fullMeal.getPrice();
-        Assert.assertEquals(20*0.95,price,0.01);
+        Money price = fullMeal.getPrice();
+        Assert.assertEquals(Money.ofCents(1900), price);
         ((GeneralDiscountMeal)fullMeal.getPricingStrategy()).setDiscount(0.5);
-        double newPrice = fullMeal.getPrice();
-        Assert.assertEquals(20*0.5, newPrice, 0.01);
+        Money newPrice = fullMeal.getPrice();
+        Assert.assertEquals(Money.ofCents(1000), newPrice);
         fullMeal.setPricingStrategy(new MealOfTheWeekDiscount(0.5));
-        double newPrice2 = fullMeal.getPrice();
-        Assert.assertEquals(20*0.5, newPrice2, 0.01);
+        Money newPrice2 = fullMeal.getPrice();
+        Assert.assertEquals(Money.ofCents(1000), newPrice2);
         ((MealOfTheWeekDiscount)fullMeal.getPricingStrategy()).setDiscount(0.3);
-        double newPrice3 = fullMeal.getPrice();
-        Assert.assertEquals(20*0.7, newPrice3, 0.01);
+        Money newPrice3 = fullMeal.getPrice();
+        Assert.assertEquals(Money.ofCents(1400), newPrice3);
     }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import system.Money;
+
+/**
+ * Test class for Money class.
+ *
+ * @author Alisson Bonatto
+ */
+public class TestMoney {
+
+	@Test
+	public void testExactAggregation() {
+		// 0.1 added a million times is not 100000 in double, but is in cents
+		Money total = Money.ZERO;
+		Money amount = Money.of(0.1);
+		for (int i = 0; i < 1000000; i++) {
+			total = total.plus(amount);
+		}
+		Assert.assertEquals(Money.ofCents(10000000), total);
+		Assert.assertEquals("100000.00", total.toString());
+		Assert.assertEquals(Money.ZERO, total.minus(amount.times(1000000)));
+	}
+
+	@Test
+	public void testRounding() {
+		Assert.assertTrue(Money.of(12.5).getCents() == 1250);
+		Assert.assertTrue(Money.parse("9.999").getCents() == 1000);
+		Assert.assertTrue(Money.parse("0.125").getCents() == 12);
+		Assert.assertTrue(Money.ofCents(1999).times(0.95).getCents() == 1899);
+		Assert.assertTrue(Money.ofCents(1000).dividedBy(3).getCents() == 333);
+		Assert.assertEquals("-0.05", Money.ofCents(-5).toString());
+		Assert.assertTrue(Money.ofCents(100).compareTo(Money.parse("1")) == 0);
+	}
+}
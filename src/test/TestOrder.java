@@ -1,6 +1,8 @@
 package test;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 
@@ -18,6 +20,9 @@ import food.Meal;
 import food.UnrecognizedDishException;
 import order.BadOrderHandlingException;
 import order.Order;
+import order.OrderStatus;
+import system.Money;
+import system.OrderStatusIndex;
 import user.BadUserCreationException;
 import user.Courier;
 import user.Customer;
@@ -67,13 +72,13 @@ public class TestOrder {
 		order.setCustomer(customerLucas);
 		order.setRestaurant(restaurant1);
 		order.setDate(LocalDate.now().minusDays(1));
-		order.setPrice(100);
+		order.setPrice(Money.ofCents(10000));
 		
 		Assert.assertTrue(order.getCourier().equals(courier1));
 		Assert.assertTrue(order.getCustomer().equals(customerLucas));
 		Assert.assertTrue(order.getRestaurant().equals(restaurant1));
 		Assert.assertTrue(order.getDate().equals(LocalDate.now().minusDays(1)));
-		Assert.assertTrue(order.getPrice() == 100);
+		Assert.assertTrue(order.getPrice().equals(Money.ofCents(10000)));
 	}
 	
 	@Test
@@ -155,7 +160,7 @@ public class TestOrder {
 		order.addDish(dish2);
 		order.addMeal(halfMeal);
 		
-		Assert.assertTrue(order.getPrice() == (100 + 200) * (1 + 0.95));
+		Assert.assertTrue(order.getPrice().equals(Money.ofCents((100 + 200) * 195)));
 		
 		// Getting meals and dishes from order
 		List<Meal> mealsInOrder = order.getMeals();
@@ -173,7 +178,76 @@ public class TestOrder {
 		Assert.assertTrue(!order.getDishes().contains(dish1));
 		Assert.assertTrue(!order.getDishes().contains(dish2));
 		Assert.assertTrue(!order.getMeals().contains(halfMeal));
-		Assert.assertTrue(order.getPrice() == 0);
+		Assert.assertTrue(order.getPrice().equals(Money.ZERO));
 	}
 	
+	@Test
+	public void testStatusTransitions() throws BadUserCreationException {
+		Courier courier = new Courier("CourierStatus", "CourierStatusSurname", "courierstatustestorder", "1234",
+				"+courierstatustestorderphone", new Location(1, 1));
+		Order order = new Order(customerLucas, restaurant1, null);
+		OrderStatusIndex index = new OrderStatusIndex(Arrays.asList(order));
+		Assert.assertTrue(order.getStatus() == OrderStatus.CREATED);
+		Assert.assertTrue(index.getCount(OrderStatus.CREATED) == 1);
+		
+		// An order can not be delivered before being offered and accepted
+		Assert.assertFalse(order.transitionTo(OrderStatus.DELIVERED));
+		Assert.assertTrue(order.getStatus() == OrderStatus.CREATED);
+		
+		order.setPossibleCouriers(new ArrayList<Courier>(Arrays.asList(courier)));
+		order.notifyNextCourier();
+		Assert.assertTrue(order.getStatus() == OrderStatus.OFFERED);
+		Assert.assertTrue(index.getCount(OrderStatus.CREATED) == 0);
+		Assert.assertTrue(index.getOrders(OrderStatus.OFFERED).contains(order));
+		
+		Assert.assertTrue(courier.acceptOrder(order.getId()));
+		Assert.assertTrue(index.getCount(OrderStatus.ACCEPTED) == 1);
+		Assert.assertTrue(courier.completeDelivery() == order);
+		Assert.assertTrue(order.getCurrentStatus().equals("DELIVERED"));
+		Assert.assertTrue(index.getCount(OrderStatus.DELIVERED) == 1);
+		
+		// A delivered order can not be cancelled
+		Assert.assertFalse(order.transitionTo(OrderStatus.CANCELLED));
+		Assert.assertTrue(index.size() == 1);
+		
+		// Removed orders are not followed anymore
+		Order cancelledOrder = new Order(customerLucas, restaurant1, null);
+		index.add(cancelledOrder);
+		index.remove(cancelledOrder);
+		Assert.assertTrue(cancelledOrder.transitionTo(OrderStatus.CANCELLED));
+		Assert.assertTrue(index.getCount(OrderStatus.CANCELLED) == 0);
+	}
+
+	@Test
+	public void testLineItems() throws BadOrderHandlingException {
+		MainDish drink = new MainDish("DrinkTestOrder", 2, true, true);
+		Order order = new Order(customerLucas, restaurant1, null);
+		
+		// A catering order: 20 drinks in a single line item
+		order.addDish(drink, 20);
+		order.addDish(drink);
+		Assert.assertTrue(order.getDishes().size() == 1);
+		Assert.assertTrue(order.getDishQuantity(drink) == 21);
+		Assert.assertTrue(order.getItemCount() == 21);
+		Assert.assertTrue(order.getPrice().equals(Money.ofCents(4200)));
+		Assert.assertTrue(drink.getFrequencyDelivery() == 21);
+		
+		order.removeDish(drink, 11);
+		Assert.assertTrue(order.getDishQuantity(drink) == 10);
+		Assert.assertTrue(order.getPrice().equals(Money.ofCents(2000)));
+		Assert.assertTrue(drink.getFrequencyDelivery() == 10);
+		
+		// Removing more units than ordered fails and keeps the order unchanged
+		try {
+			order.removeDish(drink, 11);
+			Assert.fail("Removing more units than ordered should fail");
+		} catch (BadOrderHandlingException e) {
+			Assert.assertTrue(order.getDishQuantity(drink) == 10);
+		}
+		
+		order.removeDish(drink, 10);
+		Assert.assertTrue(order.getDishes().isEmpty());
+		Assert.assertTrue(order.getItemCount() == 0);
+	}
+
 }
@@ -0,0 +1,202 @@
+package test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import food.MainDish;
+import order.Order;
+import order.OrderStatus;
+import system.Money;
+import system.MyFoodora;
+import system.OrderArchive;
+import user.BadUserCreationException;
+import user.Customer;
+import user.Location;
+import user.Restaurant;
+
+/**
+ * Test class for OrderArchive class.
+ *
+ * @author Alisson Bonatto
+ */
+public class TestOrderArchive {
+
+	static Restaurant restaurant;
+	static Customer customer;
+	static MainDish dish;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@BeforeClass
+	public static void setUp() throws BadUserCreationException {
+		restaurant = new Restaurant("ArchiveRestaurant", "archiverestaurant", "1234", new Location(0, 0));
+		customer = new Customer("Archive", "Customer", "archivecustomer", "1234", "+testarchivecustomer",
+				"archive.customer@email.com", new Location(1, 1));
+		dish = new MainDish("ArchiveDish", 12.5, true, false);
+	}
+
+	/**
+	 * Creates a cancelled order of the given date.
+	 */
+	private static Order cancelledOrder(LocalDate date, double price) {
+		Order order = new Order(customer, restaurant, null, LocalTime.of(12, 30), date);
+		order.addDish(dish, 2);
+		order.setPrice(Money.of(price));
+		order.transitionTo(OrderStatus.CANCELLED);
+		return order;
+	}
+
+	@Test
+	public void testArchiveAndScan() throws IOException {
+		Order january = cancelledOrder(LocalDate.of(2023, 1, 31), 25);
+		Order february = cancelledOrder(LocalDate.of(2023, 2, 1), 10.5);
+		Order march = cancelledOrder(LocalDate.of(2023, 3, 15), 7);
+
+		try (OrderArchive archive = new OrderArchive(folder.getRoot().toPath())) {
+			archive.add(january);
+			archive.add(february);
+			archive.add(march);
+			Assert.assertTrue(archive.size() == 3);
+			Assert.assertTrue(archive.getMonths().size() == 3);
+
+			// Date-range scans with the bounds of Manager.getOrders
+			ArrayList<Order> orders = archive.getOrders(LocalDate.of(2023, 1, 31), LocalDate.of(2023, 2, 1));
+			Assert.assertTrue(orders.size() == 2);
+			Assert.assertTrue(orders.contains(january) && orders.contains(february));
+			Assert.assertTrue(archive.getTotals(LocalDate.MIN, LocalDate.MAX).getCount() == 3);
+			Assert.assertTrue(archive.getTotals(LocalDate.MIN, LocalDate.MAX).getPriceCents() == 4250);
+			Assert.assertTrue(archive.getCustomerIds(LocalDate.of(2023, 1, 31), LocalDate.of(2023, 2, 1)).isEmpty());
+			Assert.assertTrue(archive.getCustomerIds(LocalDate.of(2023, 1, 30), LocalDate.of(2023, 2, 1)).contains(customer.getId()));
+			Assert.assertTrue(archive.getCourierCounts(LocalDate.MIN, LocalDate.MAX).isEmpty());
+			Assert.assertTrue(archive.getHourCounts(LocalDate.MIN, LocalDate.MAX)[12] == 3);
+			Assert.assertTrue(archive.getHourCounts(LocalDate.of(2023, 2, 1), LocalDate.MAX)[12] == 2);
+
+			// The archived orders are expanded with their users and line items
+			Order expanded = archive.getOrder(march.getId());
+			Assert.assertEquals(march, expanded);
+			Assert.assertEquals(customer, expanded.getCustomer());
+			Assert.assertEquals(OrderStatus.CANCELLED, expanded.getStatus());
+			Assert.assertTrue(expanded.getDishQuantity(dish) == 2);
+		}
+
+		// The records are read back from the files
+		try (OrderArchive archive = new OrderArchive(folder.getRoot().toPath())) {
+			Assert.assertTrue(archive.size() == 3);
+			Assert.assertTrue(archive.getTotals(LocalDate.of(2023, 3, 1), LocalDate.of(2023, 3, 31)).getPriceCents() == 700);
+			archive.registerUser(customer);
+			Assert.assertEquals(customer, archive.getOrder(january.getId()).getCustomer());
+		}
+	}
+
+	@Test
+	public void testReopenWithNewDishes() throws IOException, BadUserCreationException {
+		Restaurant pizzeria = new Restaurant("ArchivePizzeria", "archivepizzeria", "1234", new Location(2, 2));
+		MainDish margherita = new MainDish("Margherita", 9, true, false);
+		MainDish calzone = new MainDish("Calzone", 11, false, false);
+		pizzeria.getMenu().addDish(margherita);
+		pizzeria.getMenu().addDish(calzone);
+		Order first = new Order(customer, pizzeria, null, LocalTime.NOON, LocalDate.of(2023, 4, 1));
+		first.addDish(margherita, 2);
+		first.transitionTo(OrderStatus.CANCELLED);
+		Order second = new Order(customer, pizzeria, null, LocalTime.NOON, LocalDate.of(2023, 4, 2));
+		second.addDish(calzone, 3);
+		second.transitionTo(OrderStatus.CANCELLED);
+
+		try (OrderArchive archive = new OrderArchive(folder.getRoot().toPath())) {
+			archive.add(first);
+		}
+		// The new dish archived after a restart does not take the item ID of the first one
+		try (OrderArchive archive = new OrderArchive(folder.getRoot().toPath())) {
+			archive.add(second);
+		}
+
+		try (OrderArchive archive = new OrderArchive(folder.getRoot().toPath())) {
+			archive.registerUser(pizzeria);
+			archive.registerMenu(pizzeria);
+			Order expandedFirst = archive.getOrder(first.getId());
+			Assert.assertTrue(expandedFirst.getDishQuantity(margherita) == 2);
+			Assert.assertTrue(expandedFirst.getDishQuantity(calzone) == 0);
+			Order expandedSecond = archive.getOrder(second.getId());
+			Assert.assertTrue(expandedSecond.getDishQuantity(calzone) == 3);
+			Assert.assertTrue(expandedSecond.getDishQuantity(margherita) == 0);
+
+			// An order already archived is not archived twice
+			Assert.assertFalse(archive.add(first));
+			Assert.assertTrue(archive.size() == 2);
+			Assert.assertNull(archive.getOrder(-1));
+		}
+	}
+
+	@Test
+	public void testIdIndex() throws IOException {
+		ArrayList<Order> orders = new ArrayList<Order>();
+		for (int i = 0; i < 50; i++) {
+			orders.add(cancelledOrder(LocalDate.of(2023, 5, 1 + i % 28), i));
+		}
+
+		// The orders are archived out of the order of their IDs
+		try (OrderArchive archive = new OrderArchive(folder.getRoot().toPath())) {
+			for (int i = orders.size() - 1; i >= 0; i -= 2) {
+				archive.add(orders.get(i));
+			}
+			for (int i = 0; i < orders.size(); i += 2) {
+				archive.add(orders.get(i));
+			}
+			for (Order order : orders) {
+				Assert.assertEquals(order, archive.getOrder(order.getId()));
+			}
+		}
+
+		// A missing index is rebuilt from the records
+		Files.delete(folder.getRoot().toPath().resolve("index-2023-05.dat"));
+		try (OrderArchive archive = new OrderArchive(folder.getRoot().toPath())) {
+			for (Order order : orders) {
+				Assert.assertEquals(order, archive.getOrder(order.getId()));
+				Assert.assertFalse(archive.add(order));
+			}
+			Assert.assertTrue(archive.size() == orders.size());
+		}
+	}
+
+	@Test
+	public void testArchiveOrdersOfSystem() throws IOException {
+		MyFoodora system = MyFoodora.getInstance();
+		LocalDate today = LocalDate.of(2024, 6, 1);
+		Order oldOrder = cancelledOrder(today.minusDays(40), 20);
+		Order recentOrder = cancelledOrder(today.minusDays(5), 30);
+		HashSet<Order> orders = new HashSet<Order>();
+		orders.add(oldOrder);
+		orders.add(recentOrder);
+		system.setOrderHistory(orders);
+
+		try (OrderArchive archive = new OrderArchive(folder.getRoot().toPath())) {
+			system.setOrderArchive(archive);
+			system.setArchiveAge(30);
+			Assert.assertTrue(system.archiveOrders(today) == 1);
+			// Archiving the same order again, as after a failure, does not archive it twice
+			Assert.assertFalse(archive.add(oldOrder));
+			Assert.assertTrue(archive.size() == 1);
+
+			// The old order left the history but is still found by id and by date
+			Assert.assertFalse(system.getOrderHistory().contains(oldOrder));
+			Assert.assertTrue(system.getOrderHistory().contains(recentOrder));
+			Assert.assertEquals(oldOrder, system.getOrder(oldOrder.getId()));
+			Assert.assertTrue(archive.getOrders(today.minusDays(40), today.minusDays(40)).contains(oldOrder));
+		} finally {
+			system.setOrderArchive(null);
+			system.setArchiveAge(365);
+			system.setOrderHistory(new HashSet<Order>());
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import order.Order;
+import order.OrderStatus;
+import system.Money;
+import system.OrderHistory;
+import user.BadUserCreationException;
+import user.Courier;
+import user.Location;
+import user.Restaurant;
+
+/**
+ * Test class for OrderHistory class.
+ *
+ * @author Alisson Bonatto
+ */
+public class TestOrderHistory {
+
+	static Restaurant restaurant;
+	static Courier courier;
+
+	@BeforeClass
+	public static void setUp() throws BadUserCreationException {
+		restaurant = new Restaurant("HistoryRestaurant", "historyrestaurant", "1234", new Location(0, 0));
+		courier = new Courier("History", "Courier", "historycourier", "1234", "+testhistorycourier", new Location(0, 0));
+	}
+
+	/**
+	 * Creates an order of the given date and price, delivered if asked.
+	 */
+	private static Order order(LocalDate date, long priceCents, boolean delivered) {
+		Order order = new Order(null, restaurant, null, LocalTime.NOON, date);
+		order.setPrice(Money.ofCents(priceCents));
+		order.transitionTo(OrderStatus.OFFERED);
+		order.transitionTo(OrderStatus.ACCEPTED);
+		if (delivered) {
+			order.transitionTo(OrderStatus.DELIVERED);
+		}
+		return order;
+	}
+
+	@Test
+	public void testLookupAndRemoveById() {
+		LocalDate day = LocalDate.of(2024, 6, 1);
+		OrderHistory history = new OrderHistory();
+		List<Order> orders = new ArrayList<Order>();
+		for (int i = 0; i < 5000; i++) {
+			Order order = order(day.plusDays(i % 10), 100, i % 50 != 0);
+			orders.add(order);
+			history.add(order);
+		}
+		Assert.assertTrue(history.size() == 5000);
+		Assert.assertTrue(history.getLiveOrders().size() == 100);
+
+		// Every order is found by its ID, live or compacted
+		for (Order order : orders) {
+			Assert.assertEquals(order, history.getOrder(order.getId()));
+			Assert.assertEquals(order.getStatus() == OrderStatus.DELIVERED, history.getCompactOrder(order.getId()) != null);
+		}
+
+		// Removing the first half, directly or through the iterator, keeps the other half found
+		for (int i = 0; i < 1000; i++) {
+			Assert.assertTrue(history.remove(orders.get(i)));
+			Assert.assertFalse(history.remove(orders.get(i)));
+		}
+		Iterator<Order> iterator = history.iterator();
+		while (iterator.hasNext()) {
+			if (orders.indexOf(iterator.next()) < 2500) {
+				iterator.remove();
+			}
+		}
+		Assert.assertTrue(history.size() == 2500);
+		for (int i = 0; i < orders.size(); i++) {
+			Assert.assertEquals(i >= 2500, history.contains(orders.get(i)));
+			Assert.assertEquals((i >= 2500) ? orders.get(i) : null, history.getOrder(orders.get(i).getId()));
+		}
+		// The columns follow the removals: 2450 delivered orders and 50 in progress, of 1.00
+		Assert.assertTrue(history.getTotals(LocalDate.MIN, LocalDate.MAX).getCount() == 2500);
+		Assert.assertTrue(history.getTotals(LocalDate.MIN, LocalDate.MAX).getPriceCents() == 250000);
+
+		// The orders made before a date are removed from the index
+		Assert.assertTrue(history.removeCompactOrdersBefore(day.plusDays(5)) == 1200);
+		for (int i = 2500; i < orders.size(); i++) {
+			Order order = orders.get(i);
+			boolean kept = order.getStatus() != OrderStatus.DELIVERED || !order.getDate().isBefore(day.plusDays(5));
+			Assert.assertEquals(kept ? order : null, history.getOrder(order.getId()));
+		}
+	}
+
+	@Test
+	public void testCourierAndHourCounts() {
+		LocalDate day = LocalDate.of(2024, 6, 1);
+		OrderHistory history = new OrderHistory();
+		List<Order> orders = new ArrayList<Order>();
+		for (int i = 0; i < 3000; i++) {
+			Order order = new Order(null, restaurant, null, LocalTime.of(i % 24, 15), day.plusDays(i % 3));
+			order.setPrice(Money.ofCents(100));
+			order.setCourier(courier);
+			order.transitionTo(OrderStatus.OFFERED);
+			order.transitionTo(OrderStatus.ACCEPTED);
+			order.transitionTo((i % 4 == 0) ? OrderStatus.CANCELLED : OrderStatus.DELIVERED);
+			orders.add(order);
+			history.add(order);
+		}
+
+		// Only the delivered orders count for the courier
+		Map<Long, Long> couriers = history.getCourierCounts(LocalDate.MIN, LocalDate.MAX);
+		Assert.assertTrue(couriers.size() == 1);
+		Assert.assertTrue(couriers.get(courier.getId()) == 2250);
+		Assert.assertTrue(history.getCourierCounts(day, day).get(courier.getId()) == 750);
+
+		// Every order counts for its hour of the day
+		long[] hours = history.getHourCounts(LocalDate.MIN, LocalDate.MAX);
+		for (int hour = 0; hour < 24; hour++) {
+			Assert.assertTrue(hours[hour] == 125);
+		}
+		Assert.assertTrue(history.getHourCounts(day.plusDays(1), day.plusDays(1))[1] == 125);
+		Assert.assertTrue(history.getHourCounts(day.plusDays(1), day.plusDays(1))[0] == 0);
+
+		// The scans follow the removals made after a previous scan
+		for (int i = 0; i < 24; i++) {
+			history.remove(orders.get(i));
+		}
+		Assert.assertTrue(history.getCourierCounts(LocalDate.MIN, LocalDate.MAX).get(courier.getId()) == 2232);
+		Assert.assertTrue(history.getHourCounts(LocalDate.MIN, LocalDate.MAX)[5] == 124);
+		history.removeCompactOrdersBefore(day.plusDays(2));
+		Assert.assertTrue(history.getCourierCounts(LocalDate.MIN, LocalDate.MAX).get(courier.getId()) == 744);
+		Assert.assertTrue(history.getHourCounts(LocalDate.MIN, LocalDate.MAX)[2] == 124);
+	}
+}
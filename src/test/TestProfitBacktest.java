@@ -0,0 +1,79 @@
+package test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import system.Money;
+import system.ProfitBacktest;
+import system.ProfitData;
+import system.ProfitStrategy;
+import system.TargetProfitDeliveryCostOriented;
+import system.TargetProfitMarkupPercentageOriented;
+import system.TargetProfitServiceFeeOriented;
+
+/**
+ * Test class for ProfitBacktest class.
+ *
+ * @author Alisson Bonatto
+ */
+public class TestProfitBacktest {
+
+	/**
+	 * Creates a backtest of 10 orders of 20.00 in January, none in February and 5 orders of 10.00 in March.
+	 */
+	private static ProfitBacktest backtest() {
+		ProfitBacktest backtest = new ProfitBacktest();
+		for (int i = 0; i < 10; i++) {
+			backtest.observe(LocalDate.of(2024, 1, 1 + i), 2000);
+		}
+		for (int i = 0; i < 5; i++) {
+			backtest.observe(LocalDate.of(2024, 3, 31 - i), 1000);
+		}
+		return backtest;
+	}
+
+	@Test
+	public void testReplayMonthByMonth() {
+		ProfitBacktest backtest = backtest();
+		Assert.assertTrue(backtest.getMonths().size() == 3);
+
+		ProfitData initial = new ProfitData(0.1, Money.ofCents(100), Money.ofCents(200));
+		List<ProfitBacktest.Step> steps = backtest.run(new TargetProfitServiceFeeOriented(), initial, Money.ofCents(5000));
+		Assert.assertTrue(steps.size() == 3);
+
+		// January: initial profit data, 200.00 * 0.1 + 10 * (1.00 - 2.00)
+		Assert.assertEquals(YearMonth.of(2024, 1), steps.get(0).getMonth());
+		Assert.assertEquals(Money.ofCents(1000), steps.get(0).getProfit());
+		// February: service fee fitted on January, 50.00 / 10 - 20.00 * 0.1 + 2.00, but no order
+		Assert.assertEquals(Money.ofCents(500), steps.get(1).getProfitData().getServiceFee());
+		Assert.assertTrue(steps.get(1).getOrders() == 0);
+		Assert.assertEquals(Money.ZERO, steps.get(1).getProfit());
+		// March: nothing to fit on February, 50.00 * 0.1 + 5 * (5.00 - 2.00)
+		Assert.assertEquals(Money.ofCents(500), steps.get(2).getProfitData().getServiceFee());
+		Assert.assertEquals(Money.ofCents(2000), steps.get(2).getProfit());
+	}
+
+	@Test
+	public void testStrategiesInParallel() {
+		ProfitBacktest backtest = backtest();
+		ProfitData initial = new ProfitData(0.1, Money.ofCents(100), Money.ofCents(200));
+		List<ProfitStrategy> strategies = List.of(new TargetProfitDeliveryCostOriented(),
+				new TargetProfitMarkupPercentageOriented(), new TargetProfitServiceFeeOriented());
+		Map<ProfitStrategy, List<ProfitBacktest.Step>> results = backtest.runAll(strategies, initial, Money.ofCents(5000));
+		Assert.assertTrue(results.size() == 3);
+		for (ProfitStrategy strategy : strategies) {
+			List<ProfitBacktest.Step> steps = results.get(strategy);
+			Assert.assertTrue(steps.size() == 3);
+			Assert.assertEquals(Money.ofCents(1000), steps.get(0).getProfit());
+			// Fitted on January, each strategy reaches the target on January's orders
+			Assert.assertEquals(Money.ofCents(5000), steps.get(1).getProfitData().getDeliveryCost().times(-10)
+					.plus(steps.get(1).getProfitData().getServiceFee().times(10))
+					.plus(Money.ofCents(20000).times(steps.get(1).getProfitData().getMarkupPercentage())));
+		}
+	}
+}
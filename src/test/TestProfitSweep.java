@@ -0,0 +1,70 @@
+package test;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import system.Money;
+import system.OrderColumnStore;
+import system.ProfitData;
+import system.ProfitSweep;
+
+/**
+ * Test class for ProfitSweep class.
+ *
+ * @author Alisson Bonatto
+ */
+public class TestProfitSweep {
+
+	// 1000 past orders of 20.00 on average, made with a markup of 10% and a service fee of 1.00
+	static final OrderColumnStore.Totals history = new OrderColumnStore.Totals(1000, 2000000);
+	static final ProfitData reference = new ProfitData(0.1, Money.ofCents(100), Money.ofCents(200));
+
+	@Test
+	public void testProfitWithoutElasticity() {
+		ProfitSweep sweep = new ProfitSweep(new double[] {0.1, 0.2}, new Money[] {Money.ofCents(100)},
+				new Money[] {Money.ofCents(200), Money.ofCents(300)}, 0);
+		ProfitSweep.Surface surface = sweep.evaluate(history, reference);
+		Assert.assertTrue(surface.size() == 4);
+
+		// 1000 * (20.00 * 0.1 + 1.00 - 2.00)
+		Assert.assertEquals(Money.ofCents(100000), surface.getProfit(0));
+		Assert.assertEquals(0.2, surface.getCandidate(surface.getBest()).getMarkupPercentage(), 1e-9);
+		Assert.assertEquals(Money.ofCents(200), surface.getCandidate(surface.getBest()).getDeliveryCost());
+		// Same number of orders for all candidates: only the most profitable one is Pareto-best
+		Assert.assertTrue(surface.getParetoFront().size() == 1);
+	}
+
+	@Test
+	public void testParetoFrontOfLargeSweep() {
+		// 47^3 = 103823 candidates
+		ProfitSweep sweep = ProfitSweep.grid(new ProfitData(0, Money.ZERO, Money.ofCents(100)),
+				new ProfitData(0.5, Money.ofCents(500), Money.ofCents(500)), 47, 1.5);
+		ProfitSweep.Surface surface = sweep.evaluate(history, reference);
+		Assert.assertTrue(surface.size() == 103823);
+
+		int best = 0;
+		for (int i = 1; i < surface.size(); i++) {
+			if (surface.getProfit(i).compareTo(surface.getProfit(best)) > 0) {
+				best = i;
+			}
+		}
+		Assert.assertEquals(surface.getProfit(best), surface.getProfit(surface.getBest()));
+
+		// Along the front, the profit decreases while the number of orders increases
+		List<Integer> front = surface.getParetoFront();
+		Assert.assertTrue(front.size() > 1);
+		for (int i = 1; i < front.size(); i++) {
+			Assert.assertTrue(surface.getProfit(front.get(i)).compareTo(surface.getProfit(front.get(i - 1))) <= 0);
+			Assert.assertTrue(surface.getProjectedOrders(front.get(i)) > surface.getProjectedOrders(front.get(i - 1)));
+		}
+		// No candidate beats a candidate of the front on both criteria (checked on a sample)
+		for (int i = 0; i < surface.size(); i += 101) {
+			for (int index : front) {
+				Assert.assertFalse(surface.getProfit(i).compareTo(surface.getProfit(index)) > 0
+						&& surface.getProjectedOrders(i) > surface.getProjectedOrders(index));
+			}
+		}
+	}
+}
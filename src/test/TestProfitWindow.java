@@ -0,0 +1,66 @@
+package test;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import order.Order;
+import system.Money;
+import system.ProfitData;
+import system.ProfitWindow;
+import system.TargetProfitServiceFeeOriented;
+
+/**
+ * Test class for ProfitWindow class.
+ *
+ * @author Alisson Bonatto
+ */
+public class TestProfitWindow {
+
+	@Test
+	public void testExpiryByDay() {
+		ProfitWindow window = new ProfitWindow(30);
+		LocalDate today = LocalDate.of(2024, 3, 31);
+		window.observe(today.minusDays(31), Money.ofCents(5000)); // Before the window
+		window.observe(today.minusDays(30), Money.ofCents(1000));
+		window.observe(today.minusDays(1), Money.ofCents(3000));
+		window.observe(today, Money.ofCents(7000));               // Current day, not over yet
+
+		ProfitWindow.Totals totals = window.getTotals(today);
+		Assert.assertTrue(totals.getCount() == 2);
+		Assert.assertEquals(Money.ofCents(4000), totals.getTotalPrice());
+		Assert.assertEquals(20, totals.getAveragePrice(), 1e-9);
+		Assert.assertEquals(100, totals.getPriceVariance(), 1e-9);
+
+		// The next day, the oldest day leaves the window and the current day enters it
+		totals = window.getTotals(today.plusDays(1));
+		Assert.assertTrue(totals.getCount() == 2);
+		Assert.assertEquals(Money.ofCents(10000), totals.getTotalPrice());
+
+		// Long after, the window is empty
+		Assert.assertTrue(window.getTotals(today.plusDays(100)).getCount() == 0);
+	}
+
+	@Test
+	public void testSameProfitDataAsOrders() {
+		LocalDate today = LocalDate.now();
+		Set<Order> orders = new HashSet<Order>();
+		for (int i = 1; i <= 10; i++) {
+			Order order = new Order(null, null, null, null, today.minusDays(i));
+			order.setPrice(Money.ofCents(1000 * i));
+			orders.add(order);
+		}
+		ProfitWindow window = new ProfitWindow(30);
+		window.rebuild(orders);
+
+		TargetProfitServiceFeeOriented strategy = new TargetProfitServiceFeeOriented();
+		ProfitData profitData = new ProfitData(0.1, Money.ofCents(200), Money.ofCents(300));
+		ProfitData fromOrders = strategy.getProfitData(profitData, orders, Money.ofCents(10000));
+		ProfitData fromWindow = strategy.getProfitData(profitData, window.getTotals(today), Money.ofCents(10000));
+		Assert.assertEquals(fromOrders.getServiceFee(), fromWindow.getServiceFee());
+		Assert.assertEquals(Money.ofCents(750), fromWindow.getServiceFee());
+	}
+}
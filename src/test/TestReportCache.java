@@ -0,0 +1,51 @@
+package test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import system.MyFoodora;
+import system.ReportCache;
+
+/**
+ * Test class for ReportCache class.
+ *
+ * @author Alisson Bonatto
+ */
+public class TestReportCache {
+
+	@Test
+	public void testEpochAndEviction() {
+		ReportCache cache = new ReportCache(2);
+
+		// Served from the cache while the epoch does not move
+		Assert.assertEquals("A", cache.get("REPORT", 1, () -> "A", "x"));
+		Assert.assertEquals("A", cache.get("REPORT", 1, () -> "B", "x"));
+		Assert.assertTrue(cache.getHits() == 1 && cache.getMisses() == 1);
+		// Other arguments, other entry
+		Assert.assertEquals("C", cache.get("REPORT", 1, () -> "C", "y"));
+		// Computed again once the epoch moved
+		Assert.assertEquals("D", cache.get("REPORT", 2, () -> "D", "x"));
+		Assert.assertEquals("D", cache.get("REPORT", 2, () -> "E", "x"));
+		Assert.assertTrue(cache.size() == 2);
+
+		// The least recently used entry ("y") is evicted
+		Assert.assertEquals("F", cache.get("OTHER", 2, () -> "F"));
+		Assert.assertTrue(cache.size() == 2);
+		Assert.assertEquals("G", cache.get("REPORT", 1, () -> "G", "y"));
+		Assert.assertEquals("G", cache.get("REPORT", 1, () -> "H", "y"));
+		Assert.assertTrue(cache.getMisses() == 5);
+	}
+
+	@Test
+	public void testSystemMutationEpoch() {
+		MyFoodora system = MyFoodora.getInstance();
+		long epoch = system.getMutationEpoch();
+		Assert.assertEquals("A", system.getReport("TESTREPORT", () -> "A"));
+		Assert.assertEquals("A", system.getReport("TESTREPORT", () -> "B"));
+
+		// Changing the profit data moves the epoch
+		system.setServiceFee(system.getProfitData().getServiceFee());
+		Assert.assertTrue(system.getMutationEpoch() > epoch);
+		Assert.assertEquals("C", system.getReport("TESTREPORT", () -> "C"));
+	}
+}
@@ -16,6 +16,7 @@ import food.Meal;
 import food.Menu;
 import food.UnrecognizedDishException;
 import order.Order;
+import system.Money;
 import user.BadUserCreationException;
 import user.Courier;
 import user.Customer;
@@ -89,13 +90,13 @@ public class TestRestaurant {
 		Order order = new Order(customer, restaurant1, courier);
 		order.addDish(dish1);
 		
-		Assert.assertTrue(restaurant1.getPrice(order, customer) == 100);
+		Assert.assertTrue(restaurant1.getPrice(order, customer).equals(Money.ofCents(10000)));
 		
 		PointCard pointCard = new PointCard(customer);
 		customer.setFidelityCard(pointCard);
-		pointCard.addMoneySpent(1000);
+		pointCard.addMoneySpent(Money.ofCents(100000));
 		
-		Assert.assertTrue(restaurant1.getPrice(order, customer) == 90);
+		Assert.assertTrue(restaurant1.getPrice(order, customer).equals(Money.ofCents(9000)));
 		
 		restaurant1.incrementOrderCounter();
 		
@@ -0,0 +1,75 @@
+package test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import order.Order;
+import system.Money;
+import system.ProfitData;
+import system.RestaurantProfitView;
+import user.BadUserCreationException;
+import user.Location;
+import user.Restaurant;
+
+/**
+ * Test class for RestaurantProfitView class.
+ *
+ * @author Alisson Bonatto
+ */
+public class TestRestaurantProfitView {
+
+	static Restaurant pizzeria;
+	static Restaurant sushiBar;
+
+	@BeforeClass
+	public static void setUp() throws BadUserCreationException {
+		pizzeria = new Restaurant("ProfitPizzeria", "profitpizzeria", "1234", new Location(0, 0));
+		sushiBar = new Restaurant("ProfitSushiBar", "profitsushibar", "1234", new Location(1, 1));
+	}
+
+	/**
+	 * Creates an order of the given restaurant, date and price.
+	 */
+	private static Order order(Restaurant restaurant, LocalDate date, long priceCents) {
+		Order order = new Order(null, restaurant, null, LocalTime.NOON, date);
+		order.setPrice(Money.ofCents(priceCents));
+		return order;
+	}
+
+	@Test
+	public void testStatementsPerRestaurant() {
+		RestaurantProfitView view = new RestaurantProfitView();
+		LocalDate day = LocalDate.of(2024, 5, 10);
+		ProfitData profitData = new ProfitData(0.1, Money.ofCents(150), Money.ofCents(300));
+		view.observe(order(pizzeria, day, 2000));
+		view.observe(order(pizzeria, day.plusDays(1), 3000));
+		view.observe(order(sushiBar, day, 5000));
+		view.observe(order(sushiBar, day.plusDays(2), 5000));
+
+		Map<Restaurant, RestaurantProfitView.Statement> statements = view.getStatements(day, day.plusDays(2), profitData);
+		Assert.assertTrue(statements.size() == 2);
+		RestaurantProfitView.Statement pizzeriaStatement = statements.get(pizzeria);
+		Assert.assertTrue(pizzeriaStatement.getOrders() == 2);
+		Assert.assertEquals(Money.ofCents(5000), pizzeriaStatement.getGross());
+		Assert.assertEquals(Money.ofCents(500), pizzeriaStatement.getMarkupRevenue());
+		Assert.assertEquals(Money.ofCents(300), pizzeriaStatement.getServiceFees());
+		Assert.assertEquals(Money.ofCents(600), pizzeriaStatement.getDeliveryCost());
+		Assert.assertEquals(Money.ofCents(200), pizzeriaStatement.getProfit());
+		// 1000 + 300 - 600
+		Assert.assertEquals(Money.ofCents(700), statements.get(sushiBar).getProfit());
+
+		// The profit data of the query is applied to all the orders, as in Manager.computeTotalProfit
+		ProfitData newProfitData = new ProfitData(0.2, Money.ZERO, Money.ZERO);
+		Assert.assertEquals(Money.ofCents(2000), view.getStatement(sushiBar, day, day.plusDays(2), newProfitData).getProfit());
+
+		// Date ranges, both dates included
+		Assert.assertTrue(view.getStatements(day.plusDays(1), day.plusDays(1), profitData).size() == 1);
+		Assert.assertTrue(view.getStatement(sushiBar, day.plusDays(1), day.plusDays(1), profitData).getOrders() == 0);
+		Assert.assertTrue(view.getStatement(sushiBar, LocalDate.MIN, LocalDate.MAX, profitData).getOrders() == 2);
+	}
+}
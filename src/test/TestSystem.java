@@ -21,6 +21,7 @@ public class TestSystem {
     private static MyFoodora system;
     private static User manager1,manager2, restaurant1, restaurant2, restaurant3, courier1, courier2, courier3, customer1, customer2;
     private static Dish dish1, dish2,dish3;
+    private static Map<Courier, Location> initialPositions = new HashMap<Courier, Location>();
 
     @BeforeClass
     public static void setUpBeforeClass() throws Exception {
@@ -58,6 +59,19 @@ public class TestSystem {
         dish2 = system.createDish("MainDish", "Pizza Margherita", 12.50, true, true);
         dish3 = system.createDish("Dessert", "Tiramisu", 5.00, true, true);
         dish1 = system.createDish("Starter", "Bruschetta", 6.00, true, true);    
+        for (User courier : Arrays.asList(courier1, courier2, courier3)) {
+            Location position = ((Courier) courier).getPosition();
+            initialPositions.put((Courier) courier, new Location(position.getX(), position.getY()));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        // Puts the couriers back at their initial position and on duty for the next test
+        for (Map.Entry<Courier, Location> courier : initialPositions.entrySet()) {
+            courier.getKey().setPosition(new Location(courier.getValue().getX(), courier.getValue().getY()));
+            courier.getKey().setOnDuty(true);
+        }
     }
 
     @Test
@@ -227,6 +241,75 @@ public class TestSystem {
     }
 
 
+    @Test
+    public void testZoneShardedDelivery() throws BadUserCreationException {
+        Courier nearCourier = new Courier("Zone", "Near", "zone_near", "password123", "+testzonenear", new Location(2, 2));
+        Courier borrowedCourier = new Courier("Zone", "Borrowed", "zone_borrowed", "password123", "+testzoneborrowed", new Location(-1, 1));
+        Courier farCourier = new Courier("Zone", "Far", "zone_far", "password123", "+testzonefar", new Location(15, 15));
+        nearCourier.setOnDuty(true);
+        borrowedCourier.setOnDuty(true);
+        farCourier.setOnDuty(true);
+        Set<Courier> zoneCouriers = new HashSet<Courier>(Arrays.asList(nearCourier, borrowedCourier, farCourier));
+        
+        ZoneShardedDelivery zoneDelivery = new ZoneShardedDelivery(10, 2.5);
+        try {
+            // Restaurant close to the border of its zone: the neighbouring zone is used
+            ArrayList<Courier> selectedCouriers = zoneDelivery.selectCourier(zoneCouriers, (Restaurant) restaurant1, (Customer) customer1);
+            Assert.assertEquals(Arrays.asList(borrowedCourier, nearCourier), selectedCouriers);
+            
+            // Restaurant in the middle of its zone: only its zone is used
+            Restaurant centerRestaurant = new Restaurant("ZoneCenter", "zone_center", "password123", new Location(5, 5));
+            selectedCouriers = zoneDelivery.selectCourier(zoneCouriers, centerRestaurant, (Customer) customer1);
+            Assert.assertEquals(Arrays.asList(nearCourier), selectedCouriers);
+            
+            // Couriers changing zone or going off duty are followed
+            farCourier.setPosition(new Location(5, 6));
+            nearCourier.setOnDuty(false);
+            selectedCouriers = zoneDelivery.selectCourier(zoneCouriers, centerRestaurant, (Customer) customer1);
+            Assert.assertEquals(Arrays.asList(farCourier), selectedCouriers);
+            
+            // Zone without courier on duty: the next ring of zones is used
+            farCourier.setOnDuty(false);
+            selectedCouriers = zoneDelivery.selectCourier(zoneCouriers, centerRestaurant, (Customer) customer1);
+            Assert.assertEquals(Arrays.asList(borrowedCourier), selectedCouriers);
+            
+            // Empty zone far from the couriers: the rings widen until couriers are found, the nearest first
+            farCourier.setOnDuty(true);
+            Restaurant lonelyRestaurant = new Restaurant("ZoneLonely", "zone_lonely", "password123", new Location(35, 35));
+            selectedCouriers = zoneDelivery.selectCourier(zoneCouriers, lonelyRestaurant, (Customer) customer1);
+            Assert.assertEquals(Arrays.asList(farCourier, borrowedCourier), selectedCouriers);
+        } finally {
+            zoneDelivery.shutdown();
+        }
+    }
+
+    @Test
+    public void testCompositeScoreDelivery() throws BadUserCreationException {
+        Courier busyCourier = new Courier("Score", "Busy", "score_busy", "password123", "+testscorebusy", new Location(1, 0));
+        Courier freeCourier = new Courier("Score", "Free", "score_free", "password123", "+testscorefree", new Location(2, 0));
+        Courier farCourier = new Courier("Score", "Far", "score_far", "password123", "+testscorefar", new Location(30, 0));
+        busyCourier.setOnDuty(true);
+        freeCourier.setOnDuty(true);
+        farCourier.setOnDuty(true);
+        CourierPositionStore positions = new CourierPositionStore(Arrays.asList(busyCourier, freeCourier, farCourier));
+        Set<Courier> scoreCouriers = new HashSet<Courier>(Arrays.asList(busyCourier, freeCourier, farCourier));
+        
+        // Pure distance with K = 2
+        CompositeScoreDelivery scoreDelivery = new CompositeScoreDelivery(1, 0, 0, 0, 2);
+        ArrayList<Courier> selectedCouriers = scoreDelivery.selectCourier(positions, scoreCouriers, (Restaurant) restaurant1, (Customer) customer1);
+        Assert.assertEquals(Arrays.asList(busyCourier, freeCourier), selectedCouriers);
+        
+        // The deliveries made are seen by the store without a new pass
+        busyCourier.setDeliveryCounter(3);
+        scoreDelivery = new CompositeScoreDelivery(1, 0.5, 1, 5, 2);
+        selectedCouriers = scoreDelivery.selectCourier(positions, scoreCouriers, (Restaurant) restaurant1, (Customer) customer1);
+        Assert.assertEquals(Arrays.asList(freeCourier, busyCourier), selectedCouriers);
+        
+        // The set based selection gives the same result
+        Assert.assertEquals(selectedCouriers, scoreDelivery.selectCourier(scoreCouriers, (Restaurant) restaurant1, (Customer) customer1));
+        positions.clear();
+    }
+
     @Test
     public void testMakeOrder() throws UserNotFoundException, IncorrectCredentialsException, AvailableCourierNotFoundException, BadNumberOfArgumentsException, BadDishTypeCreationException, BadArgumentTypeException, UnrecognizedDishException, BadMealFormulaException, BadMealTypeCreationException {
         // Test if an order can be made successfully
@@ -245,6 +328,81 @@ public class TestSystem {
     }
 
 
+    @Test
+    public void testShadowDelivery() throws UserNotFoundException, IncorrectCredentialsException, AvailableCourierNotFoundException {
+        // Test if a shadow policy is evaluated on the orders made, next to the live policy
+        HashSet<Dish> dishes = new HashSet<Dish>();
+        dishes.add(dish1);
+        FastestDelivery shadowStrategy = new FastestDelivery();
+        system.addShadowStrategy(shadowStrategy);
+        try {
+            system.login("cust_smith", "password123");
+            ((Courier) courier1).setOnDuty(true); // Set courier1 back on duty
+            Order order = system.createOrder((Restaurant) restaurant1, (Customer) customer1);
+            system.makeOrder(order, dishes, new HashSet<Meal>());
+            system.logout();
+            
+            Assert.assertTrue(system.getShadowDispatcher().awaitIdle(5000));
+            Assert.assertEquals(1, system.getShadowDispatcher().getLiveMetrics().getOrders());
+            ShadowMetrics shadowMetrics = system.getShadowDispatcher().getMetrics(shadowStrategy);
+            Assert.assertEquals(1, shadowMetrics.getOrders());
+            Assert.assertEquals(0, shadowMetrics.getMisses());
+            Assert.assertEquals(0, shadowMetrics.getAverageDistance(), 1e-9); // courier1 is at the restaurant
+        } finally {
+            system.clearShadowStrategies();
+        }
+        Assert.assertFalse(system.getShadowDispatcher().hasStrategies());
+    }
+
+    @Test
+    public void testGetOrderById() throws UserNotFoundException, IncorrectCredentialsException, AvailableCourierNotFoundException {
+        // Test if an order can be found by its ID once it was made
+        HashSet<Dish> dishes = new HashSet<Dish>();
+        dishes.add(dish1);
+        system.login("cust_smith", "password123");
+        ((Courier) courier1).setOnDuty(true); // Set courier1 back on duty
+        Order order = system.createOrder((Restaurant) restaurant1, (Customer) customer1);
+        order = system.makeOrder(order, dishes, new HashSet<Meal>());
+        Assert.assertEquals("Order should be found by its ID", order, system.getOrder(order.getId()));
+        Assert.assertNull("Unknown order ID should return null", system.getOrder(-1));
+        system.logout();
+    }
+
+    @Test
+    public void testCompactDeliveredOrder() throws UserNotFoundException, IncorrectCredentialsException, AvailableCourierNotFoundException, BadOrderHandlingException {
+        // Test if a delivered order is compacted and can still be found in the history
+        HashSet<Dish> dishes = new HashSet<Dish>();
+        dishes.add(dish3);
+        system.login("cust_smith", "password123");
+        ((Courier) courier1).setOnDuty(true); // Set courier1 back on duty
+        Order order = system.createOrder((Restaurant) restaurant1, (Customer) customer1);
+        order = system.makeOrder(order, dishes, new HashSet<Meal>());
+        system.logout();
+        int deliveredCount = system.getOrderStatusIndex().getCount(OrderStatus.DELIVERED);
+        int hour = HourOfWeek.of(order.getDate(), order.getTime());
+        long hourlyCount = system.getHourlyProfile().getOrders(hour);
+        
+        Courier courier = order.getPossibleCouriers().get(0);
+        Assert.assertTrue(courier.acceptOrder(order.getId()));
+        system.completeDelivery(order.getId());
+        
+        Assert.assertNotNull("Delivered order should be compacted", system.getOrderHistory().getCompactOrder(order.getId()));
+        Assert.assertTrue(system.getOrderHistory().contains(order));
+        Assert.assertEquals(deliveredCount + 1, system.getOrderStatusIndex().getCount(OrderStatus.DELIVERED));
+        Assert.assertEquals(hourlyCount + 1, system.getHourlyProfile().getOrders(hour));
+        
+        Order expandedOrder = system.getOrder(order.getId());
+        Assert.assertEquals(order, expandedOrder);
+        Assert.assertNotSame(order, expandedOrder);
+        Assert.assertEquals(OrderStatus.DELIVERED, expandedOrder.getStatus());
+        Assert.assertEquals(courier, expandedOrder.getCourier());
+        Assert.assertEquals(customer1, expandedOrder.getCustomer());
+        Assert.assertEquals(1, expandedOrder.getDishQuantity(dish3));
+        Assert.assertEquals(order.getPrice(), expandedOrder.getPrice());
+        Assert.assertEquals(order.getDate(), expandedOrder.getDate());
+        Assert.assertEquals(order.getTime().withNano(0), expandedOrder.getTime());
+    }
+
     @Test
     public void testMakeFalseOrder() throws UserNotFoundException, IncorrectCredentialsException, AvailableCourierNotFoundException, BadNumberOfArgumentsException, BadDishTypeCreationException, BadArgumentTypeException, UnrecognizedDishException, BadMealFormulaException, BadMealTypeCreationException {
         // Test if an order with no dishes can be made
@@ -1,9 +1,13 @@
 package user;
 
 import java.util.ArrayList;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import notification.CourierObserver;
 import order.Order;
+import order.OrderStatus;
 import system.AvailableCourierNotFoundException;
+import system.DeliveryRoutePlanner;
 
 /**
  * Class representing a Courier in the system.
@@ -15,12 +19,17 @@ import system.AvailableCourierNotFoundException;
  */
 public class Courier extends Person{
     
+    private static final double REFUSAL_RATE_SMOOTHING = 0.2; // Weight of the last answer in the refusal rate
+    
     private Location position; // The current location of the courier
     private String phoneNumber; // The phone number of the courier
     private int deliveryCounter; // The number of deliveries made by the courier
     private boolean onDuty; // Indicates if the courier is currently on duty
     private ArrayList<Order> pendingOrders;
-	private Order currentDeliveringOrder;
+	private ArrayList<Order> deliveringOrders; // Orders carried by the courier, in delivery order
+	private boolean startedDelivering; // Indicates if the courier already left the restaurant
+	private double refusalRate; // Recent refusal rate, exponentially smoothed over the answers to the orders offered
+	private CopyOnWriteArrayList<CourierObserver> observers; // Views notified when the position, the duty status or the workload changes
 
 	/**
      * Constructor for Courier.
@@ -44,7 +53,10 @@ public class Courier extends Person{
         this.onDuty = false;
         phonesUsed.add(phoneNumber);
         this.pendingOrders = new ArrayList<Order>();
-        this.currentDeliveringOrder = null;
+        this.deliveringOrders = new ArrayList<Order>();
+        this.startedDelivering = false;
+        this.refusalRate = 0;
+        this.observers = new CopyOnWriteArrayList<CourierObserver>(); // Observers may register from dispatcher threads
     }
     
     /**
@@ -61,6 +73,7 @@ public class Courier extends Person{
      */
     public void setPosition(Location position) {
         this.position = position;
+        this.notifyObservers();
     }
 
     /**
@@ -97,6 +110,17 @@ public class Courier extends Person{
      */
     public void setDeliveryCounter(int deliveryCounter) {
         this.deliveryCounter = deliveryCounter;
+        this.notifyObservers();
+    }
+
+    /**
+     * Returns the recent refusal rate of the courier.
+     * Each answer to an order offered moves the rate towards 1 (refused) or 0 (accepted),
+     * so the last answers weigh more than the old ones.
+     * @return the refusal rate, between 0 and 1.
+     */
+    public double getRefusalRate() {
+        return refusalRate;
     }
 
     /**
@@ -113,6 +137,32 @@ public class Courier extends Person{
      */
     public void setOnDuty(boolean onDuty) {
         this.onDuty = onDuty;
+        this.notifyObservers();
+    }
+
+    /**
+     * Adds an observer notified when the position, the duty status or the workload of the courier changes.
+     * @param observer the observer to be added.
+     */
+    public void addObserver(CourierObserver observer) {
+        this.observers.addIfAbsent(observer);
+    }
+
+    /**
+     * Removes an observer of the courier.
+     * @param observer the observer to be removed.
+     */
+    public void removeObserver(CourierObserver observer) {
+        this.observers.remove(observer);
+    }
+
+    /**
+     * Notifies all registered observers that the position, the duty status or the workload changed.
+     */
+    public void notifyObservers() {
+        for (CourierObserver observer : this.observers) {
+            observer.update(this);
+        }
     }
 
     /**
@@ -129,6 +179,7 @@ public class Courier extends Person{
      */
     public void incrementDeliveryCount() {
         this.deliveryCounter++;
+        this.notifyObservers();
     }
     
     /**
@@ -136,6 +187,7 @@ public class Courier extends Person{
      */
     public void addPendingOrder(Order order) {
     	this.pendingOrders.add(order);
+    	this.notifyObservers();
     }
     
     /**
@@ -146,11 +198,42 @@ public class Courier extends Person{
 	}
     
     /**
-     * Accepts the order of id orderID
+     * Gets the order currently being delivered by the courier,
+     * that is the next order of the route of the courier.
+     * @return the order being delivered, or null if the courier is not delivering any order
+     */
+    public Order getCurrentDeliveringOrder() {
+    	if (this.deliveringOrders.isEmpty()) {
+    		return null;
+    	}
+    	return this.deliveringOrders.get(0);
+    }
+    
+    /**
+     * Gets all the orders carried by the courier, in delivery order.
+     * @return the orders being delivered
+     */
+    public ArrayList<Order> getDeliveringOrders() {
+    	return this.deliveringOrders;
+    }
+    
+    /**
+     * Returns whether the courier already left the restaurant to deliver the orders carried.
+     * A courier who started delivering can not receive more orders of the same restaurant.
+     * @return true if at least one of the orders carried was already delivered, false otherwise.
+     */
+    public boolean hasStartedDelivering() {
+    	return this.startedDelivering;
+    }
+    
+    /**
+     * Accepts the order of id orderID.
+     * If the courier already carries orders of the same restaurant, the order is added
+     * to the orders carried and the delivery route is planned again.
      * @param orderID the order id
      * @return true if the Order was indeed accepted
      */
-    public boolean acceptOrder(int orderID) {
+    public boolean acceptOrder(long orderID) {
     	// Accepts the chosen Order
     	Order foundOrder = null;
     	for (Order order : pendingOrders) {
@@ -160,9 +243,13 @@ public class Courier extends Person{
     		}
     	}
     	
-    	if (foundOrder != null) {
-    		// Accepts order
-    		this.currentDeliveringOrder = foundOrder;
+    	// A cancelled order can not be accepted anymore
+    	if (foundOrder != null && foundOrder.getStatus().canTransitionTo(OrderStatus.ACCEPTED)) {
+    		// Accepts order and plans the route through all the orders carried
+    		this.deliveringOrders.add(foundOrder);
+    		if (this.deliveringOrders.size() > 1) {
+    			this.deliveringOrders = new DeliveryRoutePlanner().planRoute(foundOrder.getRestaurant().getLocation(), this.deliveringOrders);
+    		}
     		
     		// Sets this courier to the order
     		foundOrder.setCourier(this);
@@ -171,16 +258,17 @@ public class Courier extends Person{
     		foundOrder.setPossibleCouriers(new ArrayList<Courier>());
     		
     		// Changing order status
-    		foundOrder.setCurrentStatus("ACCEPTED AND DELIVERING");
+    		foundOrder.transitionTo(OrderStatus.ACCEPTED);
     		
     		// Removes this order of pending order
     		this.pendingOrders.remove(foundOrder);
+    		this.refusalRate = (1 - REFUSAL_RATE_SMOOTHING) * this.refusalRate;
     		
     		// This courier is not on duty anymore
     		this.setOnDuty(false);
         	
         	// Refuses all other orders
-        	for (Order order : pendingOrders) {
+        	for (Order order : new ArrayList<Order>(pendingOrders)) {
         		refuseOrder(order);
         	}
         	
@@ -194,6 +282,47 @@ public class Courier extends Person{
     	return false;
     }
     
+    /**
+     * Completes the delivery of the current order, the next order of the route.
+     * The order is marked as delivered and the courier is moved to the address
+     * of the customer. When the last order carried is delivered, the courier goes
+     * back on duty to receive new orders.
+     * @return the delivered order, or null if the courier was not delivering any order
+     */
+    public Order completeDelivery() {
+    	return completeDelivery(this.getCurrentDeliveringOrder());
+    }
+    
+    /**
+     * Completes the delivery of one of the orders carried by the courier.
+     * The order is marked as delivered and the courier is moved to the address
+     * of the customer. When the last order carried is delivered, the courier goes
+     * back on duty to receive new orders.
+     * @param deliveredOrder the order delivered
+     * @return the delivered order, or null if the courier was not delivering this order
+     */
+    public Order completeDelivery(Order deliveredOrder) {
+    	if (deliveredOrder == null || !this.deliveringOrders.remove(deliveredOrder)) {
+    		return null;
+    	}
+    	
+    	// Changing order status
+    	deliveredOrder.transitionTo(OrderStatus.DELIVERED);
+    	
+    	// The courier is now at the customer address, and the observers see that the courier left the restaurant
+    	this.startedDelivering = true;
+    	Location adress = deliveredOrder.getCustomer().getAdress();
+    	this.setPosition(new Location(adress.getX(), adress.getY()));
+    	
+    	// The courier is available again after the last delivery
+    	if (this.deliveringOrders.isEmpty()) {
+    		this.startedDelivering = false;
+    		this.setOnDuty(true);
+    	}
+    	
+    	return deliveredOrder;
+    }
+    
     /**
      * Refuses a order.
      * @param order the order to be refused
@@ -204,6 +333,7 @@ public class Courier extends Person{
     	order.notifyNextCourier();
     	// Removing this order of pending orders
     	this.pendingOrders.remove(order);
+    	this.notifyObservers();
     }
     
     /**
@@ -211,7 +341,7 @@ public class Courier extends Person{
      * @param orderID the order ID
      * @return true if the order was indeed accepted
      */
-    public boolean refuseOrder(int orderID) {
+    public boolean refuseOrder(long orderID) {
     	Order foundOrder = null;
     	for (Order order : pendingOrders) {
     		if (order.getId() == orderID) {
@@ -226,6 +356,8 @@ public class Courier extends Person{
         	foundOrder.notifyNextCourier();
         	// Removing this order of pending orders
     		this.pendingOrders.remove(foundOrder);
+    		this.refusalRate = (1 - REFUSAL_RATE_SMOOTHING) * this.refusalRate + REFUSAL_RATE_SMOOTHING;
+    		this.notifyObservers();
     		
     		return true;
     	}
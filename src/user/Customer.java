@@ -272,7 +272,7 @@ public class Customer extends Person implements notification.Observer {
      * @return a set of orders made by the customer
      */
     public HashSet<Order> getHistory(MyFoodora system) {
-        HashSet<Order> orderHistory = system.getOrderHistory();
+        Set<Order> orderHistory = system.getOrderHistory();
         HashSet<Order> orders = new HashSet<>();
         for (Order order : orderHistory) {
             if (order.getCustomer().equals(this)) {
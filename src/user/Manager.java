@@ -3,8 +3,12 @@ package user;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import order.Order;
 import system.*;
@@ -16,6 +20,8 @@ import system.*;
  * @author Aymane Adib
  */
 public class Manager extends Person {
+
+    private boolean parallel; // Whether the analytics are split across the common fork-join pool
 	
     /**
      * Constructor for the Manager class.
@@ -30,6 +36,27 @@ public class Manager extends Person {
         super(name, surname, username, password);
     }
 
+    /**
+     * Verifies if the analytics of the manager run in parallel.
+     *
+     * @return true if the analytics are split across the common fork-join pool
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Sets the execution mode of the analytics of the manager. In parallel mode, the history and the
+     * archive are read at the same time, and the compact orders and the customers are split into chunks
+     * on the common fork-join pool. The results are the same in both modes; the parallel mode is worth
+     * it for large one-off reports.
+     *
+     * @param parallel true to run the analytics in parallel
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
     /**
      * Static block to initialize the available operations for the manager.
      */
@@ -54,7 +81,7 @@ public class Manager extends Person {
      * @param fee    the service fee to be set
      * @param system the MyFoodora system
      */
-    public void setServiceFee(double fee, MyFoodora system) {
+    public void setServiceFee(Money fee, MyFoodora system) {
         system.setServiceFee(fee);
     }
 
@@ -64,7 +91,7 @@ public class Manager extends Person {
      * @param cost   the delivery cost to be set
      * @param system the MyFoodora system
      */
-    public void setDeliveryCost(double cost, MyFoodora system) {
+    public void setDeliveryCost(Money cost, MyFoodora system) {
         system.setDeliveryCost(cost);
     }
 
@@ -84,9 +111,16 @@ public class Manager extends Person {
      * @param system    the MyFoodora system
      * @param startdate the start date of the range
      * @param enddate   the end date of the range
-     * @return a list of orders within the specified date range
+     * @return a list of orders within the specified date range, from the history then from the archive
      */
     public ArrayList<Order> getOrders(MyFoodora system, LocalDate startdate, LocalDate enddate) {
+        if (parallel) {
+        	CompletableFuture<ArrayList<Order>> archived = fromArchive(system,
+        			archive -> archive.getOrders(startdate, enddate), new ArrayList<Order>());
+        	ArrayList<Order> orders = system.getOrderHistory().getOrders(startdate, enddate);
+        	orders.addAll(archived.join());
+        	return orders;
+        }
         ArrayList<Order> orders = new ArrayList<Order>();
         for (Order order : system.getOrderHistory()) {
             if ((order.getDate().isAfter(startdate) && order.getDate().isBefore(enddate)) ||
@@ -94,6 +128,9 @@ public class Manager extends Person {
                 orders.add(order);
             }
         }
+        if (system.getOrderArchive() != null) {
+        	orders.addAll(system.getOrderArchive().getOrders(startdate, enddate));
+        }
         return orders;
     }
 
@@ -104,12 +141,9 @@ public class Manager extends Person {
      * @param enddate
      * @return
      */
-    public double computeTotalIncome(MyFoodora system, LocalDate startdate, LocalDate enddate) {
-        double totalIncome = 0;
-        for (Order order : getOrders(system, startdate, enddate)) {
-            totalIncome += order.getPrice() + system.getProfitData().getServiceFee();
-        }
-        return totalIncome;
+    public Money computeTotalIncome(MyFoodora system, LocalDate startdate, LocalDate enddate) {
+        OrderColumnStore.Totals totals = getTotals(system, startdate, enddate);
+        return totals.getPrice().plus(system.getProfitData().getServiceFee().times(totals.getCount()));
     }
 
     /**
@@ -120,12 +154,104 @@ public class Manager extends Person {
      * @param enddate   the end date of the range
      * @return the total profit for the system within the specified date range
      */
-    public double computeTotalProfit(MyFoodora system, LocalDate startdate, LocalDate enddate) {
-        double totalProfit = 0;
-        for (Order order : getOrders(system, startdate, enddate)) {
-            totalProfit += order.getPrice() * system.getProfitData().getMarkupPercentage() + system.getProfitData().getServiceFee() - system.getProfitData().getDeliveryCost();
+    public Money computeTotalProfit(MyFoodora system, LocalDate startdate, LocalDate enddate) {
+        OrderColumnStore.Totals totals = getTotals(system, startdate, enddate);
+        ProfitData profitData = system.getProfitData();
+        return totals.getPrice().times(profitData.getMarkupPercentage())
+        		.plus(profitData.getServiceFee().minus(profitData.getDeliveryCost()).times(totals.getCount()));
+    }
+
+    /**
+     * Computes the profit and loss of each restaurant within a specified date range, both dates included,
+     * from the per-restaurant views kept up to date by the system and the current profit data.
+     *
+     * @param system    the MyFoodora system
+     * @param startdate the start date of the range
+     * @param enddate   the end date of the range
+     * @return the statement of each restaurant with orders in the range
+     */
+    public Map<Restaurant, RestaurantProfitView.Statement> getRestaurantProfits(MyFoodora system, LocalDate startdate, LocalDate enddate) {
+        return system.getRestaurantProfitView().getStatements(startdate, enddate, system.getProfitData());
+    }
+
+    /**
+     * Gets the number of orders, revenue and profit of the delivered orders per hour of the week,
+     * from the profile kept up to date by the system.
+     *
+     * @param system the MyFoodora system
+     * @return the hourly profile of the system
+     */
+    public HourlyProfile getHourlyProfile(MyFoodora system) {
+        return system.getHourlyProfile();
+    }
+
+    /**
+     * Counts the orders made at each hour of the day within a specified date range, both dates included,
+     * from a scan of the order columns and of the order archive.
+     *
+     * @param system    the MyFoodora system
+     * @param startdate the start date of the range
+     * @param enddate   the end date of the range
+     * @return the number of orders of each hour of the day, from 0 to 23
+     */
+    public long[] getHourlyOrders(MyFoodora system, LocalDate startdate, LocalDate enddate) {
+        long[] counts = system.getOrderHistory().getHourCounts(startdate, enddate);
+        if (system.getOrderArchive() != null) {
+        	long[] archived = system.getOrderArchive().getHourCounts(startdate, enddate);
+        	for (int hour = 0; hour < counts.length; hour++) {
+        		counts[hour] += archived[hour];
+        	}
         }
-        return totalProfit;
+        return counts;
+    }
+
+    /**
+     * Projects the profit of a sweep of candidate profit data on the orders of a specified date range,
+     * made under the current profit data of the system.
+     *
+     * @param system    the MyFoodora system
+     * @param startdate the start date of the range
+     * @param enddate   the end date of the range
+     * @param sweep     the candidate profit data
+     * @return the projected profit of each candidate and the Pareto-best candidates
+     */
+    public ProfitSweep.Surface sweepProfitData(MyFoodora system, LocalDate startdate, LocalDate enddate, ProfitSweep sweep) {
+        return sweep.evaluate(getTotals(system, startdate, enddate), system.getProfitData());
+    }
+
+    /**
+     * Counts the orders of the history and of the archive within a specified date range
+     * and sums their prices.
+     *
+     * @param system    the MyFoodora system
+     * @param startdate the start date of the range
+     * @param enddate   the end date of the range
+     * @return the number of orders and their total price
+     */
+    private OrderColumnStore.Totals getTotals(MyFoodora system, LocalDate startdate, LocalDate enddate) {
+        CompletableFuture<OrderColumnStore.Totals> archived = fromArchive(system,
+        		archive -> archive.getTotals(startdate, enddate), new OrderColumnStore.Totals(0, 0));
+        return system.getOrderHistory().getTotals(startdate, enddate).plus(archived.join());
+    }
+
+    /**
+     * Runs a query on the archive of the system: on the common fork-join pool in parallel mode,
+     * so the archive is read while the history is scanned, and at once otherwise.
+     *
+     * @param system the MyFoodora system
+     * @param query  the query on the archive
+     * @param empty  the result of the query if the orders are never archived
+     * @return the future result of the query
+     */
+    private <R> CompletableFuture<R> fromArchive(MyFoodora system, Function<OrderArchive, R> query, R empty) {
+        OrderArchive archive = system.getOrderArchive();
+        if (archive == null) {
+        	return CompletableFuture.completedFuture(empty);
+        }
+        if (parallel) {
+        	return CompletableFuture.supplyAsync(() -> query.apply(archive));
+        }
+        return CompletableFuture.completedFuture(query.apply(archive));
     }
 
     /**
@@ -136,30 +262,114 @@ public class Manager extends Person {
      * @return
      */
     public List<Customer> getActiveCustomers(MyFoodora system, LocalDate startdate, LocalDate enddate) {
+        IdSet activeIds = getActiveCustomerIds(system, startdate, enddate);
+        if (parallel) {
+        	return ParallelAggregation.aggregate(new ArrayList<Customer>(system.getCustomers()), chunk -> {
+        		List<Customer> activeCustomers = new ArrayList<>();
+        		for (Customer customer : chunk) {
+        			if (activeIds.contains(customer.getId())) {
+        				activeCustomers.add(customer);
+        			}
+        		}
+        		return activeCustomers;
+        	}, (first, second) -> {
+        		first.addAll(second);
+        		return first;
+        	});
+        }
         List<Customer> activeCustomers = new ArrayList<>();
         for (Customer customer : system.getCustomers()) {
-            for (Order order : customer.getHistory(system)) {
-                if (order.getDate().isAfter(startdate) && order.getDate().isBefore(enddate)) {
-                    activeCustomers.add(customer);
-                    break;
-                }
+            if (activeIds.contains(customer.getId())) {
+                activeCustomers.add(customer);
             }
         }
         return activeCustomers;
     }
 
+    /**
+     * Counts the active customers strictly between two dates, as getActiveCustomers.
+     * The approximate count is estimated from the customer sketches kept up to date by the system:
+     * it does not scan the orders, but it has a standard error of about 2% and it counts the customers
+     * removed from the system. The exact count scans the orders, without building the list of customers.
+     *
+     * @param system      the MyFoodora system
+     * @param startdate   the start date of the range, excluded
+     * @param enddate     the end date of the range, excluded
+     * @param approximate true to estimate the count from the sketches, false for the exact count
+     * @return the number of customers who ordered within the range
+     */
+    public long countActiveCustomers(MyFoodora system, LocalDate startdate, LocalDate enddate, boolean approximate) {
+        if (approximate) {
+        	return system.getCustomerSketches().estimate(startdate, enddate);
+        }
+        IdSet activeIds = getActiveCustomerIds(system, startdate, enddate);
+        if (parallel) {
+        	return ParallelAggregation.aggregate(new ArrayList<Customer>(system.getCustomers()), chunk -> {
+        		long count = 0;
+        		for (Customer customer : chunk) {
+        			if (activeIds.contains(customer.getId())) {
+        				count++;
+        			}
+        		}
+        		return count;
+        	}, Long::sum);
+        }
+        long count = 0;
+        for (Customer customer : system.getCustomers()) {
+            if (activeIds.contains(customer.getId())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the IDs of the customers who ordered strictly between two dates, in the history and in the archive.
+     *
+     * @param system    the MyFoodora system
+     * @param startdate the start date of the range, excluded
+     * @param enddate   the end date of the range, excluded
+     * @return the IDs of the customers
+     */
+    private IdSet getActiveCustomerIds(MyFoodora system, LocalDate startdate, LocalDate enddate) {
+        CompletableFuture<IdSet> archived = fromArchive(system,
+        		archive -> archive.getCustomerIds(startdate, enddate), new IdSet());
+        IdSet activeIds = system.getOrderHistory().getCustomerIds(startdate, enddate);
+        activeIds.addAll(archived.join());
+        return activeIds;
+    }
+
     /**
      * Computes the average profit per customer within a specified date range.
      *
      * @param system    the MyFoodora system
      * @param startdate the start date of the range
      * @param enddate   the end date of the range
-     * @return the average profit per customer within the specified date range
+     * @return the average profit per customer within the specified date range, zero if no customer ordered
+     */
+    public Money computeAverageProfitPerCustomer(MyFoodora system, LocalDate startdate, LocalDate enddate) {
+        return computeAverageProfitPerCustomer(system, startdate, enddate, false);
+    }
+
+    /**
+     * Computes the average profit per customer within a specified date range, with the exact
+     * or the approximate number of active customers.
+     *
+     * @param system      the MyFoodora system
+     * @param startdate   the start date of the range
+     * @param enddate     the end date of the range
+     * @param approximate true to estimate the number of customers from the customer sketches
+     * @return the average profit per customer within the specified date range, zero if no customer ordered
      */
-    public double computeAverageProfitPerCustomer(MyFoodora system, LocalDate startdate, LocalDate enddate) {
-        double totalProfit = computeTotalProfit(system, startdate, enddate);
-        double totalCustomers = getActiveCustomers(system,startdate,enddate).size();
-        return totalProfit / totalCustomers;
+    public Money computeAverageProfitPerCustomer(MyFoodora system, LocalDate startdate, LocalDate enddate, boolean approximate) {
+        CompletableFuture<Money> totalProfit = parallel
+        		? CompletableFuture.supplyAsync(() -> computeTotalProfit(system, startdate, enddate))
+        		: CompletableFuture.completedFuture(computeTotalProfit(system, startdate, enddate));
+        long totalCustomers = countActiveCustomers(system, startdate, enddate, approximate);
+        if (totalCustomers == 0) {
+            return Money.ZERO;
+        }
+        return totalProfit.join().dividedBy(totalCustomers);
     }
 
     /**
@@ -201,6 +411,26 @@ public class Manager extends Person {
         return restaurants;
     }
 
+    /**
+     * Sorts the restaurants by the number of orders made within a specified date range,
+     * from the most to the least popular.
+     *
+     * @param system    the MyFoodora system
+     * @param startdate the start date of the range
+     * @param enddate   the end date of the range
+     * @return the restaurants sorted
+     */
+    public ArrayList<Restaurant> sortRestaurants(MyFoodora system, LocalDate startdate, LocalDate enddate) {
+        Map<Long, Long> counts = system.getOrderHistory().getRestaurantCounts(startdate, enddate);
+        if (system.getOrderArchive() != null) {
+        	system.getOrderArchive().getRestaurantCounts(startdate, enddate)
+        			.forEach((restaurant, count) -> counts.merge(restaurant, count, Long::sum));
+        }
+        ArrayList<Restaurant> restaurants = new ArrayList<Restaurant>(system.getRestaurants());
+        restaurants.sort((r1, r2) -> Long.compare(counts.getOrDefault(r2.getId(), 0L), counts.getOrDefault(r1.getId(), 0L)));
+        return restaurants;
+    }
+
     /**
      * Gets the most active courier in the system.
      * @param system the MyFoodora system
@@ -239,6 +469,30 @@ public class Manager extends Person {
         return couriers;
     }
 
+    /**
+     * Counts the orders delivered by each courier within a specified date range, both dates included,
+     * from a scan of the order columns and of the order archive, from the most to the least active courier.
+     *
+     * @param system    the MyFoodora system
+     * @param startdate the start date of the range
+     * @param enddate   the end date of the range
+     * @return LinkedHashMap <courier, number of delivered orders>, sorted by decreasing number of deliveries
+     */
+    public Map<Courier, Long> getCourierDeliveries(MyFoodora system, LocalDate startdate, LocalDate enddate) {
+        Map<Long, Long> counts = system.getOrderHistory().getCourierCounts(startdate, enddate);
+        if (system.getOrderArchive() != null) {
+        	system.getOrderArchive().getCourierCounts(startdate, enddate)
+        			.forEach((courier, count) -> counts.merge(courier, count, Long::sum));
+        }
+        ArrayList<Courier> couriers = new ArrayList<Courier>(system.getCouriers());
+        couriers.sort((c1, c2) -> Long.compare(counts.getOrDefault(c2.getId(), 0L), counts.getOrDefault(c1.getId(), 0L)));
+        Map<Courier, Long> deliveries = new LinkedHashMap<Courier, Long>();
+        for (Courier courier : couriers) {
+        	deliveries.put(courier, counts.getOrDefault(courier.getId(), 0L));
+        }
+        return deliveries;
+    }
+
     /**
      * Sets the delivery policy - to assign couriers to an order - in the system.
      * @param system the MyFoodora system
@@ -256,7 +510,7 @@ public class Manager extends Person {
      * @param targetProfit  the target profit to be achieved
      * @return the updated profit data
      */
-    public ProfitData getProfitData(ProfitStrategy strategy,ProfitData profitData, Set<Order> lastMonthOrders, double targetProfit) {
+    public ProfitData getProfitData(ProfitStrategy strategy,ProfitData profitData, Set<Order> lastMonthOrders, Money targetProfit) {
         return strategy.getProfitData(profitData, lastMonthOrders, targetProfit);
     }
 
@@ -1,6 +1,7 @@
 package user;
 
 import food.*;
+import system.Money;
 import system.MyFoodora;
 import order.Order;
 import fidelity.*;
@@ -57,9 +58,9 @@ public class Restaurant extends User {
      *
      * @param order    the order for which to calculate the price.
      * @param customer the customer who placed the order.
-     * @return the final price of the order as a {@code double}.
+     * @return the final price of the order as a {@link Money} amount.
      */
-    public double getPrice(Order order, Customer customer) {
+    public Money getPrice(Order order, Customer customer) {
         FidelityCard card = customer.getFidelityCard();
         return card.getFinalPrice(order);
     }
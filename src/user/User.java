@@ -2,6 +2,8 @@ package user;
 
 import java.util.*;
 
+import system.IdAllocator;
+
 /**
  * The User class represents a user in the MyFoodora system.
  * It provides methods for managing user information and ensuring unique usernames.
@@ -10,13 +12,12 @@ import java.util.*;
  */
 public abstract class User {
 
-    protected static int idCounter = 0; // Counter for unique user IDs
     protected static Set<String> usernamesUsed = new HashSet<>(); // Set of used usernames
 
     protected String name;
     protected String username;
     protected String password;
-    protected int id;
+    protected long id;
     protected boolean active;
 
     /**
@@ -34,7 +35,7 @@ public abstract class User {
         this.name = name;
         this.username = username;
         this.password = password;
-        this.id = idCounter++;
+        this.id = IdAllocator.getDefault().nextId();
         usernamesUsed.add(username);
         this.active = true;
     }
@@ -46,7 +47,7 @@ public abstract class User {
      */
     public User(String password) {
         this.password = password;
-        this.id = idCounter++;
+        this.id = IdAllocator.getDefault().nextId();
         this.active = true;
         this.name = "User " + this.id; // Default name if not provided
         this.username = "user_" + this.id; // Default username if not provided
@@ -179,7 +180,7 @@ public abstract class User {
      *
      * @return the ID of the user
      */
-    public int getId() {
+    public long getId() {
         return id;
     }
 